@@ -33,7 +33,12 @@ import android.telephony.TelephonyManager;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.BackgroundScheduler;
+import com.android.settings.core.instrumentation.ControllerLatencyTracker;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
+import com.android.settings.homepage.contextualcards.CardEligibilityEngine;
+import com.android.settings.panel.PanelSliceLatencyTracker;
+import com.android.settings.slices.SliceBackgroundWorker;
 import com.android.settingslib.net.DataUsageController;
 
 import org.json.JSONArray;
@@ -58,6 +63,16 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_CONTROLLER_LATENCY = "controller_latency";
+    @VisibleForTesting
+    static final String KEY_BACKGROUND_SCHEDULER = "background_scheduler";
+    @VisibleForTesting
+    static final String KEY_PANEL_SLICE_LATENCY = "panel_slice_latency";
+    @VisibleForTesting
+    static final String KEY_CARD_ELIGIBILITY_LATENCY = "card_eligibility_latency";
+    @VisibleForTesting
+    static final String KEY_SLICE_BACKGROUND_WORKERS = "slice_background_workers";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -77,6 +92,11 @@ public class SettingsDumpService extends Service {
             dump.put(KEY_MEMORY, dumpMemory());
             dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
             dump.put(KEY_ANOMALY_DETECTION, dumpAnomalyDetection());
+            dump.put(KEY_CONTROLLER_LATENCY, ControllerLatencyTracker.getInstance().dump());
+            dump.put(KEY_BACKGROUND_SCHEDULER, BackgroundScheduler.getInstance().dump());
+            dump.put(KEY_PANEL_SLICE_LATENCY, PanelSliceLatencyTracker.getInstance().dump());
+            dump.put(KEY_CARD_ELIGIBILITY_LATENCY, CardEligibilityEngine.getInstance().dump());
+            dump.put(KEY_SLICE_BACKGROUND_WORKERS, SliceBackgroundWorker.dump());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -38,10 +38,10 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.OnLifecycleEvent;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.homepage.SettingsHomepageActivity;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.net.URISyntaxException;
 import java.util.List;
@@ -146,7 +146,7 @@ public class AvatarViewMixin implements LifecycleObserver {
             return;
         }
 
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final Uri uri = new Uri.Builder().scheme(ContentResolver.SCHEME_CONTENT)
                     .authority(authority)
                     .build();
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.os.LocaleList;
+import android.os.UserHandle;
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+/**
+ * Process wide cache of the labels and user badged icons of apps, shared by the screens listing
+ * apps which are not backed by {@link com.android.settingslib.applications.ApplicationsState},
+ * such as the notification history and the other apps of a data usage uid.
+ *
+ * The cache is bounded and evicts the least recently used apps. It is dropped when the locale
+ * changes, since the labels depend on it. An entry is only reused while the last update time of
+ * its package is unchanged, and is dropped once the package is gone. All methods are thread safe.
+ */
+public class AppLabelIconCache {
+
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 128;
+
+    private static final int MATCH_FLAGS = PackageManager.MATCH_UNINSTALLED_PACKAGES
+            | PackageManager.MATCH_DISABLED_COMPONENTS
+            | PackageManager.MATCH_DIRECT_BOOT_UNAWARE
+            | PackageManager.MATCH_DIRECT_BOOT_AWARE;
+
+    private static AppLabelIconCache sInstance;
+
+    private final LruCache<String, Entry> mEntries = new LruCache<>(MAX_ENTRIES);
+    private LocaleList mLocales;
+
+    /**
+     * The label and icon of an app.
+     */
+    public static class Entry {
+        public final CharSequence label;
+        private final Drawable mIcon;
+        private final Drawable.ConstantState mIconState;
+        private final long mLastUpdateTime;
+
+        @VisibleForTesting
+        Entry(CharSequence label, Drawable icon, long lastUpdateTime) {
+            this.label = label;
+            mIcon = icon;
+            mIconState = icon != null ? icon.getConstantState() : null;
+            mLastUpdateTime = lastUpdateTime;
+        }
+
+        /**
+         * @return a new instance of the icon, which can be used by a single view.
+         */
+        public Drawable newIcon() {
+            return mIconState != null ? mIconState.newDrawable() : mIcon;
+        }
+    }
+
+    public static synchronized AppLabelIconCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new AppLabelIconCache();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    AppLabelIconCache() {
+    }
+
+    /**
+     * @return the label and icon of {@code packageName} for {@code userId}, loading them if
+     * needed, or {@code null} if the package cannot be found.
+     */
+    @WorkerThread
+    public Entry get(PackageManager pm, String packageName, int userId) {
+        checkLocales();
+        final String key = userId + ":" + packageName;
+        // The package info is cheap next to the label and icon, and tells whether they changed.
+        final PackageInfo packageInfo;
+        try {
+            packageInfo = pm.getPackageInfoAsUser(packageName, MATCH_FLAGS, userId);
+        } catch (PackageManager.NameNotFoundException e) {
+            mEntries.remove(key);
+            return null;
+        }
+        if (packageInfo == null || packageInfo.applicationInfo == null) {
+            mEntries.remove(key);
+            return null;
+        }
+        final ApplicationInfo info = packageInfo.applicationInfo;
+        Entry entry = mEntries.get(key);
+        if (entry != null && entry.mLastUpdateTime == packageInfo.lastUpdateTime) {
+            return entry;
+        }
+        entry = new Entry(pm.getApplicationLabel(info),
+                pm.getUserBadgedIcon(pm.getApplicationIcon(info), UserHandle.of(userId)),
+                packageInfo.lastUpdateTime);
+        mEntries.put(key, entry);
+        return entry;
+    }
+
+    private synchronized void checkLocales() {
+        final LocaleList locales = LocaleList.getDefault();
+        if (!locales.equals(mLocales)) {
+            mLocales = locales;
+            mEntries.evictAll();
+        }
+    }
+}
@@ -24,6 +24,7 @@ import com.android.settingslib.applications.ApplicationsState.AppEntry;
 import com.android.settingslib.applications.ApplicationsState.Session;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Common base class for bridging information to ApplicationsState.
@@ -33,7 +34,7 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
     protected final ApplicationsState mAppState;
     protected final Session mAppSession;
     protected final Callback mCallback;
-    protected final BackgroundHandler mHandler;
+    private final AppStateBridgeScheduler mScheduler;
     protected final MainHandler mMainHandler;
 
     public AppStateBaseBridge(ApplicationsState appState, Callback callback) {
@@ -43,13 +44,13 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
         // Running on the same background thread as the ApplicationsState lets
         // us run in the background and make sure they aren't doing updates at
         // the same time as us as well.
-        mHandler = new BackgroundHandler(mAppState != null ? mAppState.getBackgroundLooper()
-                : Looper.getMainLooper());
+        mScheduler = AppStateBridgeScheduler.getInstance(mAppState != null
+                ? mAppState.getBackgroundLooper() : Looper.getMainLooper());
         mMainHandler = new MainHandler(Looper.getMainLooper());
     }
 
     public void resume() {
-        mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ALL);
+        mScheduler.requestLoadAll(this, true /* immediate */);
         mAppSession.onResume();
     }
 
@@ -58,21 +59,22 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
     }
 
     public void release() {
+        mScheduler.cancel(this);
         mAppSession.onDestroy();
     }
 
     public void forceUpdate(String pkg, int uid) {
-        mHandler.obtainMessage(BackgroundHandler.MSG_FORCE_LOAD_PKG, uid, 0, pkg).sendToTarget();
+        mScheduler.requestUpdate(this, pkg, uid);
     }
 
     @Override
     public void onPackageListChanged() {
-        mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ALL);
+        mScheduler.requestLoadAll(this, false /* immediate */);
     }
 
     @Override
     public void onLoadEntriesCompleted() {
-        mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ALL);
+        mScheduler.requestLoadAll(this, false /* immediate */);
     }
 
     @Override
@@ -109,6 +111,14 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
 
     protected abstract void updateExtraInfo(AppEntry app, String pkg, int uid);
 
+    List<AppEntry> getAllApps() {
+        return mAppSession.getAllApps();
+    }
+
+    void notifyExtraInfoUpdated() {
+        mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
+    }
+
     private class MainHandler extends Handler {
         private static final int MSG_INFO_UPDATED = 1;
 
@@ -126,38 +136,6 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
         }
     }
 
-    private class BackgroundHandler extends Handler {
-        private static final int MSG_LOAD_ALL = 1;
-        private static final int MSG_FORCE_LOAD_PKG = 2;
-
-        public BackgroundHandler(Looper looper) {
-            super(looper);
-        }
-
-        @Override
-        public void handleMessage(Message msg) {
-            switch (msg.what) {
-                case MSG_LOAD_ALL:
-                    loadAllExtraInfo();
-                    mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
-                    break;
-                case MSG_FORCE_LOAD_PKG:
-                    ArrayList<AppEntry> apps = mAppSession.getAllApps();
-                    final int N = apps.size();
-                    String pkg = (String) msg.obj;
-                    int uid = msg.arg1;
-                    for (int i = 0; i < N; i++) {
-                        AppEntry app = apps.get(i);
-                        if (app.info.uid == uid && pkg.equals(app.info.packageName)) {
-                            updateExtraInfo(app, pkg, uid);
-                        }
-                    }
-                    mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
-                    break;
-            }
-        }
-    }
-
 
     public interface Callback {
         void onExtraInfoUpdated();
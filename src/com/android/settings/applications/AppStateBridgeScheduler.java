@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Schedules the loading work of every {@link AppStateBaseBridge} running on a background looper.
+ *
+ * Requests which arrive within {@link #COALESCE_WINDOW_MS} of the last pass are merged into the
+ * next one, so a burst of package changes results in a single reload per bridge. Per-package
+ * updates are applied incrementally, and are dropped when a full reload of the same bridge is
+ * already pending. The pending updates of all the bridges share a single walk over the app list.
+ */
+class AppStateBridgeScheduler {
+
+    private static final String TAG = "AppStateBridgeScheduler";
+    private static final boolean DEBUG = false;
+
+    @VisibleForTesting
+    static final long COALESCE_WINDOW_MS = 200;
+    private static final int MSG_RUN = 1;
+
+    private static final Map<Looper, AppStateBridgeScheduler> sInstances = new ArrayMap<>();
+
+    private final Handler mHandler;
+    // Guarded by this.
+    private final Set<AppStateBaseBridge> mPendingLoads = new ArraySet<>();
+    private final Map<AppStateBaseBridge, Set<String>> mPendingUpdates = new ArrayMap<>();
+    private long mLastRunTime = -COALESCE_WINDOW_MS;
+
+    static AppStateBridgeScheduler getInstance(Looper looper) {
+        synchronized (sInstances) {
+            AppStateBridgeScheduler scheduler = sInstances.get(looper);
+            if (scheduler == null) {
+                scheduler = new AppStateBridgeScheduler(looper);
+                sInstances.put(looper, scheduler);
+            }
+            return scheduler;
+        }
+    }
+
+    @VisibleForTesting
+    AppStateBridgeScheduler(Looper looper) {
+        mHandler = new Handler(looper) {
+            @Override
+            public void handleMessage(Message msg) {
+                if (msg.what == MSG_RUN) {
+                    runPendingWork();
+                }
+            }
+        };
+    }
+
+    /**
+     * Reload all the extra info of {@code bridge}.
+     *
+     * @param immediate whether to skip the coalescing window, e.g. when the page is resumed.
+     */
+    void requestLoadAll(AppStateBaseBridge bridge, boolean immediate) {
+        synchronized (this) {
+            mPendingLoads.add(bridge);
+            // The full reload covers every pending package.
+            mPendingUpdates.remove(bridge);
+        }
+        schedule(immediate);
+    }
+
+    /**
+     * Update the extra info of the entries of {@code pkg} and {@code uid} in {@code bridge}.
+     */
+    void requestUpdate(AppStateBaseBridge bridge, String pkg, int uid) {
+        synchronized (this) {
+            if (mPendingLoads.contains(bridge)) {
+                return;
+            }
+            Set<String> packages = mPendingUpdates.get(bridge);
+            if (packages == null) {
+                packages = new ArraySet<>();
+                mPendingUpdates.put(bridge, packages);
+            }
+            packages.add(getKey(pkg, uid));
+        }
+        schedule(false /* immediate */);
+    }
+
+    /**
+     * Drop all the pending work of {@code bridge}.
+     */
+    synchronized void cancel(AppStateBaseBridge bridge) {
+        mPendingLoads.remove(bridge);
+        mPendingUpdates.remove(bridge);
+    }
+
+    private void schedule(boolean immediate) {
+        final long delay;
+        synchronized (this) {
+            delay = immediate ? 0
+                    : Math.max(0, mLastRunTime + COALESCE_WINDOW_MS - SystemClock.uptimeMillis());
+        }
+        if (mHandler.hasMessages(MSG_RUN)) {
+            if (!immediate) {
+                // The pending pass will pick up this request.
+                return;
+            }
+            mHandler.removeMessages(MSG_RUN);
+        }
+        mHandler.sendEmptyMessageDelayed(MSG_RUN, delay);
+    }
+
+    @VisibleForTesting
+    void runPendingWork() {
+        final List<AppStateBaseBridge> loads;
+        final Map<AppStateBaseBridge, Set<String>> updates;
+        synchronized (this) {
+            mLastRunTime = SystemClock.uptimeMillis();
+            loads = new ArrayList<>(mPendingLoads);
+            updates = new ArrayMap<>(mPendingUpdates);
+            mPendingLoads.clear();
+            mPendingUpdates.clear();
+        }
+        if (DEBUG) {
+            Log.d(TAG, "Loading " + loads.size() + " bridges, updating " + updates.size());
+        }
+
+        for (AppStateBaseBridge bridge : loads) {
+            bridge.loadAllExtraInfo();
+            bridge.notifyExtraInfoUpdated();
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        // All the sessions share the app list of ApplicationsState, so walk it once and apply the
+        // updates of every bridge to the matching entries.
+        final Set<String> keys = new ArraySet<>();
+        for (Set<String> packages : updates.values()) {
+            keys.addAll(packages);
+        }
+        final Map<String, List<AppEntry>> entries = new ArrayMap<>(keys.size());
+        final List<AppEntry> apps = updates.keySet().iterator().next().getAllApps();
+        for (int i = 0; i < apps.size(); i++) {
+            final AppEntry app = apps.get(i);
+            final String key = getKey(app.info.packageName, app.info.uid);
+            if (keys.contains(key)) {
+                List<AppEntry> matches = entries.get(key);
+                if (matches == null) {
+                    matches = new ArrayList<>(1);
+                    entries.put(key, matches);
+                }
+                matches.add(app);
+            }
+        }
+        for (Map.Entry<AppStateBaseBridge, Set<String>> update : updates.entrySet()) {
+            final AppStateBaseBridge bridge = update.getKey();
+            for (String key : update.getValue()) {
+                final List<AppEntry> matches = entries.get(key);
+                if (matches == null) {
+                    continue;
+                }
+                for (AppEntry app : matches) {
+                    bridge.updateExtraInfo(app, app.info.packageName, app.info.uid);
+                }
+            }
+            bridge.notifyExtraInfoUpdated();
+        }
+    }
+
+    @VisibleForTesting
+    boolean hasPendingWork() {
+        return mHandler.hasMessages(MSG_RUN);
+    }
+
+    private static String getKey(String pkg, int uid) {
+        return uid + "/" + pkg;
+    }
+}
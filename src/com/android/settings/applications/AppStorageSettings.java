@@ -53,6 +53,7 @@ import androidx.preference.PreferenceCategory;
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.deviceinfo.StorageWizardMoveConfirm;
+import com.android.settings.deviceinfo.storage.PackageStorageStatsCache;
 import com.android.settingslib.RestrictedLockUtils;
 import com.android.settingslib.applications.AppUtils;
 import com.android.settingslib.applications.ApplicationsState.Callbacks;
@@ -611,7 +612,11 @@ public class AppStorageSettings extends AppInfoWithHeader
     }
 
     class ClearCacheObserver extends IPackageDataObserver.Stub {
+        private final PackageStorageStatsCache mStatsCache =
+                PackageStorageStatsCache.getInstance(getContext());
+
         public void onRemoveCompleted(final String packageName, final boolean succeeded) {
+            mStatsCache.invalidate(packageName);
             final Message msg = mHandler.obtainMessage(MSG_CLEAR_CACHE);
             msg.arg1 = succeeded ? OP_SUCCESSFUL : OP_FAILED;
             mHandler.sendMessage(msg);
@@ -619,7 +624,11 @@ public class AppStorageSettings extends AppInfoWithHeader
     }
 
     class ClearUserDataObserver extends IPackageDataObserver.Stub {
+        private final PackageStorageStatsCache mStatsCache =
+                PackageStorageStatsCache.getInstance(getContext());
+
         public void onRemoveCompleted(final String packageName, final boolean succeeded) {
+            mStatsCache.invalidate(packageName);
             final Message msg = mHandler.obtainMessage(MSG_CLEAR_USER_DATA);
             msg.arg1 = succeeded ? OP_SUCCESSFUL : OP_FAILED;
             mHandler.sendMessage(msg);
@@ -33,6 +33,7 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settingslib.applications.AppUtils;
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
@@ -92,7 +93,7 @@ public class RecentAppStatsMixin implements Comparator<UsageStats>, LifecycleObs
 
     @Override
     public void onStart() {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             loadDisplayableRecentApps(mMaximumApps);
             for (RecentAppStatsListener listener : mAppStatsListeners) {
                 ThreadUtils.postOnMainThread(() -> listener.onReloadDataCompleted(mRecentApps));
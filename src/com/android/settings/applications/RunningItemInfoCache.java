@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.content.pm.PackageItemInfo;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.os.UserHandle;
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Cache of the labels and icons of the items shown by {@link RunningState}.
+ *
+ * Processes come and go on every update of {@link RunningState}, but their labels and icons
+ * rarely change, so they are kept here instead of being loaded from {@link PackageManager} again
+ * every time a new item is created or bound. Both caches are bounded and evict the least recently
+ * used entries. All methods are thread safe.
+ */
+class RunningItemInfoCache {
+
+    @VisibleForTesting
+    static final int MAX_LABELS = 256;
+    @VisibleForTesting
+    static final int MAX_ICONS = 64;
+
+    private final LruCache<String, Label> mLabels = new LruCache<>(MAX_LABELS);
+    private final LruCache<String, Drawable.ConstantState> mIcons = new LruCache<>(MAX_ICONS);
+
+    static class Label {
+        final CharSequence mDisplayLabel;
+        final PackageItemInfo mPackageInfo;
+
+        Label(CharSequence displayLabel, PackageItemInfo packageInfo) {
+            mDisplayLabel = displayLabel;
+            mPackageInfo = packageInfo;
+        }
+    }
+
+    /**
+     * @return the cached label of process {@code processName} running as {@code uid}, or
+     * {@code null} if it is not cached.
+     */
+    Label getLabel(int uid, String processName) {
+        return mLabels.get(getLabelKey(uid, processName));
+    }
+
+    void putLabel(int uid, String processName, CharSequence displayLabel,
+            PackageItemInfo packageInfo) {
+        mLabels.put(getLabelKey(uid, processName), new Label(displayLabel, packageInfo));
+    }
+
+    /**
+     * @return the icon of {@code packageInfo} badged for {@code userId}, loading it if needed.
+     */
+    Drawable getIcon(PackageManager pm, PackageItemInfo packageInfo, int userId) {
+        final String key = packageInfo.packageName + "/" + packageInfo.icon + "/" + userId;
+        final Drawable.ConstantState cached = mIcons.get(key);
+        if (cached != null) {
+            return cached.newDrawable();
+        }
+        final Drawable unbadgedIcon = packageInfo.loadUnbadgedIcon(pm);
+        final Drawable icon = pm.getUserBadgedIcon(unbadgedIcon, new UserHandle(userId));
+        final Drawable.ConstantState state = icon != null ? icon.getConstantState() : null;
+        if (state != null) {
+            mIcons.put(key, state);
+        }
+        return icon;
+    }
+
+    /**
+     * Drop everything, e.g. when the locale or the users changed.
+     */
+    void clear() {
+        mLabels.evictAll();
+        mIcons.evictAll();
+    }
+
+    private static String getLabelKey(int uid, String processName) {
+        return uid + ":" + processName;
+    }
+}
@@ -75,6 +75,9 @@ public class RunningState {
 
     static final int MAX_SERVICES = 100;
 
+    // Labels and icons of the items, shared by all the updates.
+    static final RunningItemInfoCache sInfoCache = new RunningItemInfoCache();
+
     final Context mApplicationContext;
     final ActivityManager mAm;
     final PackageManager mPm;
@@ -206,17 +209,14 @@ public class RunningState {
     boolean mHaveData;
     boolean mWatchingBackgroundItems;
 
-    ArrayList<BaseItem> mItems = new ArrayList<BaseItem>();
+    // ----- following only accessed by the background thread -----
+
     ArrayList<MergedItem> mMergedItems = new ArrayList<MergedItem>();
     ArrayList<MergedItem> mBackgroundItems = new ArrayList<MergedItem>();
-    ArrayList<MergedItem> mUserBackgroundItems = new ArrayList<MergedItem>();
-    
-    int mNumBackgroundProcesses;
-    long mBackgroundProcessMemory;
-    int mNumForegroundProcesses;
-    long mForegroundProcessMemory;
-    int mNumServiceProcesses;
-    long mServiceProcessMemory;
+
+    // The latest published state, read by the UI without taking mLock.
+    volatile Snapshot mSnapshot = new Snapshot(new ArrayList<BaseItem>(),
+            new ArrayList<MergedItem>(), new ArrayList<MergedItem>(), 0, 0, 0, 0, 0, 0);
 
     // ----- BACKGROUND MONITORING THREAD -----
 
@@ -329,6 +329,38 @@ public class RunningState {
         public void onRefreshUi(int what);
     }
 
+    /**
+     * The result of an update, published as a whole. The lists are never modified once
+     * published.
+     */
+    static final class Snapshot {
+        final ArrayList<BaseItem> mItems;
+        final ArrayList<MergedItem> mMergedItems;
+        final ArrayList<MergedItem> mUserBackgroundItems;
+        final int mNumBackgroundProcesses;
+        final long mBackgroundProcessMemory;
+        final int mNumForegroundProcesses;
+        final long mForegroundProcessMemory;
+        final int mNumServiceProcesses;
+        final long mServiceProcessMemory;
+
+        Snapshot(ArrayList<BaseItem> items, ArrayList<MergedItem> mergedItems,
+                ArrayList<MergedItem> userBackgroundItems, int numBackgroundProcesses,
+                long backgroundProcessMemory, int numForegroundProcesses,
+                long foregroundProcessMemory, int numServiceProcesses,
+                long serviceProcessMemory) {
+            mItems = items;
+            mMergedItems = mergedItems;
+            mUserBackgroundItems = userBackgroundItems;
+            mNumBackgroundProcesses = numBackgroundProcesses;
+            mBackgroundProcessMemory = backgroundProcessMemory;
+            mNumForegroundProcesses = numForegroundProcesses;
+            mForegroundProcessMemory = foregroundProcessMemory;
+            mNumServiceProcesses = numServiceProcesses;
+            mServiceProcessMemory = serviceProcessMemory;
+        }
+    }
+
     static class UserState {
         UserInfo mInfo;
         String mLabel;
@@ -360,9 +392,7 @@ public class RunningState {
 
         public Drawable loadIcon(Context context, RunningState state) {
             if (mPackageInfo != null) {
-                Drawable unbadgedIcon = mPackageInfo.loadUnbadgedIcon(state.mPm);
-                Drawable icon = state.mPm.getUserBadgedIcon(unbadgedIcon, new UserHandle(mUserId));
-                return icon;
+                return sInfoCache.getIcon(state.mPm, mPackageInfo, mUserId);
             }
             return null;
         }
@@ -417,7 +447,22 @@ public class RunningState {
             if (mLabel != null) {
                 return;
             }
-            
+
+            final RunningItemInfoCache.Label cached = sInfoCache.getLabel(mUid, mProcessName);
+            if (cached != null) {
+                mDisplayLabel = cached.mDisplayLabel;
+                mLabel = mDisplayLabel.toString();
+                mPackageInfo = cached.mPackageInfo;
+                return;
+            }
+
+            loadLabel(pm);
+            if (mLabel != null) {
+                sInfoCache.putLabel(mUid, mProcessName, mDisplayLabel, mPackageInfo);
+            }
+        }
+
+        private void loadLabel(PackageManager pm) {
             try {
                 ApplicationInfo ai = pm.getApplicationInfo(mProcessName,
                         PackageManager.MATCH_ANY_USER);
@@ -856,6 +901,7 @@ public class RunningState {
     }
 
     private void reset() {
+        sInfoCache.clear();
         mServiceProcessesByName.clear();
         mServiceProcessesByPid.clear();
         mInterestingProcesses.clear();
@@ -899,6 +945,8 @@ public class RunningState {
         mSequence++;
         
         boolean changed = false;
+        final Snapshot lastSnapshot = mSnapshot;
+        ArrayList<BaseItem> items = lastSnapshot.mItems;
 
         // Retrieve list of services, filtering out anything that definitely
         // won't be shown in the UI.
@@ -1271,10 +1319,8 @@ public class RunningState {
                 }
             }
 
-            synchronized (mLock) {
-                mItems = newItems;
-                mMergedItems = newMergedItems;
-            }
+            items = newItems;
+            mMergedItems = newMergedItems;
         }
         
         // Count number of interesting other (non-active) processes, and
@@ -1413,19 +1459,18 @@ public class RunningState {
             mMergedItems.get(i).updateSize(context);
         }
         
+        ArrayList<MergedItem> userBackgroundItems = lastSnapshot.mUserBackgroundItems;
+        if (newBackgroundItems != null) {
+            mBackgroundItems = newBackgroundItems;
+            userBackgroundItems = newUserBackgroundItems;
+        }
+        mSnapshot = new Snapshot(items, mMergedItems, userBackgroundItems,
+                numBackgroundProcesses, backgroundProcessMemory, numForegroundProcesses,
+                foregroundProcessMemory, numServiceProcesses, serviceProcessMemory);
+
         synchronized (mLock) {
-            mNumBackgroundProcesses = numBackgroundProcesses;
-            mNumForegroundProcesses = numForegroundProcesses;
-            mNumServiceProcesses = numServiceProcesses;
-            mBackgroundProcessMemory = backgroundProcessMemory;
-            mForegroundProcessMemory = foregroundProcessMemory;
-            mServiceProcessMemory = serviceProcessMemory;
-            if (newBackgroundItems != null) {
-                mBackgroundItems = newBackgroundItems;
-                mUserBackgroundItems = newUserBackgroundItems;
-                if (mWatchingBackgroundItems) {
-                    changed = true;
-                }
+            if (newBackgroundItems != null && mWatchingBackgroundItems) {
+                changed = true;
             }
             if (!mHaveData) {
                 mHaveData = true;
@@ -1443,14 +1488,17 @@ public class RunningState {
     }
 
     ArrayList<MergedItem> getCurrentMergedItems() {
-        synchronized (mLock) {
-            return mMergedItems;
-        }
+        return mSnapshot.mMergedItems;
     }
 
     ArrayList<MergedItem> getCurrentBackgroundItems() {
-        synchronized (mLock) {
-            return mUserBackgroundItems;
-        }
+        return mSnapshot.mUserBackgroundItems;
+    }
+
+    /**
+     * @return the state published by the last update, without blocking on it.
+     */
+    Snapshot getSnapshot() {
+        return mSnapshot;
     }
 }
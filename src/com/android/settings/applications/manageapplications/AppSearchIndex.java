@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the labels of a list of apps, for the search box of {@link ManageApplications}.
+ *
+ * The labels are normalized once, and every trigram of a label points to the apps containing
+ * it, so a query only checks the apps sharing its rarest trigram. A query containing the previous
+ * one, which is the common case while typing, only checks the previous matches.
+ */
+@WorkerThread
+class AppSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{Mn}+");
+
+    private final List<AppEntry> mEntries;
+    private final String[] mLabels;
+    private final Map<Long, Postings> mTrigrams = new HashMap<>();
+    private String mLastQuery;
+    private int[] mLastMatches;
+    private int mLastMatchCount;
+
+    AppSearchIndex(List<AppEntry> entries) {
+        mEntries = entries;
+        mLabels = new String[entries.size()];
+        for (int i = 0; i < mLabels.length; i++) {
+            final String label = normalize(entries.get(i).label);
+            mLabels[i] = label;
+            for (int start = 0; start + GRAM_LENGTH <= label.length(); start++) {
+                final long trigram = getTrigram(label, start);
+                Postings postings = mTrigrams.get(trigram);
+                if (postings == null) {
+                    postings = new Postings();
+                    mTrigrams.put(trigram, postings);
+                }
+                postings.add(i);
+            }
+        }
+    }
+
+    /**
+     * @return the entries this index was built from.
+     */
+    List<AppEntry> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * @return the entries whose normalized label contains the normalized {@code query}, in the
+     * order of the entries.
+     */
+    ArrayList<AppEntry> search(String query) {
+        final String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty()) {
+            mLastQuery = null;
+            return new ArrayList<>(mEntries);
+        }
+
+        int[] candidates = null;
+        int candidateCount = mLabels.length;
+        if (mLastQuery != null && normalizedQuery.contains(mLastQuery)) {
+            candidates = mLastMatches;
+            candidateCount = mLastMatchCount;
+        } else if (normalizedQuery.length() >= GRAM_LENGTH) {
+            for (int start = 0; start + GRAM_LENGTH <= normalizedQuery.length(); start++) {
+                final Postings postings = mTrigrams.get(getTrigram(normalizedQuery, start));
+                if (postings == null) {
+                    candidateCount = 0;
+                    break;
+                }
+                if (candidates == null || postings.mSize < candidateCount) {
+                    candidates = postings.mValues;
+                    candidateCount = postings.mSize;
+                }
+            }
+        }
+
+        final int[] matches = new int[candidateCount];
+        int matchCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            final int index = candidates != null ? candidates[i] : i;
+            if (mLabels[index].contains(normalizedQuery)) {
+                matches[matchCount++] = index;
+            }
+        }
+        mLastQuery = normalizedQuery;
+        mLastMatches = matches;
+        mLastMatchCount = matchCount;
+
+        final ArrayList<AppEntry> result = new ArrayList<>(matchCount);
+        for (int i = 0; i < matchCount; i++) {
+            result.add(mEntries.get(matches[i]));
+        }
+        return result;
+    }
+
+    /**
+     * @return {@code text} in lower case and without diacritics.
+     */
+    @VisibleForTesting
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        final String decomposed = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    private static long getTrigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+
+    /** Indexes of the entries containing a trigram, in increasing order and without duplicates. */
+    private static class Postings {
+        private int[] mValues = new int[4];
+        private int mSize;
+
+        void add(int index) {
+            if (mSize > 0 && mValues[mSize - 1] == index) {
+                return;
+            }
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, mSize * 2);
+            }
+            mValues[mSize++] = index;
+        }
+    }
+}
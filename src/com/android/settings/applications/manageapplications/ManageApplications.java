@@ -55,6 +55,7 @@ import android.os.UserHandle;
 import android.os.UserManager;
 import android.preference.PreferenceFrameLayout;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.IconDrawableFactory;
 import android.util.Log;
@@ -74,6 +75,7 @@ import android.widget.Spinner;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -109,6 +111,7 @@ import com.android.settings.applications.appinfo.DrawOverlayDetails;
 import com.android.settings.applications.appinfo.ExternalSourcesDetails;
 import com.android.settings.applications.appinfo.ManageExternalStorageDetails;
 import com.android.settings.applications.appinfo.WriteSettingsDetails;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.InstrumentedFragment;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.dashboard.profileselector.ProfileSelectFragment;
@@ -134,7 +137,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 /**
  * Activity to pick an application that will be used to display installation information and
@@ -260,6 +265,7 @@ public class ManageApplications extends InstrumentedFragment
     private int mFilterType;
 
     private AppLockManager mAppLockManager;
+    private BackgroundScheduler.Scope mBackgroundScope;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -577,6 +583,17 @@ public class ManageApplications extends InstrumentedFragment
         }
     }
 
+    /**
+     * @return the scope of the background work of this screen, cancelled when it stops.
+     */
+    BackgroundScheduler.Scope getBackgroundScope() {
+        if (mBackgroundScope == null) {
+            mBackgroundScope = BackgroundScheduler.getInstance()
+                    .createScope(getSettingsLifecycle());
+        }
+        return mBackgroundScope;
+    }
+
     @Override
     public void onStop() {
         super.onStop();
@@ -1009,6 +1026,8 @@ public class ManageApplications extends InstrumentedFragment
         private final AppStateBaseBridge mExtraInfoBridge;
         private final LoadingViewController mLoadingViewController;
         private final IconDrawableFactory mIconDrawableFactory;
+        // Cancelled when the list is paused.
+        private final BackgroundScheduler.Scope mBackgroundScope;
 
         private AppFilterItem mAppFilter;
         private ArrayList<ApplicationsState.AppEntry> mEntries;
@@ -1021,7 +1040,13 @@ public class ManageApplications extends InstrumentedFragment
         private boolean mHasReceivedBridgeCallback;
         private FileViewHolderController mExtraViewController;
         private SearchFilter mSearchFilter;
+        // Only accessed on the thread of mSearchFilter.
+        private AppSearchIndex mSearchIndex;
+        // Positions of the packages in mIndexedEntries, which are the last indexed mEntries.
+        private final ArrayMap<String, int[]> mPackagePositions = new ArrayMap<>();
+        private ArrayList<ApplicationsState.AppEntry> mIndexedEntries;
         private PowerWhitelistBackend mBackend;
+        private Future<?> mPendingRebuild;
 
         // This is to remember and restore the last scroll position when this
         // fragment is paused. We need this special handling because app entries are added gradually
@@ -1047,6 +1072,7 @@ public class ManageApplications extends InstrumentedFragment
             mIconDrawableFactory = IconDrawableFactory.newInstance(mContext);
             mAppFilter = appFilter;
             mBackend = PowerWhitelistBackend.getInstance(mContext);
+            mBackgroundScope = manageApplications.getBackgroundScope();
             if (mManageApplications.mListType == LIST_TYPE_NOTIFICATION) {
                 mExtraInfoBridge = new AppStateNotificationBridge(mContext, mState, this,
                         manageApplications.mUsageStatsManager,
@@ -1117,8 +1143,8 @@ public class ManageApplications extends InstrumentedFragment
         public void setExtraViewController(FileViewHolderController extraViewController) {
             mExtraViewController = extraViewController;
             // Start to query extra view's stats on background, and once done post result to main
-            // thread.
-            ThreadUtils.postOnBackgroundThread(() -> {
+            // thread. The query only runs once, so it stays out of the scope cancelled on stop.
+            BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH, () -> {
                 mExtraViewController.queryStats();
                 ThreadUtils.postOnMainThread(() -> {
                     onExtraViewCompleted();
@@ -1248,9 +1274,12 @@ public class ManageApplications extends InstrumentedFragment
 
             final AppFilter finalFilterObj = new CompoundFilter(filterObj,
                     ApplicationsState.FILTER_NOT_HIDE);
-            ThreadUtils.postOnBackgroundThread(() -> {
-                mSession.rebuild(finalFilterObj, comparatorObj, false);
-            });
+            // Only the latest rebuild matters, drop the one still waiting for a thread.
+            if (mPendingRebuild != null) {
+                mPendingRebuild.cancel(false /* mayInterruptIfRunning */);
+            }
+            mPendingRebuild = mBackgroundScope.submit(BackgroundScheduler.LANE_PREFETCH,
+                    () -> mSession.rebuild(finalFilterObj, comparatorObj, false));
         }
 
         @VisibleForTesting
@@ -1388,24 +1417,48 @@ public class ManageApplications extends InstrumentedFragment
             if (mEntries == null) {
                 return;
             }
-            final int size = mEntries.size();
-            for (int i = 0; i < size; i++) {
-                final AppEntry entry = mEntries.get(i);
-                final ApplicationInfo info = entry.info;
-                if (info == null && !TextUtils.equals(packageName, info.packageName)) {
-                    continue;
-                }
-                if (TextUtils.equals(mManageApplications.mCurrentPkgName, info.packageName)) {
-                    // We got the size information for the last app the
-                    // user viewed, and are sorting by size...  they may
-                    // have cleared data, so we immediately want to resort
-                    // the list with the new size to reflect it to the user.
-                    rebuild();
-                    return;
-                } else {
-                    mOnScrollListener.postNotifyItemChange(i);
+            final int[] positions = getPackagePositions(packageName);
+            if (positions == null) {
+                return;
+            }
+            if (TextUtils.equals(mManageApplications.mCurrentPkgName, packageName)) {
+                // We got the size information for the last app the
+                // user viewed, and are sorting by size...  they may
+                // have cleared data, so we immediately want to resort
+                // the list with the new size to reflect it to the user.
+                rebuild();
+                return;
+            }
+            for (int position : positions) {
+                mOnScrollListener.postNotifyItemChange(position);
+            }
+        }
+
+        /**
+         * @return the positions of {@code packageName} in mEntries, or {@code null} if it isn't
+         * shown. The positions are indexed once per list of entries.
+         */
+        private int[] getPackagePositions(String packageName) {
+            if (mIndexedEntries != mEntries) {
+                mIndexedEntries = mEntries;
+                mPackagePositions.clear();
+                for (int i = 0; i < mEntries.size(); i++) {
+                    final ApplicationInfo info = mEntries.get(i).info;
+                    if (info == null) {
+                        continue;
+                    }
+                    final int[] positions = mPackagePositions.get(info.packageName);
+                    if (positions == null) {
+                        mPackagePositions.put(info.packageName, new int[]{i});
+                    } else {
+                        // Only the same app of other profiles, so rarely more than a few.
+                        final int[] newPositions = Arrays.copyOf(positions, positions.length + 1);
+                        newPositions[positions.length] = i;
+                        mPackagePositions.put(info.packageName, newPositions);
+                    }
                 }
             }
+            return mPackagePositions.get(packageName);
         }
 
         @Override
@@ -1595,32 +1648,91 @@ public class ManageApplications extends InstrumentedFragment
         /**
          * An array filter that constrains the content of the array adapter with a substring.
          * Item that does not contains the specified substring will be removed from the list.</p>
+         *
+         * The labels are searched through an {@link AppSearchIndex}, and the changes of the list
+         * are computed along with the filtering, so only the changed rows are rebound.
          */
         private class SearchFilter extends Filter {
             @WorkerThread
             @Override
             protected FilterResults performFiltering(CharSequence query) {
+                final ArrayList<ApplicationsState.AppEntry> originalEntries = mOriginalEntries;
                 final ArrayList<ApplicationsState.AppEntry> matchedEntries;
                 if (TextUtils.isEmpty(query)) {
-                    matchedEntries = mOriginalEntries;
+                    matchedEntries = originalEntries;
                 } else {
-                    matchedEntries = new ArrayList<>();
-                    for (ApplicationsState.AppEntry entry : mOriginalEntries) {
-                        if (entry.label.toLowerCase().contains(query.toString().toLowerCase())) {
-                            matchedEntries.add(entry);
-                        }
+                    if (mSearchIndex == null || mSearchIndex.getEntries() != originalEntries) {
+                        mSearchIndex = new AppSearchIndex(originalEntries);
                     }
+                    matchedEntries = mSearchIndex.search(query.toString());
                 }
+                final ArrayList<ApplicationsState.AppEntry> shownEntries = mEntries;
+                final SearchResult result = new SearchResult(shownEntries, matchedEntries,
+                        shownEntries != null ? DiffUtil.calculateDiff(
+                                new EntriesDiffCallback(shownEntries, matchedEntries),
+                                false /* detectMoves */) : null);
                 final FilterResults results = new FilterResults();
-                results.values = matchedEntries;
+                results.values = result;
                 results.count = matchedEntries.size();
                 return results;
             }
 
             @Override
             protected void publishResults(CharSequence constraint, FilterResults results) {
-                mEntries = (ArrayList<ApplicationsState.AppEntry>) results.values;
-                notifyDataSetChanged();
+                final SearchResult result = (SearchResult) results.values;
+                final boolean canDispatchDiff = result.mDiff != null && mEntries == result.mFrom;
+                mEntries = result.mTo;
+                if (canDispatchDiff) {
+                    result.mDiff.dispatchUpdatesTo(ApplicationsAdapter.this);
+                } else {
+                    notifyDataSetChanged();
+                }
+            }
+        }
+
+        private static class SearchResult {
+            private final ArrayList<ApplicationsState.AppEntry> mFrom;
+            private final ArrayList<ApplicationsState.AppEntry> mTo;
+            // The changes from mFrom to mTo, or null if mFrom is null.
+            private final DiffUtil.DiffResult mDiff;
+
+            SearchResult(ArrayList<ApplicationsState.AppEntry> from,
+                    ArrayList<ApplicationsState.AppEntry> to, DiffUtil.DiffResult diff) {
+                mFrom = from;
+                mTo = to;
+                mDiff = diff;
+            }
+        }
+
+        /** Both lists come from the same rebuild, so the same app is the same entry. */
+        private static class EntriesDiffCallback extends DiffUtil.Callback {
+            private final List<ApplicationsState.AppEntry> mOldEntries;
+            private final List<ApplicationsState.AppEntry> mNewEntries;
+
+            EntriesDiffCallback(List<ApplicationsState.AppEntry> oldEntries,
+                    List<ApplicationsState.AppEntry> newEntries) {
+                mOldEntries = oldEntries;
+                mNewEntries = newEntries;
+            }
+
+            @Override
+            public int getOldListSize() {
+                return mOldEntries.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return mNewEntries.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return mOldEntries.get(oldItemPosition) == mNewEntries.get(newItemPosition);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return true;
             }
         }
     }
@@ -40,6 +40,7 @@ import androidx.annotation.VisibleForTesting;
 import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.SettingsUIDeviceConfig;
 import com.android.settings.fuelgauge.BatteryMeterView;
@@ -299,7 +300,7 @@ public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceCont
             return;
         }
 
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final Uri uri = Uri.parse(iconUri);
             try {
                 mContext.getContentResolver().takePersistableUriPermission(uri,
@@ -20,6 +20,7 @@ import android.bluetooth.BluetoothDevice;
 import android.content.Context;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.Choreographer;
 
 import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
@@ -37,9 +38,13 @@ import com.android.settingslib.bluetooth.LocalBluetoothManager;
 import com.android.settingslib.bluetooth.LocalBluetoothProfileManager;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Update the bluetooth devices. It gets bluetooth event from {@link LocalBluetoothManager} using
@@ -48,6 +53,10 @@ import java.util.Map;
  *
  * In {@link BluetoothDeviceUpdater}, it uses {@link BluetoothDeviceFilter.Filter} to detect
  * whether the {@link CachedBluetoothDevice} is relevant.
+ *
+ * Connection and bond callbacks only mark their device as changed. The changed devices are
+ * reconciled with the preferences once per frame, so a device reporting several profiles, or
+ * many devices changing at once, costs a single filter check and preference update each.
  */
 public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         LocalBluetoothProfileManager.ServiceListener {
@@ -62,6 +71,11 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
     @VisibleForTesting
     protected LocalBluetoothManager mLocalManager;
 
+    // Devices changed since the last reconciliation, in the order of their first callback.
+    private final Set<CachedBluetoothDevice> mPendingDevices = new LinkedHashSet<>();
+    private boolean mForceUpdatePending;
+    private Choreographer.FrameCallback mReconcileCallback;
+
     @VisibleForTesting
     final GearPreference.OnGearClickListener mDeviceProfilesListener = pref -> {
         launchDeviceDetails(pref);
@@ -107,6 +121,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         mLocalManager.setForegroundActivity(null);
         mLocalManager.getEventManager().unregisterCallback(this);
         mLocalManager.getProfileManager().removeServiceListener(this);
+        cancelPendingUpdates();
     }
 
     /**
@@ -143,15 +158,16 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
     @Override
     public void onBluetoothStateChanged(int bluetoothState) {
         if (BluetoothAdapter.STATE_ON == bluetoothState) {
-            forceUpdate();
+            scheduleForceUpdate();
         } else if (BluetoothAdapter.STATE_OFF == bluetoothState) {
+            cancelPendingUpdates();
             removeAllDevicesFromPreference();
         }
     }
 
     @Override
     public void onDeviceAdded(CachedBluetoothDevice cachedDevice) {
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
@@ -159,12 +175,13 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         // Used to combine the hearing aid entries just after pairing. Once both the hearing aids
         // get connected and their hiSyncId gets populated, this gets called for one of the
         // 2 hearing aids so that only one entry in the connected devices list will be seen.
+        mPendingDevices.remove(cachedDevice);
         removePreference(cachedDevice);
     }
 
     @Override
     public void onDeviceBondStateChanged(CachedBluetoothDevice cachedDevice, int bondState) {
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
@@ -174,7 +191,7 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.d(TAG, "onProfileConnectionStateChanged() device: " + cachedDevice.getName()
                     + ", state: " + state + ", bluetoothProfile: " + bluetoothProfile);
         }
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
@@ -183,13 +200,13 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
             Log.d(TAG, "onAclConnectionStateChanged() device: " + cachedDevice.getName()
                     + ", state: " + state);
         }
-        update(cachedDevice);
+        scheduleUpdate(cachedDevice);
     }
 
     @Override
     public void onServiceConnected() {
         // When bluetooth service connected update the UI
-        forceUpdate();
+        scheduleForceUpdate();
     }
 
     @Override
@@ -227,6 +244,54 @@ public abstract class BluetoothDeviceUpdater implements BluetoothCallback,
         }
     }
 
+    /**
+     * Update {@code cachedDevice} in the next frame, together with the other changed devices.
+     */
+    protected void scheduleUpdate(CachedBluetoothDevice cachedDevice) {
+        mPendingDevices.add(cachedDevice);
+        scheduleReconcile();
+    }
+
+    /**
+     * Update all the devices in the next frame, see {@link #forceUpdate()}.
+     */
+    protected void scheduleForceUpdate() {
+        mForceUpdatePending = true;
+        scheduleReconcile();
+    }
+
+    private void scheduleReconcile() {
+        if (mReconcileCallback == null) {
+            // Devices reported before the next frame are reconciled in a single pass.
+            mReconcileCallback = frameTimeNanos -> reconcilePending();
+            Choreographer.getInstance().postFrameCallback(mReconcileCallback);
+        }
+    }
+
+    private void cancelPendingUpdates() {
+        if (mReconcileCallback != null) {
+            Choreographer.getInstance().removeFrameCallback(mReconcileCallback);
+            mReconcileCallback = null;
+        }
+        mPendingDevices.clear();
+        mForceUpdatePending = false;
+    }
+
+    @VisibleForTesting
+    void reconcilePending() {
+        mReconcileCallback = null;
+        final boolean forceUpdate = mForceUpdatePending;
+        final List<CachedBluetoothDevice> devices = new ArrayList<>(mPendingDevices);
+        mForceUpdatePending = false;
+        mPendingDevices.clear();
+        if (forceUpdate) {
+            forceUpdate();
+        }
+        for (int i = 0, size = devices.size(); i < size; i++) {
+            update(devices.get(i));
+        }
+    }
+
     /**
      * Add the {@link Preference} that represents the {@code cachedDevice}
      */
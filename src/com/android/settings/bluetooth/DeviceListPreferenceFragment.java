@@ -22,6 +22,7 @@ import android.os.Bundle;
 import android.os.SystemProperties;
 import android.text.BidiFormatter;
 import android.util.Log;
+import android.view.Choreographer;
 
 import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
@@ -38,12 +39,17 @@ import com.android.settingslib.bluetooth.LocalBluetoothManager;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Parent class for settings fragments that contain a list of Bluetooth
  * devices.
  *
+ * Devices found while scanning are added to the list together once per frame, rather than one
+ * preference insertion per {@link #onDeviceAdded(CachedBluetoothDevice)} callback.
+ *
  * @see DevicePickerFragment
  */
 // TODO: Refactor this fragment
@@ -74,6 +80,9 @@ public abstract class DeviceListPreferenceFragment extends
     final HashMap<CachedBluetoothDevice, BluetoothDevicePreference> mDevicePreferenceMap =
             new HashMap<>();
     final List<BluetoothDevice> mSelectedList = new ArrayList<>();
+    // Devices found since the last frame, in discovery order.
+    private final Set<CachedBluetoothDevice> mPendingDevices = new LinkedHashSet<>();
+    private Choreographer.FrameCallback mAddPendingDevicesCallback;
 
     boolean mShowDevicesWithoutNames;
 
@@ -133,6 +142,7 @@ public abstract class DeviceListPreferenceFragment extends
     }
 
     void removeAllDevices() {
+        cancelPendingDevices();
         mDevicePreferenceMap.clear();
         mDeviceListGroup.removeAll();
     }
@@ -141,7 +151,10 @@ public abstract class DeviceListPreferenceFragment extends
         Collection<CachedBluetoothDevice> cachedDevices =
                 mLocalManager.getCachedDeviceManager().getCachedDevicesCopy();
         for (CachedBluetoothDevice cachedDevice : cachedDevices) {
-            onDeviceAdded(cachedDevice);
+            // Added right away, as the caller reuses and then drops the cached preferences.
+            if (shouldAddDevice(cachedDevice)) {
+                createDevicePreference(cachedDevice);
+            }
         }
     }
 
@@ -170,16 +183,47 @@ public abstract class DeviceListPreferenceFragment extends
 
     @Override
     public void onDeviceAdded(CachedBluetoothDevice cachedDevice) {
+        // The filter is checked now, as it may change before the next frame.
+        if (shouldAddDevice(cachedDevice) && mPendingDevices.add(cachedDevice)
+                && mAddPendingDevicesCallback == null) {
+            // One callback per frame; it is cleared again once the devices are added.
+            mAddPendingDevicesCallback = frameTimeNanos -> addPendingDevices();
+            Choreographer.getInstance().postFrameCallback(mAddPendingDevicesCallback);
+        }
+    }
+
+    private boolean shouldAddDevice(CachedBluetoothDevice cachedDevice) {
         if (mDevicePreferenceMap.get(cachedDevice) != null) {
-            return;
+            return false;
         }
 
         // Prevent updates while the list shows one of the state messages
-        if (mBluetoothAdapter.getState() != BluetoothAdapter.STATE_ON) return;
+        if (mBluetoothAdapter.getState() != BluetoothAdapter.STATE_ON) return false;
+
+        return mFilter.matches(cachedDevice.getDevice());
+    }
+
+    @VisibleForTesting
+    void addPendingDevices() {
+        mAddPendingDevicesCallback = null;
+        if (mBluetoothAdapter.getState() != BluetoothAdapter.STATE_ON) {
+            mPendingDevices.clear();
+            return;
+        }
+        for (CachedBluetoothDevice cachedDevice : mPendingDevices) {
+            if (mDevicePreferenceMap.get(cachedDevice) == null) {
+                createDevicePreference(cachedDevice);
+            }
+        }
+        mPendingDevices.clear();
+    }
 
-        if (mFilter.matches(cachedDevice.getDevice())) {
-            createDevicePreference(cachedDevice);
+    private void cancelPendingDevices() {
+        if (mAddPendingDevicesCallback != null) {
+            Choreographer.getInstance().removeFrameCallback(mAddPendingDevicesCallback);
+            mAddPendingDevicesCallback = null;
         }
+        mPendingDevices.clear();
     }
 
     void createDevicePreference(CachedBluetoothDevice cachedDevice) {
@@ -220,6 +264,7 @@ public abstract class DeviceListPreferenceFragment extends
 
     @Override
     public void onDeviceDeleted(CachedBluetoothDevice cachedDevice) {
+        mPendingDevices.remove(cachedDevice);
         BluetoothDevicePreference preference = mDevicePreferenceMap.remove(cachedDevice);
         if (preference != null) {
             mDeviceListGroup.removePreference(preference);
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.annotation.IntDef;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.instrumentation.LatencyHistogram;
+import com.android.settingslib.core.lifecycle.Lifecycle;
+import com.android.settingslib.core.lifecycle.LifecycleObserver;
+import com.android.settingslib.core.lifecycle.events.OnDestroy;
+import com.android.settingslib.core.lifecycle.events.OnStop;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the background work of Settings on bounded thread pools, one per priority lane:
+ * <ul>
+ * <li>{@link #LANE_UI_CRITICAL}: short work the visible screen waits on to show its content.
+ * <li>{@link #LANE_PREFETCH}: blocking or bulk work, and work whose result may be shown soon.
+ * <li>{@link #LANE_MAINTENANCE}: caches, persistence and cleanups that nobody waits on.
+ * </ul>
+ *
+ * Work submitted through a {@link Scope} belongs to a screen, and the part of it which hasn't
+ * started yet is dropped when the screen stops, so that it doesn't compete with the next screen.
+ * The queue depth and the queueing and running latencies of every lane are exposed through
+ * {@link com.android.settings.SettingsDumpService}.
+ */
+public class BackgroundScheduler {
+    private static final String TAG = "BackgroundScheduler";
+
+    public static final int LANE_UI_CRITICAL = 0;
+    public static final int LANE_PREFETCH = 1;
+    public static final int LANE_MAINTENANCE = 2;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({LANE_UI_CRITICAL, LANE_PREFETCH, LANE_MAINTENANCE})
+    public @interface Lane {
+    }
+
+    private static final String[] LANE_NAMES = {"ui_critical", "prefetch", "maintenance"};
+    private static final int LANE_COUNT = LANE_NAMES.length;
+    private static final int[] POOL_SIZES = {
+            2, Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4)), 1};
+    private static final int[] THREAD_PRIORITIES = {
+            Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE,
+            Process.THREAD_PRIORITY_BACKGROUND,
+            Process.THREAD_PRIORITY_LOWEST};
+    private static final long KEEP_ALIVE_SECONDS = 10;
+    private static final long SLOW_QUEUE_THRESHOLD_MS = 100;
+    private static final int[] PERCENTILES = {50, 95, 99};
+
+    private static BackgroundScheduler sInstance;
+
+    private final LaneExecutor[] mLanes = new LaneExecutor[LANE_COUNT];
+
+    public static synchronized BackgroundScheduler getInstance() {
+        if (sInstance == null) {
+            final Executor[] executors = new Executor[LANE_COUNT];
+            for (int lane = 0; lane < LANE_COUNT; lane++) {
+                executors[lane] = createExecutor(lane);
+            }
+            sInstance = new BackgroundScheduler(executors);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static Executor createExecutor(@Lane int lane) {
+        final AtomicInteger count = new AtomicInteger(1);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZES[lane],
+                POOL_SIZES[lane], KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> new Thread(() -> {
+                    Process.setThreadPriority(THREAD_PRIORITIES[lane]);
+                    runnable.run();
+                }, "Settings-" + LANE_NAMES[lane] + "-" + count.getAndIncrement()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @VisibleForTesting
+    BackgroundScheduler(Executor[] executors) {
+        for (int lane = 0; lane < LANE_COUNT; lane++) {
+            mLanes[lane] = new LaneExecutor(lane, executors[lane]);
+        }
+    }
+
+    /**
+     * @return the executor of {@code lane}. It is shared by the whole app, so shutting it down
+     * does nothing.
+     */
+    public ExecutorService getExecutor(@Lane int lane) {
+        return mLanes[lane];
+    }
+
+    /**
+     * Run {@code task} on {@code lane}.
+     */
+    public Future<?> submit(@Lane int lane, Runnable task) {
+        return mLanes[lane].submit(task);
+    }
+
+    /**
+     * Run {@code task} on {@code lane}.
+     */
+    public <T> Future<T> submit(@Lane int lane, Callable<T> task) {
+        return mLanes[lane].submit(task);
+    }
+
+    /**
+     * @return a new {@link Scope}, whose pending work is cancelled by {@link Scope#cancel()}.
+     */
+    public Scope createScope() {
+        return new Scope(this);
+    }
+
+    /**
+     * @return a new {@link Scope}, whose pending work is cancelled when {@code lifecycle} stops or
+     * is destroyed.
+     */
+    public Scope createScope(Lifecycle lifecycle) {
+        final Scope scope = createScope();
+        lifecycle.addObserver(scope);
+        return scope;
+    }
+
+    /**
+     * @return the queue depth, counters and p50/p95/p99 latencies in microseconds of every lane.
+     */
+    public JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (LaneExecutor lane : mLanes) {
+            final JSONObject laneObj = new JSONObject();
+            laneObj.put("queue_depth", lane.mQueueDepth.get());
+            laneObj.put("max_queue_depth", lane.mMaxQueueDepth.get());
+            laneObj.put("submitted", lane.mSubmittedCount.get());
+            // Work cancelled before it started.
+            laneObj.put("cancelled", lane.mCancelledCount.get());
+            laneObj.put("queue_latency", dumpHistogram(lane.mQueueLatency));
+            laneObj.put("run_latency", dumpHistogram(lane.mRunLatency));
+            obj.put(LANE_NAMES[lane.mLane], laneObj);
+        }
+        return obj;
+    }
+
+    @VisibleForTesting
+    int getQueueDepth(@Lane int lane) {
+        return mLanes[lane].mQueueDepth.get();
+    }
+
+    @VisibleForTesting
+    long getCancelledCount(@Lane int lane) {
+        return mLanes[lane].mCancelledCount.get();
+    }
+
+    @VisibleForTesting
+    LatencyHistogram getRunLatency(@Lane int lane) {
+        return mLanes[lane].mRunLatency;
+    }
+
+    private static JSONObject dumpHistogram(LatencyHistogram histogram) throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("count", histogram.getCount());
+        for (int percentile : PERCENTILES) {
+            obj.put("p" + percentile, histogram.getPercentileMicros(percentile));
+        }
+        obj.put("max", histogram.getMaxMicros());
+        return obj;
+    }
+
+    /**
+     * The background work of a screen. The work which hasn't started yet is cancelled when the
+     * screen stops or is destroyed, and the scope can be used again once the screen restarts.
+     */
+    public static class Scope implements LifecycleObserver, OnStop, OnDestroy {
+        private final BackgroundScheduler mScheduler;
+        private final Set<Future<?>> mFutures = new ArraySet<>();
+
+        @VisibleForTesting
+        Scope(BackgroundScheduler scheduler) {
+            mScheduler = scheduler;
+        }
+
+        /**
+         * Run {@code task} on {@code lane}, unless the scope is cancelled before it starts.
+         */
+        public Future<?> submit(@Lane int lane, Runnable task) {
+            final Future<?> future = mScheduler.submit(lane, task);
+            synchronized (mFutures) {
+                pruneDone();
+                if (!future.isDone()) {
+                    mFutures.add(future);
+                }
+            }
+            return future;
+        }
+
+        /**
+         * Cancel the work of this scope which hasn't started yet. Running work is left to finish.
+         */
+        public void cancel() {
+            synchronized (mFutures) {
+                for (Future<?> future : mFutures) {
+                    future.cancel(false /* mayInterruptIfRunning */);
+                }
+                mFutures.clear();
+            }
+        }
+
+        @Override
+        public void onStop() {
+            cancel();
+        }
+
+        @Override
+        public void onDestroy() {
+            cancel();
+        }
+
+        private void pruneDone() {
+            final Iterator<Future<?>> iterator = mFutures.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isDone()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static class LaneExecutor extends AbstractExecutorService {
+        private final int mLane;
+        private final Executor mExecutor;
+        private final AtomicInteger mQueueDepth = new AtomicInteger();
+        private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+        private final AtomicLong mSubmittedCount = new AtomicLong();
+        private final AtomicLong mCancelledCount = new AtomicLong();
+        private final LatencyHistogram mQueueLatency = new LatencyHistogram();
+        private final LatencyHistogram mRunLatency = new LatencyHistogram();
+
+        LaneExecutor(int lane, Executor executor) {
+            mLane = lane;
+            mExecutor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            final long submitTime = SystemClock.elapsedRealtimeNanos();
+            mSubmittedCount.incrementAndGet();
+            final int depth = mQueueDepth.incrementAndGet();
+            int maxDepth = mMaxQueueDepth.get();
+            while (depth > maxDepth && !mMaxQueueDepth.compareAndSet(maxDepth, depth)) {
+                maxDepth = mMaxQueueDepth.get();
+            }
+            mExecutor.execute(() -> {
+                mQueueDepth.decrementAndGet();
+                if (command instanceof Future && ((Future<?>) command).isCancelled()) {
+                    mCancelledCount.incrementAndGet();
+                    return;
+                }
+                final long startTime = SystemClock.elapsedRealtimeNanos();
+                final long queueMicros = (startTime - submitTime) / 1000;
+                mQueueLatency.record(queueMicros);
+                if (mLane == LANE_UI_CRITICAL
+                        && queueMicros > TimeUnit.MILLISECONDS.toMicros(SLOW_QUEUE_THRESHOLD_MS)) {
+                    Log.w(TAG, "UI critical work waited " + queueMicros / 1000 + " ms");
+                }
+                try {
+                    command.run();
+                } finally {
+                    mRunLatency.record((SystemClock.elapsedRealtimeNanos() - startTime) / 1000);
+                }
+            });
+        }
+
+        /**
+         * Does nothing, since the lane is shared by the whole app.
+         */
+        @Override
+        public void shutdown() {
+        }
+
+        /**
+         * Does nothing, since the lane is shared by the whole app. Cancel the futures of the work
+         * instead, or use a {@link Scope}.
+         *
+         * @return an empty list.
+         */
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+}
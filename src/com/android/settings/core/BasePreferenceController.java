@@ -23,6 +23,7 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.SettingsSlicesContract;
@@ -34,6 +35,7 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
 import com.android.settings.Utils;
+import com.android.settings.core.instrumentation.ControllerLatencyTracker;
 import com.android.settings.slices.SettingsSliceProvider;
 import com.android.settings.slices.SliceData;
 import com.android.settings.slices.Sliceable;
@@ -254,7 +256,10 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
             return false;
         }
 
+        final long startNanos = SystemClock.elapsedRealtimeNanos();
         final int availabilityStatus = getAvailabilityStatus();
+        ControllerLatencyTracker.getInstance().record(getMetricsCategory(), this,
+                ControllerLatencyTracker.OP_AVAILABILITY, startNanos);
         return (availabilityStatus == AVAILABLE
                 || availabilityStatus == AVAILABLE_UNSEARCHABLE
                 || availabilityStatus == DISABLED_DEPENDENT_SETTING);
@@ -404,6 +409,21 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     public interface UiBlocker {
     }
 
+    /**
+     * Used for {@link BasePreferenceController} to declare heavy work which has to be done before
+     * {@link #updateState(Preference)}, such as binder calls or disk reads.
+     *
+     * When the parent fragment runs its controllers in parallel, {@link #prepareInBackground()}
+     * is invoked on a background thread, and {@link #updateState(Preference)} is invoked on the
+     * main thread afterwards.
+     */
+    public interface BackgroundPreparer {
+        /**
+         * Do the heavy work off the main thread. Implementations must not touch any UI.
+         */
+        void prepareInBackground();
+    }
+
     /**
      * Set the metrics category of the parent fragment.
      *
@@ -27,7 +27,6 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
-import com.android.settingslib.utils.ThreadUtils;
 
 /**
  * This controller is targeted at the time consuming-bound controller.
@@ -56,7 +55,7 @@ public abstract class LiveDataController extends BasePreferenceController {
             mSummary = str;
             refreshSummary(mPreference);
         });
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             mData.postValue(getSummaryTextInBackground());
         });
     }
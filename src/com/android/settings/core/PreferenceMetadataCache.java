@@ -0,0 +1,475 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the metadata extracted by
+ * {@link PreferenceXmlParserUtils#extractMetadata(Context, int, int)}, keyed by configuration
+ * (locale, mcc/mnc, density, ui mode), xml res id and flags.
+ *
+ * The cache is persisted in a compact binary file in the cache dir of the app, which is memory
+ * mapped and decoded on lookup. The file is only mapped and written in the background: lookups
+ * on the main thread miss until it is mapped. The entries of the {@link #MAX_CONFIG_COUNT} most
+ * recently used configurations are kept, and the whole file is dropped when the build or the
+ * version of the app changes.
+ */
+class PreferenceMetadataCache {
+
+    private static final String TAG = "PrefMetadataCache";
+
+    @VisibleForTesting
+    static final String FILE_NAME = "preference_metadata.bin";
+    @VisibleForTesting
+    static final int MAX_CONFIG_COUNT = 4;
+    private static final int MAGIC = 0x50524d44; // "PRMD"
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_BOOLEAN = 2;
+
+    private static PreferenceMetadataCache sInstance;
+
+    private final AtomicFile mFile;
+    private final String mVersionTag;
+    // Serializes the reads and writes of the file, which are never done under the monitor of
+    // the cache so that lookups don't wait for them.
+    private final Object mFileLock = new Object();
+
+    // Guarded by this. Keyed by configuration, then by xml res id and flags.
+    private final Map<String, Map<Long, List<Bundle>>> mPendingEntries = new ArrayMap<>();
+    private final List<String> mRecentConfigs = new ArrayList<>();
+    private MappedEntries mMappedEntries;
+    private boolean mLoaded;
+    private boolean mPersistScheduled;
+
+    static synchronized PreferenceMetadataCache getInstance(Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            sInstance = new PreferenceMetadataCache(new File(appContext.getCacheDir(), FILE_NAME),
+                    getVersionTag(appContext));
+            // Map the file before the screens need it, without blocking the main thread.
+            BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH,
+                    sInstance::ensureLoaded);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PreferenceMetadataCache(File file, String versionTag) {
+        mFile = new AtomicFile(file);
+        mVersionTag = versionTag;
+    }
+
+    /**
+     * @return a copy of the cached metadata, or {@code null} if it is not cached for the current
+     * configuration of {@code context}.
+     */
+    List<Bundle> get(Context context, int xmlResId, int flags) {
+        final String config = getConfig(context);
+        if (!ThreadUtils.isMainThread()) {
+            ensureLoaded();
+        }
+        final long key = getKey(xmlResId, flags);
+        final MappedEntries mappedEntries;
+        final Integer offset;
+        synchronized (this) {
+            markUsed(config);
+            final Map<Long, List<Bundle>> pending = mPendingEntries.get(config);
+            if (pending != null && pending.containsKey(key)) {
+                return copy(pending.get(key));
+            }
+            mappedEntries = mMappedEntries;
+            offset = mappedEntries != null ? mappedEntries.getOffset(config, key) : null;
+        }
+        if (offset == null) {
+            return null;
+        }
+        try {
+            return mappedEntries.read(offset);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(TAG, "Corrupted cache entry for " + xmlResId, e);
+            synchronized (this) {
+                if (mMappedEntries == mappedEntries) {
+                    mMappedEntries = null;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Cache {@code metadata}, and schedule a write of the cache file.
+     */
+    void put(Context context, int xmlResId, int flags, List<Bundle> metadata) {
+        final String config = getConfig(context);
+        final List<Bundle> copy = copy(metadata);
+        synchronized (this) {
+            markUsed(config);
+            Map<Long, List<Bundle>> pending = mPendingEntries.get(config);
+            if (pending == null) {
+                pending = new ArrayMap<>();
+                mPendingEntries.put(config, pending);
+            }
+            pending.put(getKey(xmlResId, flags), copy);
+            if (mPersistScheduled) {
+                return;
+            }
+            mPersistScheduled = true;
+        }
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE,
+                this::persist);
+    }
+
+    /**
+     * Map the cache file, if it isn't mapped yet.
+     */
+    @VisibleForTesting
+    void ensureLoaded() {
+        synchronized (mFileLock) {
+            synchronized (this) {
+                if (mLoaded) {
+                    return;
+                }
+            }
+            final MappedEntries mappedEntries = readFile();
+            synchronized (this) {
+                mLoaded = true;
+                mMappedEntries = mappedEntries;
+                if (mappedEntries != null) {
+                    for (String config : mappedEntries.mConfigs) {
+                        if (!mRecentConfigs.contains(config)) {
+                            mRecentConfigs.add(config);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void persist() {
+        synchronized (mFileLock) {
+            ensureLoaded();
+            final Map<String, Map<Long, List<Bundle>>> pendingEntries = new ArrayMap<>();
+            final List<String> configs;
+            final MappedEntries mappedEntries;
+            synchronized (this) {
+                mPersistScheduled = false;
+                if (mPendingEntries.isEmpty()) {
+                    return;
+                }
+                for (Map.Entry<String, Map<Long, List<Bundle>>> entry
+                        : mPendingEntries.entrySet()) {
+                    pendingEntries.put(entry.getKey(), new ArrayMap<>(entry.getValue()));
+                }
+                configs = new ArrayList<>(mRecentConfigs.subList(0,
+                        Math.min(mRecentConfigs.size(), MAX_CONFIG_COUNT)));
+                mappedEntries = mMappedEntries;
+            }
+
+            // Decode the entries which are already in the file, and add the pending ones.
+            final Map<String, Map<Long, List<Bundle>>> entries = new ArrayMap<>();
+            for (String config : configs) {
+                final Map<Long, List<Bundle>> configEntries = new ArrayMap<>();
+                if (mappedEntries != null) {
+                    try {
+                        mappedEntries.readAll(config, configEntries);
+                    } catch (BufferUnderflowException | IllegalArgumentException e) {
+                        Log.w(TAG, "Dropping corrupted cache entries", e);
+                        configEntries.clear();
+                    }
+                }
+                final Map<Long, List<Bundle>> pending = pendingEntries.get(config);
+                if (pending != null) {
+                    configEntries.putAll(pending);
+                }
+                if (!configEntries.isEmpty()) {
+                    entries.put(config, configEntries);
+                }
+            }
+
+            FileOutputStream out = null;
+            try {
+                out = mFile.startWrite();
+                writeFile(out, entries);
+                mFile.finishWrite(out);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write metadata cache", e);
+                mFile.failWrite(out);
+                return;
+            }
+
+            final MappedEntries newMappedEntries = readFile();
+            synchronized (this) {
+                mMappedEntries = newMappedEntries;
+                // The written entries now live in the mapped file, unless they were replaced
+                // in the meantime.
+                for (Map.Entry<String, Map<Long, List<Bundle>>> entry
+                        : pendingEntries.entrySet()) {
+                    final Map<Long, List<Bundle>> pending = mPendingEntries.get(entry.getKey());
+                    if (pending == null) {
+                        continue;
+                    }
+                    for (Map.Entry<Long, List<Bundle>> written : entry.getValue().entrySet()) {
+                        if (pending.get(written.getKey()) == written.getValue()) {
+                            pending.remove(written.getKey());
+                        }
+                    }
+                    if (pending.isEmpty()) {
+                        mPendingEntries.remove(entry.getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    // Guarded by this.
+    private void markUsed(String config) {
+        if (mRecentConfigs.isEmpty() || !mRecentConfigs.get(0).equals(config)) {
+            mRecentConfigs.remove(config);
+            mRecentConfigs.add(0, config);
+        }
+    }
+
+    private MappedEntries readFile() {
+        final File file = mFile.getBaseFile();
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileInputStream in = mFile.openRead(); FileChannel channel = in.getChannel()) {
+            final MappedByteBuffer buffer =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || !mVersionTag.equals(readString(buffer))) {
+                Log.d(TAG, "Dropping metadata cache of another version");
+                mFile.delete();
+                return null;
+            }
+            final int configCount = buffer.getInt();
+            final List<String> configs = new ArrayList<>(configCount);
+            final List<Map<Long, Integer>> offsets = new ArrayList<>(configCount);
+            for (int i = 0; i < configCount; i++) {
+                configs.add(readString(buffer));
+                final int count = buffer.getInt();
+                final Map<Long, Integer> configOffsets = new ArrayMap<>(count);
+                for (int j = 0; j < count; j++) {
+                    configOffsets.put(buffer.getLong(), buffer.getInt());
+                }
+                offsets.add(configOffsets);
+            }
+            return new MappedEntries(buffer, buffer.position(), configs, offsets);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(TAG, "Failed to read metadata cache", e);
+            return null;
+        }
+    }
+
+    private void writeFile(FileOutputStream out, Map<String, Map<Long, List<Bundle>>> entries)
+            throws IOException {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        final DataOutputStream dataOut = new DataOutputStream(data);
+        final DataOutputStream fileOut = new DataOutputStream(out);
+        fileOut.writeInt(MAGIC);
+        fileOut.writeInt(FORMAT_VERSION);
+        writeString(fileOut, mVersionTag);
+        fileOut.writeInt(entries.size());
+        for (Map.Entry<String, Map<Long, List<Bundle>>> configEntries : entries.entrySet()) {
+            writeString(fileOut, configEntries.getKey());
+            fileOut.writeInt(configEntries.getValue().size());
+            for (Map.Entry<Long, List<Bundle>> entry : configEntries.getValue().entrySet()) {
+                fileOut.writeLong(entry.getKey());
+                fileOut.writeInt(dataOut.size());
+                writeBundles(dataOut, entry.getValue());
+            }
+        }
+        dataOut.flush();
+        data.writeTo(fileOut);
+        fileOut.flush();
+    }
+
+    private static void writeBundles(DataOutputStream out, List<Bundle> bundles)
+            throws IOException {
+        out.writeInt(bundles.size());
+        for (Bundle bundle : bundles) {
+            out.writeInt(bundle.size());
+            for (String key : bundle.keySet()) {
+                writeString(out, key);
+                final Object value = bundle.get(key);
+                if (value instanceof Integer) {
+                    out.writeByte(TYPE_INT);
+                    out.writeInt((Integer) value);
+                } else if (value instanceof Boolean) {
+                    out.writeByte(TYPE_BOOLEAN);
+                    out.writeBoolean((Boolean) value);
+                } else {
+                    out.writeByte(TYPE_STRING);
+                    writeString(out, (String) value);
+                }
+            }
+        }
+    }
+
+    private static List<Bundle> readBundles(ByteBuffer buffer) {
+        final int bundleCount = buffer.getInt();
+        final List<Bundle> bundles = new ArrayList<>(bundleCount);
+        for (int i = 0; i < bundleCount; i++) {
+            final int size = buffer.getInt();
+            final Bundle bundle = new Bundle();
+            for (int j = 0; j < size; j++) {
+                final String key = readString(buffer);
+                final byte type = buffer.get();
+                switch (type) {
+                    case TYPE_INT:
+                        bundle.putInt(key, buffer.getInt());
+                        break;
+                    case TYPE_BOOLEAN:
+                        bundle.putBoolean(key, buffer.get() != 0);
+                        break;
+                    case TYPE_STRING:
+                        bundle.putString(key, readString(buffer));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown type " + type);
+                }
+            }
+            bundles.add(bundle);
+        }
+        return bundles;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<Bundle> copy(List<Bundle> bundles) {
+        final List<Bundle> copy = new ArrayList<>(bundles.size());
+        for (Bundle bundle : bundles) {
+            copy.add(new Bundle(bundle));
+        }
+        return copy;
+    }
+
+    private static long getKey(int xmlResId, int flags) {
+        return ((long) xmlResId << Integer.SIZE) | (flags & 0xffffffffL);
+    }
+
+    private static String getVersionTag(Context context) {
+        // The process is restarted whenever the app is updated.
+        long versionCode = 0;
+        try {
+            versionCode = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0 /* flags */)
+                    .getLongVersionCode();
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Cannot find own package", e);
+        }
+        return Build.FINGERPRINT + "|" + versionCode;
+    }
+
+    @VisibleForTesting
+    String getConfig(Context context) {
+        final Configuration configuration = context.getResources().getConfiguration();
+        return configuration.getLocales().toLanguageTags()
+                + "|" + configuration.mcc + "|" + configuration.mnc
+                + "|" + configuration.densityDpi + "|" + configuration.uiMode;
+    }
+
+    /**
+     * The entries of a mapped cache file. Immutable, so it can be read without holding the lock
+     * of the cache.
+     */
+    private static class MappedEntries {
+        private final ByteBuffer mBuffer;
+        private final int mDataStart;
+        private final List<String> mConfigs;
+        private final List<Map<Long, Integer>> mOffsets;
+
+        MappedEntries(ByteBuffer buffer, int dataStart, List<String> configs,
+                List<Map<Long, Integer>> offsets) {
+            mBuffer = buffer;
+            mDataStart = dataStart;
+            mConfigs = configs;
+            mOffsets = offsets;
+        }
+
+        Integer getOffset(String config, long key) {
+            final int index = mConfigs.indexOf(config);
+            return index >= 0 ? mOffsets.get(index).get(key) : null;
+        }
+
+        List<Bundle> read(int offset) {
+            final ByteBuffer buffer = mBuffer.duplicate();
+            buffer.position(mDataStart + offset);
+            return readBundles(buffer);
+        }
+
+        void readAll(String config, Map<Long, List<Bundle>> out) {
+            final int index = mConfigs.indexOf(config);
+            if (index < 0) {
+                return;
+            }
+            for (Map.Entry<Long, Integer> entry : mOffsets.get(index).entrySet()) {
+                out.put(entry.getKey(), read(entry.getValue()));
+            }
+        }
+    }
+}
@@ -170,17 +170,32 @@ public class PreferenceXmlParserUtils {
     /**
      * Extracts metadata from preference xml and put them into a {@link Bundle}.
      *
+     * The result is cached by {@link PreferenceMetadataCache}, so repeated extractions of the
+     * same xml with the same flags don't parse the xml again.
+     *
      * @param xmlResId xml res id of a preference screen
      * @param flags    Should be one or more of {@link MetadataFlag}.
      */
     @NonNull
     public static List<Bundle> extractMetadata(Context context, @XmlRes int xmlResId, int flags)
             throws IOException, XmlPullParserException {
-        final List<Bundle> metadata = new ArrayList<>();
         if (xmlResId <= 0) {
             Log.d(TAG, xmlResId + " is invalid.");
-            return metadata;
+            return new ArrayList<>();
         }
+        final PreferenceMetadataCache cache = PreferenceMetadataCache.getInstance(context);
+        final List<Bundle> cachedMetadata = cache.get(context, xmlResId, flags);
+        if (cachedMetadata != null) {
+            return cachedMetadata;
+        }
+        final List<Bundle> metadata = parseMetadata(context, xmlResId, flags);
+        cache.put(context, xmlResId, flags, metadata);
+        return metadata;
+    }
+
+    private static List<Bundle> parseMetadata(Context context, @XmlRes int xmlResId, int flags)
+            throws IOException, XmlPullParserException {
+        final List<Bundle> metadata = new ArrayList<>();
         final XmlResourceParser parser = context.getResources().getXml(xmlResId);
 
         int type;
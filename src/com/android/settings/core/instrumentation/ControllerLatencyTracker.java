@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.annotation.IntDef;
+import android.app.settings.SettingsEnums;
+import android.os.SystemClock;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.core.instrumentation.LogWriter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps per controller class latency histograms of the preference controller callbacks.
+ *
+ * Recording is lock-free and always on. The histograms are exposed through
+ * {@link com.android.settings.SettingsDumpService}. They are periodically flushed to
+ * {@link StatsLogWriter} as one event per controller and callback, which carries the p95 latency
+ * in microseconds and is attributed to the page the controller was last recorded on. The events
+ * use {@link #FLUSH_ACTION}, and are told apart from the ones of
+ * {@link com.android.settings.dashboard.ControllerTask} by their key,
+ * {@code <controller class>#<callback>}.
+ */
+public class ControllerLatencyTracker {
+    public static final int OP_AVAILABILITY = 0;
+    public static final int OP_DISPLAY = 1;
+    public static final int OP_UPDATE_STATE = 2;
+    public static final int OP_CLICK = 3;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({OP_AVAILABILITY, OP_DISPLAY, OP_UPDATE_STATE, OP_CLICK})
+    public @interface Operation {
+    }
+
+    private static final String[] OP_NAMES =
+            {"getAvailabilityStatus", "displayPreference", "updateState",
+                    "handlePreferenceTreeClick"};
+    @VisibleForTesting
+    static final int FLUSH_ACTION = SettingsEnums.ACTION_CONTROLLER_UPDATE_STATE;
+    private static final int[] PERCENTILES = {50, 95, 99};
+    @VisibleForTesting
+    static final int FLUSHED_PERCENTILE = 95;
+    private static final long FLUSH_INTERVAL_MS = TimeUnit.HOURS.toMillis(6);
+
+    private static final ControllerLatencyTracker sInstance =
+            new ControllerLatencyTracker(new StatsLogWriter());
+
+    private final LogWriter mWriter;
+    private final Map<String, ControllerStats> mStats = new ConcurrentHashMap<>();
+    private final AtomicLong mLastFlushTime = new AtomicLong(SystemClock.elapsedRealtime());
+
+    public static ControllerLatencyTracker getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ControllerLatencyTracker(LogWriter writer) {
+        mWriter = writer;
+    }
+
+    /**
+     * Record the latency of {@code operation} of {@code controller} on the page
+     * {@code pageId}, which started at {@code startNanos} as returned by
+     * {@link SystemClock#elapsedRealtimeNanos()}.
+     */
+    public void record(int pageId, Object controller, @Operation int operation,
+            long startNanos) {
+        final long micros = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000;
+        final ControllerStats stats = getStats(controller.getClass().getName());
+        stats.mPageId = pageId;
+        stats.mHistograms[operation].record(micros);
+    }
+
+    /**
+     * @return the histogram of {@code operation} for {@code controllerName}.
+     */
+    @VisibleForTesting
+    LatencyHistogram getHistogram(String controllerName, @Operation int operation) {
+        return getStats(controllerName).mHistograms[operation];
+    }
+
+    /**
+     * @return the p50/p95/p99 latencies in microseconds of every recorded controller.
+     */
+    public JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (Map.Entry<String, ControllerStats> entry : mStats.entrySet()) {
+            final JSONObject controllerObj = new JSONObject();
+            final LatencyHistogram[] histograms = entry.getValue().mHistograms;
+            for (int op = 0; op < histograms.length; op++) {
+                final LatencyHistogram histogram = histograms[op];
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                final JSONObject opObj = new JSONObject();
+                opObj.put("count", histogram.getCount());
+                for (int percentile : PERCENTILES) {
+                    opObj.put("p" + percentile, histogram.getPercentileMicros(percentile));
+                }
+                opObj.put("max", histogram.getMaxMicros());
+                controllerObj.put(OP_NAMES[op], opObj);
+            }
+            obj.put(entry.getKey(), controllerObj);
+        }
+        return obj;
+    }
+
+    /**
+     * Flush the histograms and reset them, if the last flush happened more than
+     * {@link #FLUSH_INTERVAL_MS} ago.
+     */
+    public void flushIfNeeded() {
+        final long now = SystemClock.elapsedRealtime();
+        final long lastFlushTime = mLastFlushTime.get();
+        if (now - lastFlushTime < FLUSH_INTERVAL_MS
+                || !mLastFlushTime.compareAndSet(lastFlushTime, now)) {
+            return;
+        }
+        flush();
+    }
+
+    @VisibleForTesting
+    void flush() {
+        for (Map.Entry<String, ControllerStats> entry : mStats.entrySet()) {
+            final ControllerStats stats = entry.getValue();
+            for (int op = 0; op < stats.mHistograms.length; op++) {
+                final LatencyHistogram histogram = stats.mHistograms[op];
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                mWriter.action(SettingsEnums.PAGE_UNKNOWN /* attribution */,
+                        FLUSH_ACTION /* action */,
+                        stats.mPageId /* pageId */,
+                        entry.getKey() + "#" + OP_NAMES[op] /* key */,
+                        (int) Math.min(histogram.getPercentileMicros(FLUSHED_PERCENTILE),
+                                Integer.MAX_VALUE) /* value */);
+                histogram.reset();
+            }
+        }
+    }
+
+    private ControllerStats getStats(String controllerName) {
+        ControllerStats stats = mStats.get(controllerName);
+        if (stats == null) {
+            stats = mStats.computeIfAbsent(controllerName, name -> new ControllerStats());
+        }
+        return stats;
+    }
+
+    private static class ControllerStats {
+        private final LatencyHistogram[] mHistograms = new LatencyHistogram[OP_NAMES.length];
+        // The page the controller was last recorded on, as a controller class is usually only
+        // used by one page.
+        private volatile int mPageId = SettingsEnums.PAGE_UNKNOWN;
+
+        ControllerStats() {
+            for (int i = 0; i < mHistograms.length; i++) {
+                mHistograms[i] = new LatencyHistogram();
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free latency histogram.
+ *
+ * Samples are recorded in microseconds into power-of-two buckets: bucket {@code i} holds the
+ * samples in {@code [2^i, 2^(i+1))} us, and the last bucket holds everything above. Percentiles
+ * are reported as the upper bound of the bucket they fall into.
+ */
+public class LatencyHistogram {
+    static final int BUCKET_COUNT = 24;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mMaxMicros = new AtomicLong();
+
+    /**
+     * Record a sample of {@code micros} microseconds.
+     */
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        mBuckets.incrementAndGet(getBucket(micros));
+        mCount.incrementAndGet();
+        long max = mMaxMicros.get();
+        while (micros > max && !mMaxMicros.compareAndSet(max, micros)) {
+            max = mMaxMicros.get();
+        }
+    }
+
+    /**
+     * @return the number of recorded samples.
+     */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /**
+     * @return the largest recorded sample in microseconds.
+     */
+    public long getMaxMicros() {
+        return mMaxMicros.get();
+    }
+
+    /**
+     * @param percentile the percentile to compute, between 0 and 100.
+     * @return the estimated latency of {@code percentile} in microseconds, or 0 if nothing was
+     * recorded.
+     */
+    public long getPercentileMicros(int percentile) {
+        final long[] buckets = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = mBuckets.get(i);
+            total += buckets[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long target = Math.max(1, (total * percentile + 99) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= target) {
+                return Math.min(getBucketUpperBound(i), getMaxMicros());
+            }
+        }
+        return getMaxMicros();
+    }
+
+    /**
+     * Clear all the recorded samples.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mMaxMicros.set(0);
+    }
+
+    static int getBucket(long micros) {
+        if (micros <= 1) {
+            return 0;
+        }
+        final int bucket = 63 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    private static long getBucketUpperBound(int bucket) {
+        return (1L << (bucket + 1)) - 1;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
+
+import com.android.settings.core.BackgroundScheduler;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes {@link ControllerTask}s of a dashboard page on the prefetch lane of
+ * {@link BackgroundScheduler}.
+ *
+ * The background phase of every task ({@link ControllerTask#prepare()}) runs on the pool, and
+ * the main thread is never blocked waiting for it. Once every task of a {@link Batch} has been
+ * prepared, all the {@code updateState} calls are applied together in the next frame, so the
+ * preferences change in a single pass instead of one message per controller.
+ */
+public class ControllerExecutor {
+    private static final String TAG = "ControllerExecutor";
+
+    private static ControllerExecutor sInstance;
+
+    private final Executor mExecutor;
+    private final Handler mMainHandler;
+
+    /**
+     * @return the shared {@link ControllerExecutor} of the process.
+     */
+    public static synchronized ControllerExecutor getInstance() {
+        if (sInstance == null) {
+            sInstance = new ControllerExecutor(BackgroundScheduler.getInstance()
+                    .getExecutor(BackgroundScheduler.LANE_PREFETCH));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ControllerExecutor(Executor executor) {
+        mExecutor = executor;
+        mMainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Run {@code tasks} in the background and apply their state updates in one main thread pass.
+     *
+     * @return the {@link Batch} of the tasks, which can be cancelled when the page goes away.
+     */
+    public Batch execute(List<ControllerTask> tasks) {
+        final Batch batch = new Batch(tasks);
+        for (int i = 0; i < tasks.size(); i++) {
+            final int index = i;
+            mExecutor.execute(() -> batch.prepare(index));
+        }
+        return batch;
+    }
+
+    /**
+     * A group of {@link ControllerTask}s whose state updates are applied together.
+     */
+    public class Batch implements Choreographer.FrameCallback {
+        private final List<ControllerTask> mTasks;
+        private final Preference[] mPreferences;
+        private final AtomicInteger mRemaining;
+        private volatile boolean mCancelled;
+
+        private Batch(List<ControllerTask> tasks) {
+            mTasks = tasks;
+            mPreferences = new Preference[tasks.size()];
+            mRemaining = new AtomicInteger(tasks.size());
+        }
+
+        /**
+         * Drop the pending state updates of this batch. Tasks which are not started yet are
+         * skipped.
+         */
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        @VisibleForTesting
+        boolean isCancelled() {
+            return mCancelled;
+        }
+
+        private void prepare(int index) {
+            if (!mCancelled) {
+                final ControllerTask task = mTasks.get(index);
+                try {
+                    mPreferences[index] = task.prepare();
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to prepare " + task.getController().getPreferenceKey(), e);
+                }
+            }
+            // The decrement publishes mPreferences[index] to whoever observes zero.
+            if (mRemaining.decrementAndGet() == 0 && !mCancelled) {
+                mMainHandler.post(() -> Choreographer.getInstance().postFrameCallback(this));
+            }
+        }
+
+        @MainThread
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mCancelled || mRemaining.get() != 0) {
+                return;
+            }
+            for (int i = 0; i < mTasks.size(); i++) {
+                if (mPreferences[i] != null) {
+                    mTasks.get(i).updateState(mPreferences[i]);
+                }
+            }
+        }
+    }
+}
@@ -21,18 +21,23 @@ import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
+import androidx.annotation.MainThread;
+import androidx.annotation.WorkerThread;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
+import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.instrumentation.ControllerLatencyTracker;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
-import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.concurrent.TimeUnit;
 
 /**
- * A {@link Runnable} controller task. This task handle the visibility of the controller in the
- * background. Also handle the state updating in the main thread.
+ * A controller task, run by {@link ControllerExecutor}. This task handle the visibility of the
+ * controller in the background. Also handle the state updating in the main thread.
  */
-public class ControllerTask implements Runnable {
+public class ControllerTask {
     private static final String TAG = "ControllerTask";
     private static final int CONTROLLER_UPDATESTATE_TIME_THRESHOLD = 50;
 
@@ -49,39 +54,60 @@ public class ControllerTask implements Runnable {
         mMetricsCategory = metricsCategory;
     }
 
-    @Override
-    public void run() {
+    /**
+     * Run the background phase of this task: check the availability of the controller, resolve
+     * its preference and run the {@link BasePreferenceController.BackgroundPreparer} work if the
+     * controller declares any.
+     *
+     * @return the {@link Preference} to update on the main thread, or {@code null} if there is
+     * nothing to update.
+     */
+    @WorkerThread
+    Preference prepare() {
         if (!mController.isAvailable()) {
-            return;
+            return null;
         }
 
         final String key = mController.getPreferenceKey();
         if (TextUtils.isEmpty(key)) {
             Log.d(TAG, String.format("Preference key is %s in Controller %s",
                     key, mController.getClass().getSimpleName()));
-            return;
+            return null;
         }
 
         final Preference preference = mScreen.findPreference(key);
         if (preference == null) {
             Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
                     key, mController.getClass().getSimpleName()));
-            return;
+            return null;
+        }
+
+        if (mController instanceof BasePreferenceController.BackgroundPreparer) {
+            ((BasePreferenceController.BackgroundPreparer) mController).prepareInBackground();
         }
-        ThreadUtils.postOnMainThread(() -> {
-            final long t = SystemClock.elapsedRealtime();
-            mController.updateState(preference);
-            final int elapsedTime = (int) (SystemClock.elapsedRealtime() - t);
-            if (elapsedTime > CONTROLLER_UPDATESTATE_TIME_THRESHOLD) {
-                Log.w(TAG, "The updateState took " + elapsedTime + " ms in Controller "
-                        + mController.getClass().getSimpleName());
-                if (mMetricsFeature != null) {
-                    mMetricsFeature.action(SettingsEnums.PAGE_UNKNOWN,
-                            SettingsEnums.ACTION_CONTROLLER_UPDATE_STATE, mMetricsCategory,
-                            mController.getClass().getSimpleName(), elapsedTime);
-                }
+        return preference;
+    }
+
+    /**
+     * Run the main thread phase of this task and log it if it takes too long.
+     */
+    @MainThread
+    void updateState(Preference preference) {
+        final long startNanos = SystemClock.elapsedRealtimeNanos();
+        mController.updateState(preference);
+        ControllerLatencyTracker.getInstance().record(mMetricsCategory, mController,
+                ControllerLatencyTracker.OP_UPDATE_STATE, startNanos);
+        final int elapsedTime = (int) TimeUnit.NANOSECONDS.toMillis(
+                SystemClock.elapsedRealtimeNanos() - startNanos);
+        if (elapsedTime > CONTROLLER_UPDATESTATE_TIME_THRESHOLD) {
+            Log.w(TAG, "The updateState took " + elapsedTime + " ms in Controller "
+                    + mController.getClass().getSimpleName());
+            if (mMetricsFeature != null) {
+                mMetricsFeature.action(SettingsEnums.PAGE_UNKNOWN,
+                        SettingsEnums.ACTION_CONTROLLER_UPDATE_STATE, mMetricsCategory,
+                        mController.getClass().getSimpleName(), elapsedTime);
             }
-        });
+        }
     }
 
     AbstractPreferenceController getController() {
@@ -58,6 +58,7 @@ import androidx.preference.SwitchPreference;
 
 import com.android.settings.R;
 import com.android.settings.SettingsActivity;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.dashboard.profileselector.ProfileSelectDialog;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.widget.MasterSwitchPreference;
@@ -244,7 +245,7 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshTitle(Uri uri, Preference preference) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final Map<String, IContentProvider> providerMap = new ArrayMap<>();
             final String titleFromUri = TileUtils.getTextFromUri(
                     mContext, uri, providerMap, META_DATA_PREFERENCE_TITLE);
@@ -275,7 +276,7 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshSummary(Uri uri, Preference preference) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final Map<String, IContentProvider> providerMap = new ArrayMap<>();
             final String summaryFromUri = TileUtils.getTextFromUri(
                     mContext, uri, providerMap, META_DATA_PREFERENCE_SUMMARY);
@@ -306,7 +307,7 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
 
     private void onCheckedChanged(Uri uri, Preference pref, boolean checked) {
         setSwitchEnabled(pref, false);
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final Map<String, IContentProvider> providerMap = new ArrayMap<>();
             final Bundle result = TileUtils.putBooleanToUriAndGetResult(mContext, uri, providerMap,
                     EXTRA_SWITCH_CHECKED_STATE, checked);
@@ -328,7 +329,7 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     }
 
     private void refreshSwitch(Uri uri, Preference preference) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final Map<String, IContentProvider> providerMap = new ArrayMap<>();
             final boolean checked = TileUtils.getBooleanFromUri(mContext, uri, providerMap,
                     EXTRA_SWITCH_CHECKED_STATE);
@@ -370,7 +371,7 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
             preference.setIcon(iconDrawable);
         } else if (tile.getMetaData() != null
                 && tile.getMetaData().containsKey(META_DATA_PREFERENCE_ICON_URI)) {
-            ThreadUtils.postOnBackgroundThread(() -> {
+            BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
                 final Intent intent = tile.getIntent();
                 String packageName = null;
                 if (!TextUtils.isEmpty(intent.getPackage())) {
@@ -20,6 +20,7 @@ import android.app.settings.SettingsEnums;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.FeatureFlagUtils;
@@ -39,6 +40,7 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.FeatureFlags;
 import com.android.settings.core.PreferenceControllerListHelper;
 import com.android.settings.core.SettingsBaseActivity;
+import com.android.settings.core.instrumentation.ControllerLatencyTracker;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.widget.MasterSwitchPreference;
 import com.android.settingslib.core.AbstractPreferenceController;
@@ -48,7 +50,6 @@ import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.ProviderTile;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.search.Indexable;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -57,7 +58,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 
 /**
  * Base fragment for dashboard style UI containing a list of static and dynamic setting items.
@@ -77,6 +77,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private final List<AbstractPreferenceController> mControllers = new ArrayList<>();
     @VisibleForTesting
     UiBlockerController mBlockerController;
+    private ControllerExecutor.Batch mControllerBatch;
     private DashboardFeatureProvider mDashboardFeatureProvider;
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
@@ -229,7 +230,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 mPreferenceControllers.values();
         for (List<AbstractPreferenceController> controllerList : controllers) {
             for (AbstractPreferenceController controller : controllerList) {
-                if (controller.handlePreferenceTreeClick(preference)) {
+                final long startNanos = SystemClock.elapsedRealtimeNanos();
+                final boolean handled = controller.handlePreferenceTreeClick(preference);
+                ControllerLatencyTracker.getInstance().record(getMetricsCategory(), controller,
+                        ControllerLatencyTracker.OP_CLICK, startNanos);
+                if (handled) {
                     // log here since calling super.onPreferenceTreeClick will be skipped
                     writePreferenceClickMetric(preference);
                     return true;
@@ -242,6 +247,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @Override
     public void onStop() {
         super.onStop();
+        cancelParallelUpdate();
+        ControllerLatencyTracker.getInstance().flushIfNeeded();
         unregisterDynamicDataObservers(new ArrayList<>(mRegisteredObservers));
         if (mListeningToCategoryChange) {
             final Activity activity = getActivity();
@@ -337,8 +344,15 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      * on all {@link AbstractPreferenceController}s.
      */
     protected void displayResourceTilesToScreen(PreferenceScreen screen) {
+        final ControllerLatencyTracker tracker = ControllerLatencyTracker.getInstance();
+        final int metricsCategory = getMetricsCategory();
         mPreferenceControllers.values().stream().flatMap(Collection::stream).forEach(
-                controller -> controller.displayPreference(screen));
+                controller -> {
+                    final long startNanos = SystemClock.elapsedRealtimeNanos();
+                    controller.displayPreference(screen);
+                    tracker.record(metricsCategory, controller,
+                            ControllerLatencyTracker.OP_DISPLAY, startNanos);
+                });
     }
 
     /**
@@ -387,36 +401,44 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                             key, controller.getClass().getSimpleName()));
                     continue;
                 }
+                final long startNanos = SystemClock.elapsedRealtimeNanos();
                 controller.updateState(preference);
+                ControllerLatencyTracker.getInstance().record(getMetricsCategory(), controller,
+                        ControllerLatencyTracker.OP_UPDATE_STATE, startNanos);
             }
         }
     }
 
     /**
      * Use parallel method to update state of each preference managed by PreferenceController.
+     * The availability checks run in the background, and the state updates are applied together
+     * in the next frame without blocking the main thread.
      */
     @VisibleForTesting
     void updatePreferenceStatesInParallel() {
+        cancelParallelUpdate();
         final PreferenceScreen screen = getPreferenceScreen();
         final Collection<List<AbstractPreferenceController>> controllerLists =
                 mPreferenceControllers.values();
-        final List<ControllerFutureTask> taskList = new ArrayList<>();
+        final List<ControllerTask> taskList = new ArrayList<>();
         for (List<AbstractPreferenceController> controllerList : controllerLists) {
             for (AbstractPreferenceController controller : controllerList) {
-                final ControllerFutureTask task = new ControllerFutureTask(
-                        new ControllerTask(controller, screen, mMetricsFeatureProvider,
-                                getMetricsCategory()), null /* result */);
-                taskList.add(task);
-                ThreadUtils.postOnBackgroundThread(task);
+                taskList.add(new ControllerTask(controller, screen, mMetricsFeatureProvider,
+                        getMetricsCategory()));
             }
         }
+        mControllerBatch = getControllerExecutor().execute(taskList);
+    }
 
-        for (ControllerFutureTask task : taskList) {
-            try {
-                task.get();
-            } catch (InterruptedException | ExecutionException e) {
-                Log.w(TAG, task.getController().getPreferenceKey() + " " + e.getMessage());
-            }
+    @VisibleForTesting
+    ControllerExecutor getControllerExecutor() {
+        return ControllerExecutor.getInstance();
+    }
+
+    private void cancelParallelUpdate() {
+        if (mControllerBatch != null) {
+            mControllerBatch.cancel();
+            mControllerBatch = null;
         }
     }
 
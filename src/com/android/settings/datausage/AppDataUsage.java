@@ -521,19 +521,24 @@ public class AppDataUsage extends DataUsageBaseFragment implements OnPreferenceC
         new LoaderManager.LoaderCallbacks<List<NetworkCycleDataForUid>>() {
             @Override
             public Loader<List<NetworkCycleDataForUid>> onCreateLoader(int id, Bundle args) {
-                final NetworkCycleDataForUidLoader.Builder builder
-                    = NetworkCycleDataForUidLoader.builder(mContext);
-                builder.setRetrieveDetail(true)
-                    .setNetworkTemplate(mTemplate);
+                final List<Integer> uids = new ArrayList<>();
                 if (mAppItem.category == AppItem.CATEGORY_USER) {
                     for (int i = 0; i < mAppItem.uids.size(); i++) {
-                        builder.addUid(mAppItem.uids.keyAt(i));
+                        uids.add(mAppItem.uids.keyAt(i));
                     }
                 } else {
-                    builder.addUid(mAppItem.key);
+                    uids.add(mAppItem.key);
                 }
                 if (mCycles != null) {
-                    builder.setCycles(mCycles);
+                    // Read the closed cycles from the store shared with DataUsageList.
+                    return new AppDataUsageCycleLoader(mContext, mTemplate, uids, mCycles);
+                }
+                final NetworkCycleDataForUidLoader.Builder builder
+                    = NetworkCycleDataForUidLoader.builder(mContext);
+                builder.setRetrieveDetail(true)
+                    .setNetworkTemplate(mTemplate);
+                for (int uid : uids) {
+                    builder.addUid(uid);
                 }
                 return builder.build();
             }
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.net.TrafficStats.UID_REMOVED;
+import static android.net.TrafficStats.UID_TETHERING;
+
+import android.app.usage.NetworkStats;
+import android.os.Process;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseLongArray;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Folds the usage of every uid of a {@link NetworkStats} into the {@link AppItem}s listed by
+ * {@link DataUsageList}, collapsing the uids of other users, removed users and the system.
+ *
+ * The profiles of the current user are resolved once, and every other user only once, so the
+ * buckets are folded without allocating or calling into {@link UserManager} for each of them.
+ * It does binder calls, and should not run on the main thread.
+ */
+class AppDataUsageAggregator {
+
+    private final int mCurrentUserId;
+    private final UserManager mUserManager;
+    // Ids of the profiles of the current user.
+    private final int[] mProfileIds;
+    // Whether a user which is not a profile of the current user still exists, by user id.
+    private final SparseBooleanArray mExistingUsers = new SparseBooleanArray();
+    private final SparseArray<AppItem> mItems = new SparseArray<>();
+    private long mLargest;
+
+    AppDataUsageAggregator(int currentUserId, UserManager userManager) {
+        mCurrentUserId = currentUserId;
+        mUserManager = userManager;
+        final List<UserHandle> profiles = userManager.getUserProfiles();
+        mProfileIds = new int[profiles.size()];
+        for (int i = 0; i < mProfileIds.length; i++) {
+            mProfileIds[i] = profiles.get(i).getIdentifier();
+        }
+    }
+
+    /**
+     * Add the usage of every uid of {@code usage}, as read by
+     * {@link DataUsageRollupStore#readUsage(NetworkStats, SparseLongArray)}.
+     */
+    void addUsage(SparseLongArray usage) {
+        for (int i = 0, size = usage.size(); i < size; i++) {
+            addUsage(usage.keyAt(i), usage.valueAt(i));
+        }
+    }
+
+    /**
+     * Add {@code bytes} used by {@code uid} to the item it is collapsed into.
+     */
+    void addUsage(int uid, long bytes) {
+        // Decide how to collapse items together
+        final int collapseKey;
+        final int category;
+        final int userId = UserHandle.getUserId(uid);
+        if (UserHandle.isApp(uid)) {
+            if (isProfile(userId)) {
+                if (userId != mCurrentUserId) {
+                    // Add to a managed user item.
+                    accumulate(UidDetailProvider.buildKeyForUser(userId), uid, bytes,
+                            AppItem.CATEGORY_USER);
+                }
+                // Add to app item.
+                collapseKey = uid;
+                category = AppItem.CATEGORY_APP;
+            } else if (!isExistingUser(userId)) {
+                // If it is a removed user add it to the removed users' key
+                collapseKey = UID_REMOVED;
+                category = AppItem.CATEGORY_APP;
+            } else {
+                // Add to other user item.
+                collapseKey = UidDetailProvider.buildKeyForUser(userId);
+                category = AppItem.CATEGORY_USER;
+            }
+        } else if (uid == UID_REMOVED || uid == UID_TETHERING || uid == Process.OTA_UPDATE_UID) {
+            collapseKey = uid;
+            category = AppItem.CATEGORY_APP;
+        } else {
+            collapseKey = Process.SYSTEM_UID;
+            category = AppItem.CATEGORY_APP;
+        }
+        accumulate(collapseKey, uid, bytes, category);
+    }
+
+    /**
+     * Mark the items of {@code restrictedUids} as restricted, adding an empty item for the uids
+     * without usage. Only the uids of the profiles of the current user are spliced in.
+     */
+    void setRestrictedUids(int[] restrictedUids) {
+        for (int uid : restrictedUids) {
+            if (!isProfile(UserHandle.getUserId(uid))) {
+                continue;
+            }
+            AppItem item = mItems.get(uid);
+            if (item == null) {
+                item = new AppItem(uid);
+                item.total = -1;
+                mItems.put(item.key, item);
+            }
+            item.restricted = true;
+        }
+    }
+
+    /**
+     * @return the items, sorted by decreasing usage.
+     */
+    List<AppItem> getItems() {
+        final int size = mItems.size();
+        final List<AppItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(mItems.valueAt(i));
+        }
+        Collections.sort(items);
+        return items;
+    }
+
+    /**
+     * @return the usage of the largest item, in bytes.
+     */
+    long getLargest() {
+        return mLargest;
+    }
+
+    private void accumulate(int collapseKey, int uid, long bytes, int category) {
+        AppItem item = mItems.get(collapseKey);
+        if (item == null) {
+            item = new AppItem(collapseKey);
+            item.category = category;
+            mItems.put(item.key, item);
+        }
+        item.addUid(uid);
+        item.total += bytes;
+        mLargest = Math.max(mLargest, item.total);
+    }
+
+    private boolean isProfile(int userId) {
+        for (int profileId : mProfileIds) {
+            if (profileId == userId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isExistingUser(int userId) {
+        final int index = mExistingUsers.indexOfKey(userId);
+        if (index >= 0) {
+            return mExistingUsers.valueAt(index);
+        }
+        final boolean exists = mUserManager.getUserInfo(userId) != null;
+        mExistingUsers.put(userId, exists);
+        return exists;
+    }
+}
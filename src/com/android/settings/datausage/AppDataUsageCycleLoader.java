@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import android.app.usage.NetworkStats;
+import android.content.Context;
+import android.net.NetworkTemplate;
+import android.util.SparseLongArray;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.net.NetworkCycleDataForUid;
+import com.android.settingslib.net.NetworkCycleDataForUidLoader;
+import com.android.settingslib.net.NetworkStatsSummaryLoader;
+import com.android.settingslib.utils.AsyncLoaderCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loader of the usage of some uids during the given cycles. The closed cycles are read from
+ * {@link DataUsageRollupStore}, and stored there when missing, so only the open cycles are
+ * queried for each uid.
+ */
+public class AppDataUsageCycleLoader extends AsyncLoaderCompat<List<NetworkCycleDataForUid>> {
+
+    private final NetworkTemplate mTemplate;
+    private final List<Integer> mUids;
+    // Bounds of the cycles, most recent first.
+    private final ArrayList<Long> mCycles;
+
+    public AppDataUsageCycleLoader(Context context, NetworkTemplate template, List<Integer> uids,
+            ArrayList<Long> cycles) {
+        super(context);
+        mTemplate = template;
+        mUids = uids;
+        mCycles = cycles;
+    }
+
+    @Override
+    public List<NetworkCycleDataForUid> loadInBackground() {
+        final long now = System.currentTimeMillis();
+        // The open cycles are the most recent ones.
+        int openBounds = 1;
+        while (openBounds < mCycles.size()
+                && !DataUsageRollupStore.isClosed(mCycles.get(openBounds - 1), now)) {
+            openBounds++;
+        }
+        final List<NetworkCycleDataForUid> data = new ArrayList<>();
+        if (openBounds > 1) {
+            final NetworkCycleDataForUidLoader.Builder builder =
+                    NetworkCycleDataForUidLoader.builder(getContext());
+            builder.setRetrieveDetail(true)
+                    .setNetworkTemplate(mTemplate)
+                    .setCycles(new ArrayList<>(mCycles.subList(0, openBounds)));
+            for (int uid : mUids) {
+                builder.addUid(uid);
+            }
+            data.addAll(builder.build().loadInBackground());
+        }
+        final DataUsageRollupStore store = DataUsageRollupStore.getInstance(getContext());
+        for (int i = openBounds; i < mCycles.size(); i++) {
+            final long end = mCycles.get(i - 1);
+            final long start = mCycles.get(i);
+            SparseLongArray usage = store.get(mTemplate, start, end);
+            SparseLongArray foregroundUsage = store.getForeground(mTemplate, start, end);
+            if (usage == null || foregroundUsage == null) {
+                final NetworkStats stats = new NetworkStatsSummaryLoader.Builder(getContext())
+                        .setStartTime(start)
+                        .setEndTime(end)
+                        .setNetworkTemplate(mTemplate)
+                        .build()
+                        .loadInBackground();
+                if (stats == null) {
+                    continue;
+                }
+                foregroundUsage = new SparseLongArray();
+                usage = DataUsageRollupStore.readUsage(stats, foregroundUsage);
+                store.put(mTemplate, start, end, usage, foregroundUsage, now);
+            }
+            long totalBytes = 0;
+            long foregroundBytes = 0;
+            for (int uid : mUids) {
+                totalBytes += usage.get(uid);
+                foregroundBytes += foregroundUsage.get(uid);
+            }
+            if (totalBytes > 0) {
+                data.add(new NetworkCycleDataForUid.Builder()
+                        .setForegroundUsage(foregroundBytes)
+                        .setBackgroundUsage(totalBytes - foregroundBytes)
+                        .setStartTime(start)
+                        .setEndTime(end)
+                        .setTotalUsage(totalBytes)
+                        .build());
+            }
+        }
+        return data;
+    }
+
+    @Override
+    protected void onDiscardResult(List<NetworkCycleDataForUid> result) {
+    }
+
+    @VisibleForTesting
+    List<Integer> getUids() {
+        return mUids;
+    }
+
+    @VisibleForTesting
+    ArrayList<Long> getCycles() {
+        return mCycles;
+    }
+}
@@ -20,6 +20,7 @@ import android.widget.ProgressBar;
 
 import androidx.preference.PreferenceViewHolder;
 
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settingslib.AppItem;
 import com.android.settingslib.net.UidDetail;
 import com.android.settingslib.net.UidDetailProvider;
@@ -49,7 +50,7 @@ public class AppDataUsagePreference extends AppPreference {
         if (mDetail != null) {
             setAppInfo();
         } else {
-            ThreadUtils.postOnBackgroundThread(() -> {
+            BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH, () -> {
                 mDetail = provider.getUidDetail(mItem.key, true /* blocking */);
                 ThreadUtils.postOnMainThread(() -> setAppInfo());
             });
@@ -17,39 +17,50 @@
 package com.android.settings.datausage;
 
 import android.content.Context;
-import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.os.UserHandle;
 import android.util.ArraySet;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 
+import com.android.settings.applications.AppLabelIconCache;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 public class AppPrefLoader extends AsyncLoaderCompat<ArraySet<Preference>> {
     private ArraySet<String> mPackages;
     private PackageManager mPackageManager;
     private Context mPrefContext;
+    private AppLabelIconCache mCache;
 
     public AppPrefLoader(Context prefContext, ArraySet<String> pkgs, PackageManager pm) {
+        this(prefContext, pkgs, pm, AppLabelIconCache.getInstance());
+    }
+
+    @VisibleForTesting
+    AppPrefLoader(Context prefContext, ArraySet<String> pkgs, PackageManager pm,
+            AppLabelIconCache cache) {
         super(prefContext);
         mPackages = pkgs;
         mPackageManager = pm;
         mPrefContext = prefContext;
+        mCache = cache;
     }
 
     @Override
     public ArraySet<Preference> loadInBackground() {
         ArraySet<Preference> results = new ArraySet<>();
         for (int i = 1, size = mPackages.size(); i < size; i++) {
-            try {
-                ApplicationInfo info = mPackageManager.getApplicationInfo(mPackages.valueAt(i), 0);
-                Preference preference = new Preference(mPrefContext);
-                preference.setIcon(info.loadIcon(mPackageManager));
-                preference.setTitle(info.loadLabel(mPackageManager));
-                preference.setSelectable(false);
-                results.add(preference);
-            } catch (PackageManager.NameNotFoundException e) {
+            final AppLabelIconCache.Entry entry =
+                    mCache.get(mPackageManager, mPackages.valueAt(i), UserHandle.myUserId());
+            if (entry == null) {
+                continue;
             }
+            Preference preference = new Preference(mPrefContext);
+            preference.setIcon(entry.newIcon());
+            preference.setTitle(entry.label);
+            preference.setSelectable(false);
+            results.add(preference);
         }
         return results;
     }
@@ -17,30 +17,24 @@ package com.android.settings.datausage;
 import static android.net.NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND;
 import static android.net.NetworkStatsHistory.FIELD_RX_BYTES;
 import static android.net.NetworkStatsHistory.FIELD_TX_BYTES;
-import static android.net.TrafficStats.UID_REMOVED;
-import static android.net.TrafficStats.UID_TETHERING;
 
 import android.app.Activity;
 import android.app.ActivityManager;
 import android.app.settings.SettingsEnums;
 import android.app.usage.NetworkStats;
-import android.app.usage.NetworkStats.Bucket;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.UserInfo;
 import android.graphics.Color;
 import android.net.ConnectivityManager;
 import android.net.NetworkPolicy;
 import android.net.NetworkTemplate;
 import android.os.Bundle;
-import android.os.Process;
-import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.Settings;
 import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
 import android.util.Log;
-import android.util.SparseArray;
+import android.util.SparseLongArray;
 import android.view.View;
 import android.view.View.AccessibilityDelegate;
 import android.view.accessibility.AccessibilityEvent;
@@ -56,6 +50,7 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceGroup;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.datausage.CycleAdapter.SpinnerInterface;
 import com.android.settings.network.MobileDataEnabledListener;
@@ -66,9 +61,9 @@ import com.android.settingslib.net.NetworkCycleChartData;
 import com.android.settingslib.net.NetworkCycleChartDataLoader;
 import com.android.settingslib.net.NetworkStatsSummaryLoader;
 import com.android.settingslib.net.UidDetailProvider;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -119,6 +114,10 @@ public class DataUsageList extends DataUsageBaseFragment
     private Preference mUsageAmount;
     private PreferenceGroup mApps;
     private View mHeader;
+    // Incremented whenever the stats change, to drop stale aggregations.
+    private int mStatsGeneration;
+    // Whether the loader of the detailed stats is used for the current cycle.
+    private boolean mIsSummaryRequested;
 
     @Override
     public int getMetricsCategory() {
@@ -329,9 +328,28 @@ public class DataUsageList extends DataUsageBaseFragment
     private void updateDetailData() {
         if (LOGD) Log.d(TAG, "updateDetailData()");
 
-        // kick off loader for detailed stats
-        getLoaderManager().restartLoader(LOADER_SUMMARY, null /* args */,
-                mNetworkStatsDetailCallbacks);
+        // Use the stored usage of a closed cycle, or kick off loader for detailed stats
+        mIsSummaryRequested = false;
+        final int generation = ++mStatsGeneration;
+        final NetworkTemplate template = mTemplate;
+        final long start = mChart.getInspectStart();
+        final long end = mChart.getInspectEnd();
+        final Context context = getContext();
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH, () -> {
+            final SparseLongArray usage =
+                    DataUsageRollupStore.getInstance(context).get(template, start, end);
+            if (usage != null) {
+                aggregateUsage(context, generation, usage);
+                return;
+            }
+            ThreadUtils.postOnMainThread(() -> {
+                if (generation == mStatsGeneration && isAdded()) {
+                    mIsSummaryRequested = true;
+                    getLoaderManager().restartLoader(LOADER_SUMMARY, null /* args */,
+                            mNetworkStatsDetailCallbacks);
+                }
+            });
+        });
 
         final long totalBytes = mCycleData != null && !mCycleData.isEmpty()
             ? mCycleData.get(mCycleSpinner.getSelectedItemPosition()).getTotalUsage() : 0;
@@ -340,86 +358,58 @@ public class DataUsageList extends DataUsageBaseFragment
     }
 
     /**
-     * Bind the given {@link NetworkStats}, or {@code null} to clear list.
+     * Aggregate the given {@link NetworkStats} in the background, store them if their cycle is
+     * closed, and bind the resulting items.
+     */
+    private void loadStats(NetworkStats stats) {
+        final int generation = ++mStatsGeneration;
+        final NetworkTemplate template = mTemplate;
+        final long start = mChart.getInspectStart();
+        final long end = mChart.getInspectEnd();
+        final Context context = getContext();
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH, () -> {
+            final SparseLongArray foregroundUsage = new SparseLongArray();
+            final SparseLongArray usage = DataUsageRollupStore.readUsage(stats, foregroundUsage);
+            DataUsageRollupStore.getInstance(context).put(template, start, end, usage,
+                    foregroundUsage, System.currentTimeMillis());
+            aggregateUsage(context, generation, usage);
+        });
+    }
+
+    /**
+     * Aggregate the usage of each uid, and bind the resulting items. Must be called in the
+     * background.
      */
-    private void bindStats(NetworkStats stats, int[] restrictedUids) {
+    private void aggregateUsage(Context context, int generation, SparseLongArray usage) {
+        final AppDataUsageAggregator aggregator = new AppDataUsageAggregator(
+                ActivityManager.getCurrentUser(), UserManager.get(context));
+        aggregator.addUsage(usage);
+        aggregator.setRestrictedUids(services.mPolicyManager.getUidsWithPolicy(
+                POLICY_REJECT_METERED_BACKGROUND));
+        final List<AppItem> items = aggregator.getItems();
+        final long largest = aggregator.getLargest();
+        ThreadUtils.postOnMainThread(() -> {
+            // Drop the result if newer stats were loaded or reset meanwhile.
+            if (generation != mStatsGeneration || !isAdded()) {
+                return;
+            }
+            bindStats(items, largest);
+            mNetworkStatsDetailCallbacks.updateEmptyVisible();
+        });
+    }
+
+    /**
+     * Bind the given aggregated items, or {@code null} to clear list.
+     */
+    private void bindStats(List<AppItem> items, long largest) {
         mApps.removeAll();
-        if (stats == null) {
+        if (items == null) {
             if (LOGD) {
                 Log.d(TAG, "No network stats data. App list cleared.");
             }
             return;
         }
 
-        final ArrayList<AppItem> items = new ArrayList<>();
-        long largest = 0;
-
-        final int currentUserId = ActivityManager.getCurrentUser();
-        final UserManager userManager = UserManager.get(getContext());
-        final List<UserHandle> profiles = userManager.getUserProfiles();
-        final SparseArray<AppItem> knownItems = new SparseArray<AppItem>();
-
-        final Bucket bucket = new Bucket();
-        while (stats.hasNextBucket() && stats.getNextBucket(bucket)) {
-            // Decide how to collapse items together
-            final int uid = bucket.getUid();
-            final int collapseKey;
-            final int category;
-            final int userId = UserHandle.getUserId(uid);
-            if (UserHandle.isApp(uid)) {
-                if (profiles.contains(new UserHandle(userId))) {
-                    if (userId != currentUserId) {
-                        // Add to a managed user item.
-                        final int managedKey = UidDetailProvider.buildKeyForUser(userId);
-                        largest = accumulate(managedKey, knownItems, bucket,
-                            AppItem.CATEGORY_USER, items, largest);
-                    }
-                    // Add to app item.
-                    collapseKey = uid;
-                    category = AppItem.CATEGORY_APP;
-                } else {
-                    // If it is a removed user add it to the removed users' key
-                    final UserInfo info = userManager.getUserInfo(userId);
-                    if (info == null) {
-                        collapseKey = UID_REMOVED;
-                        category = AppItem.CATEGORY_APP;
-                    } else {
-                        // Add to other user item.
-                        collapseKey = UidDetailProvider.buildKeyForUser(userId);
-                        category = AppItem.CATEGORY_USER;
-                    }
-                }
-            } else if (uid == UID_REMOVED || uid == UID_TETHERING
-                    || uid == Process.OTA_UPDATE_UID) {
-                collapseKey = uid;
-                category = AppItem.CATEGORY_APP;
-            } else {
-                collapseKey = android.os.Process.SYSTEM_UID;
-                category = AppItem.CATEGORY_APP;
-            }
-            largest = accumulate(collapseKey, knownItems, bucket, category, items, largest);
-        }
-        stats.close();
-
-        final int restrictedUidsMax = restrictedUids.length;
-        for (int i = 0; i < restrictedUidsMax; ++i) {
-            final int uid = restrictedUids[i];
-            // Only splice in restricted state for current user or managed users
-            if (!profiles.contains(new UserHandle(UserHandle.getUserId(uid)))) {
-                continue;
-            }
-
-            AppItem item = knownItems.get(uid);
-            if (item == null) {
-                item = new AppItem(uid);
-                item.total = -1;
-                items.add(item);
-                knownItems.put(item.key, item);
-            }
-            item.restricted = true;
-        }
-
-        Collections.sort(items);
         for (int i = 0; i < items.size(); i++) {
             final int percentTotal = largest != 0 ? (int) (items.get(i).total * 100 / largest) : 0;
             final AppDataUsagePreference preference = new AppDataUsagePreference(getContext(),
@@ -463,30 +453,6 @@ public class DataUsageList extends DataUsageBaseFragment
                 .launch();
     }
 
-    /**
-     * Accumulate data usage of a network stats entry for the item mapped by the collapse key.
-     * Creates the item if needed.
-     *
-     * @param collapseKey  the collapse key used to map the item.
-     * @param knownItems   collection of known (already existing) items.
-     * @param bucket       the network stats bucket to extract data usage from.
-     * @param itemCategory the item is categorized on the list view by this category. Must be
-     */
-    private static long accumulate(int collapseKey, final SparseArray<AppItem> knownItems,
-            Bucket bucket, int itemCategory, ArrayList<AppItem> items, long largest) {
-        final int uid = bucket.getUid();
-        AppItem item = knownItems.get(collapseKey);
-        if (item == null) {
-            item = new AppItem(collapseKey);
-            item.category = itemCategory;
-            items.add(item);
-            knownItems.put(item.key, item);
-        }
-        item.addUid(uid);
-        item.total += bucket.getRxBytes() + bucket.getTxBytes();
-        return Math.max(largest, item.total);
-    }
-
     private OnItemSelectedListener mCycleListener = new OnItemSelectedListener() {
         @Override
         public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
@@ -537,8 +503,10 @@ public class DataUsageList extends DataUsageBaseFragment
         }
     };
 
-    private final LoaderCallbacks<NetworkStats> mNetworkStatsDetailCallbacks =
-            new LoaderCallbacks<NetworkStats>() {
+    private final NetworkStatsDetailCallbacks mNetworkStatsDetailCallbacks =
+            new NetworkStatsDetailCallbacks();
+
+    private class NetworkStatsDetailCallbacks implements LoaderCallbacks<NetworkStats> {
         @Override
         public Loader<NetworkStats> onCreateLoader(int id, Bundle args) {
             return new NetworkStatsSummaryLoader.Builder(getContext())
@@ -550,19 +518,28 @@ public class DataUsageList extends DataUsageBaseFragment
 
         @Override
         public void onLoadFinished(Loader<NetworkStats> loader, NetworkStats data) {
-            final int[] restrictedUids = services.mPolicyManager.getUidsWithPolicy(
-                    POLICY_REJECT_METERED_BACKGROUND);
-            bindStats(data, restrictedUids);
-            updateEmptyVisible();
+            if (!mIsSummaryRequested) {
+                // The stored usage of the cycle is shown instead.
+                if (data != null) {
+                    data.close();
+                }
+                return;
+            }
+            if (data == null) {
+                onLoaderReset(loader);
+                return;
+            }
+            loadStats(data);
         }
 
         @Override
         public void onLoaderReset(Loader<NetworkStats> loader) {
-            bindStats(null, new int[0]);
+            mStatsGeneration++;
+            bindStats(null, 0 /* largest */);
             updateEmptyVisible();
         }
 
-        private void updateEmptyVisible() {
+        void updateEmptyVisible() {
             if ((mApps.getPreferenceCount() != 0) !=
                     (getPreferenceScreen().getPreferenceCount() != 0)) {
                 if (mApps.getPreferenceCount() != 0) {
@@ -573,5 +550,5 @@ public class DataUsageList extends DataUsageBaseFragment
                 }
             }
         }
-    };
+    }
 }
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import android.app.usage.NetworkStats;
+import android.app.usage.NetworkStats.Bucket;
+import android.content.Context;
+import android.net.NetworkTemplate;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.SparseLongArray;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Store of the usage of every uid during the closed billing cycles of each
+ * {@link NetworkTemplate}, so they don't need to be queried from {@link NetworkStats} again.
+ * The total usage of each uid is kept along with its foreground usage.
+ *
+ * A cycle is closed when it ended more than {@link #CLOSED_CYCLE_DELAY_MS} ago, leaving time
+ * for the last stats to be persisted. The cycles are keyed by their bounds, so changing the
+ * cycle day only makes the old cycles unused, and the oldest cycles above
+ * {@link #MAX_CYCLES_PER_TEMPLATE} are dropped. Every template is kept in its own file, named
+ * after its hash code. The file starts with the identity of its template, and is ignored when
+ * read for another template with the same hash code.
+ */
+public class DataUsageRollupStore {
+
+    private static final String TAG = "DataUsageRollupStore";
+
+    @VisibleForTesting
+    static final String DIR_NAME = "data_usage_rollup";
+    @VisibleForTesting
+    static final long CLOSED_CYCLE_DELAY_MS = DateUtils.DAY_IN_MILLIS;
+    @VisibleForTesting
+    static final int MAX_CYCLES_PER_TEMPLATE = 24;
+    private static final int MAGIC = 0x44555252; // "DURR"
+    private static final int FORMAT_VERSION = 3;
+
+    private static DataUsageRollupStore sInstance;
+
+    private final File mDir;
+    // Cycles of the templates read or written so far, by template identity.
+    private final Map<String, List<Cycle>> mCycles = new ArrayMap<>();
+
+    public static synchronized DataUsageRollupStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new DataUsageRollupStore(
+                    new File(context.getApplicationContext().getCacheDir(), DIR_NAME));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    DataUsageRollupStore(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * @return whether a cycle ending at {@code end} is closed at {@code now}.
+     */
+    public static boolean isClosed(long end, long now) {
+        return end + CLOSED_CYCLE_DELAY_MS <= now;
+    }
+
+    /**
+     * Fold the buckets of {@code stats} into the usage of each uid, in bytes, and close it.
+     *
+     * @param foregroundUsage filled with the foreground usage of each uid
+     */
+    public static SparseLongArray readUsage(NetworkStats stats, SparseLongArray foregroundUsage) {
+        final SparseLongArray usage = new SparseLongArray();
+        final Bucket bucket = new Bucket();
+        while (stats.hasNextBucket() && stats.getNextBucket(bucket)) {
+            final int uid = bucket.getUid();
+            final long bytes = bucket.getRxBytes() + bucket.getTxBytes();
+            usage.put(uid, usage.get(uid) + bytes);
+            if (bucket.getState() == Bucket.STATE_FOREGROUND) {
+                foregroundUsage.put(uid, foregroundUsage.get(uid) + bytes);
+            }
+        }
+        stats.close();
+        return usage;
+    }
+
+    /**
+     * @return the stored usage of each uid between {@code start} and {@code end}, or
+     * {@code null} if the cycle is not stored.
+     */
+    @WorkerThread
+    public synchronized SparseLongArray get(NetworkTemplate template, long start, long end) {
+        final Cycle cycle = findCycle(template, start, end);
+        return cycle != null ? cycle.mUsage.clone() : null;
+    }
+
+    /**
+     * @return the stored foreground usage of each uid between {@code start} and {@code end}, or
+     * {@code null} if the cycle is not stored.
+     */
+    @WorkerThread
+    public synchronized SparseLongArray getForeground(NetworkTemplate template, long start,
+            long end) {
+        final Cycle cycle = findCycle(template, start, end);
+        return cycle != null ? cycle.mForegroundUsage.clone() : null;
+    }
+
+    /**
+     * Store the total and foreground usage of each uid between {@code start} and {@code end}, if
+     * that cycle is closed.
+     */
+    @WorkerThread
+    public synchronized void put(NetworkTemplate template, long start, long end,
+            SparseLongArray usage, SparseLongArray foregroundUsage, long now) {
+        if (!isClosed(end, now)) {
+            return;
+        }
+        final List<Cycle> cycles = getCycles(template);
+        for (int i = cycles.size() - 1; i >= 0; i--) {
+            final Cycle cycle = cycles.get(i);
+            // Drop the same cycle, and the cycles overlapping it after a cycle day change.
+            if (cycle.mStart < end && start < cycle.mEnd) {
+                cycles.remove(i);
+            }
+        }
+        int index = 0;
+        while (index < cycles.size() && cycles.get(index).mStart > start) {
+            index++;
+        }
+        cycles.add(index, new Cycle(start, end, usage.clone(), foregroundUsage.clone()));
+        while (cycles.size() > MAX_CYCLES_PER_TEMPLATE) {
+            cycles.remove(cycles.size() - 1);
+        }
+        write(template, cycles);
+    }
+
+    private Cycle findCycle(NetworkTemplate template, long start, long end) {
+        for (Cycle cycle : getCycles(template)) {
+            if (cycle.mStart == start && cycle.mEnd == end) {
+                return cycle;
+            }
+        }
+        return null;
+    }
+
+    private List<Cycle> getCycles(NetworkTemplate template) {
+        final String identity = getIdentity(template);
+        List<Cycle> cycles = mCycles.get(identity);
+        if (cycles == null) {
+            cycles = read(template, identity);
+            mCycles.put(identity, cycles);
+        }
+        return cycles;
+    }
+
+    private List<Cycle> read(NetworkTemplate template, String identity) {
+        final List<Cycle> cycles = new ArrayList<>();
+        final String fileName = getFileName(template);
+        final AtomicFile file = new AtomicFile(new File(mDir, fileName));
+        if (!file.getBaseFile().exists()) {
+            return cycles;
+        }
+        try (DataInputStream in = new DataInputStream(file.openRead())) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return cycles;
+            }
+            if (!identity.equals(in.readUTF())) {
+                Log.d(TAG, fileName + " belongs to another template");
+                return cycles;
+            }
+            final int cycleCount = in.readInt();
+            for (int i = 0; i < cycleCount; i++) {
+                final long start = in.readLong();
+                final long end = in.readLong();
+                final SparseLongArray usage = readUidUsage(in);
+                cycles.add(new Cycle(start, end, usage, readUidUsage(in)));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read " + fileName, e);
+            cycles.clear();
+        }
+        return cycles;
+    }
+
+    private void write(NetworkTemplate template, List<Cycle> cycles) {
+        if (!mDir.exists() && !mDir.mkdirs()) {
+            Log.w(TAG, "Failed to create " + mDir);
+            return;
+        }
+        final String fileName = getFileName(template);
+        final AtomicFile file = new AtomicFile(new File(mDir, fileName));
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            final DataOutputStream dataOut = new DataOutputStream(out);
+            dataOut.writeInt(MAGIC);
+            dataOut.writeInt(FORMAT_VERSION);
+            dataOut.writeUTF(getIdentity(template));
+            dataOut.writeInt(cycles.size());
+            for (Cycle cycle : cycles) {
+                dataOut.writeLong(cycle.mStart);
+                dataOut.writeLong(cycle.mEnd);
+                writeUidUsage(dataOut, cycle.mUsage);
+                writeUidUsage(dataOut, cycle.mForegroundUsage);
+            }
+            dataOut.flush();
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + fileName, e);
+            file.failWrite(out);
+        }
+    }
+
+    private static SparseLongArray readUidUsage(DataInputStream in) throws IOException {
+        final int uidCount = in.readInt();
+        final SparseLongArray usage = new SparseLongArray(uidCount);
+        for (int i = 0; i < uidCount; i++) {
+            usage.append(in.readInt(), in.readLong());
+        }
+        return usage;
+    }
+
+    private static void writeUidUsage(DataOutputStream out, SparseLongArray usage)
+            throws IOException {
+        out.writeInt(usage.size());
+        for (int i = 0; i < usage.size(); i++) {
+            out.writeInt(usage.keyAt(i));
+            out.writeLong(usage.valueAt(i));
+        }
+    }
+
+    @VisibleForTesting
+    static String getFileName(NetworkTemplate template) {
+        return "template_" + Integer.toHexString(template.hashCode()) + ".bin";
+    }
+
+    /**
+     * @return the match rule, subscriber id and network id of {@code template} in full, followed
+     * by its description for the other fields.
+     */
+    private static String getIdentity(NetworkTemplate template) {
+        return template.getMatchRule() + "\n" + template.getSubscriberId() + "\n"
+                + template.getNetworkId() + "\n" + template;
+    }
+
+    private static class Cycle {
+        private final long mStart;
+        private final long mEnd;
+        private final SparseLongArray mUsage;
+        private final SparseLongArray mForegroundUsage;
+
+        private Cycle(long start, long end, SparseLongArray usage,
+                SparseLongArray foregroundUsage) {
+            mStart = start;
+            mEnd = end;
+            mUsage = usage;
+            mForegroundUsage = foregroundUsage;
+        }
+    }
+}
@@ -39,6 +39,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.internal.util.CollectionUtils;
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.datausage.lib.DataUsageLib;
 import com.android.settings.network.ProxySubscriptionManager;
@@ -49,7 +50,6 @@ import com.android.settingslib.core.lifecycle.Lifecycle;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnStart;
 import com.android.settingslib.net.DataUsageController;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.List;
 import java.util.concurrent.Future;
@@ -212,8 +212,9 @@ public class DataUsageSummaryPreferenceController extends TelephonyBasePreferenc
             updateConfiguration(mContext, mSubId, subInfo);
         }
 
-        mHistoricalUsageLevel = ThreadUtils.postOnBackgroundThread(() ->
-                mDataUsageController.getHistoricalUsageLevel(mDefaultTemplate));
+        mHistoricalUsageLevel = BackgroundScheduler.getInstance().submit(
+                BackgroundScheduler.LANE_UI_CRITICAL,
+                () -> mDataUsageController.getHistoricalUsageLevel(mDefaultTemplate));
 
         boolean showDailyDataUsage = Settings.System.getInt(mContext.getContentResolver(),
                 Settings.System.DATA_USAGE_PERIOD, 1) == 0;
@@ -16,7 +16,6 @@
 
 package com.android.settings.datetime.timezone;
 
-import android.icu.text.BreakIterator;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -24,6 +23,7 @@ import android.view.ViewGroup;
 import android.widget.Filter;
 import android.widget.TextView;
 
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
@@ -33,7 +33,6 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.android.settings.R;
 import com.android.settings.datetime.timezone.BaseTimeZonePicker.OnListItemClickListener;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
@@ -225,14 +224,25 @@ public class BaseTimeZoneAdapter<T extends BaseTimeZoneAdapter.AdapterItem>
      * a prefix. Each item that does not start with the supplied prefix
      * is removed from the list.</p>
      *
-     * The filtering operation is not optimized, due to small data size (~260 regions),
-     * require additional pre-processing. Potentially, a trie structure can be used to match
-     * prefixes of the search keys.
+     * The search keys are indexed by a {@link TimeZoneSearchIndex}, built on the filter thread
+     * by the first query. The results of a query started by {@link #search(CharSequence)} are
+     * dropped once a newer query is started.
      */
     @VisibleForTesting
     public class ArrayFilter extends Filter {
 
-        private BreakIterator mBreakIterator = BreakIterator.getWordInstance(mLocale);
+        private TimeZoneSearchIndex<T> mIndex;
+        // The latest query started by search(), if any. Only accessed from the main thread.
+        private CharSequence mLatestQuery;
+
+        /**
+         * Filter the items with {@code query}, and drop the results of the previous queries.
+         */
+        @MainThread
+        public void search(CharSequence query) {
+            mLatestQuery = query == null ? "" : query;
+            filter(query);
+        }
 
         @WorkerThread
         @Override
@@ -241,32 +251,10 @@ public class BaseTimeZoneAdapter<T extends BaseTimeZoneAdapter.AdapterItem>
             if (TextUtils.isEmpty(prefix)) {
                 newItems = mOriginalItems;
             } else {
-                final String prefixString = prefix.toString().toLowerCase(mLocale);
-                newItems = new ArrayList<>();
-
-                for (T item : mOriginalItems) {
-                    outer:
-                    for (String searchKey : item.getSearchKeys()) {
-                        searchKey = searchKey.toLowerCase(mLocale);
-                        // First match against the whole, non-splitted value
-                        if (searchKey.startsWith(prefixString)) {
-                            newItems.add(item);
-                            break outer;
-                        } else {
-                            mBreakIterator.setText(searchKey);
-                            for (int wordStart = 0, wordLimit = mBreakIterator.next();
-                                    wordLimit != BreakIterator.DONE;
-                                    wordStart = wordLimit,
-                                            wordLimit = mBreakIterator.next()) {
-                                if (mBreakIterator.getRuleStatus() != BreakIterator.WORD_NONE
-                                        && searchKey.startsWith(prefixString, wordStart)) {
-                                    newItems.add(item);
-                                    break outer;
-                                }
-                            }
-                        }
-                    }
+                if (mIndex == null) {
+                    mIndex = new TimeZoneSearchIndex<>(mOriginalItems, mLocale);
                 }
+                newItems = mIndex.search(prefix.toString());
             }
 
             final FilterResults results = new FilterResults();
@@ -279,6 +267,11 @@ public class BaseTimeZoneAdapter<T extends BaseTimeZoneAdapter.AdapterItem>
         @VisibleForTesting
         @Override
         public void publishResults(CharSequence constraint, FilterResults results) {
+            if (mLatestQuery != null && !TextUtils.equals(mLatestQuery,
+                    constraint == null ? "" : constraint)) {
+                // A newer query is running.
+                return;
+            }
             mItems = (List<T>) results.values;
             notifyDataSetChanged();
         }
@@ -156,7 +156,7 @@ public abstract class BaseTimeZonePicker extends InstrumentedFragment
     @Override
     public boolean onQueryTextChange(String newText) {
         if (mAdapter != null) {
-            mAdapter.getFilter().filter(newText);
+            mAdapter.getFilter().search(newText);
         }
         return false;
     }
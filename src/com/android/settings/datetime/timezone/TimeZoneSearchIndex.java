@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datetime.timezone;
+
+import android.icu.text.BreakIterator;
+import android.icu.text.Transliterator;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settings.datetime.timezone.BaseTimeZoneAdapter.AdapterItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Prefix index over the search keys of {@link AdapterItem}s, e.g. region names, region codes,
+ * time zone names and exemplar cities.
+ *
+ * Every key is indexed from its start and from the start of each of its words, after being
+ * lowercased in the locale of the picker and folded to ASCII where the script allows, so that
+ * "sao" matches "São Tomé" and "zur" matches "Zürich". The tokens are kept in a sorted array,
+ * which works as a flattened trie: all the tokens with a given prefix are contiguous.
+ */
+@WorkerThread
+class TimeZoneSearchIndex<T extends AdapterItem> {
+
+    private static final String FOLDING_RULES =
+            "NFD; [:Nonspacing Mark:] Remove; NFC; Latin-ASCII";
+
+    private final List<T> mItems;
+    private final Locale mLocale;
+    private final Transliterator mTransliterator;
+    private final String[] mTokens;
+    private final int[] mTokenItems;
+
+    TimeZoneSearchIndex(List<T> items, Locale locale) {
+        mItems = items;
+        mLocale = locale;
+        mTransliterator = Transliterator.getInstance(FOLDING_RULES);
+
+        final BreakIterator breakIterator = BreakIterator.getWordInstance(locale);
+        final List<Token> tokens = new ArrayList<>();
+        for (int i = 0, size = items.size(); i < size; i++) {
+            for (String searchKey : items.get(i).getSearchKeys()) {
+                if (searchKey == null) {
+                    continue;
+                }
+                final String key = searchKey.toLowerCase(locale);
+                tokens.add(new Token(mTransliterator.transliterate(key), i));
+                breakIterator.setText(key);
+                for (int wordStart = 0, wordLimit = breakIterator.next();
+                        wordLimit != BreakIterator.DONE;
+                        wordStart = wordLimit, wordLimit = breakIterator.next()) {
+                    if (wordStart > 0 && breakIterator.getRuleStatus() != BreakIterator.WORD_NONE) {
+                        tokens.add(new Token(
+                                mTransliterator.transliterate(key.substring(wordStart)), i));
+                    }
+                }
+            }
+        }
+        final Token[] sorted = tokens.toArray(new Token[0]);
+        Arrays.sort(sorted, (t1, t2) -> t1.mText.compareTo(t2.mText));
+        mTokens = new String[sorted.length];
+        mTokenItems = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            mTokens[i] = sorted[i].mText;
+            mTokenItems[i] = sorted[i].mItem;
+        }
+    }
+
+    List<T> getItems() {
+        return mItems;
+    }
+
+    /**
+     * @return the items with a search key, or a word of a search key, starting with
+     * {@code prefix}, in the order of {@link #getItems()}.
+     */
+    List<T> search(String prefix) {
+        final String token = normalize(prefix);
+        final BitSet matches = new BitSet(mItems.size());
+        for (int i = lowerBound(token); i < mTokens.length && mTokens[i].startsWith(token); i++) {
+            matches.set(mTokenItems[i]);
+        }
+        final List<T> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(mItems.get(i));
+        }
+        return result;
+    }
+
+    @VisibleForTesting
+    String normalize(String text) {
+        return mTransliterator.transliterate(text.toLowerCase(mLocale));
+    }
+
+    private int lowerBound(String token) {
+        int low = 0;
+        int high = mTokens.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mTokens[mid].compareTo(token) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static class Token {
+        private final String mText;
+        private final int mItem;
+
+        private Token(String text, int item) {
+            mText = text;
+            mItem = item;
+        }
+    }
+}
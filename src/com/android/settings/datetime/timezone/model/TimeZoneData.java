@@ -16,6 +16,7 @@
 package com.android.settings.datetime.timezone.model;
 
 import androidx.annotation.VisibleForTesting;
+import androidx.collection.ArrayMap;
 import androidx.collection.ArraySet;
 
 import libcore.timezone.CountryTimeZones;
@@ -27,6 +28,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -34,6 +36,9 @@ import java.util.Set;
  * has time zone shown in the time zone picker.
  * getInstance() reads the data from underlying file, and this means it should not be called
  * from the UI thread.
+ *
+ * The filtered time zones of every region, and the regions of every time zone, are computed once
+ * per instance and shared by all the pickers.
  */
 public class TimeZoneData {
 
@@ -41,6 +46,10 @@ public class TimeZoneData {
 
     private final CountryZonesFinder mCountryZonesFinder;
     private final Set<String> mRegionIds;
+    // By normalized region id. Guarded by this.
+    private final Map<String, FilteredCountryTimeZones> mCountryTimeZones = new ArrayMap<>();
+    // Guarded by this.
+    private Map<String, Set<String>> mZoneIdToRegionIds;
 
     public static synchronized TimeZoneData getInstance() {
         TimeZoneData data = sCache == null ? null : sCache.get();
@@ -66,22 +75,50 @@ public class TimeZoneData {
         if (tzId == null) {
             return Collections.emptySet();
         }
-        List<CountryTimeZones> countryTimeZones = mCountryZonesFinder
-                .lookupCountryTimeZonesForZoneId(tzId);
-        Set<String> regionIds = new ArraySet<>();
-        for (CountryTimeZones countryTimeZone : countryTimeZones) {
-            FilteredCountryTimeZones filteredZones = new FilteredCountryTimeZones(countryTimeZone);
-            if (filteredZones.getTimeZoneIds().contains(tzId)) {
-                regionIds.add(filteredZones.getRegionId());
+        final Set<String> regionIds = getZoneIdToRegionIds().get(tzId);
+        return regionIds == null ? Collections.emptySet() : regionIds;
+    }
+
+    public synchronized FilteredCountryTimeZones lookupCountryTimeZones(String regionId) {
+        if (regionId == null) {
+            return null;
+        }
+        final String normalizedRegionId = normalizeRegionId(regionId);
+        FilteredCountryTimeZones filteredZones = mCountryTimeZones.get(normalizedRegionId);
+        if (filteredZones == null) {
+            final CountryTimeZones finder = mCountryZonesFinder.lookupCountryTimeZones(regionId);
+            if (finder == null) {
+                return null;
             }
+            filteredZones = new FilteredCountryTimeZones(finder);
+            mCountryTimeZones.put(normalizedRegionId, filteredZones);
         }
-        return regionIds;
+        return filteredZones;
     }
 
-    public FilteredCountryTimeZones lookupCountryTimeZones(String regionId) {
-        CountryTimeZones finder = regionId == null ? null
-                : mCountryZonesFinder.lookupCountryTimeZones(regionId);
-       return finder == null ? null : new FilteredCountryTimeZones(finder);
+    private synchronized Map<String, Set<String>> getZoneIdToRegionIds() {
+        if (mZoneIdToRegionIds == null) {
+            final Map<String, Set<String>> zoneIdToRegionIds = new ArrayMap<>();
+            for (String regionId : mRegionIds) {
+                final FilteredCountryTimeZones filteredZones = lookupCountryTimeZones(regionId);
+                if (filteredZones == null) {
+                    continue;
+                }
+                for (String tzId : filteredZones.getTimeZoneIds()) {
+                    Set<String> regionIds = zoneIdToRegionIds.get(tzId);
+                    if (regionIds == null) {
+                        regionIds = new ArraySet<>();
+                        zoneIdToRegionIds.put(tzId, regionIds);
+                    }
+                    regionIds.add(regionId);
+                }
+            }
+            for (Map.Entry<String, Set<String>> entry : zoneIdToRegionIds.entrySet()) {
+                entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+            }
+            mZoneIdToRegionIds = zoneIdToRegionIds;
+        }
+        return mZoneIdToRegionIds;
     }
 
     private static Set<String> getNormalizedRegionIds(List<String> regionIds) {
@@ -26,6 +26,7 @@ import androidx.preference.PreferenceScreen;
 import com.android.settings.R;
 import com.android.settings.applications.ProcStatsData;
 import com.android.settings.applications.ProcessStatsBase;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settingslib.development.DeveloperOptionsPreferenceController;
 import com.android.settingslib.utils.ThreadUtils;
@@ -58,7 +59,7 @@ public class MemoryUsagePreferenceController extends DeveloperOptionsPreferenceC
     public void updateState(Preference preference) {
         // This is posted on the background thread to speed up fragment launch time for dev options
         // mProcStasData.refreshStats(true) takes ~20ms to run.
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             mProcStatsData.refreshStats(true);
             final ProcStatsData.MemInfo memInfo = mProcStatsData.getMemInfo();
             final String usedResult = Formatter.formatShortFileSize(mContext,
@@ -61,6 +61,7 @@ import com.android.settings.applications.manageapplications.ManageApplications;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.core.instrumentation.InstrumentedDialogFragment;
 import com.android.settings.deviceinfo.StorageSettings.MountTask;
+import com.android.settings.deviceinfo.storage.PackageStorageStatsCache;
 import com.android.settingslib.deviceinfo.StorageMeasurement;
 import com.android.settingslib.deviceinfo.StorageMeasurement.MeasurementDetails;
 import com.android.settingslib.deviceinfo.StorageMeasurement.MeasurementReceiver;
@@ -858,7 +859,8 @@ public class PrivateVolumeSettings extends SettingsPreferenceFragment {
                     for (int userId : um.getProfileIdsWithDisabled(context.getUserId())) {
                         final List<PackageInfo> infos = pm.getInstalledPackagesAsUser(0, userId);
                         final ClearCacheObserver observer = new ClearCacheObserver(
-                                target, infos.size());
+                                target, infos.size(),
+                                PackageStorageStatsCache.getInstance(context));
                         for (PackageInfo info : infos) {
                             pm.deleteApplicationCacheFilesAsUser(info.packageName, userId,
                                     observer);
@@ -874,15 +876,19 @@ public class PrivateVolumeSettings extends SettingsPreferenceFragment {
 
     private static class ClearCacheObserver extends IPackageDataObserver.Stub {
         private final PrivateVolumeSettings mTarget;
+        private final PackageStorageStatsCache mStatsCache;
         private int mRemaining;
 
-        public ClearCacheObserver(PrivateVolumeSettings target, int remaining) {
+        public ClearCacheObserver(PrivateVolumeSettings target, int remaining,
+                PackageStorageStatsCache statsCache) {
             mTarget = target;
             mRemaining = remaining;
+            mStatsCache = statsCache;
         }
 
         @Override
         public void onRemoveCompleted(final String packageName, final boolean succeeded) {
+            mStatsCache.invalidate(packageName);
             synchronized (this) {
                 if (--mRemaining == 0) {
                     mTarget.getActivity().runOnUiThread(new Runnable() {
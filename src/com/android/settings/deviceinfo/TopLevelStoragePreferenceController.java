@@ -23,6 +23,7 @@ import android.text.format.Formatter;
 import androidx.preference.Preference;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settingslib.deviceinfo.PrivateStorageInfo;
 import com.android.settingslib.deviceinfo.StorageManagerVolumeProvider;
@@ -52,7 +53,7 @@ public class TopLevelStoragePreferenceController extends BasePreferenceControlle
             return;
         }
 
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final NumberFormat percentageFormat = NumberFormat.getPercentInstance();
             final PrivateStorageInfo info = PrivateStorageInfo.getPrivateStorageInfo(
                     mStorageManagerVolumeProvider);
@@ -62,6 +62,7 @@ import androidx.annotation.VisibleForTesting;
 import com.android.internal.telephony.PhoneConstants;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settingslib.DeviceInfoUtils;
 import com.android.settingslib.Utils;
 import com.android.settingslib.core.lifecycle.Lifecycle;
@@ -610,7 +611,7 @@ public class SimStatusDialogController implements LifecycleObserver, OnResume, O
 
     @VisibleForTesting
     void requestForUpdateEid() {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final AtomicReference<String> eid = getEid(mSlotIndex);
             ThreadUtils.postOnMainThread(() -> updateEid(eid));
         });
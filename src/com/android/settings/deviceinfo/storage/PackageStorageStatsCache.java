@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.os.UserHandle;
+import android.provider.Settings;
+import android.util.ArraySet;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settings.core.BackgroundScheduler;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the storage stats of the packages queried by {@link StorageAsyncLoader}, so that
+ * coming back to the storage page only queries the packages which changed.
+ *
+ * The stats of a package are reused while its code is unchanged and they are younger than
+ * {@link Settings.Global#STORAGE_SETTINGS_CLOBBER_THRESHOLD}, the staleness
+ * {@link CachedStorageValuesHelper} already allows for the totals. The code is considered
+ * unchanged while the version code and the apk path of the package are, as an update always
+ * installs the package in a new directory. The stats of a package are dropped when its data or
+ * cache is cleared, and when it is changed or removed.
+ */
+public class PackageStorageStatsCache {
+
+    private static final String TAG = "PackageStorageStatsCache";
+
+    @VisibleForTesting
+    static final String FILE_NAME = "package_storage_stats.bin";
+    private static final int MAGIC = 0x50535343; // "PSSC"
+    private static final int FORMAT_VERSION = 1;
+
+    private static PackageStorageStatsCache sInstance;
+
+    private final AtomicFile mFile;
+    private final long mMaxAgeMs;
+    // By volume, user and package.
+    private final Map<String, Entry> mEntries = new HashMap<>();
+    // Invalidated before the file was read, dropped from it once read.
+    private final Set<String> mInvalidatedPackages = new ArraySet<>();
+    private boolean mLoaded;
+    private boolean mDirty;
+
+    public static synchronized PackageStorageStatsCache getInstance(Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            sInstance = new PackageStorageStatsCache(
+                    new File(appContext.getCacheDir(), FILE_NAME),
+                    Settings.Global.getLong(appContext.getContentResolver(),
+                            Settings.Global.STORAGE_SETTINGS_CLOBBER_THRESHOLD,
+                            TimeUnit.MINUTES.toMillis(5)));
+            final IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+            filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+            filter.addAction(Intent.ACTION_PACKAGE_DATA_CLEARED);
+            filter.addDataScheme("package");
+            appContext.registerReceiverAsUser(new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    sInstance.invalidate(intent.getData().getSchemeSpecificPart());
+                }
+            }, UserHandle.ALL, filter, null /* broadcastPermission */, null /* scheduler */);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PackageStorageStatsCache(File file, long maxAgeMs) {
+        mFile = new AtomicFile(file);
+        mMaxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * @return the stats of {@code app} for {@code userId} on the volume {@code uuid}, or
+     * {@code null} if they are not cached, or stale at {@code now}.
+     */
+    @WorkerThread
+    public synchronized Stats get(String uuid, int userId, ApplicationInfo app, long now) {
+        ensureLoaded();
+        final Entry entry = mEntries.get(getKey(uuid, userId, app.packageName));
+        if (entry == null || entry.mFingerprint != getFingerprint(app) || !isFresh(entry, now)) {
+            return null;
+        }
+        return entry.mStats;
+    }
+
+    /**
+     * Cache the stats of {@code app} for {@code userId} on the volume {@code uuid}, queried at
+     * {@code now}.
+     */
+    @WorkerThread
+    public synchronized void put(String uuid, int userId, ApplicationInfo app, Stats stats,
+            long now) {
+        ensureLoaded();
+        mEntries.put(getKey(uuid, userId, app.packageName),
+                new Entry(getFingerprint(app), now, stats));
+        mDirty = true;
+    }
+
+    /**
+     * Drop the stats of {@code packageName} for every user and volume, e.g. once its data or its
+     * cache is cleared. The file is updated in the background.
+     */
+    public void invalidate(String packageName) {
+        synchronized (this) {
+            if (mLoaded) {
+                removeEntries(packageName);
+            } else {
+                mInvalidatedPackages.add(packageName);
+            }
+            mDirty = true;
+        }
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE,
+                () -> persist(System.currentTimeMillis()));
+    }
+
+    /**
+     * Write the cached stats which are still fresh at {@code now}, if any changed.
+     */
+    @WorkerThread
+    public synchronized void persist(long now) {
+        ensureLoaded();
+        if (!mDirty) {
+            return;
+        }
+        mDirty = false;
+        final Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            if (!isFresh(iterator.next(), now)) {
+                iterator.remove();
+            }
+        }
+        FileOutputStream out = null;
+        try {
+            out = mFile.startWrite();
+            final DataOutputStream dataOut = new DataOutputStream(out);
+            dataOut.writeInt(MAGIC);
+            dataOut.writeInt(FORMAT_VERSION);
+            dataOut.writeInt(mEntries.size());
+            for (Map.Entry<String, Entry> mapEntry : mEntries.entrySet()) {
+                final Entry entry = mapEntry.getValue();
+                dataOut.writeUTF(mapEntry.getKey());
+                dataOut.writeLong(entry.mFingerprint);
+                dataOut.writeLong(entry.mQueryTime);
+                dataOut.writeLong(entry.mStats.codeBytes);
+                dataOut.writeLong(entry.mStats.dataBytes);
+                dataOut.writeLong(entry.mStats.cacheBytes);
+                dataOut.writeLong(entry.mStats.cacheQuotaBytes);
+            }
+            dataOut.flush();
+            mFile.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write package storage stats", e);
+            mFile.failWrite(out);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        readFile();
+        for (String packageName : mInvalidatedPackages) {
+            removeEntries(packageName);
+        }
+        mInvalidatedPackages.clear();
+    }
+
+    private void readFile() {
+        if (!mFile.getBaseFile().exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(mFile.openRead())) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            final int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                final String key = in.readUTF();
+                final long fingerprint = in.readLong();
+                final long queryTime = in.readLong();
+                mEntries.put(key, new Entry(fingerprint, queryTime, new Stats(in.readLong(),
+                        in.readLong(), in.readLong(), in.readLong())));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read package storage stats", e);
+            mEntries.clear();
+        }
+    }
+
+    private void removeEntries(String packageName) {
+        final String suffix = ':' + packageName;
+        mEntries.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
+    private boolean isFresh(Entry entry, long now) {
+        // A query time in the future means the clock was changed.
+        return entry.mQueryTime <= now && now - entry.mQueryTime < mMaxAgeMs;
+    }
+
+    private static String getKey(String uuid, int userId, String packageName) {
+        return uuid + ':' + userId + ':' + packageName;
+    }
+
+    private static long getFingerprint(ApplicationInfo app) {
+        return app.longVersionCode * 31 + Objects.hashCode(app.sourceDir);
+    }
+
+    /**
+     * The storage stats of a package for a user, as used for the attribution.
+     */
+    public static class Stats {
+        public final long codeBytes;
+        public final long dataBytes;
+        public final long cacheBytes;
+        public final long cacheQuotaBytes;
+
+        public Stats(long codeBytes, long dataBytes, long cacheBytes, long cacheQuotaBytes) {
+            this.codeBytes = codeBytes;
+            this.dataBytes = dataBytes;
+            this.cacheBytes = cacheBytes;
+            this.cacheQuotaBytes = cacheQuotaBytes;
+        }
+    }
+
+    private static class Entry {
+        private final long mFingerprint;
+        private final long mQueryTime;
+        private final Stats mStats;
+
+        private Entry(long fingerprint, long queryTime, Stats stats) {
+            mFingerprint = fingerprint;
+            mQueryTime = queryTime;
+            mStats = stats;
+        }
+    }
+}
@@ -32,35 +32,70 @@ import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * StorageAsyncLoader is a Loader which loads categorized app information and external stats for all
  * users
+ *
+ * The stats of the users, and of batches of their packages, are queried in parallel on the
+ * prefetch lane of {@link BackgroundScheduler}, and the pending queries are cancelled when the
+ * loader stops. They are then attributed in user id order, as if they were queried sequentially.
+ * The stats of the packages are reused from {@link PackageStorageStatsCache} when the packages
+ * didn't change.
  */
 public class StorageAsyncLoader
         extends AsyncLoaderCompat<SparseArray<StorageAsyncLoader.AppsStorageResult>> {
     private UserManager mUserManager;
     private static final String TAG = "StorageAsyncLoader";
+    @VisibleForTesting
+    static final int BATCH_SIZE = 32;
 
     private String mUuid;
     private StorageStatsSource mStatsManager;
     private PackageManager mPackageManager;
-    private ArraySet<String> mSeenPackages;
+    private final ExecutorService mExecutor;
+    private final PackageStorageStatsCache mCache;
+    // The queries of the running load, guarded by this.
+    private List<Future<Void>> mPendingQueries;
 
     public StorageAsyncLoader(Context context, UserManager userManager,
             String uuid, StorageStatsSource source, PackageManager pm) {
+        this(context, userManager, uuid, source, pm,
+                BackgroundScheduler.getInstance().getExecutor(BackgroundScheduler.LANE_PREFETCH),
+                PackageStorageStatsCache.getInstance(context));
+    }
+
+    /**
+     * @param cache the cache of the package stats, or {@code null} to query all of them.
+     */
+    @VisibleForTesting
+    StorageAsyncLoader(Context context, UserManager userManager, String uuid,
+            StorageStatsSource source, PackageManager pm, ExecutorService executor,
+            @Nullable PackageStorageStatsCache cache) {
         super(context);
         mUserManager = userManager;
         mUuid = uuid;
         mStatsManager = source;
         mPackageManager = pm;
+        mExecutor = executor;
+        mCache = cache;
     }
 
     @Override
@@ -68,8 +103,19 @@ public class StorageAsyncLoader
         return loadApps();
     }
 
+    @Override
+    protected void onStopLoading() {
+        super.onStopLoading();
+        cancelPendingQueries();
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+        cancelPendingQueries();
+    }
+
     private SparseArray<AppsStorageResult> loadApps() {
-        mSeenPackages = new ArraySet<>();
         SparseArray<AppsStorageResult> result = new SparseArray<>();
         List<UserInfo> infos = mUserManager.getUsers();
         // Sort the users by user id ascending.
@@ -81,34 +127,120 @@ public class StorageAsyncLoader
                         return Integer.compare(userInfo.id, otherUser.id);
                     }
                 });
+
+        Log.d(TAG, "Loading apps");
+        final long now = System.currentTimeMillis();
+        final List<UserStats> users = new ArrayList<>(infos.size());
+        final List<Callable<Void>> queries = new ArrayList<>();
         for (int i = 0, userCount = infos.size(); i < userCount; i++) {
-            UserInfo info = infos.get(i);
-            result.put(info.id, getStorageResultForUser(info.id));
+            final UserStats user = new UserStats(infos.get(i).id,
+                    mPackageManager.getInstalledApplicationsAsUser(0, infos.get(i).id));
+            users.add(user);
+            for (int start = 0; start < user.mApps.size(); start += BATCH_SIZE) {
+                final int batchStart = start;
+                queries.add(() -> {
+                    queryPackageStats(user, batchStart,
+                            Math.min(batchStart + BATCH_SIZE, user.mApps.size()), now);
+                    return null;
+                });
+            }
+            queries.add(() -> {
+                queryExternalStats(user);
+                return null;
+            });
+        }
+        final List<Future<Void>> futures = new ArrayList<>(queries.size());
+        synchronized (this) {
+            if (isLoadInBackgroundCanceled()) {
+                return result;
+            }
+            for (Callable<Void> query : queries) {
+                futures.add(mExecutor.submit(query));
+            }
+            mPendingQueries = futures;
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (CancellationException e) {
+            Log.d(TAG, "Loading storage stats cancelled");
+            return result;
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while loading storage stats");
+            Thread.currentThread().interrupt();
+            return result;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            synchronized (this) {
+                mPendingQueries = null;
+            }
+            for (Future<Void> future : futures) {
+                future.cancel(false /* mayInterruptIfRunning */);
+            }
+        }
+        if (mCache != null) {
+            mCache.persist(now);
+        }
+
+        final ArraySet<String> seenPackages = new ArraySet<>();
+        for (int i = 0, userCount = users.size(); i < userCount; i++) {
+            final UserStats user = users.get(i);
+            result.put(user.mUserId, getStorageResultForUser(user, seenPackages));
         }
+        Log.d(TAG, "Obtaining result completed");
         return result;
     }
 
-    private AppsStorageResult getStorageResultForUser(int userId) {
-        Log.d(TAG, "Loading apps");
-        List<ApplicationInfo> applicationInfos =
-                mPackageManager.getInstalledApplicationsAsUser(0, userId);
+    private void queryPackageStats(UserStats user, int start, int end, long now) {
+        UserHandle myUser = UserHandle.of(user.mUserId);
+        for (int i = start; i < end; i++) {
+            ApplicationInfo app = user.mApps.get(i);
+            PackageStorageStatsCache.Stats stats =
+                    mCache != null ? mCache.get(mUuid, user.mUserId, app, now) : null;
+            if (stats == null) {
+                StorageStatsSource.AppStorageStats appStats;
+                try {
+                    appStats = mStatsManager.getStatsForPackage(mUuid, app.packageName, myUser);
+                } catch (NameNotFoundException | IOException e) {
+                    // This may happen if the package was removed during our calculation.
+                    Log.w(TAG, "App unexpectedly not found", e);
+                    continue;
+                }
+                stats = new PackageStorageStatsCache.Stats(appStats.getCodeBytes(),
+                        appStats.getDataBytes(), appStats.getCacheBytes(),
+                        mStatsManager.getCacheQuotaBytes(mUuid, app.uid));
+                if (mCache != null) {
+                    mCache.put(mUuid, user.mUserId, app, stats, now);
+                }
+            }
+            user.mStats[i] = stats;
+        }
+    }
+
+    private void queryExternalStats(UserStats user) {
+        try {
+            user.mExternalStats = mStatsManager.getExternalStorageStats(mUuid,
+                    UserHandle.of(user.mUserId));
+        } catch (IOException e) {
+            Log.w(TAG, e);
+        }
+    }
+
+    private AppsStorageResult getStorageResultForUser(UserStats user,
+            ArraySet<String> seenPackages) {
         AppsStorageResult result = new AppsStorageResult();
-        UserHandle myUser = UserHandle.of(userId);
-        for (int i = 0, size = applicationInfos.size(); i < size; i++) {
-            ApplicationInfo app = applicationInfos.get(i);
-
-            StorageStatsSource.AppStorageStats stats;
-            try {
-                stats = mStatsManager.getStatsForPackage(mUuid, app.packageName, myUser);
-            } catch (NameNotFoundException | IOException e) {
-                // This may happen if the package was removed during our calculation.
-                Log.w(TAG, "App unexpectedly not found", e);
+        for (int i = 0, size = user.mApps.size(); i < size; i++) {
+            ApplicationInfo app = user.mApps.get(i);
+            PackageStorageStatsCache.Stats stats = user.mStats[i];
+            if (stats == null) {
                 continue;
             }
 
-            final long dataSize = stats.getDataBytes();
-            final long cacheQuota = mStatsManager.getCacheQuotaBytes(mUuid, app.uid);
-            final long cacheBytes = stats.getCacheBytes();
+            final long dataSize = stats.dataBytes;
+            final long cacheQuota = stats.cacheQuotaBytes;
+            final long cacheBytes = stats.cacheBytes;
             long blamedSize = dataSize;
             // Technically, we could overages as freeable on the storage settings screen.
             // If the app is using more cache than its quota, we would accidentally subtract the
@@ -120,9 +252,9 @@ public class StorageAsyncLoader
 
             // This isn't quite right because it slams the first user by user id with the whole code
             // size, but this ensures that we count all apps seen once.
-            if (!mSeenPackages.contains(app.packageName)) {
-                blamedSize += stats.getCodeBytes();
-                mSeenPackages.add(app.packageName);
+            if (!seenPackages.contains(app.packageName)) {
+                blamedSize += stats.codeBytes;
+                seenPackages.add(app.packageName);
             }
 
             switch (app.category) {
@@ -148,15 +280,7 @@ public class StorageAsyncLoader
                     break;
             }
         }
-
-        Log.d(TAG, "Loading external stats");
-        try {
-            result.externalStats = mStatsManager.getExternalStorageStats(mUuid,
-                    UserHandle.of(userId));
-        } catch (IOException e) {
-            Log.w(TAG, e);
-        }
-        Log.d(TAG, "Obtaining result completed");
+        result.externalStats = user.mExternalStats;
         return result;
     }
 
@@ -164,6 +288,30 @@ public class StorageAsyncLoader
     protected void onDiscardResult(SparseArray<AppsStorageResult> result) {
     }
 
+    private synchronized void cancelPendingQueries() {
+        if (mPendingQueries == null) {
+            return;
+        }
+        for (Future<Void> future : mPendingQueries) {
+            future.cancel(false /* mayInterruptIfRunning */);
+        }
+    }
+
+    /** The apps of a user, and their stats once queried. */
+    private static class UserStats {
+        private final int mUserId;
+        private final List<ApplicationInfo> mApps;
+        // Null for the packages which couldn't be queried.
+        private final PackageStorageStatsCache.Stats[] mStats;
+        private volatile StorageStatsSource.ExternalStorageStats mExternalStats;
+
+        UserStats(int userId, List<ApplicationInfo> apps) {
+            mUserId = userId;
+            mApps = apps;
+            mStats = new PackageStorageStatsCache.Stats[apps.size()];
+        }
+    }
+
     public static class AppsStorageResult {
         public long gamesSize;
         public long musicAppsSize;
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import android.os.BatteryStats;
+import android.os.BatteryStats.HistoryItem;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+
+/**
+ * The battery history of a {@link BatteryStats}, decoded once into primitive columns.
+ *
+ * Walking the history of {@link BatteryStats} is expensive, and it used to be done twice per
+ * {@link BatteryInfo#parse} call, for every chart and detector. The columns of the last decoded
+ * history are cached, keyed by the time the stats were reset (i.e. the last full charge) and the
+ * size of the history, so that the parsers of a later call are replayed without touching
+ * {@link BatteryStats} at all.
+ *
+ * Only {@link HistoryItem#time}, {@link HistoryItem#cmd}, {@link HistoryItem#currentTime},
+ * {@link HistoryItem#batteryLevel}, {@link HistoryItem#batteryStatus},
+ * {@link HistoryItem#batteryPlugType}, {@link HistoryItem#states} and
+ * {@link HistoryItem#states2} of the records passed to the parsers are filled.
+ */
+class BatteryHistoryColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static BatteryHistoryColumns sCached;
+
+    private final long mStartClockTime;
+    private final int mHistorySize;
+    private final int mStringPoolSize;
+
+    @VisibleForTesting
+    int mSize;
+    private long[] mTime = new long[INITIAL_CAPACITY];
+    private long[] mCurrentTime = new long[INITIAL_CAPACITY];
+    private byte[] mCmd = new byte[INITIAL_CAPACITY];
+    private byte[] mLevel = new byte[INITIAL_CAPACITY];
+    private byte[] mStatus = new byte[INITIAL_CAPACITY];
+    private byte[] mPlugType = new byte[INITIAL_CAPACITY];
+    private int[] mStates = new int[INITIAL_CAPACITY];
+    private int[] mStates2 = new int[INITIAL_CAPACITY];
+
+    // Summary of the history, computed while decoding.
+    private long mStartWalltime;
+    private long mEndWalltime;
+    private long mHistoryStart;
+    private long mLastRealtime;
+    private int mLastInteresting;
+
+    /**
+     * @return the decoded history of {@code stats}, from the cache if it didn't change since the
+     * last call.
+     */
+    static synchronized BatteryHistoryColumns get(BatteryStats stats) {
+        final long startClockTime = stats.getStartClockTime();
+        final int historySize = stats.getHistoryUsedSize();
+        final int stringPoolSize = stats.getHistoryStringPoolSize();
+        if (sCached != null && startClockTime != 0
+                && sCached.mStartClockTime == startClockTime
+                && sCached.mHistorySize == historySize
+                && sCached.mStringPoolSize == stringPoolSize) {
+            return sCached;
+        }
+        final BatteryHistoryColumns columns =
+                new BatteryHistoryColumns(startClockTime, historySize, stringPoolSize);
+        columns.decode(stats);
+        // Stats without a start time can't be told apart, don't cache them.
+        sCached = startClockTime != 0 ? columns : null;
+        return columns;
+    }
+
+    @VisibleForTesting
+    static synchronized void clearCache() {
+        sCached = null;
+    }
+
+    private BatteryHistoryColumns(long startClockTime, int historySize, int stringPoolSize) {
+        mStartClockTime = startClockTime;
+        mHistorySize = historySize;
+        mStringPoolSize = stringPoolSize;
+    }
+
+    private void decode(BatteryStats stats) {
+        long lastWallTime = 0;
+        long historyEnd = 0;
+        int pos = 0;
+        boolean first = true;
+        if (stats.startIteratingHistoryLocked()) {
+            final HistoryItem rec = new HistoryItem();
+            while (stats.getNextHistoryLocked(rec)) {
+                append(rec);
+                pos++;
+                if (first) {
+                    first = false;
+                    mHistoryStart = rec.time;
+                }
+                if (rec.cmd == HistoryItem.CMD_CURRENT_TIME
+                        || rec.cmd == HistoryItem.CMD_RESET) {
+                    // If there is a ridiculously large jump in time, then we won't be
+                    // able to create a good chart with that data, so just ignore the
+                    // times we got before and pretend like our data extends back from
+                    // the time we have now.
+                    // Also, if we are getting a time change and we are less than 5 minutes
+                    // since the start of the history real time, then also use this new
+                    // time to compute the base time, since whatever time we had before is
+                    // pretty much just noise.
+                    if (rec.currentTime > (lastWallTime + (180 * 24 * 60 * 60 * 1000L))
+                            || rec.time < (mHistoryStart + (5 * 60 * 1000L))) {
+                        mStartWalltime = 0;
+                    }
+                    lastWallTime = rec.currentTime;
+                    mLastRealtime = rec.time;
+                    if (mStartWalltime == 0) {
+                        mStartWalltime = lastWallTime - (mLastRealtime - mHistoryStart);
+                    }
+                }
+                if (rec.isDeltaData()) {
+                    mLastInteresting = pos;
+                    historyEnd = rec.time;
+                }
+            }
+        }
+        stats.finishIteratingHistoryLocked();
+        mEndWalltime = lastWallTime + historyEnd - mLastRealtime;
+    }
+
+    private void append(HistoryItem rec) {
+        if (mSize == mTime.length) {
+            final int capacity = mSize * 2;
+            mTime = Arrays.copyOf(mTime, capacity);
+            mCurrentTime = Arrays.copyOf(mCurrentTime, capacity);
+            mCmd = Arrays.copyOf(mCmd, capacity);
+            mLevel = Arrays.copyOf(mLevel, capacity);
+            mStatus = Arrays.copyOf(mStatus, capacity);
+            mPlugType = Arrays.copyOf(mPlugType, capacity);
+            mStates = Arrays.copyOf(mStates, capacity);
+            mStates2 = Arrays.copyOf(mStates2, capacity);
+        }
+        mTime[mSize] = rec.time;
+        mCurrentTime[mSize] = rec.currentTime;
+        mCmd[mSize] = rec.cmd;
+        mLevel[mSize] = rec.batteryLevel;
+        mStatus[mSize] = rec.batteryStatus;
+        mPlugType[mSize] = rec.batteryPlugType;
+        mStates[mSize] = rec.states;
+        mStates2[mSize] = rec.states2;
+        mSize++;
+    }
+
+    /**
+     * Replay the history to {@code parsers}, with the same sequence of calls as walking the
+     * history of {@link BatteryStats}.
+     */
+    void dispatch(BatteryInfo.BatteryDataParser... parsers) {
+        final long startWalltime = mStartWalltime;
+        final long endWalltime = mEndWalltime;
+        long curWalltime = 0;
+        long lastRealtime = mLastRealtime;
+
+        for (int j = 0; j < parsers.length; j++) {
+            parsers[j].onParsingStarted(startWalltime, endWalltime);
+        }
+        if (endWalltime > startWalltime) {
+            final HistoryItem rec = new HistoryItem();
+            final int n = Math.min(mLastInteresting, mSize);
+            for (int i = 0; i < n; i++) {
+                fill(rec, i);
+                if (rec.isDeltaData()) {
+                    curWalltime += rec.time - lastRealtime;
+                    lastRealtime = rec.time;
+                    long x = (curWalltime - startWalltime);
+                    if (x < 0) {
+                        x = 0;
+                    }
+                    for (int j = 0; j < parsers.length; j++) {
+                        parsers[j].onDataPoint(x, rec);
+                    }
+                } else {
+                    long lastWalltime = curWalltime;
+                    if (rec.cmd == HistoryItem.CMD_CURRENT_TIME
+                            || rec.cmd == HistoryItem.CMD_RESET) {
+                        if (rec.currentTime >= startWalltime) {
+                            curWalltime = rec.currentTime;
+                        } else {
+                            curWalltime = startWalltime + (rec.time - mHistoryStart);
+                        }
+                        lastRealtime = rec.time;
+                    }
+
+                    if (rec.cmd != HistoryItem.CMD_OVERFLOW
+                            && (rec.cmd != HistoryItem.CMD_CURRENT_TIME
+                            || Math.abs(lastWalltime - curWalltime) > (60 * 60 * 1000))) {
+                        for (int j = 0; j < parsers.length; j++) {
+                            parsers[j].onDataGap();
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int j = 0; j < parsers.length; j++) {
+            parsers[j].onParsingDone();
+        }
+    }
+
+    private void fill(HistoryItem rec, int index) {
+        rec.time = mTime[index];
+        rec.currentTime = mCurrentTime[index];
+        rec.cmd = mCmd[index];
+        rec.batteryLevel = mLevel[index];
+        rec.batteryStatus = mStatus[index];
+        rec.batteryPlugType = mPlugType[index];
+        rec.states = mStates[index];
+        rec.states2 = mStates2[index];
+    }
+}
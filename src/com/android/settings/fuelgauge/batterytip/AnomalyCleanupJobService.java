@@ -27,7 +27,7 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
-import com.android.settingslib.utils.ThreadUtils;
+import com.android.settings.core.BackgroundScheduler;
 
 import java.util.concurrent.TimeUnit;
 
@@ -63,7 +63,7 @@ public class AnomalyCleanupJobService extends JobService {
         final BatteryDatabaseManager batteryDatabaseManager = BatteryDatabaseManager
                 .getInstance(this);
         final BatteryTipPolicy policy = new BatteryTipPolicy(this);
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE, () -> {
             batteryDatabaseManager.deleteAllAnomaliesBeforeTimeStamp(
                     System.currentTimeMillis() - TimeUnit.DAYS.toMillis(
                             policy.dataHistoryRetainDay));
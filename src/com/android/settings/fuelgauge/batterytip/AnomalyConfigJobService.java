@@ -32,7 +32,7 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
-import com.android.settingslib.utils.ThreadUtils;
+import com.android.settings.core.BackgroundScheduler;
 
 import java.util.concurrent.TimeUnit;
 
@@ -69,7 +69,7 @@ public class AnomalyConfigJobService extends JobService {
 
     @Override
     public boolean onStartJob(JobParameters params) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE, () -> {
             final StatsManager statsManager = getSystemService(StatsManager.class);
             checkAnomalyConfig(statsManager);
             try {
@@ -20,13 +20,13 @@ import android.app.settings.SettingsEnums;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.InstrumentedPreferenceFragment;
 import com.android.settings.fuelgauge.RestrictedAppDetails;
 import com.android.settings.fuelgauge.batterytip.AnomalyDatabaseHelper;
 import com.android.settings.fuelgauge.batterytip.AppInfo;
 import com.android.settings.fuelgauge.batterytip.BatteryDatabaseManager;
 import com.android.settings.fuelgauge.batterytip.tips.RestrictAppTip;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.List;
 
@@ -58,7 +58,8 @@ public class OpenRestrictAppFragmentAction extends BatteryTipAction {
         RestrictedAppDetails.startRestrictedAppDetails(mFragment, mAppInfos);
 
         // Mark all the anomalies as handled, so it won't show up again.
-        ThreadUtils.postOnBackgroundThread(() -> mBatteryDatabaseManager.updateAnomalies(mAppInfos,
-                AnomalyDatabaseHelper.State.HANDLED));
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE,
+                () -> mBatteryDatabaseManager.updateAnomalies(mAppInfos,
+                        AnomalyDatabaseHelper.State.HANDLED));
     }
 }
@@ -29,9 +29,10 @@ import androidx.annotation.VisibleForTesting;
 public class CardDatabaseHelper extends SQLiteOpenHelper {
     private static final String TAG = "CardDatabaseHelper";
     private static final String DATABASE_NAME = "homepage_cards.db";
-    private static final int DATABASE_VERSION = 7;
+    private static final int DATABASE_VERSION = 8;
 
     public static final String CARD_TABLE = "cards";
+    public static final String CARD_SNAPSHOT_TABLE = "card_snapshot";
 
     public interface CardColumns {
         /**
@@ -75,6 +76,63 @@ public class CardDatabaseHelper extends SQLiteOpenHelper {
         String DISMISSED_TIMESTAMP = "dismissed_timestamp";
     }
 
+    public interface CardSnapshotColumns {
+        /**
+         * Position of the card in the last rendered list.
+         */
+        String POSITION = "position";
+
+        /**
+         * Name of the card.
+         */
+        String NAME = "name";
+
+        /**
+         * Type of the card.
+         */
+        String TYPE = "type";
+
+        /**
+         * Score of the card.
+         */
+        String SCORE = "score";
+
+        /**
+         * URI of the slice card.
+         */
+        String SLICE_URI = "slice_uri";
+
+        /**
+         * Category of the card.
+         */
+        String CATEGORY = "category";
+
+        /**
+         * Package name of the card.
+         */
+        String PACKAGE_NAME = "package_name";
+
+        /**
+         * Application version of the package.
+         */
+        String APP_VERSION = "app_version";
+
+        /**
+         * Whether the card is displayed as a large card.
+         */
+        String IS_LARGE_CARD = "is_large_card";
+
+        /**
+         * Whether the slice of the card has an inline action.
+         */
+        String HAS_INLINE_ACTION = "has_inline_action";
+
+        /**
+         * Serialized content of the slice when the card was rendered. May be null.
+         */
+        String SLICE = "slice";
+    }
+
     private static final String CREATE_CARD_TABLE =
             "CREATE TABLE "
                     + CARD_TABLE
@@ -97,6 +155,34 @@ public class CardDatabaseHelper extends SQLiteOpenHelper {
                     + " INTEGER"
                     + ");";
 
+    private static final String CREATE_CARD_SNAPSHOT_TABLE =
+            "CREATE TABLE "
+                    + CARD_SNAPSHOT_TABLE
+                    + "("
+                    + CardSnapshotColumns.POSITION
+                    + " INTEGER NOT NULL PRIMARY KEY, "
+                    + CardSnapshotColumns.NAME
+                    + " TEXT NOT NULL, "
+                    + CardSnapshotColumns.TYPE
+                    + " INTEGER NOT NULL, "
+                    + CardSnapshotColumns.SCORE
+                    + " DOUBLE NOT NULL, "
+                    + CardSnapshotColumns.SLICE_URI
+                    + " TEXT, "
+                    + CardSnapshotColumns.CATEGORY
+                    + " INTEGER DEFAULT 0, "
+                    + CardSnapshotColumns.PACKAGE_NAME
+                    + " TEXT, "
+                    + CardSnapshotColumns.APP_VERSION
+                    + " INTEGER DEFAULT 0, "
+                    + CardSnapshotColumns.IS_LARGE_CARD
+                    + " INTEGER DEFAULT 0, "
+                    + CardSnapshotColumns.HAS_INLINE_ACTION
+                    + " INTEGER DEFAULT 0, "
+                    + CardSnapshotColumns.SLICE
+                    + " BLOB"
+                    + ");";
+
     public CardDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -104,6 +190,7 @@ public class CardDatabaseHelper extends SQLiteOpenHelper {
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(CREATE_CARD_TABLE);
+        db.execSQL(CREATE_CARD_SNAPSHOT_TABLE);
     }
 
     @Override
@@ -111,6 +198,7 @@ public class CardDatabaseHelper extends SQLiteOpenHelper {
         if (oldVersion < newVersion) {
             Log.d(TAG, "Reconstructing DB from " + oldVersion + " to " + newVersion);
             db.execSQL("DROP TABLE IF EXISTS " + CARD_TABLE);
+            db.execSQL("DROP TABLE IF EXISTS " + CARD_SNAPSHOT_TABLE);
             onCreate(db);
         }
     }
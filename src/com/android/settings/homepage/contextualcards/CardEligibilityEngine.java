@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.slice.Slice;
+
+import com.android.settings.core.BackgroundScheduler;
+import com.android.settings.core.instrumentation.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the {@link EligibleCardChecker}s of the homepage on the prefetch lane of
+ * {@link BackgroundScheduler}.
+ *
+ * The slices bound by the checkers are cached per slice uri for {@link #CACHE_TTL_MS}, so that
+ * coming back to the homepage doesn't bind every slice again. The checks of a call are cancelled
+ * through its {@link CancellationSignal}, e.g. when the homepage is left. The check latency and
+ * the timeouts of every card are exposed through {@link com.android.settings.SettingsDumpService}.
+ */
+public class CardEligibilityEngine {
+
+    private static final String TAG = "CardEligibilityEngine";
+    @VisibleForTesting
+    static final long CACHE_TTL_MS = 10000;
+    /**
+     * Checks still waiting for a thread of the lane are given up this many timeouts after they
+     * were submitted.
+     */
+    @VisibleForTesting
+    static final int MAX_QUEUED_TIMEOUTS = 3;
+    private static final int[] PERCENTILES = {50, 95, 99};
+
+    private static CardEligibilityEngine sInstance;
+
+    private final ExecutorService mExecutor;
+    private final Map<Uri, CachedSlice> mSliceCache = new ArrayMap<>();
+    private final Map<String, CheckStats> mCheckStats = new ConcurrentHashMap<>();
+
+    public static synchronized CardEligibilityEngine getInstance() {
+        if (sInstance == null) {
+            sInstance = new CardEligibilityEngine(BackgroundScheduler.getInstance()
+                    .getExecutor(BackgroundScheduler.LANE_PREFETCH));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    CardEligibilityEngine(ExecutorService executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Check the eligibility of {@code candidates} in parallel.
+     *
+     * @param timeoutMs time given to each check from the moment it starts running, after which it
+     *                  is cancelled. Checks still waiting for a thread of the lane are cancelled
+     *                  {@link #MAX_QUEUED_TIMEOUTS} times this long after the call.
+     * @param cancellationSignal cancels the checks of this call which are not done yet.
+     * @return the eligible cards, in the order of {@code candidates}.
+     */
+    public List<ContextualCard> filterEligibleCards(Context context,
+            List<ContextualCard> candidates, long timeoutMs,
+            CancellationSignal cancellationSignal) {
+        final List<TimedCheck> checks = new ArrayList<>(candidates.size());
+        final List<Future<ContextualCard>> futures = new ArrayList<>(candidates.size());
+        final long deadline = SystemClock.elapsedRealtime() + MAX_QUEUED_TIMEOUTS * timeoutMs;
+        for (ContextualCard card : candidates) {
+            final TimedCheck check = new TimedCheck(createChecker(context, card),
+                    getCheckStats(card.getName()));
+            checks.add(check);
+            futures.add(mExecutor.submit(check));
+        }
+        cancellationSignal.setOnCancelListener(() -> {
+            for (Future<ContextualCard> future : futures) {
+                future.cancel(true /* mayInterruptIfRunning */);
+            }
+        });
+
+        final List<ContextualCard> cards = new ArrayList<>();
+        try {
+            for (int i = 0; i < futures.size() && !cancellationSignal.isCanceled(); i++) {
+                final Future<ContextualCard> future = futures.get(i);
+                try {
+                    final ContextualCard card =
+                            getResult(future, checks.get(i), timeoutMs, deadline);
+                    if (card != null) {
+                        cards.add(card);
+                    }
+                } catch (TimeoutException e) {
+                    Log.w(TAG, "Timeout getting eligible state for card: "
+                            + candidates.get(i).getSliceUri());
+                    checks.get(i).mStats.mTimeouts.incrementAndGet();
+                    future.cancel(true /* mayInterruptIfRunning */);
+                } catch (InterruptedException e) {
+                    Log.w(TAG, "Failed to get eligible states for all cards", e);
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException | RuntimeException e) {
+                    // RuntimeException covers the CancellationException of cancelled checks.
+                    Log.w(TAG, "Failed to get eligible state for card", e);
+                }
+            }
+        } finally {
+            cancellationSignal.setOnCancelListener(null);
+            for (Future<ContextualCard> future : futures) {
+                future.cancel(true /* mayInterruptIfRunning */);
+            }
+        }
+        return cards;
+    }
+
+    @VisibleForTesting
+    Callable<ContextualCard> createChecker(Context context, ContextualCard card) {
+        return new EligibleCardChecker(context, card, this);
+    }
+
+    /**
+     * @return the check latencies in microseconds and the timeouts of every card.
+     */
+    public JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (Map.Entry<String, CheckStats> entry : mCheckStats.entrySet()) {
+            final CheckStats stats = entry.getValue();
+            final JSONObject cardObj = new JSONObject();
+            cardObj.put("count", stats.mLatency.getCount());
+            for (int percentile : PERCENTILES) {
+                cardObj.put("p" + percentile, stats.mLatency.getPercentileMicros(percentile));
+            }
+            cardObj.put("max", stats.mLatency.getMaxMicros());
+            cardObj.put("timeouts", stats.mTimeouts.get());
+            obj.put(entry.getKey(), cardObj);
+        }
+        return obj;
+    }
+
+    @VisibleForTesting
+    LatencyHistogram getCheckLatency(String cardName) {
+        return getCheckStats(cardName).mLatency;
+    }
+
+    @VisibleForTesting
+    long getCheckTimeouts(String cardName) {
+        return getCheckStats(cardName).mTimeouts.get();
+    }
+
+    private CheckStats getCheckStats(String cardName) {
+        return mCheckStats.computeIfAbsent(cardName, key -> new CheckStats());
+    }
+
+    /**
+     * Wait for the result of {@code check}, at most {@code timeoutMs} after it started running,
+     * and no later than {@code deadline} while it is still queued.
+     */
+    private static ContextualCard getResult(Future<ContextualCard> future, TimedCheck check,
+            long timeoutMs, long deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        while (true) {
+            final long startTime = check.mStartTime;
+            final long checkDeadline = startTime == 0 ? deadline : startTime + timeoutMs;
+            final long waitMs = Math.min(timeoutMs,
+                    checkDeadline - SystemClock.elapsedRealtime());
+            try {
+                return future.get(Math.max(0, waitMs), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (startTime != 0 || SystemClock.elapsedRealtime() >= deadline) {
+                    throw e;
+                }
+                // Still queued behind other work of the lane, its own timeout hasn't started yet.
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if a slice bound less than {@link #CACHE_TTL_MS} ago is cached for
+     * {@code uri}. The cached slice is {@code null} if the bind failed.
+     */
+    synchronized boolean hasCachedSlice(Uri uri) {
+        final CachedSlice cachedSlice = mSliceCache.get(uri);
+        if (cachedSlice == null) {
+            return false;
+        }
+        if (SystemClock.elapsedRealtime() - cachedSlice.mBindTime > CACHE_TTL_MS) {
+            mSliceCache.remove(uri);
+            return false;
+        }
+        return true;
+    }
+
+    @Nullable
+    synchronized Slice getCachedSlice(Uri uri) {
+        final CachedSlice cachedSlice = mSliceCache.get(uri);
+        return cachedSlice != null ? cachedSlice.mSlice : null;
+    }
+
+    synchronized void putCachedSlice(Uri uri, @Nullable Slice slice) {
+        mSliceCache.put(uri, new CachedSlice(slice, SystemClock.elapsedRealtime()));
+    }
+
+    /**
+     * Records when a check starts running, which is when its timeout starts, and how long it ran.
+     */
+    private static class TimedCheck implements Callable<ContextualCard> {
+        private final Callable<ContextualCard> mChecker;
+        private final CheckStats mStats;
+        private volatile long mStartTime;
+
+        TimedCheck(Callable<ContextualCard> checker, CheckStats stats) {
+            mChecker = checker;
+            mStats = stats;
+        }
+
+        @Override
+        public ContextualCard call() throws Exception {
+            final long startNanos = SystemClock.elapsedRealtimeNanos();
+            mStartTime = SystemClock.elapsedRealtime();
+            try {
+                return mChecker.call();
+            } finally {
+                mStats.mLatency.record((SystemClock.elapsedRealtimeNanos() - startNanos) / 1000);
+            }
+        }
+    }
+
+    private static class CheckStats {
+        private final LatencyHistogram mLatency = new LatencyHistogram();
+        private final AtomicLong mTimeouts = new AtomicLong();
+    }
+
+    private static class CachedSlice {
+        private final Slice mSlice;
+        private final long mBindTime;
+
+        CachedSlice(Slice slice, long bindTime) {
+            mSlice = slice;
+            mBindTime = bindTime;
+        }
+    }
+}
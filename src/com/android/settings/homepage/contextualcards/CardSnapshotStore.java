@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.android.settings.homepage.contextualcards.CardDatabaseHelper.CARD_SNAPSHOT_TABLE;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.slice.Slice;
+import androidx.slice.SliceUtils;
+
+import com.android.settings.homepage.contextualcards.CardDatabaseHelper.CardSnapshotColumns;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persists the last list of slice cards rendered on the homepage, including the content of their
+ * slices, so that it can be shown right away on the next launch while the fresh list is loading.
+ *
+ * The snapshot is only a placeholder: the actions of the slices are not restored, and the cards
+ * are replaced as soon as {@link ContextualCardLoader} finishes.
+ */
+public class CardSnapshotStore {
+
+    private static final String TAG = "CardSnapshotStore";
+    private static final String ENCODING = "UTF-8";
+
+    private final Context mContext;
+
+    public CardSnapshotStore(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Replace the snapshot with {@code cards}. Cards which are not slice cards are skipped.
+     */
+    @WorkerThread
+    public void save(List<ContextualCard> cards) {
+        final SQLiteDatabase database;
+        try {
+            database = CardDatabaseHelper.getInstance(mContext).getWritableDatabase();
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to open database", e);
+            return;
+        }
+        database.beginTransaction();
+        try {
+            database.delete(CARD_SNAPSHOT_TABLE, null /* whereClause */, null /* whereArgs */);
+            int position = 0;
+            for (ContextualCard card : cards) {
+                if (card.getCardType() != ContextualCard.CardType.SLICE) {
+                    continue;
+                }
+                final ContentValues values = new ContentValues();
+                values.put(CardSnapshotColumns.POSITION, position++);
+                values.put(CardSnapshotColumns.NAME, card.getName());
+                values.put(CardSnapshotColumns.TYPE, card.getCardType());
+                values.put(CardSnapshotColumns.SCORE, card.getRankingScore());
+                values.put(CardSnapshotColumns.SLICE_URI, card.getTextSliceUri());
+                values.put(CardSnapshotColumns.CATEGORY, card.getCategory());
+                values.put(CardSnapshotColumns.PACKAGE_NAME, card.getPackageName());
+                values.put(CardSnapshotColumns.APP_VERSION, card.getAppVersion());
+                values.put(CardSnapshotColumns.IS_LARGE_CARD, card.isLargeCard() ? 1 : 0);
+                values.put(CardSnapshotColumns.HAS_INLINE_ACTION, card.hasInlineAction() ? 1 : 0);
+                values.put(CardSnapshotColumns.SLICE, serializeSlice(card.getSlice()));
+                database.insert(CARD_SNAPSHOT_TABLE, null /* nullColumnHack */, values);
+            }
+            database.setTransactionSuccessful();
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to save card snapshot", e);
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * @return the cards of the last snapshot, in the order they were saved.
+     */
+    @WorkerThread
+    public List<ContextualCard> load() {
+        final List<ContextualCard> cards = new ArrayList<>();
+        try (Cursor cursor = CardDatabaseHelper.getInstance(mContext).getReadableDatabase()
+                .query(CARD_SNAPSHOT_TABLE, null /* columns */, null /* selection */,
+                        null /* selectionArgs */, null /* groupBy */, null /* having */,
+                        CardSnapshotColumns.POSITION)) {
+            while (cursor.moveToNext()) {
+                cards.add(new ContextualCard.Builder()
+                        .setName(cursor.getString(
+                                cursor.getColumnIndex(CardSnapshotColumns.NAME)))
+                        .setCardType(cursor.getInt(
+                                cursor.getColumnIndex(CardSnapshotColumns.TYPE)))
+                        .setRankingScore(cursor.getDouble(
+                                cursor.getColumnIndex(CardSnapshotColumns.SCORE)))
+                        .setSliceUri(Uri.parse(cursor.getString(
+                                cursor.getColumnIndex(CardSnapshotColumns.SLICE_URI))))
+                        .setCategory(cursor.getInt(
+                                cursor.getColumnIndex(CardSnapshotColumns.CATEGORY)))
+                        .setPackageName(cursor.getString(
+                                cursor.getColumnIndex(CardSnapshotColumns.PACKAGE_NAME)))
+                        .setAppVersion(cursor.getLong(
+                                cursor.getColumnIndex(CardSnapshotColumns.APP_VERSION)))
+                        .setIsLargeCard(cursor.getInt(
+                                cursor.getColumnIndex(CardSnapshotColumns.IS_LARGE_CARD)) == 1)
+                        .setHasInlineAction(cursor.getInt(
+                                cursor.getColumnIndex(CardSnapshotColumns.HAS_INLINE_ACTION)) == 1)
+                        .setSlice(parseSlice(cursor.getBlob(
+                                cursor.getColumnIndex(CardSnapshotColumns.SLICE))))
+                        .build());
+            }
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to load card snapshot", e);
+            cards.clear();
+        }
+        return cards;
+    }
+
+    @VisibleForTesting
+    byte[] serializeSlice(Slice slice) {
+        if (slice == null) {
+            return null;
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            SliceUtils.serializeSlice(slice, mContext, out, new SliceUtils.SerializeOptions()
+                    .setActionMode(SliceUtils.SerializeOptions.MODE_CONVERT)
+                    .setImageMode(SliceUtils.SerializeOptions.MODE_CONVERT));
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to serialize slice " + slice.getUri(), e);
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    @VisibleForTesting
+    Slice parseSlice(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return SliceUtils.parseSlice(mContext, new ByteArrayInputStream(data), ENCODING,
+                    action -> {
+                        // Actions of the snapshot are not restored, the live slice is bound
+                        // before the user can interact with it.
+                    });
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to parse slice", e);
+            return null;
+        }
+    }
+}
@@ -28,7 +28,7 @@ import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
-import com.android.settingslib.utils.ThreadUtils;
+import com.android.settings.core.BackgroundScheduler;
 
 public class ContextualCardFeatureProviderImpl implements ContextualCardFeatureProvider {
     private static final String TAG = "ContextualCardFeatureProvider";
@@ -50,7 +50,8 @@ public class ContextualCardFeatureProviderImpl implements ContextualCardFeatureP
         final Cursor cursor = db.query(CARD_TABLE, null /* columns */, selection,
                 selectionArgs /* selectionArgs */, null /* groupBy */, null /* having */,
                 CardDatabaseHelper.CardColumns.SCORE + " DESC" /* orderBy */);
-        ThreadUtils.postOnBackgroundThread(() -> resetDismissedTime(threshold));
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE,
+                () -> resetDismissedTime(threshold));
         return cursor;
     }
 
@@ -25,6 +25,7 @@ import android.content.Context;
 import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.CancellationSignal;
 import android.os.Handler;
 import android.os.Looper;
 import android.provider.Settings;
@@ -41,11 +42,6 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>> {
 
@@ -73,6 +69,7 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
     Uri mNotifyUri;
 
     private final Context mContext;
+    private CancellationSignal mCancellationSignal;
 
     ContextualCardLoader(Context context) {
         super(context);
@@ -92,9 +89,16 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
     @Override
     protected void onStopLoading() {
         super.onStopLoading();
+        cancelEligibilityChecks();
         mContext.getContentResolver().unregisterContentObserver(mObserver);
     }
 
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+        cancelEligibilityChecks();
+    }
+
     @Override
     protected void onDiscardResult(List<ContextualCard> result) {
 
@@ -196,41 +200,26 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
         if (candidates.isEmpty()) {
             return candidates;
         }
-
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
-        final List<ContextualCard> cards = new ArrayList<>();
-        List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
-
-        final List<EligibleCardChecker> checkers = candidates.stream()
-                .map(card -> new EligibleCardChecker(mContext, card))
-                .collect(Collectors.toList());
-        try {
-            eligibleCards = executor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
-                    TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Log.w(TAG, "Failed to get eligible states for all cards", e);
+        final CancellationSignal cancellationSignal;
+        synchronized (this) {
+            mCancellationSignal = new CancellationSignal();
+            cancellationSignal = mCancellationSignal;
         }
-        executor.shutdown();
-
-        // Collect future and eligible cards
-        for (int i = 0; i < eligibleCards.size(); i++) {
-            final Future<ContextualCard> cardFuture = eligibleCards.get(i);
-            if (cardFuture.isCancelled()) {
-                Log.w(TAG, "Timeout getting eligible state for card: "
-                        + candidates.get(i).getSliceUri());
-                continue;
+        try {
+            return CardEligibilityEngine.getInstance().filterEligibleCards(mContext, candidates,
+                    ELIGIBILITY_CHECKER_TIMEOUT_MS, cancellationSignal);
+        } finally {
+            synchronized (this) {
+                mCancellationSignal = null;
             }
+        }
+    }
 
-            try {
-                final ContextualCard card = cardFuture.get();
-                if (card != null) {
-                    cards.add(card);
-                }
-            } catch (Exception e) {
-                Log.w(TAG, "Failed to get eligible state for card", e);
-            }
+    // Only cancels the checks of this loader, the engine is shared with the other loaders.
+    private synchronized void cancelEligibilityChecks() {
+        if (mCancellationSignal != null) {
+            mCancellationSignal.cancel();
         }
-        return cards;
     }
 
     private boolean isLargeCard(ContextualCard card) {
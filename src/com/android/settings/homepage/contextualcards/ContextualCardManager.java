@@ -39,6 +39,7 @@ import androidx.loader.app.LoaderManager;
 import androidx.loader.content.Loader;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.FeatureFlags;
 import com.android.settings.homepage.contextualcards.conditional.ConditionalCardController;
 import com.android.settings.homepage.contextualcards.logging.ContextualCardLogUtils;
@@ -50,6 +51,7 @@ import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnSaveInstanceState;
 import com.android.settingslib.core.lifecycle.events.OnStart;
 import com.android.settingslib.core.lifecycle.events.OnStop;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -69,6 +71,10 @@ import java.util.stream.Collectors;
  * {@link ContextualCardController} will end up building a list of {@link ContextualCard} for
  * {@link ContextualCardsAdapter} and {@link BaseAdapter#notifyDataSetChanged()} will be called to
  * get the page refreshed.
+ *
+ * On a fresh launch, the slice cards rendered last time are restored from
+ * {@link CardSnapshotStore} and shown while {@link ContextualCardLoader} is running, then replaced
+ * by the loaded cards.
  */
 public class ContextualCardManager implements ContextualCardLoader.CardContentLoaderListener,
         ContextualCardUpdateListener, LifecycleObserver, OnSaveInstanceState {
@@ -84,6 +90,7 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
 
     private final Context mContext;
     private final Lifecycle mLifecycle;
+    private final BackgroundScheduler.Scope mBackgroundScope;
     private final List<LifecycleObserver> mLifecycleObservers;
     private ContextualCardUpdateListener mListener;
 
@@ -97,6 +104,12 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
     boolean mIsFirstLaunch;
     @VisibleForTesting
     List<String> mSavedCards;
+    @VisibleForTesting
+    CardSnapshotStore mSnapshotStore;
+    @VisibleForTesting
+    boolean mIsShowingSnapshot;
+    @VisibleForTesting
+    boolean mIsSnapshotPending;
 
     public ContextualCardManager(Context context, Lifecycle lifecycle, Bundle savedInstanceState) {
         mContext = context;
@@ -104,7 +117,9 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
         mContextualCards = new ArrayList<>();
         mLifecycleObservers = new ArrayList<>();
         mControllerRendererPool = new ControllerRendererPool();
+        mSnapshotStore = new CardSnapshotStore(context);
         mLifecycle.addObserver(this);
+        mBackgroundScope = BackgroundScheduler.getInstance().createScope(mLifecycle);
         if (savedInstanceState == null) {
             mIsFirstLaunch = true;
             mSavedCards = null;
@@ -141,6 +156,36 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
             loaderManager.restartLoader(CARD_CONTENT_LOADER_ID, null /* bundle */,
                     cardContentLoaderCallbacks);
         }
+        if (mIsFirstLaunch && mContextualCards.stream()
+                .noneMatch(card -> card.getCardType() == ContextualCard.CardType.SLICE)) {
+            loadSnapshot();
+        }
+    }
+
+    private void loadSnapshot() {
+        mIsSnapshotPending = true;
+        mBackgroundScope.submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
+            final List<ContextualCard> cards = mSnapshotStore.load();
+            ThreadUtils.postOnMainThread(() -> onSnapshotLoaded(cards));
+        });
+    }
+
+    @VisibleForTesting
+    void onSnapshotLoaded(List<ContextualCard> cards) {
+        // The fresh cards win if they are already there.
+        if (!mIsSnapshotPending || cards.isEmpty()) {
+            return;
+        }
+        mIsSnapshotPending = false;
+        mIsShowingSnapshot = true;
+        Log.d(TAG, "Showing " + cards.size() + " cards from snapshot");
+        onContextualCardUpdated(cards.stream().collect(groupingBy(ContextualCard::getCardType)));
+    }
+
+    private void saveSnapshot(List<ContextualCard> cards) {
+        final List<ContextualCard> snapshot = new ArrayList<>(cards);
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE,
+                () -> mSnapshotStore.save(snapshot));
     }
 
     private void loadCardControllers() {
@@ -238,6 +283,10 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
         final long loadTime = System.currentTimeMillis() - mStartTime;
         Log.d(TAG, "Total loading time = " + loadTime);
 
+        mIsSnapshotPending = false;
+        final boolean isShowingSnapshot = mIsShowingSnapshot;
+        mIsShowingSnapshot = false;
+
         final List<ContextualCard> cardsToKeep = getCardsToKeep(cards);
 
         final MetricsFeatureProvider metricsFeatureProvider =
@@ -250,6 +299,7 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
             metricsFeatureProvider.action(mContext,
                     SettingsEnums.ACTION_CONTEXTUAL_CARD_SHOW,
                     ContextualCardLogUtils.buildCardListLog(cardsToKeep));
+            saveSnapshot(cardsToKeep);
             return;
         }
 
@@ -267,8 +317,10 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
                     SettingsEnums.SETTINGS_HOMEPAGE,
                     null /* key */, (int) loadTime /* value */);
 
-            // display a card on timeout if the one-card space is pre-allocated
-            if (!cards.isEmpty() && ContextualCardLoader.getCardCount(mContext) == 1) {
+            // display a card on timeout if the one-card space is pre-allocated, and always
+            // replace the cards of the snapshot as they may be out of date.
+            if (isShowingSnapshot
+                    || (!cards.isEmpty() && ContextualCardLoader.getCardCount(mContext) == 1)) {
                 onContextualCardUpdated(cards.stream()
                         .collect(groupingBy(ContextualCard::getCardType)));
                 metricsFeatureProvider.action(mContext,
@@ -281,6 +333,7 @@ public class ContextualCardManager implements ContextualCardLoader.CardContentLo
         metricsFeatureProvider.action(mContext,
                 SettingsEnums.ACTION_CONTEXTUAL_HOME_SHOW, (int) totalTime);
 
+        saveSnapshot(cards);
         mIsFirstLaunch = false;
     }
 
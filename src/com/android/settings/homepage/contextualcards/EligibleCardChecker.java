@@ -43,13 +43,19 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
     private static final String TAG = "EligibleCardChecker";
 
     private final Context mContext;
+    private final CardEligibilityEngine mEngine;
 
     @VisibleForTesting
     ContextualCard mCard;
 
     EligibleCardChecker(Context context, ContextualCard card) {
+        this(context, card, null /* engine */);
+    }
+
+    EligibleCardChecker(Context context, ContextualCard card, CardEligibilityEngine engine) {
         mContext = context;
         mCard = card;
+        mEngine = engine;
     }
 
     @Override
@@ -93,7 +99,7 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
             return false;
         }
 
-        final Slice slice = bindSlice(uri);
+        final Slice slice = getSlice(uri);
 
         if (slice == null || slice.hasHint(HINT_ERROR)) {
             Log.w(TAG, "Failed to bind slice, not eligible for display " + uri);
@@ -109,6 +115,20 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
         return true;
     }
 
+    private Slice getSlice(Uri uri) {
+        if (mEngine == null) {
+            return bindSlice(uri);
+        }
+        if (mEngine.hasCachedSlice(uri)) {
+            return mEngine.getCachedSlice(uri);
+        }
+        final Slice slice = bindSlice(uri);
+        if (!Thread.currentThread().isInterrupted()) {
+            mEngine.putCachedSlice(uri, slice);
+        }
+        return slice;
+    }
+
     @VisibleForTesting
     Slice bindSlice(Uri uri) {
         final SliceViewManager manager = SliceViewManager.getInstance(mContext);
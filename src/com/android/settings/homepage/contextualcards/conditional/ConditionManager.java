@@ -22,8 +22,8 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.homepage.contextualcards.ContextualCard;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -62,7 +62,8 @@ public class ConditionManager {
         // Check displayable future
         for (ConditionalCardController card : mCardControllers) {
             final DisplayableChecker checker = new DisplayableChecker(getController(card.getId()));
-            displayableCards.add(ThreadUtils.postOnBackgroundThread(checker));
+            displayableCards.add(BackgroundScheduler.getInstance()
+                    .submit(BackgroundScheduler.LANE_UI_CRITICAL, checker));
         }
         // Collect future and add displayable cards
         for (Future<ContextualCard> cardFuture : displayableCards) {
@@ -26,6 +26,7 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.homepage.contextualcards.ContextualCard;
 import com.android.settings.homepage.contextualcards.ContextualCardController;
 import com.android.settings.homepage.contextualcards.ContextualCardUpdateListener;
@@ -130,7 +131,7 @@ public class LegacySuggestionContextualCardController implements ContextualCardC
     }
 
     private void loadSuggestions() {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH, () -> {
             if (mSuggestionController == null || mCardUpdateListener == null) {
                 return;
             }
@@ -44,6 +44,7 @@ import com.android.internal.os.BatteryStatsHelper;
 import com.android.settings.R;
 import com.android.settings.SubSettings;
 import com.android.settings.Utils;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.fuelgauge.BatteryStatsHelperLoader;
 import com.android.settings.fuelgauge.PowerUsageSummary;
 import com.android.settings.fuelgauge.batterytip.BatteryTipLoader;
@@ -52,7 +53,6 @@ import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
 import com.android.settings.slices.CustomSliceable;
 import com.android.settings.slices.SliceBackgroundWorker;
 import com.android.settings.slices.SliceBuilderUtils;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.Arrays;
 import java.util.List;
@@ -183,7 +183,8 @@ public class BatteryFixSlice implements CustomSliceable {
     // TODO(b/114807643): we should find a better way to get current battery tip type quickly
     // Now we save battery tip type to shared preference when battery level changes
     public static void updateBatteryTipAvailabilityCache(Context context) {
-        ThreadUtils.postOnBackgroundThread(() -> refreshBatteryTips(context));
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE,
+                () -> refreshBatteryTips(context));
     }
 
 
@@ -233,7 +234,7 @@ public class BatteryFixSlice implements CustomSliceable {
 
         @Override
         protected void onSlicePinned() {
-            ThreadUtils.postOnBackgroundThread(() -> {
+            BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH, () -> {
                 final List<BatteryTip> batteryTips = refreshBatteryTips(mContext);
                 updateResults(batteryTips);
             });
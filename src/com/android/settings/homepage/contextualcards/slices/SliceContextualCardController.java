@@ -25,6 +25,7 @@ import android.text.TextUtils;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.homepage.contextualcards.ContextualCard;
 import com.android.settings.homepage.contextualcards.ContextualCardController;
 import com.android.settings.homepage.contextualcards.ContextualCardFeatureProvider;
@@ -33,7 +34,6 @@ import com.android.settings.homepage.contextualcards.ContextualCardUpdateListene
 import com.android.settings.homepage.contextualcards.logging.ContextualCardLogUtils;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
-import com.android.settingslib.utils.ThreadUtils;
 
 /**
  * Card controller for {@link ContextualCard} built as slices.
@@ -67,7 +67,7 @@ public class SliceContextualCardController implements ContextualCardController {
 
     @Override
     public void onDismissed(ContextualCard card) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE, () -> {
             final ContextualCardFeatureProvider cardFeatureProvider =
                     FeatureFactory.getFactory(mContext).getContextualCardFeatureProvider(mContext);
             cardFeatureProvider.markCardAsDismissed(mContext, card.getName());
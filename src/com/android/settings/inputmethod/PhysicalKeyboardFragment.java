@@ -44,6 +44,7 @@ import com.android.internal.util.Preconditions;
 import com.android.settings.R;
 import com.android.settings.Settings;
 import com.android.settings.SettingsPreferenceFragment;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settingslib.search.SearchIndexable;
 import com.android.settingslib.utils.ThreadUtils;
@@ -138,7 +139,7 @@ public final class PhysicalKeyboardFragment extends SettingsPreferenceFragment
 
     private void scheduleUpdateHardKeyboards() {
         final Context context = getContext();
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final List<HardKeyboardDeviceInfo> newHardKeyboards = getHardKeyboards(context);
             ThreadUtils.postOnMainThread(() -> updateHardKeyboards(newHardKeyboards));
         });
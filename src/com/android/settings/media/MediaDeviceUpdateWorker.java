@@ -34,6 +34,7 @@ import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.slices.SliceBackgroundWorker;
 import com.android.settingslib.RestrictedLockUtilsInternal;
 import com.android.settingslib.Utils;
@@ -131,7 +132,7 @@ public class MediaDeviceUpdateWorker extends SliceBackgroundWorker
     }
 
     public void connectDevice(MediaDevice device) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             if (mLocalMediaManager.connectDevice(device)) {
                 ThreadUtils.postOnMainThread(() -> {
                     notifySliceChange();
@@ -235,7 +236,7 @@ public class MediaDeviceUpdateWorker extends SliceBackgroundWorker
      *
      */
     public void adjustVolume(MediaDevice device, int volume) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             device.requestSetVolume(volume);
         });
     }
@@ -32,12 +32,12 @@ import android.util.Log;
 import androidx.annotation.Nullable;
 
 import com.android.settings.bluetooth.Utils;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.slices.SliceBackgroundWorker;
 import com.android.settingslib.bluetooth.BluetoothCallback;
 import com.android.settingslib.bluetooth.LocalBluetoothManager;
 import com.android.settingslib.media.LocalMediaManager;
 import com.android.settingslib.media.MediaDevice;
-import com.android.settingslib.utils.ThreadUtils;
 
 import com.google.common.annotations.VisibleForTesting;
 
@@ -82,7 +82,7 @@ public class MediaOutputIndicatorWorker extends SliceBackgroundWorker implements
         mContext.registerReceiver(mReceiver, intentFilter);
         mLocalBluetoothManager.getEventManager().registerCallback(this);
 
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             final MediaController controller = getActiveLocalMediaController();
             if (controller == null) {
                 mPackageName = null;
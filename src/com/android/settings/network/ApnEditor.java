@@ -52,8 +52,8 @@ import androidx.preference.SwitchPreference;
 import com.android.internal.util.ArrayUtils;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.instrumentation.InstrumentedDialogFragment;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.Arrays;
 import java.util.HashSet;
@@ -1116,7 +1116,7 @@ public class ApnEditor extends SettingsPreferenceFragment
     }
 
     private void updateApnDataToDatabase(Uri uri, ContentValues values) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE, () -> {
             if (uri.equals(mCarrierUri)) {
                 // Add a new apn to the database
                 final Uri newUri = getContentResolver().insert(mCarrierUri, values);
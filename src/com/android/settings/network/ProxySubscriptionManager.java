@@ -32,6 +32,7 @@ import androidx.lifecycle.OnLifecycleEvent;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A proxy to the subscription manager
@@ -79,6 +80,7 @@ public class ProxySubscriptionManager implements LifecycleObserver {
 
         mSubscriptionMonitor = new ActiveSubsciptionsListener(looper, context) {
             public void onChanged() {
+                invalidateSnapshot();
                 notifyAllListeners();
             }
         };
@@ -86,11 +88,13 @@ public class ProxySubscriptionManager implements LifecycleObserver {
                 context, Settings.Global.AIRPLANE_MODE_ON) {
             public void onChanged(String field) {
                 mSubscriptionMonitor.clearCache();
+                invalidateSnapshot();
                 notifyAllListeners();
             }
         };
 
         mSubscriptionMonitor.start();
+        mMonitoring = true;
     }
 
     private Lifecycle mLifecycle;
@@ -99,6 +103,16 @@ public class ProxySubscriptionManager implements LifecycleObserver {
 
     private List<OnActiveSubscriptionChangedListener> mActiveSubscriptionsListeners;
 
+    // The published snapshot, null when it needs to be rebuilt.
+    private volatile SubscriptionSnapshot mSnapshot;
+    // Incremented on each invalidation, so that a snapshot built concurrently is not published.
+    private final AtomicInteger mSnapshotGeneration = new AtomicInteger();
+    // Whether changes are monitored, otherwise the snapshot can't be kept.
+    private volatile boolean mMonitoring;
+    // The last built snapshot, and its version. Guarded by this.
+    private SubscriptionSnapshot mLastSnapshot;
+    private long mSnapshotVersion = SubscriptionSnapshot.VERSION_NONE;
+
     private void notifyAllListeners() {
         for (OnActiveSubscriptionChangedListener listener : mActiveSubscriptionsListeners) {
             final Lifecycle lifecycle = listener.getLifecycle();
@@ -131,16 +145,21 @@ public class ProxySubscriptionManager implements LifecycleObserver {
     @OnLifecycleEvent(ON_START)
     void onStart() {
         mSubscriptionMonitor.start();
+        mMonitoring = true;
     }
 
     @OnLifecycleEvent(ON_STOP)
     void onStop() {
         mSubscriptionMonitor.stop();
+        mMonitoring = false;
+        invalidateSnapshot();
     }
 
     @OnLifecycleEvent(ON_DESTROY)
     void onDestroy() {
         mSubscriptionMonitor.close();
+        mMonitoring = false;
+        invalidateSnapshot();
         mAirplaneModeMonitor.close();
 
         if (mLifecycle != null) {
@@ -160,6 +179,45 @@ public class ProxySubscriptionManager implements LifecycleObserver {
         return mSubscriptionMonitor.getSubscriptionManager();
     }
 
+    /**
+     * Get the snapshot of subscriptions. The snapshot is kept until the subscriptions change,
+     * and reading it doesn't take any lock.
+     *
+     * @return the current snapshot of subscriptions
+     */
+    public SubscriptionSnapshot getSnapshot() {
+        final SubscriptionSnapshot snapshot = mSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        return buildSnapshot();
+    }
+
+    private synchronized SubscriptionSnapshot buildSnapshot() {
+        final int generation = mSnapshotGeneration.get();
+        final List<SubscriptionInfo> active = mSubscriptionMonitor.getActiveSubscriptionsInfo();
+        final List<SubscriptionInfo> accessible =
+                mSubscriptionMonitor.getAccessibleSubscriptionsInfo();
+        SubscriptionSnapshot snapshot = mLastSnapshot;
+        if ((snapshot == null) || !snapshot.hasSameSubscriptions(active, accessible)) {
+            snapshot = new SubscriptionSnapshot(++mSnapshotVersion, active, accessible);
+            mLastSnapshot = snapshot;
+        }
+        if (mMonitoring) {
+            mSnapshot = snapshot;
+            // Don't keep it if the subscriptions changed while it was built.
+            if (generation != mSnapshotGeneration.get()) {
+                mSnapshot = null;
+            }
+        }
+        return snapshot;
+    }
+
+    private void invalidateSnapshot() {
+        mSnapshotGeneration.incrementAndGet();
+        mSnapshot = null;
+    }
+
     /**
      * Get current max. number active subscription info(s) been setup within device
      *
@@ -175,7 +233,7 @@ public class ProxySubscriptionManager implements LifecycleObserver {
      * @return A list of active subscription info
      */
     public List<SubscriptionInfo> getActiveSubscriptionsInfo() {
-        return mSubscriptionMonitor.getActiveSubscriptionsInfo();
+        return getSnapshot().getActiveSubscriptions();
     }
 
     /**
@@ -185,7 +243,7 @@ public class ProxySubscriptionManager implements LifecycleObserver {
      * @return A subscription info which is active list
      */
     public SubscriptionInfo getActiveSubscriptionInfo(int subId) {
-        return mSubscriptionMonitor.getActiveSubscriptionInfo(subId);
+        return getSnapshot().getActiveSubscription(subId);
     }
 
     /**
@@ -194,7 +252,7 @@ public class ProxySubscriptionManager implements LifecycleObserver {
      * @return A list of accessible subscription info
      */
     public List<SubscriptionInfo> getAccessibleSubscriptionsInfo() {
-        return mSubscriptionMonitor.getAccessibleSubscriptionsInfo();
+        return getSnapshot().getAccessibleSubscriptions();
     }
 
     /**
@@ -204,7 +262,7 @@ public class ProxySubscriptionManager implements LifecycleObserver {
      * @return A subscription info which is accessible list
      */
     public SubscriptionInfo getAccessibleSubscriptionInfo(int subId) {
-        return mSubscriptionMonitor.getAccessibleSubscriptionInfo(subId);
+        return getSnapshot().getAccessibleSubscription(subId);
     }
 
     /**
@@ -212,6 +270,7 @@ public class ProxySubscriptionManager implements LifecycleObserver {
      */
     public void clearCache() {
         mSubscriptionMonitor.clearCache();
+        invalidateSnapshot();
     }
 
     /**
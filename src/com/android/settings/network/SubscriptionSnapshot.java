@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import android.os.ParcelUuid;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of the subscriptions, published by {@link ProxySubscriptionManager} once per
+ * change of the subscriptions.
+ *
+ * Besides the lists of subscriptions, it indexes them by subscription id, slot, carrier and
+ * group. The {@link #getVersion()} only changes when the subscriptions change, so callers can
+ * skip the work derived from a snapshot they have already seen.
+ */
+public final class SubscriptionSnapshot {
+
+    /**
+     * A version which no snapshot has.
+     */
+    public static final long VERSION_NONE = 0;
+
+    private final long mVersion;
+    private final List<SubscriptionInfo> mActiveSubscriptions;
+    private final List<SubscriptionInfo> mAccessibleSubscriptions;
+    private final SparseArray<SubscriptionInfo> mActiveBySubId;
+    private final SparseArray<SubscriptionInfo> mAccessibleBySubId;
+    private final SparseArray<SubscriptionInfo> mActiveBySlot;
+    private final SparseArray<List<SubscriptionInfo>> mAccessibleByCarrierId;
+    private final Map<ParcelUuid, List<SubscriptionInfo>> mAccessibleByGroup;
+
+    SubscriptionSnapshot(long version, List<SubscriptionInfo> activeSubscriptions,
+            List<SubscriptionInfo> accessibleSubscriptions) {
+        mVersion = version;
+        mActiveSubscriptions = copyOf(activeSubscriptions);
+        mAccessibleSubscriptions = copyOf(accessibleSubscriptions);
+
+        mActiveBySubId = new SparseArray<>(mActiveSubscriptions.size());
+        mActiveBySlot = new SparseArray<>(mActiveSubscriptions.size());
+        for (SubscriptionInfo info : mActiveSubscriptions) {
+            mActiveBySubId.put(info.getSubscriptionId(), info);
+            if (info.getSimSlotIndex() != SubscriptionManager.INVALID_SIM_SLOT_INDEX) {
+                mActiveBySlot.put(info.getSimSlotIndex(), info);
+            }
+        }
+
+        // Active subscriptions are accessible, and win over a stale accessible entry.
+        mAccessibleBySubId = mActiveBySubId.clone();
+        final SparseArray<List<SubscriptionInfo>> byCarrierId = new SparseArray<>();
+        final Map<ParcelUuid, List<SubscriptionInfo>> byGroup = new ArrayMap<>();
+        for (SubscriptionInfo info : mAccessibleSubscriptions) {
+            if (mAccessibleBySubId.indexOfKey(info.getSubscriptionId()) < 0) {
+                mAccessibleBySubId.put(info.getSubscriptionId(), info);
+            }
+            List<SubscriptionInfo> carrierSubscriptions = byCarrierId.get(info.getCarrierId());
+            if (carrierSubscriptions == null) {
+                carrierSubscriptions = new ArrayList<>();
+                byCarrierId.put(info.getCarrierId(), carrierSubscriptions);
+            }
+            carrierSubscriptions.add(info);
+            final ParcelUuid groupUuid = info.getGroupUuid();
+            if (groupUuid != null) {
+                List<SubscriptionInfo> groupSubscriptions = byGroup.get(groupUuid);
+                if (groupSubscriptions == null) {
+                    groupSubscriptions = new ArrayList<>();
+                    byGroup.put(groupUuid, groupSubscriptions);
+                }
+                groupSubscriptions.add(info);
+            }
+        }
+        mAccessibleByCarrierId = new SparseArray<>(byCarrierId.size());
+        for (int i = 0; i < byCarrierId.size(); i++) {
+            mAccessibleByCarrierId.put(byCarrierId.keyAt(i),
+                    Collections.unmodifiableList(byCarrierId.valueAt(i)));
+        }
+        mAccessibleByGroup = new ArrayMap<>(byGroup.size());
+        for (Map.Entry<ParcelUuid, List<SubscriptionInfo>> entry : byGroup.entrySet()) {
+            mAccessibleByGroup.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+    }
+
+    /**
+     * @return the version of this snapshot, which is different for different subscriptions.
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * @return the active subscriptions, never {@code null}.
+     */
+    public List<SubscriptionInfo> getActiveSubscriptions() {
+        return mActiveSubscriptions;
+    }
+
+    /**
+     * @return the subscriptions accessible by Settings, never {@code null}.
+     */
+    public List<SubscriptionInfo> getAccessibleSubscriptions() {
+        return mAccessibleSubscriptions;
+    }
+
+    /**
+     * @return the active subscription with id {@code subId}, or {@code null}.
+     */
+    public SubscriptionInfo getActiveSubscription(int subId) {
+        return mActiveBySubId.get(subId);
+    }
+
+    /**
+     * @return the accessible subscription with id {@code subId}, or {@code null}.
+     */
+    public SubscriptionInfo getAccessibleSubscription(int subId) {
+        return mAccessibleBySubId.get(subId);
+    }
+
+    /**
+     * @return the active subscription in logical slot {@code slotIndex}, or {@code null}.
+     */
+    public SubscriptionInfo getActiveSubscriptionForSlot(int slotIndex) {
+        return mActiveBySlot.get(slotIndex);
+    }
+
+    /**
+     * @return the slot index of the subscription {@code subId}, or
+     * {@link SubscriptionManager#INVALID_SIM_SLOT_INDEX} if it isn't in a slot.
+     */
+    public int getSlotIndex(int subId) {
+        final SubscriptionInfo info = getAccessibleSubscription(subId);
+        return info == null ? SubscriptionManager.INVALID_SIM_SLOT_INDEX : info.getSimSlotIndex();
+    }
+
+    /**
+     * @return the accessible subscriptions of carrier {@code carrierId}.
+     */
+    public List<SubscriptionInfo> getSubscriptionsForCarrier(int carrierId) {
+        final List<SubscriptionInfo> subscriptions = mAccessibleByCarrierId.get(carrierId);
+        return subscriptions == null ? Collections.emptyList() : subscriptions;
+    }
+
+    /**
+     * @return the accessible subscriptions in group {@code groupUuid}.
+     */
+    public List<SubscriptionInfo> getSubscriptionsInGroup(ParcelUuid groupUuid) {
+        final List<SubscriptionInfo> subscriptions = mAccessibleByGroup.get(groupUuid);
+        return subscriptions == null ? Collections.emptyList() : subscriptions;
+    }
+
+    /**
+     * @return whether the subscription {@code subId} is an eSIM profile.
+     */
+    public boolean isEmbedded(int subId) {
+        final SubscriptionInfo info = getAccessibleSubscription(subId);
+        return info != null && info.isEmbedded();
+    }
+
+    /**
+     * @return whether the subscription {@code subId} is opportunistic.
+     */
+    public boolean isOpportunistic(int subId) {
+        final SubscriptionInfo info = getAccessibleSubscription(subId);
+        return info != null && info.isOpportunistic();
+    }
+
+    /**
+     * @return whether this snapshot holds the same subscriptions as the given lists.
+     */
+    boolean hasSameSubscriptions(List<SubscriptionInfo> activeSubscriptions,
+            List<SubscriptionInfo> accessibleSubscriptions) {
+        return isSameList(mActiveSubscriptions, activeSubscriptions)
+                && isSameList(mAccessibleSubscriptions, accessibleSubscriptions);
+    }
+
+    private static boolean isSameList(List<SubscriptionInfo> snapshotList,
+            List<SubscriptionInfo> subscriptions) {
+        return subscriptions == null ? snapshotList.isEmpty() : snapshotList.equals(subscriptions);
+    }
+
+    private static List<SubscriptionInfo> copyOf(List<SubscriptionInfo> subscriptions) {
+        if (subscriptions == null || subscriptions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(subscriptions));
+    }
+}
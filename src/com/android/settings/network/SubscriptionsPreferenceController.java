@@ -33,6 +33,7 @@ import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.util.ArraySet;
+import android.util.SparseBooleanArray;
 
 import androidx.annotation.VisibleForTesting;
 import androidx.collection.ArrayMap;
@@ -80,6 +81,10 @@ public class SubscriptionsPreferenceController extends AbstractPreferenceControl
 
     // Map of subscription id to Preference
     private Map<Integer, Preference> mSubscriptionPreferences;
+    // Whether each subscription can be displayed, for the subscriptions of
+    // mDisplayableSnapshotVersion.
+    private final SparseBooleanArray mDisplayableSubIds = new SparseBooleanArray();
+    private long mDisplayableSnapshotVersion = SubscriptionSnapshot.VERSION_NONE;
     private int mStartOrder;
 
     /**
@@ -350,7 +355,22 @@ public class SubscriptionsPreferenceController extends AbstractPreferenceControl
 
     @VisibleForTesting
     boolean canSubscriptionBeDisplayed(Context context, int subId) {
-        return (SubscriptionUtil.getAvailableSubscription(context,
-                ProxySubscriptionManager.getInstance(context), subId) != null);
+        final ProxySubscriptionManager proxySubscriptionMgr =
+                ProxySubscriptionManager.getInstance(context);
+        // Only look it up again when the subscriptions changed, since this runs for every
+        // subscription on each signal strength or connectivity change.
+        final long version = proxySubscriptionMgr.getSnapshot().getVersion();
+        if (version != mDisplayableSnapshotVersion) {
+            mDisplayableSubIds.clear();
+            mDisplayableSnapshotVersion = version;
+        }
+        final int index = mDisplayableSubIds.indexOfKey(subId);
+        if (index >= 0) {
+            return mDisplayableSubIds.valueAt(index);
+        }
+        final boolean displayable = (SubscriptionUtil.getAvailableSubscription(context,
+                proxySubscriptionMgr, subId) != null);
+        mDisplayableSubIds.put(subId, displayable);
+        return displayable;
     }
 }
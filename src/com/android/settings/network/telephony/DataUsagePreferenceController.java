@@ -28,10 +28,10 @@ import androidx.preference.Preference;
 
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.datausage.DataUsageUtils;
 import com.android.settings.datausage.lib.DataUsageLib;
 import com.android.settingslib.net.DataUsageController;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -92,8 +92,8 @@ public class DataUsagePreferenceController extends TelephonyBasePreferenceContro
     public void init(int subId) {
         mSubId = subId;
         mTemplate.set(null);
-        mTemplateFuture = ThreadUtils.postOnBackgroundThread(()
-                -> fetchMobileTemplate(mContext, mSubId));
+        mTemplateFuture = BackgroundScheduler.getInstance().submit(
+                BackgroundScheduler.LANE_UI_CRITICAL, () -> fetchMobileTemplate(mContext, mSubId));
     }
 
     private NetworkTemplate fetchMobileTemplate(Context context, int subId) {
@@ -129,8 +129,9 @@ public class DataUsagePreferenceController extends TelephonyBasePreferenceContro
         final DataUsageController controller = new DataUsageController(context);
         controller.setSubscriptionId(subId);
 
-        mHistoricalUsageLevel = ThreadUtils.postOnBackgroundThread(() ->
-                controller.getHistoricalUsageLevel(getNetworkTemplate()));
+        mHistoricalUsageLevel = BackgroundScheduler.getInstance().submit(
+                BackgroundScheduler.LANE_UI_CRITICAL,
+                () -> controller.getHistoricalUsageLevel(getNetworkTemplate()));
 
         final DataUsageController.DataUsageInfo usageInfo = getDataUsageInfo(controller);
 
@@ -68,16 +68,15 @@ import androidx.annotation.VisibleForTesting;
 import com.android.internal.util.ArrayUtils;
 import com.android.settings.R;
 import com.android.settings.Utils;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.network.telephony.TelephonyConstants.TelephonyManagerConstants;
 import com.android.settingslib.development.DevelopmentSettingsEnabler;
 import com.android.settingslib.graph.SignalDrawable;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 public class MobileNetworkUtils {
 
@@ -249,8 +248,8 @@ public class MobileNetworkUtils {
     public static boolean showEuiccSettings(Context context) {
         long timeForAccess = SystemClock.elapsedRealtime();
         try {
-            return ((Future<Boolean>) ThreadUtils.postOnBackgroundThread(()
-                    -> showEuiccSettingsDetecting(context))).get();
+            return BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL,
+                    () -> showEuiccSettingsDetecting(context)).get();
         } catch (ExecutionException | InterruptedException exception) {
             timeForAccess = SystemClock.elapsedRealtime() - timeForAccess;
             Log.w(TAG, "Accessing Euicc takes too long: +" + timeForAccess + "ms");
@@ -18,9 +18,9 @@ package com.android.settings.network.telephony;
 
 import android.util.Log;
 
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settingslib.core.AbstractPreferenceController;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -69,7 +69,8 @@ public class TelephonyStatusControlSession implements AutoCloseable {
     private TelephonyStatusControlSession(Collection<AbstractPreferenceController> controllers) {
         mControllers = controllers;
         controllers.forEach(prefCtrl -> mResult
-                .add(ThreadUtils.postOnBackgroundThread(() -> setupAvailabilityStatus(prefCtrl))));
+                .add(BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL,
+                        () -> setupAvailabilityStatus(prefCtrl))));
 
     }
 
@@ -42,12 +42,12 @@ import androidx.preference.PreferenceScreen;
 import androidx.preference.SwitchPreference;
 
 import com.android.settings.R;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.network.PreferredNetworkModeContentObserver;
 import com.android.settings.network.telephony.MobileNetworkUtils;
 import com.android.settings.network.telephony.NetworkSelectSettings;
 import com.android.settings.network.telephony.TelephonyTogglePreferenceController;
-import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -150,7 +150,7 @@ public class AutoSelectPreferenceController extends TelephonyTogglePreferenceCon
             final long startMillis = SystemClock.elapsedRealtime();
             showAutoSelectProgressBar();
             mSwitchPreference.setEnabled(false);
-            ThreadUtils.postOnBackgroundThread(() -> {
+            BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH, () -> {
                 // set network selection mode in background
                 mTelephonyManager.setNetworkSelectionModeAutomatic();
                 final int mode = mTelephonyManager.getNetworkSelectionMode();
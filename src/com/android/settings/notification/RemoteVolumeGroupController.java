@@ -29,6 +29,7 @@ import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
 import com.android.settings.Utils;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.core.lifecycle.events.OnDestroy;
@@ -181,7 +182,7 @@ public class RemoteVolumeGroupController extends BasePreferenceController implem
 
     @Override
     public boolean onPreferenceChange(Preference preference, Object newValue) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL, () -> {
             mLocalMediaManager.adjustSessionVolume(preference.getKey(), (int) newValue);
         });
         return true;
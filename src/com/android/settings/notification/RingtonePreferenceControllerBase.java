@@ -24,6 +24,7 @@ import android.util.Log;
 
 import androidx.preference.Preference;
 
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.utils.ThreadUtils;
@@ -47,7 +48,8 @@ public abstract class RingtonePreferenceControllerBase extends AbstractPreferenc
 
     @Override
     public void updateState(Preference preference) {
-        ThreadUtils.postOnBackgroundThread(() -> updateSummary(preference));
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL,
+                () -> updateSummary(preference));
     }
 
     private void updateSummary(Preference preference) {
@@ -19,81 +19,190 @@ package com.android.settings.notification.history;
 import android.app.NotificationHistory;
 import android.app.NotificationHistory.HistoricalNotification;
 import android.content.Context;
-import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.os.UserHandle;
 import android.util.Slog;
+import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.applications.AppLabelIconCache;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.notification.NotificationBackend;
 import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Loads the notification history grouped by package, most recent first.
+ *
+ * The packages are published by pages of {@link #PAGE_SIZE}: the first one as soon as it is
+ * ready, and the next ones on {@link #loadNextPage()}. The labels and icons of the packages of a
+ * page are resolved in parallel, through {@link AppLabelIconCache}.
+ */
 public class HistoryLoader {
     private static final String TAG = "HistoryLoader";
+    @VisibleForTesting
+    static final int PAGE_SIZE = 10;
+
     private final Context mContext;
     private final NotificationBackend mBackend;
     private final PackageManager mPm;
+    private final AppLabelIconCache mCache;
+    private final BackgroundScheduler.Scope mScope;
+
+    // All accessed on the main thread. The packages are grouped in the background, and only
+    // published with the first page.
+    private OnHistoryLoaderListener mListener;
+    private List<NotificationHistoryPackage> mPackages;
+    private int mNextPageStart;
+    private boolean mIsLoadingPage;
+    private volatile boolean mIsCancelled;
 
     public HistoryLoader(Context context, NotificationBackend backend, PackageManager pm) {
+        this(context, backend, pm, AppLabelIconCache.getInstance());
+    }
+
+    @VisibleForTesting
+    HistoryLoader(Context context, NotificationBackend backend, PackageManager pm,
+            AppLabelIconCache cache) {
         mContext = context;
         mBackend = backend;
         mPm = pm;
+        mCache = cache;
+        mScope = BackgroundScheduler.getInstance().createScope();
     }
 
+    /**
+     * Load the history, and publish its first page to {@code listener}.
+     */
     public void load(OnHistoryLoaderListener listener) {
-        ThreadUtils.postOnBackgroundThread(() -> {
+        mListener = listener;
+        mIsLoadingPage = true;
+        mScope.submit(BackgroundScheduler.LANE_PREFETCH, () -> {
             try {
-                Map<String, NotificationHistoryPackage> historicalNotifications = new HashMap<>();
-                NotificationHistory history =
-                        mBackend.getNotificationHistory(mContext.getPackageName(),
-                                mContext.getAttributionTag());
-                while (history.hasNextNotification()) {
-                    HistoricalNotification hn = history.getNextNotification();
-
-                    String key = hn.getPackage() + "|" + hn.getUid();
-                    NotificationHistoryPackage hnsForPackage = historicalNotifications.getOrDefault(
-                            key,
-                            new NotificationHistoryPackage(hn.getPackage(), hn.getUid()));
-                    hnsForPackage.notifications.add(hn);
-                    historicalNotifications.put(key, hnsForPackage);
+                resolvePage(groupByPackage(mBackend.getNotificationHistory(
+                        mContext.getPackageName(), mContext.getAttributionTag())), 0);
+            } catch (Exception e) {
+                Slog.e(TAG, "Error loading history", e);
+            }
+        });
+    }
+
+    /**
+     * @return whether there are packages left to publish by {@link #loadNextPage()}.
+     */
+    public boolean hasNextPage() {
+        return !mIsCancelled && mPackages != null && mNextPageStart < mPackages.size();
+    }
+
+    /**
+     * Publish the next page of packages, unless one is already loading.
+     */
+    public void loadNextPage() {
+        if (mIsLoadingPage || !hasNextPage()) {
+            return;
+        }
+        mIsLoadingPage = true;
+        resolvePage(mPackages, mNextPageStart);
+    }
+
+    /**
+     * Stop publishing pages, e.g. when the history is not shown anymore.
+     */
+    public void cancel() {
+        mIsCancelled = true;
+        mScope.cancel();
+    }
+
+    @VisibleForTesting
+    static List<NotificationHistoryPackage> groupByPackage(NotificationHistory history) {
+        // Packages by uid, as a uid rarely hosts more than one package.
+        final SparseArray<List<NotificationHistoryPackage>> packagesByUid = new SparseArray<>();
+        final List<NotificationHistoryPackage> packages = new ArrayList<>();
+        while (history.hasNextNotification()) {
+            final HistoricalNotification hn = history.getNextNotification();
+            List<NotificationHistoryPackage> packagesForUid = packagesByUid.get(hn.getUid());
+            if (packagesForUid == null) {
+                packagesForUid = new ArrayList<>(1);
+                packagesByUid.put(hn.getUid(), packagesForUid);
+            }
+            NotificationHistoryPackage hnsForPackage = null;
+            for (int i = 0; i < packagesForUid.size(); i++) {
+                if (packagesForUid.get(i).pkgName.equals(hn.getPackage())) {
+                    hnsForPackage = packagesForUid.get(i);
+                    break;
                 }
-                List<NotificationHistoryPackage> packages =
-                        new ArrayList<>(historicalNotifications.values());
-                Collections.sort(packages,
-                        (o1, o2) -> -1 * Long.compare(o1.getMostRecent(), o2.getMostRecent()));
-                for (NotificationHistoryPackage nhp : packages) {
-                    ApplicationInfo info;
-                    try {
-                        info = mPm.getApplicationInfoAsUser(
-                                nhp.pkgName,
-                                PackageManager.MATCH_UNINSTALLED_PACKAGES
-                                        | PackageManager.MATCH_DISABLED_COMPONENTS
-                                        | PackageManager.MATCH_DIRECT_BOOT_UNAWARE
-                                        | PackageManager.MATCH_DIRECT_BOOT_AWARE,
-                                UserHandle.getUserId(nhp.uid));
-                        if (info != null) {
-                            nhp.label = String.valueOf(mPm.getApplicationLabel(info));
-                            nhp.icon = mPm.getUserBadgedIcon(mPm.getApplicationIcon(info),
-                                    UserHandle.of(UserHandle.getUserId(nhp.uid)));
-                        }
-                    } catch (PackageManager.NameNotFoundException e) {
-                        // app is gone, just show package name and generic icon
-                        nhp.icon = mPm.getDefaultActivityIcon();
+            }
+            if (hnsForPackage == null) {
+                hnsForPackage = new NotificationHistoryPackage(hn.getPackage(), hn.getUid());
+                packagesForUid.add(hnsForPackage);
+                packages.add(hnsForPackage);
+            }
+            hnsForPackage.notifications.add(hn);
+        }
+        Collections.sort(packages,
+                (o1, o2) -> -1 * Long.compare(o1.getMostRecent(), o2.getMostRecent()));
+        return packages;
+    }
+
+    private void resolvePage(List<NotificationHistoryPackage> packages, int start) {
+        final List<NotificationHistoryPackage> page = new ArrayList<>(
+                packages.subList(start, Math.min(start + PAGE_SIZE, packages.size())));
+        if (page.isEmpty()) {
+            publishPage(packages, start, page);
+            return;
+        }
+        final AtomicInteger remaining = new AtomicInteger(page.size());
+        for (NotificationHistoryPackage nhp : page) {
+            mScope.submit(BackgroundScheduler.LANE_PREFETCH, () -> {
+                try {
+                    if (!mIsCancelled) {
+                        resolve(nhp);
                     }
+                } catch (RuntimeException e) {
+                    Slog.e(TAG, "Error loading " + nhp.pkgName, e);
                 }
-                ThreadUtils.postOnMainThread(() -> listener.onHistoryLoaded(packages));
-            } catch (Exception e) {
-                Slog.e(TAG, "Error loading history", e);
+                if (remaining.decrementAndGet() == 0) {
+                    publishPage(packages, start, page);
+                }
+            });
+        }
+    }
+
+    private void resolve(NotificationHistoryPackage nhp) {
+        final AppLabelIconCache.Entry entry =
+                mCache.get(mPm, nhp.pkgName, UserHandle.getUserId(nhp.uid));
+        if (entry != null) {
+            nhp.label = String.valueOf(entry.label);
+            nhp.icon = entry.newIcon();
+        } else {
+            // app is gone, just show package name and generic icon
+            nhp.icon = mPm.getDefaultActivityIcon();
+        }
+    }
+
+    private void publishPage(List<NotificationHistoryPackage> packages, int start,
+            List<NotificationHistoryPackage> page) {
+        ThreadUtils.postOnMainThread(() -> {
+            if (mIsCancelled) {
+                return;
             }
+            mPackages = packages;
+            mNextPageStart = start + page.size();
+            mIsLoadingPage = false;
+            mListener.onHistoryLoaded(page);
         });
     }
 
     interface OnHistoryLoaderListener {
+        /**
+         * Called with the first page of packages, then with every page published by
+         * {@link HistoryLoader#loadNextPage()}.
+         */
         void onHistoryLoaded(List<NotificationHistoryPackage> notificationsByPackage);
     }
 }
@@ -48,6 +48,7 @@ import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.core.widget.NestedScrollView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -78,6 +79,7 @@ public class NotificationHistoryActivity extends Activity {
     private SwitchBar mSwitchBar;
 
     private HistoryLoader mHistoryLoader;
+    private NestedScrollView mScrollView;
     private INotificationManager mNm;
     private UserManager mUm;
     private PackageManager mPm;
@@ -127,8 +129,9 @@ public class NotificationHistoryActivity extends Activity {
     }
 
     private HistoryLoader.OnHistoryLoaderListener mOnHistoryLoaderListener = notifications -> {
+        final int firstPosition = mTodayView.getChildCount();
         findViewById(R.id.today_list).setVisibility(
-                notifications.isEmpty() ? View.GONE : View.VISIBLE);
+                notifications.isEmpty() && firstPosition == 0 ? View.GONE : View.VISIBLE);
         mCountdownLatch.countDown();
         mTodayView.setClipToOutline(true);
         mTodayView.setOutlineProvider(new ViewOutlineProvider() {
@@ -160,7 +163,7 @@ public class NotificationHistoryActivity extends Activity {
             header.setStateDescription(container.getVisibility() == View.VISIBLE
                     ? getString(R.string.condition_expand_hide)
                     : getString(R.string.condition_expand_show));
-            int finalI = i;
+            int finalI = firstPosition + i;
             header.setOnClickListener(v -> {
                 container.setVisibility(container.getVisibility() == View.VISIBLE
                         ? View.GONE : View.VISIBLE);
@@ -205,13 +208,31 @@ public class NotificationHistoryActivity extends Activity {
 
             mTodayView.addView(viewForPackage);
         }
+        // Load more if the packages don't fill the screen yet.
+        mScrollView.post(this::maybeLoadNextPage);
     };
 
+    private void maybeLoadNextPage() {
+        if (mHistoryLoader == null || !mHistoryLoader.hasNextPage()) {
+            return;
+        }
+        final View content = mScrollView.getChildAt(0);
+        final int remaining = content.getBottom() - mScrollView.getHeight()
+                - mScrollView.getScrollY();
+        if (remaining < mScrollView.getHeight()) {
+            mHistoryLoader.loadNextPage();
+        }
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setTitle(R.string.notification_history);
         setContentView(R.layout.notification_history);
+        mScrollView = findViewById(R.id.scroll);
+        mScrollView.setOnScrollChangeListener(
+                (NestedScrollView.OnScrollChangeListener) (v, x, y, oldX, oldY) ->
+                        maybeLoadNextPage());
         mTodayView = findViewById(R.id.apps);
         mSnoozeView = findViewById(R.id.snoozed_list);
         mDismissView = findViewById(R.id.recently_dismissed_list);
@@ -274,6 +295,7 @@ public class NotificationHistoryActivity extends Activity {
 
     @Override
     public void onPause() {
+        mHistoryLoader.cancel();
         try {
             mListener.unregisterAsSystemService();
         } catch (RemoteException e) {
@@ -49,13 +49,16 @@ import android.text.SpannableString;
 import android.text.SpannableStringBuilder;
 import android.text.TextUtils;
 import android.text.style.StyleSpan;
+import android.util.ArrayMap;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.DateTimeView;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceViewHolder;
 import androidx.recyclerview.widget.RecyclerView;
@@ -64,9 +67,9 @@ import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.Utils;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
 
 public class NotificationStation extends SettingsPreferenceFragment {
@@ -76,7 +79,8 @@ public class NotificationStation extends SettingsPreferenceFragment {
     private static final boolean DUMP_EXTRAS = true;
     private static final boolean DUMP_PARCEL = true;
 
-    private static class HistoricalNotificationInfo {
+    @VisibleForTesting
+    static class HistoricalNotificationInfo {
         public String key;
         public NotificationChannel channel;
         // Historical notifications don't have Ranking information. for most fields that's ok
@@ -97,6 +101,7 @@ public class NotificationStation extends SettingsPreferenceFragment {
         public CharSequence rankingExtra;
         public boolean alerted;
         public boolean visuallyInterruptive;
+        public HistoricalNotificationPreference preference;
 
         public void updateFrom(HistoricalNotificationInfo updatedInfo) {
             this.channel = updatedInfo.channel;
@@ -113,12 +118,40 @@ public class NotificationStation extends SettingsPreferenceFragment {
         }
     }
 
+    // The oldest notifications are dropped from the list above this count.
+    @VisibleForTesting
+    static final int MAX_NOTIFICATIONS = 500;
+
+    private static class PendingEvent {
+        final StatusBarNotification sbn;
+        final boolean removed;
+
+        PendingEvent(StatusBarNotification sbn, boolean removed) {
+            this.sbn = sbn;
+            this.removed = removed;
+        }
+    }
+
     private PackageManager mPm;
     private INotificationManager mNoMan;
     private RankingMap mRanking;
-    private LinkedList<HistoricalNotificationInfo> mNotificationInfos;
+    // Notifications shown in the list, most recent first.
+    private ArrayDeque<HistoricalNotificationInfo> mNotificationInfos;
+    // Most recent notification shown for each key.
+    private final ArrayMap<String, HistoricalNotificationInfo> mLatestInfos = new ArrayMap<>();
+    // Listener events received since the last frame, applied together in the next one.
+    private final List<PendingEvent> mPendingEvents = new ArrayList<>();
+    private boolean mIsRankingChanged;
+    private boolean mIsFrameScheduled;
+    // Order of the next added preference, decreasing so the new ones come first.
+    private int mNextOrder = -1;
+    private final Choreographer.FrameCallback mFrameCallback = frameTimeNanos -> {
+        mIsFrameScheduled = false;
+        applyPendingEvents();
+    };
 
-    private final NotificationListenerService mListener = new NotificationListenerService() {
+    @VisibleForTesting
+    final NotificationListenerService mListener = new NotificationListenerService() {
         @Override
         public void onNotificationPosted(StatusBarNotification sbn, RankingMap ranking) {
             logd("onNotificationPosted: %s, with update for %d", sbn.getNotification(),
@@ -127,7 +160,8 @@ public class NotificationStation extends SettingsPreferenceFragment {
             if (sbn.getNotification().isGroupSummary()) {
                 return;
             }
-            addOrUpdateNotification(sbn);
+            mPendingEvents.add(new PendingEvent(sbn, false /* removed */));
+            scheduleFrame();
         }
 
         @Override
@@ -138,7 +172,8 @@ public class NotificationStation extends SettingsPreferenceFragment {
             if (sbn.getNotification().isGroupSummary()) {
                 return;
             }
-            markNotificationAsDismissed(sbn);
+            mPendingEvents.add(new PendingEvent(sbn, true /* removed */));
+            scheduleFrame();
         }
 
         @Override
@@ -146,7 +181,8 @@ public class NotificationStation extends SettingsPreferenceFragment {
             logd("onNotificationRankingUpdate with update for %d",
                     ranking == null ? 0 : ranking.getOrderedKeys().length);
             mRanking = ranking;
-            updateNotificationsFromRanking();
+            mIsRankingChanged = true;
+            scheduleFrame();
         }
 
         @Override
@@ -154,6 +190,8 @@ public class NotificationStation extends SettingsPreferenceFragment {
             mRanking = getCurrentRanking();
             logd("onListenerConnected with update for %d",
                     mRanking == null ? 0 : mRanking.getOrderedKeys().length);
+            mPendingEvents.clear();
+            mIsRankingChanged = false;
             populateNotifications();
         }
     };
@@ -171,7 +209,7 @@ public class NotificationStation extends SettingsPreferenceFragment {
         mPm = mContext.getPackageManager();
         mNoMan = INotificationManager.Stub.asInterface(
                 ServiceManager.getService(Context.NOTIFICATION_SERVICE));
-        mNotificationInfos = new LinkedList<>();
+        mNotificationInfos = new ArrayDeque<>();
     }
 
     @Override
@@ -182,6 +220,11 @@ public class NotificationStation extends SettingsPreferenceFragment {
 
     @Override
     public void onPause() {
+        if (mIsFrameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mIsFrameScheduled = false;
+        }
+        mPendingEvents.clear();
         try {
             mListener.unregisterAsSystemService();
         } catch (RemoteException e) {
@@ -227,9 +270,48 @@ public class NotificationStation extends SettingsPreferenceFragment {
             setPreferenceScreen(getPreferenceManager().createPreferenceScreen(getContext()));
         }
         getPreferenceScreen().removeAll();
-        for (int i = 0; i < N; i++) {
-            getPreferenceScreen().addPreference(new HistoricalNotificationPreference(
-                    getPrefContext(), mNotificationInfos.get(i), i));
+        mLatestInfos.clear();
+        mNextOrder = -1;
+        int order = 0;
+        for (HistoricalNotificationInfo info : mNotificationInfos) {
+            // The list is sorted most recent first, so the first info of a key is the latest.
+            if (!mLatestInfos.containsKey(info.key)) {
+                mLatestInfos.put(info.key, info);
+            }
+            addPreference(info, order++);
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!mIsFrameScheduled) {
+            mIsFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * Applies the listener events received since the last frame, and the latest ranking once.
+     */
+    private void applyPendingEvents() {
+        if (getPreferenceScreen() == null) {
+            // The list isn't populated yet, and will include these notifications when it is.
+            mPendingEvents.clear();
+            mIsRankingChanged = false;
+            return;
+        }
+        logd("applying %d events", mPendingEvents.size());
+        for (int i = 0; i < mPendingEvents.size(); i++) {
+            final PendingEvent event = mPendingEvents.get(i);
+            if (event.removed) {
+                markNotificationAsDismissed(event.sbn);
+            } else {
+                addOrUpdateNotification(event.sbn);
+            }
+        }
+        mPendingEvents.clear();
+        if (mIsRankingChanged) {
+            mIsRankingChanged = false;
+            updateNotificationsFromRanking();
         }
     }
 
@@ -237,15 +319,10 @@ public class NotificationStation extends SettingsPreferenceFragment {
      * Finds and dims the given notification in the preferences list.
      */
     private void markNotificationAsDismissed(StatusBarNotification sbn) {
-        final int N = mNotificationInfos.size();
-        for (int i = 0; i < N; i++) {
-            final HistoricalNotificationInfo info = mNotificationInfos.get(i);
-            if (TextUtils.equals(info.key, sbn.getKey())) {
-                info.active = false;
-                ((HistoricalNotificationPreference) getPreferenceScreen().findPreference(
-                        sbn.getKey())).updatePreference(info);
-               break;
-            }
+        final HistoricalNotificationInfo info = mLatestInfos.get(sbn.getKey());
+        if (info != null) {
+            info.active = false;
+            info.preference.updatePreference(info);
         }
     }
 
@@ -255,42 +332,38 @@ public class NotificationStation extends SettingsPreferenceFragment {
      */
     private void addOrUpdateNotification(StatusBarNotification sbn) {
         HistoricalNotificationInfo newInfo = createFromSbn(sbn, true);
-        boolean needsAdd = true;
-        final int N = mNotificationInfos.size();
-        for (int i = 0; i < N; i++) {
-            final HistoricalNotificationInfo info = mNotificationInfos.get(i);
-            if (TextUtils.equals(info.key, sbn.getKey()) && info.active
-                    && !newInfo.alerted && !newInfo.visuallyInterruptive) {
-                info.updateFrom(newInfo);
-
-                ((HistoricalNotificationPreference) getPreferenceScreen().findPreference(
-                        sbn.getKey())).updatePreference(info);
-                needsAdd = false;
-                break;
-            }
+        final HistoricalNotificationInfo info = mLatestInfos.get(sbn.getKey());
+        if (info != null && info.active
+                && !newInfo.alerted && !newInfo.visuallyInterruptive) {
+            info.updateFrom(newInfo);
+            info.preference.updatePreference(info);
+            return;
         }
-        if (needsAdd) {
-            mNotificationInfos.addFirst(newInfo);
-            getPreferenceScreen().addPreference(new HistoricalNotificationPreference(
-                    getPrefContext(), mNotificationInfos.peekFirst(),
-                    -1 * mNotificationInfos.size()));
+        mNotificationInfos.addFirst(newInfo);
+        mLatestInfos.put(newInfo.key, newInfo);
+        addPreference(newInfo, mNextOrder--);
+        // Drop the oldest notifications once the list is full.
+        while (mNotificationInfos.size() > MAX_NOTIFICATIONS) {
+            final HistoricalNotificationInfo oldest = mNotificationInfos.removeLast();
+            getPreferenceScreen().removePreference(oldest.preference);
+            if (mLatestInfos.get(oldest.key) == oldest) {
+                mLatestInfos.remove(oldest.key);
+            }
         }
     }
 
+    private void addPreference(HistoricalNotificationInfo info, int order) {
+        info.preference = new HistoricalNotificationPreference(getPrefContext(), info, order);
+        getPreferenceScreen().addPreference(info.preference);
+    }
+
     /**
      * Updates all notifications in the list based on new information in the ranking.
      */
     private void updateNotificationsFromRanking() {
-        Ranking rank = new Ranking();
-        for (int i = 0; i < getPreferenceScreen().getPreferenceCount(); i++) {
-            final HistoricalNotificationPreference p =
-                    (HistoricalNotificationPreference) getPreferenceScreen().getPreference(i);
-            final HistoricalNotificationInfo info = mNotificationInfos.get(i);
-            mRanking.getRanking(p.getKey(), rank);
-
+        for (HistoricalNotificationInfo info : mNotificationInfos) {
             updateFromRanking(info);
-            ((HistoricalNotificationPreference) getPreferenceScreen().findPreference(
-                    info.key)).updatePreference(info);
+            info.preference.updatePreference(info);
         }
     }
 
@@ -395,14 +468,16 @@ public class NotificationStation extends SettingsPreferenceFragment {
             // notifications are given to us in the same order as the shade; sorted by inferred
             // priority. Resort chronologically for our display.
             list.sort(mNotificationSorter);
-            mNotificationInfos = new LinkedList<>(list);
+            mNotificationInfos = new ArrayDeque<>(
+                    list.subList(0, Math.min(list.size(), MAX_NOTIFICATIONS)));
 
         } catch (RemoteException e) {
             Log.e(TAG, "Cannot load Notifications: ", e);
         }
     }
 
-    private HistoricalNotificationInfo createFromSbn(StatusBarNotification sbn, boolean active) {
+    @VisibleForTesting
+    HistoricalNotificationInfo createFromSbn(StatusBarNotification sbn, boolean active) {
         final Notification n = sbn.getNotification();
         final HistoricalNotificationInfo info = new HistoricalNotificationInfo();
         info.pkg = sbn.getPackageName();
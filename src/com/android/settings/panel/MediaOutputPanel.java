@@ -246,6 +246,11 @@ public class MediaOutputPanel implements PanelContent, LocalMediaManager.DeviceC
         return PanelContent.VIEW_TYPE_SLIDER_LARGE_ICON;
     }
 
+    @Override
+    public boolean isProgressiveLoadingEnabled() {
+        return true;
+    }
+
     private final MediaController.Callback mCb = new MediaController.Callback() {
         @Override
         public void onMetadataChanged(MediaMetadata metadata) {
@@ -111,4 +111,13 @@ public interface PanelContent extends Instrumentable {
     default int getViewType() {
         return 0;
     }
+
+    /**
+     * @return {@code true} to show the Panel right away, with the Slices it showed last time,
+     * and add the other Slices as they load, {@code false} to show the Panel once all of its
+     * Slices have loaded.
+     */
+    default boolean isProgressiveLoadingEnabled() {
+        return false;
+    }
 }
@@ -25,6 +25,7 @@ import android.app.settings.SettingsEnums;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -43,6 +44,7 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.slice.Slice;
@@ -59,6 +61,7 @@ import com.android.settingslib.utils.ThreadUtils;
 import com.google.android.setupdesign.DividerItemDecoration;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -101,6 +104,9 @@ public class PanelFragment extends Fragment {
     private boolean mPanelCreating;
 
     private final Map<Uri, LiveData<Slice>> mSliceLiveData = new LinkedHashMap<>();
+    // Whether the Panel is shown before its Slices load, see
+    // PanelContent#isProgressiveLoadingEnabled().
+    private boolean mProgressiveLoading;
 
     @VisibleForTesting
     PanelSlicesLoaderCountdownLatch mPanelSlicesLoaderCountdownLatch;
@@ -300,16 +306,27 @@ public class PanelFragment extends Fragment {
         mSliceLiveData.clear();
         final List<Uri> sliceUris = mPanel.getSlices();
         mPanelSlicesLoaderCountdownLatch = new PanelSlicesLoaderCountdownLatch(sliceUris.size());
+        mProgressiveLoading = mPanel.isProgressiveLoadingEnabled();
+        final Map<Uri, Slice> snapshot = mProgressiveLoading
+                ? PanelSliceSnapshotCache.getInstance().get(mPanel) : Collections.emptyMap();
+        final long startNanos = SystemClock.elapsedRealtimeNanos();
 
         for (Uri uri : sliceUris) {
             final LiveData<Slice> sliceLiveData = SliceLiveData.fromUri(getActivity(), uri,
                     (int type, Throwable source)-> {
-                            removeSliceLiveData(uri);
+                            onSliceError(uri);
                             mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
                     });
 
             // Add slice first to make it in order.  Will remove it later if there's an error.
-            mSliceLiveData.put(uri, sliceLiveData);
+            mSliceLiveData.put(uri, mProgressiveLoading
+                    ? withSnapshot(sliceLiveData, snapshot.get(uri)) : sliceLiveData);
+
+            if (mProgressiveLoading) {
+                sliceLiveData.observe(getViewLifecycleOwner(),
+                        slice -> onProgressiveSliceChanged(uri, slice, startNanos));
+                continue;
+            }
 
             sliceLiveData.observe(getViewLifecycleOwner(), slice -> {
                 // If the Slice has already loaded, do nothing.
@@ -338,6 +355,7 @@ public class PanelFragment extends Fragment {
                     mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
                 } else if (metadata.getLoadingState() == SliceMetadata.LOADED_ALL) {
                     mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
+                    PanelSliceLatencyTracker.getInstance().record(uri, startNanos);
                 } else {
                     Handler handler = new Handler();
                     handler.postDelayed(() -> {
@@ -349,15 +367,77 @@ public class PanelFragment extends Fragment {
                 loadPanelWhenReady();
             });
         }
+
+        if (mProgressiveLoading) {
+            // Show the Panel in the first frame, with the Slices it showed last time.
+            showPanel(new PanelSlicesAdapter(this, mSliceLiveData, mPanel.getMetricsCategory(),
+                    snapshot.keySet()));
+        }
+    }
+
+    /**
+     * @return a {@link LiveData} which holds {@code snapshot} until {@code sliceLiveData} loads.
+     */
+    private static LiveData<Slice> withSnapshot(LiveData<Slice> sliceLiveData,
+            @Nullable Slice snapshot) {
+        final MediatorLiveData<Slice> result = new MediatorLiveData<>();
+        if (snapshot != null) {
+            result.setValue(snapshot);
+        }
+        result.addSource(sliceLiveData, result::setValue);
+        return result;
+    }
+
+    /**
+     * Watching for the {@link Slice} to load in progressive mode.
+     * <p>
+     *     Every Slice is shown as soon as it has content, and hidden if it comes back
+     *     {@code null} or with the Error attribute, unless its uri is in the whitelist. The
+     *     fully loaded Slices are kept in the {@link PanelSliceSnapshotCache}.
+     */
+    @VisibleForTesting
+    void onProgressiveSliceChanged(Uri uri, @Nullable Slice slice, long startNanos) {
+        final SliceMetadata metadata = SliceMetadata.from(getActivity(), slice);
+        if (slice == null || metadata.isErrorSlice()) {
+            onSliceError(uri);
+            mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
+            return;
+        }
+        if (mAdapter != null) {
+            mAdapter.showSlice(uri);
+        }
+        if (metadata.getLoadingState() == SliceMetadata.LOADED_ALL) {
+            PanelSliceSnapshotCache.getInstance().put(mPanel, uri, slice);
+            if (!mPanelSlicesLoaderCountdownLatch.isSliceLoaded(uri)) {
+                mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
+                PanelSliceLatencyTracker.getInstance().record(uri, startNanos);
+            }
+        }
+    }
+
+    private void onSliceError(Uri uri) {
+        if (!removeSliceLiveData(uri) || !mProgressiveLoading) {
+            return;
+        }
+        PanelSliceSnapshotCache.getInstance().put(mPanel, uri, null /* slice */);
+        if (mAdapter != null) {
+            mAdapter.hideSlice(uri);
+        }
     }
 
-    private void removeSliceLiveData(Uri uri) {
+    /**
+     * @return {@code true} if the Slice was removed, {@code false} if it is kept because it is
+     * in the whitelist.
+     */
+    private boolean removeSliceLiveData(Uri uri) {
         final List<String> whiteList = Arrays.asList(
                 getResources().getStringArray(
                         R.array.config_panel_keep_observe_uri));
         if (!whiteList.contains(uri.toString())) {
             mSliceLiveData.remove(uri);
+            return true;
         }
+        return false;
     }
 
     /**
@@ -369,19 +449,22 @@ public class PanelFragment extends Fragment {
      */
     private void loadPanelWhenReady() {
         if (mPanelSlicesLoaderCountdownLatch.isPanelReadyToLoad()) {
-            mAdapter = new PanelSlicesAdapter(
-                    this, mSliceLiveData, mPanel.getMetricsCategory());
-            mPanelSlices.setAdapter(mAdapter);
-            mPanelSlices.getViewTreeObserver()
-                    .addOnGlobalLayoutListener(mOnGlobalLayoutListener);
-            mPanelSlices.setVisibility(View.VISIBLE);
-
-            final DividerItemDecoration itemDecoration = new DividerItemDecoration(getActivity());
-            itemDecoration
-                    .setDividerCondition(DividerItemDecoration.DIVIDER_CONDITION_BOTH);
-            if (mPanelSlices.getItemDecorationCount() == 0) {
-                mPanelSlices.addItemDecoration(itemDecoration);
-            }
+            showPanel(new PanelSlicesAdapter(this, mSliceLiveData, mPanel.getMetricsCategory()));
+        }
+    }
+
+    private void showPanel(PanelSlicesAdapter adapter) {
+        mAdapter = adapter;
+        mPanelSlices.setAdapter(mAdapter);
+        mPanelSlices.getViewTreeObserver()
+                .addOnGlobalLayoutListener(mOnGlobalLayoutListener);
+        mPanelSlices.setVisibility(View.VISIBLE);
+
+        final DividerItemDecoration itemDecoration = new DividerItemDecoration(getActivity());
+        itemDecoration
+                .setDividerCondition(DividerItemDecoration.DIVIDER_CONDITION_BOTH);
+        if (mPanelSlices.getItemDecorationCount() == 0) {
+            mPanelSlices.addItemDecoration(itemDecoration);
         }
     }
 
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.panel;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.instrumentation.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps per Slice latency histograms of the time a Panel Slice takes to be fully bound, from the
+ * time the Panel started loading it.
+ *
+ * The histograms are exposed through {@link com.android.settings.SettingsDumpService}.
+ */
+public class PanelSliceLatencyTracker {
+    private static final int[] PERCENTILES = {50, 95, 99};
+
+    private static final PanelSliceLatencyTracker sInstance = new PanelSliceLatencyTracker();
+
+    private final Map<String, LatencyHistogram> mHistograms = new ConcurrentHashMap<>();
+
+    public static PanelSliceLatencyTracker getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PanelSliceLatencyTracker() {
+    }
+
+    /**
+     * Record the bind latency of the Slice {@code uri}, which started loading at
+     * {@code startNanos} as returned by {@link SystemClock#elapsedRealtimeNanos()}.
+     */
+    public void record(Uri uri, long startNanos) {
+        final long micros = (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000;
+        getHistogram(uri).record(micros);
+    }
+
+    @VisibleForTesting
+    LatencyHistogram getHistogram(Uri uri) {
+        return mHistograms.computeIfAbsent(uri.toString(), key -> new LatencyHistogram());
+    }
+
+    /**
+     * @return the p50/p95/p99 bind latencies in microseconds of every recorded Slice.
+     */
+    public JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (Map.Entry<String, LatencyHistogram> entry : mHistograms.entrySet()) {
+            final LatencyHistogram histogram = entry.getValue();
+            final JSONObject sliceObj = new JSONObject();
+            sliceObj.put("count", histogram.getCount());
+            for (int percentile : PERCENTILES) {
+                sliceObj.put("p" + percentile, histogram.getPercentileMicros(percentile));
+            }
+            sliceObj.put("max", histogram.getMaxMicros());
+            obj.put(entry.getKey(), sliceObj);
+        }
+        return obj;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.panel;
+
+import android.net.Uri;
+import android.util.ArrayMap;
+import android.util.LruCache;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.slice.Slice;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * In memory cache of the last fully loaded {@link Slice} of every Slice of the recently opened
+ * Panels, so that a Panel can show them while its Slices are loading again.
+ */
+@MainThread
+public class PanelSliceSnapshotCache {
+
+    @VisibleForTesting
+    static final int MAX_PANELS = 4;
+
+    private static PanelSliceSnapshotCache sInstance;
+
+    // By Panel class name, then by Slice Uri.
+    private final LruCache<String, Map<Uri, Slice>> mSnapshots = new LruCache<>(MAX_PANELS);
+
+    public static PanelSliceSnapshotCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new PanelSliceSnapshotCache();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PanelSliceSnapshotCache() {
+    }
+
+    /**
+     * @return the last loaded Slices of {@code panel} by Uri, which may be empty.
+     */
+    public Map<Uri, Slice> get(PanelContent panel) {
+        final Map<Uri, Slice> snapshot = mSnapshots.get(getKey(panel));
+        return snapshot == null ? Collections.emptyMap() : new ArrayMap<>(snapshot);
+    }
+
+    /**
+     * Remember {@code slice} as the last loaded Slice of {@code uri} in {@code panel}, or forget
+     * it if {@code slice} is {@code null}.
+     */
+    public void put(PanelContent panel, Uri uri, @Nullable Slice slice) {
+        final String key = getKey(panel);
+        Map<Uri, Slice> snapshot = mSnapshots.get(key);
+        if (snapshot == null) {
+            if (slice == null) {
+                return;
+            }
+            snapshot = new ArrayMap<>();
+            mSnapshots.put(key, snapshot);
+        }
+        if (slice == null) {
+            snapshot.remove(uri);
+        } else {
+            snapshot.put(uri, slice);
+        }
+    }
+
+    @VisibleForTesting
+    void clear() {
+        mSnapshots.evictAll();
+    }
+
+    private static String getKey(PanelContent panel) {
+        return panel.getClass().getName();
+    }
+}
@@ -41,11 +41,16 @@ import com.android.settings.overlay.FeatureFactory;
 import com.google.android.setupdesign.DividerItemDecoration;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * RecyclerView adapter for Slices in Settings Panels.
+ *
+ * The adapter knows all the Slices of the Panel, and can show a subset of them which grows as
+ * they load, see {@link #showSlice(Uri)}. The shown Slices keep the order of the Panel.
  */
 public class PanelSlicesAdapter
         extends RecyclerView.Adapter<PanelSlicesAdapter.SliceRowViewHolder> {
@@ -56,17 +61,89 @@ public class PanelSlicesAdapter
     @VisibleForTesting
     static final int MAX_NUM_OF_SLICES = 6;
 
+    // All the Slices of the Panel, in order.
+    private final Map<Uri, LiveData<Slice>> mAllSliceLiveData;
+    // The shown Slices, in the same order.
+    private final List<Uri> mSliceUris;
     private final List<LiveData<Slice>> mSliceLiveData;
     private final int mMetricsCategory;
     private final PanelFragment mPanelFragment;
 
     public PanelSlicesAdapter(
             PanelFragment fragment, Map<Uri, LiveData<Slice>> sliceLiveData, int metricsCategory) {
+        this(fragment, sliceLiveData, metricsCategory, sliceLiveData.keySet());
+    }
+
+    /**
+     * @param shownUris the Slices to show initially, the others are shown by
+     *                  {@link #showSlice(Uri)}.
+     */
+    PanelSlicesAdapter(PanelFragment fragment, Map<Uri, LiveData<Slice>> sliceLiveData,
+            int metricsCategory, Collection<Uri> shownUris) {
         mPanelFragment = fragment;
-        mSliceLiveData = new ArrayList<>(sliceLiveData.values());
+        mAllSliceLiveData = new LinkedHashMap<>(sliceLiveData);
+        mSliceUris = new ArrayList<>();
+        mSliceLiveData = new ArrayList<>();
+        for (Map.Entry<Uri, LiveData<Slice>> entry : mAllSliceLiveData.entrySet()) {
+            if (shownUris.contains(entry.getKey())) {
+                mSliceUris.add(entry.getKey());
+                mSliceLiveData.add(entry.getValue());
+            }
+        }
         mMetricsCategory = metricsCategory;
     }
 
+    /**
+     * Show the Slice {@code uri} at its position in the Panel, if it isn't shown yet.
+     */
+    void showSlice(Uri uri) {
+        final LiveData<Slice> sliceLiveData = mAllSliceLiveData.get(uri);
+        if (sliceLiveData == null || mSliceUris.contains(uri)) {
+            return;
+        }
+        int index = 0;
+        for (Uri panelUri : mAllSliceLiveData.keySet()) {
+            if (panelUri.equals(uri)) {
+                break;
+            }
+            if (mSliceUris.contains(panelUri)) {
+                index++;
+            }
+        }
+        final int oldCount = getItemCount();
+        mSliceUris.add(index, uri);
+        mSliceLiveData.add(index, sliceLiveData);
+        if (index >= MAX_NUM_OF_SLICES) {
+            return;
+        }
+        notifyItemInserted(index);
+        if (getItemCount() == oldCount) {
+            // The last shown Slice was pushed over the maximum.
+            notifyItemRemoved(MAX_NUM_OF_SLICES);
+        }
+    }
+
+    /**
+     * Hide the Slice {@code uri}, if it is shown.
+     */
+    void hideSlice(Uri uri) {
+        final int index = mSliceUris.indexOf(uri);
+        if (index < 0) {
+            return;
+        }
+        final int oldCount = getItemCount();
+        mSliceUris.remove(index);
+        mSliceLiveData.remove(index);
+        if (index >= MAX_NUM_OF_SLICES) {
+            return;
+        }
+        notifyItemRemoved(index);
+        if (getItemCount() == oldCount) {
+            // A Slice over the maximum is now shown.
+            notifyItemInserted(MAX_NUM_OF_SLICES - 1);
+        }
+    }
+
     @NonNull
     @Override
     public SliceRowViewHolder onCreateViewHolder(@NonNull ViewGroup viewGroup, int viewType) {
@@ -116,6 +116,11 @@ public class VolumePanel implements PanelContent, LifecycleObserver {
         return PanelContent.VIEW_TYPE_SLIDER;
     }
 
+    @Override
+    public boolean isProgressiveLoadingEnabled() {
+        return true;
+    }
+
     @Override
     public void registerCallback(PanelContentCallback callback) {
         mCallback = callback;
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.settingslib.search.SearchIndexableData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans a query out to every {@link SearchIndexableData} on a bounded thread pool, and merges
+ * the results in the order of the bundles.
+ *
+ * The whole query is given {@link #QUERY_TIMEOUT_MS}, and the providers which haven't answered
+ * by then are skipped. The time spent in each provider is logged when it is slow.
+ */
+public class SearchIndexableQueryEngine {
+
+    private static final String TAG = "SearchIndexableQuery";
+    private static final int POOL_SIZE =
+            Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 4));
+    private static final long KEEP_ALIVE_SECONDS = 10;
+    @VisibleForTesting
+    static final long QUERY_TIMEOUT_MS = 5000;
+    private static final long SLOW_PROVIDER_THRESHOLD_MS = 100;
+
+    private static SearchIndexableQueryEngine sInstance;
+
+    private final ExecutorService mExecutor;
+    private final long mTimeoutMs;
+
+    /**
+     * A query run against a single {@link SearchIndexableData}.
+     */
+    public interface ProviderQuery<T> {
+        /**
+         * @return the results of {@code bundle}, or {@code null} if it has none.
+         */
+        List<T> query(SearchIndexableData bundle) throws Exception;
+    }
+
+    public static synchronized SearchIndexableQueryEngine getInstance() {
+        if (sInstance == null) {
+            final AtomicInteger count = new AtomicInteger(1);
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }, "SearchIndexableQuery-" + count.getAndIncrement()));
+            executor.allowCoreThreadTimeOut(true);
+            sInstance = new SearchIndexableQueryEngine(executor, QUERY_TIMEOUT_MS);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    SearchIndexableQueryEngine(ExecutorService executor, long timeoutMs) {
+        mExecutor = executor;
+        mTimeoutMs = timeoutMs;
+    }
+
+    /**
+     * Run {@code query} against every bundle in parallel.
+     *
+     * @param queryName name of the query, used for logging.
+     * @return the results of all the bundles, in the iteration order of {@code bundles}.
+     * @throws RuntimeException if a provider fails and {@link
+     *                          SettingsSearchIndexablesProvider#SYSPROP_CRASH_ON_ERROR} is set.
+     */
+    public <T> List<T> query(Collection<SearchIndexableData> bundles, String queryName,
+            ProviderQuery<T> query) {
+        final List<SearchIndexableData> bundleList = new ArrayList<>(bundles);
+        final List<Future<List<T>>> futures = new ArrayList<>(bundleList.size());
+        final long deadline = SystemClock.elapsedRealtime() + mTimeoutMs;
+        for (SearchIndexableData bundle : bundleList) {
+            futures.add(mExecutor.submit(() -> {
+                final long startTime = SystemClock.elapsedRealtime();
+                try {
+                    return query.query(bundle);
+                } finally {
+                    logCost(queryName, bundle, SystemClock.elapsedRealtime() - startTime);
+                }
+            }));
+        }
+
+        final List<T> results = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            final Future<List<T>> future = futures.get(i);
+            final String className = bundleList.get(i).getTargetClass().getName();
+            try {
+                final long waitMs = Math.max(0, deadline - SystemClock.elapsedRealtime());
+                final List<T> providerResults = future.get(waitMs, TimeUnit.MILLISECONDS);
+                if (providerResults != null) {
+                    results.addAll(providerResults);
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true /* mayInterruptIfRunning */);
+                Log.e(TAG, queryName + " timed out in " + className);
+            } catch (InterruptedException e) {
+                Log.w(TAG, queryName + " interrupted", e);
+                Thread.currentThread().interrupt();
+                cancelAll(futures);
+                break;
+            } catch (ExecutionException e) {
+                // Catch a generic crash so that a crash in a specific provider doesn't lose the
+                // results of all the others. We crash when the system property exists so that
+                // we can still find specific crashes in development.
+                if (System.getProperty(SettingsSearchIndexablesProvider.SYSPROP_CRASH_ON_ERROR)
+                        != null) {
+                    cancelAll(futures);
+                    throw new RuntimeException(e.getCause());
+                }
+                Log.e(TAG, "Error trying to run " + queryName + " from: " + className,
+                        e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private static void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true /* mayInterruptIfRunning */);
+        }
+    }
+
+    private static void logCost(String queryName, SearchIndexableData bundle, long elapsedMs) {
+        if (elapsedMs > SLOW_PROVIDER_THRESHOLD_MS) {
+            Log.w(TAG, queryName + " took " + elapsedMs + " ms in "
+                    + bundle.getTargetClass().getName());
+        } else if (SettingsSearchIndexablesProvider.DEBUG) {
+            Log.d(TAG, queryName + " took " + elapsedMs + " ms in "
+                    + bundle.getTargetClass().getName());
+        }
+    }
+}
@@ -256,35 +256,12 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
-        final List<String> nonIndexableKeys = new ArrayList<>();
-
-        for (SearchIndexableData bundle : bundles) {
-            final long startTime = System.currentTimeMillis();
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-            List<String> providerNonIndexableKeys;
-            try {
-                providerNonIndexableKeys = provider.getNonIndexableKeys(context);
-            } catch (Exception e) {
-                // Catch a generic crash. In the absence of the catch, the background thread will
-                // silently fail anyway, so we aren't losing information by catching the exception.
-                // We crash when the system property exists so that we can test if crashes need to
-                // be fixed.
-                // The gain is that if there is a crash in a specific controller, we don't lose all
-                // non-indexable keys, but we can still find specific crashes in development.
-                if (System.getProperty(SYSPROP_CRASH_ON_ERROR) != null) {
-                    throw new RuntimeException(e);
-                }
-                Log.e(TAG, "Error trying to get non-indexable keys from: "
-                        + bundle.getTargetClass().getName(), e);
-                continue;
-            }
+        return getQueryEngine().query(bundles, "getNonIndexableKeys", bundle -> {
+            final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+            final List<String> providerNonIndexableKeys = provider.getNonIndexableKeys(context);
 
             if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
-                if (DEBUG) {
-                    final long totalTime = System.currentTimeMillis() - startTime;
-                    Log.d(TAG, "No indexable, total time " + totalTime);
-                }
-                continue;
+                return null;
             }
 
             if (providerNonIndexableKeys.removeAll(INVALID_KEYS)) {
@@ -292,29 +269,23 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
             }
 
             if (DEBUG) {
-                final long totalTime = System.currentTimeMillis() - startTime;
-                Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size() + ", total time "
-                        + totalTime);
+                Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size());
             }
-
-            nonIndexableKeys.addAll(providerNonIndexableKeys);
-        }
-
-        return nonIndexableKeys;
+            return providerNonIndexableKeys;
+        });
     }
 
     private List<SearchIndexableResource> getSearchIndexableResourcesFromProvider(Context context) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
-        List<SearchIndexableResource> resourceList = new ArrayList<>();
 
-        for (SearchIndexableData bundle : bundles) {
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        return getQueryEngine().query(bundles, "getXmlResourcesToIndex", bundle -> {
+            final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
             final List<SearchIndexableResource> resList =
                     provider.getXmlResourcesToIndex(context, true);
 
             if (resList == null) {
-                continue;
+                return null;
             }
 
             for (SearchIndexableResource item : resList) {
@@ -322,25 +293,21 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                         ? bundle.getTargetClass().getName()
                         : item.className;
             }
-
-            resourceList.addAll(resList);
-        }
-
-        return resourceList;
+            return resList;
+        });
     }
 
     private List<SearchIndexableRaw> getSearchIndexableRawFromProvider(Context context) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
-        final List<SearchIndexableRaw> rawList = new ArrayList<>();
 
-        for (SearchIndexableData bundle : bundles) {
-            Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        return getQueryEngine().query(bundles, "getRawDataToIndex", bundle -> {
+            final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
             final List<SearchIndexableRaw> providerRaws = provider.getRawDataToIndex(context,
                     true /* enabled */);
 
             if (providerRaws == null) {
-                continue;
+                return null;
             }
 
             for (SearchIndexableRaw raw : providerRaws) {
@@ -349,24 +316,21 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                 raw.className = bundle.getTargetClass().getName();
 
             }
-            rawList.addAll(providerRaws);
-        }
-
-        return rawList;
+            return providerRaws;
+        });
     }
 
     private List<SearchIndexableRaw> getDynamicSearchIndexableRawFromProvider(Context context) {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
-        final List<SearchIndexableRaw> rawList = new ArrayList<>();
 
-        for (SearchIndexableData bundle : bundles) {
+        return getQueryEngine().query(bundles, "getDynamicRawDataToIndex", bundle -> {
             final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
             final List<SearchIndexableRaw> providerRaws =
                     provider.getDynamicRawDataToIndex(context, true /* enabled */);
 
             if (providerRaws == null) {
-                continue;
+                return null;
             }
 
             for (SearchIndexableRaw raw : providerRaws) {
@@ -375,10 +339,13 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
                 raw.className = bundle.getTargetClass().getName();
 
             }
-            rawList.addAll(providerRaws);
-        }
+            return providerRaws;
+        });
+    }
 
-        return rawList;
+    @VisibleForTesting
+    SearchIndexableQueryEngine getQueryEngine() {
+        return SearchIndexableQueryEngine.getInstance();
     }
 
     private List<SearchIndexableRaw> getInjectionIndexableRawData(Context context) {
@@ -46,6 +46,7 @@ import androidx.slice.SliceProvider;
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.bluetooth.BluetoothSliceBuilder;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.notification.VolumeSeekBarPreferenceController;
 import com.android.settings.notification.zen.ZenModeSliceBuilder;
@@ -414,7 +415,8 @@ public class SettingsSliceProvider extends SliceProvider {
 
     @VisibleForTesting
     void loadSliceInBackground(Uri uri) {
-        ThreadUtils.postOnBackgroundThread(() -> loadSlice(uri));
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_UI_CRITICAL,
+                () -> loadSlice(uri));
     }
 
     @VisibleForTesting
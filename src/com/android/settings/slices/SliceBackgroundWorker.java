@@ -29,13 +29,22 @@ import android.os.SystemClock;
 import android.util.ArrayMap;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The Slice background worker is used to make Settings Slices be able to work with data that is
@@ -48,7 +57,9 @@ import java.util.Map;
  * {@link SliceBackgroundWorker} caches the results, uses the cache to compare if there is any data
  * changed, and then notifies the Slice {@link Uri} to update.
  *
- * It also stores all instances of all workers to ensure each worker is a Singleton.
+ * It also stores all instances of all workers to ensure each worker is a Singleton. Workers which
+ * are no longer pinned are kept around for reuse, up to {@link #MAX_IDLE_WORKERS}, after which the
+ * least recently used ones are closed.
  */
 public abstract class SliceBackgroundWorker<E> implements Closeable {
 
@@ -56,12 +67,26 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
 
     private static final long SLICE_UPDATE_THROTTLE_INTERVAL = 300L;
 
-    private static final Map<Uri, SliceBackgroundWorker> LIVE_WORKERS = new ArrayMap<>();
+    @VisibleForTesting
+    static final int MAX_IDLE_WORKERS = 8;
+
+    // In access order, guarded by itself.
+    private static final Map<Uri, SliceBackgroundWorker> LIVE_WORKERS =
+            new LinkedHashMap<>(16 /* initialCapacity */, 0.75f /* loadFactor */,
+                    true /* accessOrder */);
+
+    private static final Map<Class<? extends SliceBackgroundWorker>,
+            Constructor<? extends SliceBackgroundWorker>> CONSTRUCTORS = new ArrayMap<>();
+
+    private static final AtomicLong sPinCount = new AtomicLong();
+    private static final AtomicLong sEvictionCount = new AtomicLong();
+    private static final AtomicLong sSuppressedNotificationCount = new AtomicLong();
 
     private final Context mContext;
     private final Uri mUri;
 
     private List<E> mCachedResults;
+    private boolean mPinned;
 
     protected SliceBackgroundWorker(Context context, Uri uri) {
         mContext = context;
@@ -83,7 +108,9 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     @Nullable
     @SuppressWarnings("TypeParameterUnusedInFormals")
     public static <T extends SliceBackgroundWorker> T getInstance(Uri uri) {
-        return (T) LIVE_WORKERS.get(uri);
+        synchronized (LIVE_WORKERS) {
+            return (T) LIVE_WORKERS.get(uri);
+        }
     }
 
     /**
@@ -96,7 +123,9 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
             final Class<? extends SliceBackgroundWorker> workerClass =
                     sliceable.getBackgroundWorkerClass();
             worker = createInstance(context.getApplicationContext(), uri, workerClass);
-            LIVE_WORKERS.put(uri, worker);
+            synchronized (LIVE_WORKERS) {
+                LIVE_WORKERS.put(uri, worker);
+            }
         }
         return worker;
     }
@@ -105,7 +134,7 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
             Class<? extends SliceBackgroundWorker> clazz) {
         Log.d(TAG, "create instance: " + clazz);
         try {
-            return clazz.getConstructor(Context.class, Uri.class).newInstance(context, uri);
+            return getConstructor(clazz).newInstance(context, uri);
         } catch (NoSuchMethodException | IllegalAccessException | InstantiationException |
                 InvocationTargetException e) {
             throw new IllegalStateException(
@@ -113,15 +142,105 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
         }
     }
 
+    private static Constructor<? extends SliceBackgroundWorker> getConstructor(
+            Class<? extends SliceBackgroundWorker> clazz) throws NoSuchMethodException {
+        synchronized (CONSTRUCTORS) {
+            Constructor<? extends SliceBackgroundWorker> constructor = CONSTRUCTORS.get(clazz);
+            if (constructor == null) {
+                constructor = clazz.getConstructor(Context.class, Uri.class);
+                CONSTRUCTORS.put(clazz, constructor);
+            }
+            return constructor;
+        }
+    }
+
     static void shutdown() {
-        for (SliceBackgroundWorker worker : LIVE_WORKERS.values()) {
-            try {
-                worker.close();
-            } catch (IOException e) {
-                Log.w(TAG, "Shutting down worker failed", e);
+        final List<SliceBackgroundWorker> workers;
+        synchronized (LIVE_WORKERS) {
+            workers = new ArrayList<>(LIVE_WORKERS.values());
+            LIVE_WORKERS.clear();
+        }
+        for (SliceBackgroundWorker worker : workers) {
+            closeWorker(worker);
+        }
+        Log.d(TAG, "Shut down, pins: " + sPinCount.get() + ", evictions: " + sEvictionCount.get()
+                + ", suppressed notifications: " + sSuppressedNotificationCount.get());
+    }
+
+    /**
+     * Close the least recently used workers which are not pinned, so that at most
+     * {@link #MAX_IDLE_WORKERS} of them are kept.
+     */
+    @MainThread
+    private static void evictIdleWorkers() {
+        final List<SliceBackgroundWorker> evicted = new ArrayList<>();
+        synchronized (LIVE_WORKERS) {
+            int idleCount = 0;
+            for (SliceBackgroundWorker worker : LIVE_WORKERS.values()) {
+                if (!worker.mPinned) {
+                    idleCount++;
+                }
+            }
+            // Iterates from the least recently used.
+            final Iterator<SliceBackgroundWorker> iterator = LIVE_WORKERS.values().iterator();
+            while (idleCount > MAX_IDLE_WORKERS && iterator.hasNext()) {
+                final SliceBackgroundWorker worker = iterator.next();
+                if (!worker.mPinned) {
+                    iterator.remove();
+                    evicted.add(worker);
+                    idleCount--;
+                }
             }
         }
-        LIVE_WORKERS.clear();
+        for (SliceBackgroundWorker worker : evicted) {
+            Log.d(TAG, "Evicting idle worker: " + worker.getUri());
+            sEvictionCount.incrementAndGet();
+            closeWorker(worker);
+        }
+    }
+
+    private static void closeWorker(SliceBackgroundWorker worker) {
+        try {
+            worker.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Shutting down worker failed", e);
+        }
+    }
+
+    /**
+     * @return the number of times a worker was pinned.
+     */
+    static long getPinCount() {
+        return sPinCount.get();
+    }
+
+    /**
+     * @return the number of idle workers closed to stay within {@link #MAX_IDLE_WORKERS}.
+     */
+    static long getEvictionCount() {
+        return sEvictionCount.get();
+    }
+
+    /**
+     * @return the number of slice change notifications merged into an already pending one.
+     */
+    static long getSuppressedNotificationCount() {
+        return sSuppressedNotificationCount.get();
+    }
+
+    /**
+     * @return the pin, eviction and suppressed notification counts, and the number of live
+     * workers.
+     */
+    public static JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("pins", sPinCount.get());
+        obj.put("evictions", sEvictionCount.get());
+        obj.put("suppressed_notifications", sSuppressedNotificationCount.get());
+        synchronized (LIVE_WORKERS) {
+            obj.put("live_workers", LIVE_WORKERS.size());
+        }
+        return obj;
     }
 
     /**
@@ -177,12 +296,16 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     }
 
     void pin() {
+        mPinned = true;
+        sPinCount.incrementAndGet();
         onSlicePinned();
     }
 
     void unpin() {
         onSliceUnpinned();
+        mPinned = false;
         NotifySliceChangeHandler.getInstance().cancelSliceUpdate(this);
+        evictIdleWorkers();
     }
 
     private static class NotifySliceChangeHandler extends Handler {
@@ -191,10 +314,9 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
 
         private static NotifySliceChangeHandler sHandler;
 
-        private final Map<Uri, Long> mLastUpdateTimeLookup = Collections.synchronizedMap(
-                new ArrayMap<>());
+        private final Map<Uri, Long> mLastUpdateTimeLookup = new ConcurrentHashMap<>();
 
-        private static NotifySliceChangeHandler getInstance() {
+        private static synchronized NotifySliceChangeHandler getInstance() {
             if (sHandler == null) {
                 final HandlerThread workerThread = new HandlerThread("NotifySliceChangeHandler",
                         Process.THREAD_PRIORITY_BACKGROUND);
@@ -223,6 +345,7 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
 
         private void updateSlice(SliceBackgroundWorker worker) {
             if (hasMessages(MSG_UPDATE_SLICE, worker)) {
+                sSuppressedNotificationCount.incrementAndGet();
                 return;
             }
 
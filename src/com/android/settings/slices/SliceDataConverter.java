@@ -34,6 +34,7 @@ import android.content.pm.ServiceInfo;
 import android.content.res.Resources;
 import android.content.res.XmlResourceParser;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.provider.SearchIndexableResource;
 import android.provider.SettingsSlicesContract;
@@ -61,12 +62,15 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.zip.CRC32;
 
 /**
  * Converts all Slice sources into {@link SliceData}.
@@ -101,6 +105,23 @@ class SliceDataConverter {
     public List<SliceData> getSliceData() {
         List<SliceData> sliceData = new ArrayList<>();
 
+        for (SliceSource source : getSliceSources()) {
+            sliceData.addAll(getSliceData(source));
+        }
+
+        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
+        sliceData.addAll(a11ySliceData);
+        return sliceData;
+    }
+
+    /**
+     * @return the {@link SliceSource} of every fragment indexed by settings search, along with
+     * the fingerprint of its XML resources. Nothing is converted until
+     * {@link #getSliceData(SliceSource)} is called.
+     */
+    public List<SliceSource> getSliceSources() {
+        final List<SliceSource> sources = new ArrayList<>();
+
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(mContext)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
@@ -115,43 +136,96 @@ class SliceDataConverter {
                 continue;
             }
 
-            final List<SliceData> providerSliceData = getSliceDataFromProvider(provider,
-                    fragmentName);
-            sliceData.addAll(providerSliceData);
+            final List<SearchIndexableResource> resList =
+                    provider.getXmlResourcesToIndex(mContext, true /* enabled */);
+            sources.add(new SliceSource(fragmentName, resList,
+                    getFingerprint(resList)));
         }
-
-        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
-        sliceData.addAll(a11ySliceData);
-        return sliceData;
+        return sources;
     }
 
-    private List<SliceData> getSliceDataFromProvider(SearchIndexProvider provider,
-            String fragmentName) {
+    /**
+     * @return the list of {@link SliceData} converted from the XML resources of {@code source}.
+     */
+    public List<SliceData> getSliceData(SliceSource source) {
         final List<SliceData> sliceData = new ArrayList<>();
-
-        final List<SearchIndexableResource> resList =
-                provider.getXmlResourcesToIndex(mContext, true /* enabled */);
-
-        if (resList == null) {
+        if (source.mResources == null) {
             return sliceData;
         }
 
         // TODO (b/67996923) get a list of permanent NIKs and skip the invalid keys.
 
-        for (SearchIndexableResource resource : resList) {
+        for (SearchIndexableResource resource : source.mResources) {
             int xmlResId = resource.xmlResId;
             if (xmlResId == 0) {
-                Log.e(TAG, fragmentName + " provides invalid XML (0) in search provider.");
+                Log.e(TAG, source.mName + " provides invalid XML (0) in search provider.");
                 continue;
             }
 
-            List<SliceData> xmlSliceData = getSliceDataFromXML(xmlResId, fragmentName);
+            List<SliceData> xmlSliceData = getSliceDataFromXML(xmlResId, source.mName);
             sliceData.addAll(xmlSliceData);
         }
 
         return sliceData;
     }
 
+    /**
+     * Computes a fingerprint of the content of the XML resources of a source and the locale.
+     * Every tag and attribute is checksummed, with string references resolved to their localized
+     * text, so a source keeps its fingerprint across builds which don't change its resources.
+     */
+    @VisibleForTesting
+    String getFingerprint(List<SearchIndexableResource> resList) {
+        final CRC32 crc = new CRC32();
+        updateChecksum(crc, Locale.getDefault().toString());
+        if (resList != null) {
+            for (SearchIndexableResource resource : resList) {
+                updateChecksum(crc, resource.xmlResId);
+            }
+        }
+        return Long.toHexString(crc.getValue());
+    }
+
+    private void updateChecksum(CRC32 crc, int xmlResId) {
+        if (xmlResId == 0) {
+            return;
+        }
+        final Resources res = mContext.getResources();
+        try (XmlResourceParser parser = res.getXml(xmlResId)) {
+            int type;
+            while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (type == XmlPullParser.END_TAG) {
+                    crc.update('/');
+                    continue;
+                } else if (type != XmlPullParser.START_TAG) {
+                    continue;
+                }
+                updateChecksum(crc, parser.getName());
+                for (int i = 0; i < parser.getAttributeCount(); i++) {
+                    updateChecksum(crc, parser.getAttributeName(i));
+                    // Only the text of strings is indexed, other references are stored as ids.
+                    final int resId = parser.getAttributeResourceValue(i, 0 /* defaultValue */);
+                    if (resId != 0 && "string".equals(res.getResourceTypeName(resId))) {
+                        updateChecksum(crc, res.getText(resId).toString());
+                    } else {
+                        updateChecksum(crc, parser.getAttributeValue(i));
+                    }
+                }
+            }
+        } catch (XmlPullParserException | IOException | Resources.NotFoundException e) {
+            // Converting the source logs the error, keep the fingerprint unique to this build.
+            Log.w(TAG, "Error reading PreferenceScreen " + xmlResId, e);
+            updateChecksum(crc, Build.FINGERPRINT);
+        }
+    }
+
+    private static void updateChecksum(CRC32 crc, String value) {
+        if (value != null) {
+            crc.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        crc.update(0);
+    }
+
     private List<SliceData> getSliceDataFromXML(int xmlResId, String fragmentName) {
         XmlResourceParser parser = null;
 
@@ -257,7 +331,11 @@ class SliceDataConverter {
         return xmlSliceData;
     }
 
-    private List<SliceData> getAccessibilitySliceData() {
+    /**
+     * @return the list of {@link SliceData} of the installed accessibility services. These are
+     * not backed by XML and are always converted.
+     */
+    public List<SliceData> getAccessibilitySliceData() {
         final List<SliceData> sliceData = new ArrayList<>();
 
         final String accessibilityControllerClassName =
@@ -319,4 +397,28 @@ class SliceDataConverter {
                 mContext);
         return accessibilityManager.getInstalledAccessibilityServiceList();
     }
+
+    /**
+     * A fragment whose XML resources are converted into slices, and indexed as a whole.
+     */
+    static class SliceSource {
+        private final String mName;
+        private final List<SearchIndexableResource> mResources;
+        private final String mFingerprint;
+
+        @VisibleForTesting
+        SliceSource(String name, List<SearchIndexableResource> resources, String fingerprint) {
+            mName = name;
+            mResources = resources;
+            mFingerprint = fingerprint;
+        }
+
+        String getName() {
+            return mName;
+        }
+
+        String getFingerprint() {
+            return mFingerprint;
+        }
+    }
 }
\ No newline at end of file
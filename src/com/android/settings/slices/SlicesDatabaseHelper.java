@@ -36,10 +36,11 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "slices_index.db";
     private static final String SHARED_PREFS_TAG = "slices_shared_prefs";
 
-    private static final int DATABASE_VERSION = 8;
+    private static final int DATABASE_VERSION = 9;
 
     public interface Tables {
         String TABLE_SLICES_INDEX = "slices_index";
+        String TABLE_SLICES_SOURCES = "slices_sources";
     }
 
     public interface IndexColumns {
@@ -105,6 +106,28 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
         String PUBLIC_SLICE = "public_slice";
     }
 
+    public interface SourceColumns {
+        /**
+         * Primary key of the table. Name of the source of a group of slices, i.e. the class name
+         * of the fragment whose XML resources were converted.
+         */
+        String SOURCE = "source";
+
+        /**
+         * Fingerprint of the content of the source when its slices were indexed.
+         */
+        String FINGERPRINT = "fingerprint";
+    }
+
+    private static final String CREATE_SOURCES_TABLE =
+            "CREATE TABLE " + Tables.TABLE_SLICES_SOURCES +
+                    "(" +
+                    SourceColumns.SOURCE +
+                    " TEXT PRIMARY KEY, " +
+                    SourceColumns.FINGERPRINT +
+                    " TEXT" +
+                    ");";
+
     private static final String CREATE_SLICES_TABLE =
             "CREATE VIRTUAL TABLE " + Tables.TABLE_SLICES_INDEX + " USING fts4" +
                     "(" +
@@ -182,11 +205,18 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
 
     /**
      * Marks the current state of the device for the validity of the data. Should be called after
-     * a full index of the TABLE_SLICES_INDEX.
+     * an index of the TABLE_SLICES_INDEX.
+     * <p>
+     * The index only holds the data of one build and locale, so the state of any other build or
+     * locale is cleared.
      */
     public void setIndexedState() {
-        setBuildIndexed();
-        setLocaleIndexed();
+        mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
+                .edit()
+                .clear()
+                .putBoolean(getBuildTag(), true /* value */)
+                .putBoolean(Locale.getDefault().toString(), true /* value */)
+                .apply();
     }
 
     /**
@@ -200,25 +230,13 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
 
     private void createDatabases(SQLiteDatabase db) {
         db.execSQL(CREATE_SLICES_TABLE);
+        db.execSQL(CREATE_SOURCES_TABLE);
         Log.d(TAG, "Created databases");
     }
 
     private void dropTables(SQLiteDatabase db) {
         db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SLICES_INDEX);
-    }
-
-    private void setBuildIndexed() {
-        mContext.getSharedPreferences(SHARED_PREFS_TAG, 0 /* mode */)
-                .edit()
-                .putBoolean(getBuildTag(), true /* value */)
-                .apply();
-    }
-
-    private void setLocaleIndexed() {
-        mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE)
-                .edit()
-                .putBoolean(Locale.getDefault().toString(), true /* value */)
-                .apply();
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SLICES_SOURCES);
     }
 
     private boolean isBuildIndexed() {
@@ -20,9 +20,9 @@ import android.content.Context;
 import android.net.Uri;
 import android.os.SystemClock;
 
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.network.telephony.Enhanced4gLteSliceHelper;
 import com.android.settings.wifi.calling.WifiCallingSliceHelper;
-import com.android.settingslib.utils.ThreadUtils;
 
 /**
  * Manages Slices in Settings.
@@ -54,7 +54,7 @@ public class SlicesFeatureProviderImpl implements SlicesFeatureProvider {
     @Override
     public void indexSliceDataAsync(Context context) {
         SlicesIndexer indexer = getSliceIndexer(context);
-        ThreadUtils.postOnBackgroundThread(indexer);
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_MAINTENANCE, indexer);
     }
 
     @Override
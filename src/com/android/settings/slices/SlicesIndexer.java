@@ -18,18 +18,25 @@ package com.android.settings.slices;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.accessibility.AccessibilitySlicePreferenceController;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
+import com.android.settings.slices.SlicesDatabaseHelper.SourceColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages the conversion of {@link DashboardFragment} and {@link BasePreferenceController} to
@@ -39,6 +46,22 @@ class SlicesIndexer implements Runnable {
 
     private static final String TAG = "SlicesIndexer";
 
+    private static final String INSERT_SLICE_SQL = "INSERT OR REPLACE INTO "
+            + Tables.TABLE_SLICES_INDEX + " ("
+            + IndexColumns.KEY + ", "
+            + IndexColumns.SLICE_URI + ", "
+            + IndexColumns.TITLE + ", "
+            + IndexColumns.SUMMARY + ", "
+            + IndexColumns.SCREENTITLE + ", "
+            + IndexColumns.KEYWORDS + ", "
+            + IndexColumns.ICON_RESOURCE + ", "
+            + IndexColumns.FRAGMENT + ", "
+            + IndexColumns.CONTROLLER + ", "
+            + IndexColumns.SLICE_TYPE + ", "
+            + IndexColumns.UNAVAILABLE_SLICE_SUBTITLE + ", "
+            + IndexColumns.PUBLIC_SLICE
+            + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private Context mContext;
 
     private SlicesDatabaseHelper mHelper;
@@ -58,7 +81,10 @@ class SlicesIndexer implements Runnable {
 
     /**
      * Synchronously takes data obtained from {@link SliceDataConverter} and indexes it into a
-     * SQLite database
+     * SQLite database.
+     *
+     * Only the {@link SliceDataConverter.SliceSource sources} whose fingerprint changed since the
+     * last index are converted and rewritten. The accessibility slices are always rewritten.
      */
     protected void indexSliceData() {
         if (mHelper.isSliceDataIndexed()) {
@@ -69,17 +95,42 @@ class SlicesIndexer implements Runnable {
         final SQLiteDatabase database = mHelper.getWritableDatabase();
 
         long startTime = System.currentTimeMillis();
+        int updatedSources = 0;
         database.beginTransaction();
-        try {
-            mHelper.reconstruct(database);
-            List<SliceData> indexData = getSliceData();
-            insertSliceData(database, indexData);
+        try (SQLiteStatement insertStatement = database.compileStatement(INSERT_SLICE_SQL)) {
+            final Map<String, String> indexedFingerprints = getIndexedFingerprints(database);
+            for (SliceDataConverter.SliceSource source : getSliceSources()) {
+                final String name = source.getName();
+                final String fingerprint = source.getFingerprint();
+                if (TextUtils.equals(indexedFingerprints.remove(name), fingerprint)) {
+                    continue;
+                }
+                deleteSource(database, name);
+                insertSliceData(insertStatement, getSliceData(source));
+                final ContentValues values = new ContentValues();
+                values.put(SourceColumns.SOURCE, name);
+                values.put(SourceColumns.FINGERPRINT, fingerprint);
+                database.replaceOrThrow(Tables.TABLE_SLICES_SOURCES,
+                        null /* nullColumnHack */, values);
+                updatedSources++;
+            }
+
+            // Sources left over are not indexable anymore.
+            for (String name : indexedFingerprints.keySet()) {
+                deleteSource(database, name);
+                database.delete(Tables.TABLE_SLICES_SOURCES, SourceColumns.SOURCE + " = ?",
+                        new String[]{name});
+            }
+
+            database.delete(Tables.TABLE_SLICES_INDEX, IndexColumns.CONTROLLER + " = ?",
+                    new String[]{AccessibilitySlicePreferenceController.class.getName()});
+            insertSliceData(insertStatement, getAccessibilitySliceData());
 
             mHelper.setIndexedState();
 
             // TODO (b/71503044) Log indexing time.
-            Log.d(TAG,
-                    "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
+            Log.d(TAG, "Indexing " + updatedSources + " slice sources took: "
+                    + (System.currentTimeMillis() - startTime));
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
@@ -87,38 +138,70 @@ class SlicesIndexer implements Runnable {
     }
 
     @VisibleForTesting
-    List<SliceData> getSliceData() {
-        return FeatureFactory.getFactory(mContext)
-                .getSlicesFeatureProvider()
-                .getSliceDataConverter(mContext)
-                .getSliceData();
+    List<SliceDataConverter.SliceSource> getSliceSources() {
+        return getSliceDataConverter().getSliceSources();
     }
 
     @VisibleForTesting
-    void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
-        ContentValues values;
+    List<SliceData> getSliceData(SliceDataConverter.SliceSource source) {
+        return getSliceDataConverter().getSliceData(source);
+    }
+
+    @VisibleForTesting
+    List<SliceData> getAccessibilitySliceData() {
+        return getSliceDataConverter().getAccessibilitySliceData();
+    }
 
+    @VisibleForTesting
+    void insertSliceData(SQLiteStatement statement, List<SliceData> indexData) {
         for (SliceData dataRow : indexData) {
-            values = new ContentValues();
-            values.put(IndexColumns.KEY, dataRow.getKey());
-            values.put(IndexColumns.SLICE_URI, dataRow.getUri().toSafeString());
-            values.put(IndexColumns.TITLE, dataRow.getTitle());
-            values.put(IndexColumns.SUMMARY, dataRow.getSummary());
+            statement.clearBindings();
+            bindString(statement, 1, dataRow.getKey());
+            bindString(statement, 2, dataRow.getUri().toSafeString());
+            bindString(statement, 3, dataRow.getTitle());
+            bindString(statement, 4, dataRow.getSummary());
             final CharSequence screenTitle = dataRow.getScreenTitle();
             if (screenTitle != null) {
-                values.put(IndexColumns.SCREENTITLE, screenTitle.toString());
+                statement.bindString(5, screenTitle.toString());
             }
-            values.put(IndexColumns.KEYWORDS, dataRow.getKeywords());
-            values.put(IndexColumns.ICON_RESOURCE, dataRow.getIconResource());
-            values.put(IndexColumns.FRAGMENT, dataRow.getFragmentClassName());
-            values.put(IndexColumns.CONTROLLER, dataRow.getPreferenceController());
-            values.put(IndexColumns.SLICE_TYPE, dataRow.getSliceType());
-            values.put(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
-                    dataRow.getUnavailableSliceSubtitle());
-            values.put(IndexColumns.PUBLIC_SLICE, dataRow.isPublicSlice());
-
-            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX, null /* nullColumnHack */,
-                    values);
+            bindString(statement, 6, dataRow.getKeywords());
+            statement.bindLong(7, dataRow.getIconResource());
+            bindString(statement, 8, dataRow.getFragmentClassName());
+            bindString(statement, 9, dataRow.getPreferenceController());
+            statement.bindLong(10, dataRow.getSliceType());
+            bindString(statement, 11, dataRow.getUnavailableSliceSubtitle());
+            statement.bindLong(12, dataRow.isPublicSlice() ? 1 : 0);
+            statement.executeInsert();
+        }
+    }
+
+    private SliceDataConverter getSliceDataConverter() {
+        return FeatureFactory.getFactory(mContext)
+                .getSlicesFeatureProvider()
+                .getSliceDataConverter(mContext);
+    }
+
+    private Map<String, String> getIndexedFingerprints(SQLiteDatabase database) {
+        final Map<String, String> fingerprints = new ArrayMap<>();
+        try (Cursor cursor = database.query(Tables.TABLE_SLICES_SOURCES,
+                new String[]{SourceColumns.SOURCE, SourceColumns.FINGERPRINT},
+                null /* selection */, null /* selectionArgs */, null /* groupBy */,
+                null /* having */, null /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                fingerprints.put(cursor.getString(0), cursor.getString(1));
+            }
+        }
+        return fingerprints;
+    }
+
+    private void deleteSource(SQLiteDatabase database, String name) {
+        database.delete(Tables.TABLE_SLICES_INDEX, IndexColumns.FRAGMENT + " = ?",
+                new String[]{name});
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
         }
     }
-}
\ No newline at end of file
+}
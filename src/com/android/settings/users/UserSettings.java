@@ -63,6 +63,7 @@ import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.Utils;
+import com.android.settings.core.BackgroundScheduler;
 import com.android.settings.core.SubSettingLauncher;
 import com.android.settings.password.ChooseLockGeneric;
 import com.android.settings.search.BaseSearchIndexProvider;
@@ -73,7 +74,6 @@ import com.android.settingslib.RestrictedLockUtilsInternal;
 import com.android.settingslib.RestrictedPreference;
 import com.android.settingslib.drawable.CircleFramedDrawable;
 import com.android.settingslib.search.SearchIndexable;
-import com.android.settingslib.utils.ThreadUtils;
 
 import com.google.android.setupcompat.util.WizardManagerHelper;
 
@@ -615,13 +615,14 @@ public class UserSettings extends SettingsPreferenceFragment
                         new EditUserInfoController.OnContentChangedCallback() {
                             @Override
                             public void onPhotoChanged(UserHandle user, Drawable photo) {
-                                ThreadUtils.postOnBackgroundThread(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        mUserManager.setUserIcon(user.getIdentifier(),
-                                                UserIcons.convertToBitmap(photo));
-                                    }
-                                });
+                                BackgroundScheduler.getInstance().submit(
+                                        BackgroundScheduler.LANE_MAINTENANCE, new Runnable() {
+                                            @Override
+                                            public void run() {
+                                                mUserManager.setUserIcon(user.getIdentifier(),
+                                                        UserIcons.convertToBitmap(photo));
+                                            }
+                                        });
                                 mMePreference.setIcon(photo);
                             }
 
@@ -725,15 +726,16 @@ public class UserSettings extends SettingsPreferenceFragment
         if (mRemovingUserId == UserHandle.myUserId()) {
             removeThisUser();
         } else {
-            ThreadUtils.postOnBackgroundThread(new Runnable() {
-                @Override
-                public void run() {
-                    synchronized (mUserLock) {
-                        mUserManager.removeUser(mRemovingUserId);
-                        mHandler.sendEmptyMessage(MESSAGE_UPDATE_LIST);
-                    }
-                }
-            });
+            BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH,
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            synchronized (mUserLock) {
+                                mUserManager.removeUser(mRemovingUserId);
+                                mHandler.sendEmptyMessage(MESSAGE_UPDATE_LIST);
+                            }
+                        }
+                    });
         }
     }
 
@@ -759,7 +761,7 @@ public class UserSettings extends SettingsPreferenceFragment
                     : (mPendingUserName != null ? mPendingUserName.toString()
                             : getString(R.string.user_new_profile_name));
         }
-        ThreadUtils.postOnBackgroundThread(new Runnable() {
+        BackgroundScheduler.getInstance().submit(BackgroundScheduler.LANE_PREFETCH, new Runnable() {
             @Override
             public void run() {
                 UserInfo user;
@@ -40,6 +40,8 @@ import androidx.annotation.VisibleForTesting;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settingslib.R;
 
+import java.util.Arrays;
+
 public class UsageGraph extends View {
 
     private static final int PATH_DELIM = -1;
@@ -53,17 +55,26 @@ public class UsageGraph extends View {
     private final Drawable mTintedDivider;
     private final int mDividerSize;
 
-    private final Path mPath = new Path();
-
     // Paths in coordinates they are passed in.
     private final SparseIntArray mPaths = new SparseIntArray();
     // Paths in local coordinates for drawing.
-    private final SparseIntArray mLocalPaths = new SparseIntArray();
+    @VisibleForTesting
+    final PointBuffer mLocalPaths = new PointBuffer();
 
     // Paths for projection in coordinates they are passed in.
     private final SparseIntArray mProjectedPaths = new SparseIntArray();
     // Paths for projection in local coordinates for drawing.
-    private final SparseIntArray mLocalProjectedPaths = new SparseIntArray();
+    @VisibleForTesting
+    final PointBuffer mLocalProjectedPaths = new PointBuffer();
+
+    // Paths built from the local paths, kept across draws. They are extended when a path is
+    // appended, and rebuilt when the local paths are recalculated.
+    private final Path mLinePath = new Path();
+    private final Path mFillPath = new Path();
+    private final Path mProjectedLinePath = new Path();
+    // Number of local points already added to the built paths, or -1 to rebuild them.
+    private int mBuiltSize = -1;
+    private int mBuiltProjectedSize = -1;
 
     private final int mCornerRadius;
     private int mAccentColor;
@@ -111,6 +122,7 @@ public class UsageGraph extends View {
         mLocalPaths.clear();
         mProjectedPaths.clear();
         mLocalProjectedPaths.clear();
+        invalidateBuiltPaths();
     }
 
     void setMax(int maxX, int maxY) {
@@ -140,14 +152,22 @@ public class UsageGraph extends View {
     }
 
     private void addPathAndUpdate(
-            SparseIntArray points, SparseIntArray paths, SparseIntArray localPaths) {
+            SparseIntArray points, SparseIntArray paths, PointBuffer localPaths) {
         final long startTime = System.currentTimeMillis();
+        final int oldSize = paths.size();
+        // When the new points all come after the existing ones, only they need to be converted.
+        final boolean isAppend = oldSize == 0 || points.keyAt(0) > paths.keyAt(oldSize - 1);
         for (int i = 0, size = points.size(); i < size; i++) {
-            paths.put(points.keyAt(i), points.valueAt(i));
+            paths.append(points.keyAt(i), points.valueAt(i));
         }
         // Add a delimiting value immediately after the last point.
-        paths.put(points.keyAt(points.size() - 1) + 1, PATH_DELIM);
-        calculateLocalPaths(paths, localPaths);
+        paths.append(points.keyAt(points.size() - 1) + 1, PATH_DELIM);
+        if (isAppend) {
+            calculateLocalPaths(paths, localPaths, oldSize);
+        } else {
+            calculateLocalPaths(paths, localPaths);
+            invalidateBuiltPaths();
+        }
         postInvalidate();
         BatteryUtils.logRuntime(LOG_TAG, "addPathAndUpdate", startTime);
     }
@@ -171,52 +191,76 @@ public class UsageGraph extends View {
     private void calculateLocalPaths() {
         calculateLocalPaths(mPaths, mLocalPaths);
         calculateLocalPaths(mProjectedPaths, mLocalProjectedPaths);
+        invalidateBuiltPaths();
     }
 
     @VisibleForTesting
-    void calculateLocalPaths(SparseIntArray paths, SparseIntArray localPaths) {
+    void calculateLocalPaths(SparseIntArray paths, PointBuffer localPaths) {
+        calculateLocalPaths(paths, localPaths, 0 /* fromIndex */);
+    }
+
+    /**
+     * Convert the points of {@code paths} from {@code fromIndex} to local coordinates, and append
+     * them to {@code localPaths}. {@code fromIndex} must be 0 or the start of a path.
+     *
+     * The points falling in the same pixel column are reduced to the first, lowest, highest and
+     * last of them, so the local paths stay bounded by the width of the view whatever the number
+     * of points, without losing any peak.
+     */
+    private void calculateLocalPaths(SparseIntArray paths, PointBuffer localPaths,
+            int fromIndex) {
         final long startTime = System.currentTimeMillis();
         if (getWidth() == 0) {
             return;
         }
-        localPaths.clear();
-        // Store the local coordinates of the most recent point.
-        int lx = 0;
-        int ly = PATH_DELIM;
-        boolean skippedLastPoint = false;
-        for (int i = 0; i < paths.size(); i++) {
+        if (fromIndex == 0) {
+            localPaths.clear();
+        }
+        final ColumnReducer reducer = new ColumnReducer(localPaths);
+        for (int i = fromIndex; i < paths.size(); i++) {
             int x = paths.keyAt(i);
             int y = paths.valueAt(i);
             if (y == PATH_DELIM) {
+                reducer.flush();
                 if (i == 1) {
-                    localPaths.put(getX(x+1) - 1, getY(0));
+                    localPaths.append(getX(x+1) - 1, getY(0));
                     continue;
                 }
-                if (i == paths.size() - 1 && skippedLastPoint) {
-                    // Add back skipped point to complete the path.
-                    localPaths.put(lx, ly);
-                }
-                skippedLastPoint = false;
-                localPaths.put(lx + 1, PATH_DELIM);
+                reducer.endPath(i == paths.size() - 1);
             } else {
-                lx = getX(x);
-                ly = getY(y);
-                // Skip this point if it is not far enough from the last one added.
-                if (localPaths.size() > 0) {
-                    int lastX = localPaths.keyAt(localPaths.size() - 1);
-                    int lastY = localPaths.valueAt(localPaths.size() - 1);
-                    if (lastY != PATH_DELIM && !hasDiff(lastX, lx) && !hasDiff(lastY, ly)) {
-                        skippedLastPoint = true;
-                        continue;
-                    }
-                }
-                skippedLastPoint = false;
-                localPaths.put(lx, ly);
+                reducer.add(getX(x), getY(y));
             }
         }
+        reducer.flush();
         BatteryUtils.logRuntime(LOG_TAG, "calculateLocalPaths", startTime);
     }
 
+    private void invalidateBuiltPaths() {
+        mBuiltSize = -1;
+        mBuiltProjectedSize = -1;
+    }
+
+    private void updateBuiltPaths() {
+        if (mBuiltSize < 0 || mBuiltSize > mLocalPaths.size()) {
+            mLinePath.reset();
+            mFillPath.reset();
+            mBuiltSize = 0;
+        }
+        if (mBuiltSize < mLocalPaths.size()) {
+            appendLinePath(mLocalPaths, mBuiltSize, mLinePath);
+            appendFilledPath(mLocalPaths, mBuiltSize, mFillPath);
+            mBuiltSize = mLocalPaths.size();
+        }
+        if (mBuiltProjectedSize < 0 || mBuiltProjectedSize > mLocalProjectedPaths.size()) {
+            mProjectedLinePath.reset();
+            mBuiltProjectedSize = 0;
+        }
+        if (mBuiltProjectedSize < mLocalProjectedPaths.size()) {
+            appendLinePath(mLocalProjectedPaths, mBuiltProjectedSize, mProjectedLinePath);
+            mBuiltProjectedSize = mLocalProjectedPaths.size();
+        }
+    }
+
     private boolean hasDiff(int x1, int x2) {
         return Math.abs(x2 - x1) >= mCornerRadius;
     }
@@ -261,57 +305,52 @@ public class UsageGraph extends View {
             // Flip the canvas along the y-axis of the center of itself before drawing paths.
             canvas.scale(-1, 1, canvas.getWidth() * 0.5f, 0);
         }
-        drawLinePath(canvas, mLocalProjectedPaths, mDottedPaint);
-        drawFilledPath(canvas, mLocalPaths, mFillPaint);
-        drawLinePath(canvas, mLocalPaths, mLinePaint);
+        updateBuiltPaths();
+        canvas.drawPath(mProjectedLinePath, mDottedPaint);
+        canvas.drawPath(mFillPath, mFillPaint);
+        canvas.drawPath(mLinePath, mLinePaint);
         canvas.restore();
         BatteryUtils.logRuntime(LOG_TAG, "onDraw", startTime);
     }
 
-    private void drawLinePath(Canvas canvas, SparseIntArray localPaths, Paint paint) {
-        if (localPaths.size() == 0) {
-            return;
-        }
-        mPath.reset();
-        mPath.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
-        for (int i = 1; i < localPaths.size(); i++) {
-            int x = localPaths.keyAt(i);
-            int y = localPaths.valueAt(i);
+    private void appendLinePath(PointBuffer localPaths, int fromIndex, Path path) {
+        boolean startPath = true;
+        for (int i = fromIndex; i < localPaths.size(); i++) {
+            int x = localPaths.getX(i);
+            int y = localPaths.getY(i);
             if (y == PATH_DELIM) {
-                if (++i < localPaths.size()) {
-                    mPath.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
-                }
+                startPath = true;
+            } else if (startPath) {
+                path.moveTo(x, y);
+                startPath = false;
             } else {
-                mPath.lineTo(x, y);
+                path.lineTo(x, y);
             }
         }
-        canvas.drawPath(mPath, paint);
     }
 
     @VisibleForTesting
-    void drawFilledPath(Canvas canvas, SparseIntArray localPaths, Paint paint) {
-        if (localPaths.size() == 0) {
-            return;
-        }
-        mPath.reset();
-        float lastStartX = localPaths.keyAt(0);
-        mPath.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
-        for (int i = 1; i < localPaths.size(); i++) {
-            int x = localPaths.keyAt(i);
-            int y = localPaths.valueAt(i);
+    void appendFilledPath(PointBuffer localPaths, int fromIndex, Path path) {
+        boolean startPath = true;
+        int lastStartX = 0;
+        for (int i = fromIndex; i < localPaths.size(); i++) {
+            int x = localPaths.getX(i);
+            int y = localPaths.getY(i);
             if (y == PATH_DELIM) {
-                mPath.lineTo(localPaths.keyAt(i - 1), getHeight());
-                mPath.lineTo(lastStartX, getHeight());
-                mPath.close();
-                if (++i < localPaths.size()) {
-                    lastStartX = localPaths.keyAt(i);
-                    mPath.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
+                if (!startPath) {
+                    path.lineTo(localPaths.getX(i - 1), getHeight());
+                    path.lineTo(lastStartX, getHeight());
+                    path.close();
                 }
+                startPath = true;
+            } else if (startPath) {
+                lastStartX = x;
+                path.moveTo(x, y);
+                startPath = false;
             } else {
-                mPath.lineTo(x, y);
+                path.lineTo(x, y);
             }
         }
-        canvas.drawPath(mPath, paint);
     }
 
     private void drawDivider(int y, Canvas canvas, int tintColor) {
@@ -323,4 +362,137 @@ public class UsageGraph extends View {
         d.setBounds(0, y, canvas.getWidth(), y + mDividerSize);
         d.draw(canvas);
     }
+
+    /**
+     * Reduces the local points of a path falling in the same pixel column, and skips the points
+     * too close to the previous one to be visible.
+     */
+    private class ColumnReducer {
+        private final PointBuffer mOut;
+        // Local coordinates of the most recent point.
+        private int mLastX;
+        private int mLastY = PATH_DELIM;
+        private boolean mSkippedLastPoint;
+
+        // Pending points of the current pixel column.
+        private int mColumnCount;
+        private int mColumnX;
+        private int mFirstY;
+        private int mMinY;
+        private int mMaxY;
+        private int mMinIndex;
+        private int mMaxIndex;
+        private int mLastColumnY;
+
+        ColumnReducer(PointBuffer out) {
+            mOut = out;
+        }
+
+        void add(int lx, int ly) {
+            if (mColumnCount > 0 && lx != mColumnX) {
+                flush();
+            }
+            if (mColumnCount == 0) {
+                mColumnX = lx;
+                mFirstY = mMinY = mMaxY = ly;
+                mMinIndex = mMaxIndex = 0;
+            } else if (ly < mMinY) {
+                mMinY = ly;
+                mMinIndex = mColumnCount;
+            } else if (ly > mMaxY) {
+                mMaxY = ly;
+                mMaxIndex = mColumnCount;
+            }
+            mLastColumnY = ly;
+            mColumnCount++;
+        }
+
+        void flush() {
+            if (mColumnCount == 0) {
+                return;
+            }
+            addPoint(mColumnX, mFirstY);
+            if (mColumnCount > 1) {
+                // Keep the extremes in the order they were added.
+                if (mMinIndex < mMaxIndex) {
+                    addExtreme(mMinIndex, mMinY);
+                    addExtreme(mMaxIndex, mMaxY);
+                } else {
+                    addExtreme(mMaxIndex, mMaxY);
+                    addExtreme(mMinIndex, mMinY);
+                }
+                addPoint(mColumnX, mLastColumnY);
+            }
+            mColumnCount = 0;
+        }
+
+        private void addExtreme(int index, int ly) {
+            if (index != 0 && index != mColumnCount - 1) {
+                addPoint(mColumnX, ly);
+            }
+        }
+
+        void endPath(boolean isLastPath) {
+            if (isLastPath && mSkippedLastPoint) {
+                // Add back skipped point to complete the path.
+                mOut.append(mLastX, mLastY);
+            }
+            mSkippedLastPoint = false;
+            mOut.append(mLastX + 1, PATH_DELIM);
+        }
+
+        private void addPoint(int lx, int ly) {
+            mLastX = lx;
+            mLastY = ly;
+            // Skip this point if it is not far enough from the last one added.
+            final int size = mOut.size();
+            if (size > 0) {
+                int lastX = mOut.getX(size - 1);
+                int lastY = mOut.getY(size - 1);
+                if (lastY != PATH_DELIM && !hasDiff(lastX, lx) && !hasDiff(lastY, ly)) {
+                    mSkippedLastPoint = true;
+                    return;
+                }
+            }
+            mSkippedLastPoint = false;
+            mOut.append(lx, ly);
+        }
+    }
+
+    /**
+     * Growable parallel arrays of x and y coordinates. The arrays are kept when cleared, so they
+     * are reused across recalculations of the local paths.
+     */
+    @VisibleForTesting
+    static final class PointBuffer {
+        private int[] mX = new int[16];
+        private int[] mY = new int[16];
+        private int mSize;
+
+        int size() {
+            return mSize;
+        }
+
+        int getX(int index) {
+            return mX[index];
+        }
+
+        int getY(int index) {
+            return mY[index];
+        }
+
+        void append(int x, int y) {
+            if (mSize == mX.length) {
+                mX = Arrays.copyOf(mX, mSize * 2);
+                mY = Arrays.copyOf(mY, mSize * 2);
+            }
+            mX[mSize] = x;
+            mY[mSize] = y;
+            mSize++;
+        }
+
+        void clear() {
+            mSize = 0;
+        }
+    }
 }
@@ -30,6 +30,7 @@ import androidx.annotation.VisibleForTesting;
 import androidx.fragment.app.FragmentTransaction;
 
 import com.android.settings.R;
+import com.android.settings.wifi.qrcode.QrCodeGenerator;
 
 import java.util.List;
 
@@ -336,6 +337,14 @@ public class WifiDppConfiguratorActivity extends WifiDppBaseActivity implements
         showChooseSavedWifiNetworkFragment(/* addToBackStack */ true);
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            QrCodeGenerator.clearCache();
+        }
+    }
+
     @Override
     public void onSaveInstanceState(Bundle outState) {
         if (mWifiDppQrCode != null) {
@@ -120,7 +120,7 @@ public class WifiDppQrCodeGeneratorFragment extends WifiDppQrCodeBaseFragment {
         try {
             final int qrcodeSize = getContext().getResources().getDimensionPixelSize(
                     R.dimen.qrcode_size);
-            final Bitmap bmp = QrCodeGenerator.encodeQrCode(mQrCode, qrcodeSize);
+            final Bitmap bmp = QrCodeGenerator.getQrCode(mQrCode, qrcodeSize);
             mQrCodeView.setImageBitmap(bmp);
         } catch (WriterException e) {
             Log.e(TAG, "Error generating QR code bitmap " + e);
@@ -137,6 +137,15 @@ public class WifiDppQrCodeGeneratorFragment extends WifiDppQrCodeBaseFragment {
         return wifiNetworkConfig;
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // Keep the code across a configuration change only.
+        if (getActivity() == null || !getActivity().isChangingConfigurations()) {
+            QrCodeGenerator.clearCache();
+        }
+    }
+
     @Override
     protected boolean isFooterAvailable() {
         return false;
@@ -18,6 +18,7 @@ package com.android.settings.wifi.qrcode;
 
 import android.content.Context;
 import android.content.res.Configuration;
+import android.graphics.ImageFormat;
 import android.graphics.Matrix;
 import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
@@ -27,7 +28,7 @@ import android.hardware.Camera.Parameters;
 import android.os.AsyncTask;
 import android.os.Handler;
 import android.os.Message;
-import android.util.ArrayMap;
+import android.os.Process;
 import android.util.Log;
 import android.util.Size;
 import android.view.Surface;
@@ -35,21 +36,19 @@ import android.view.WindowManager;
 
 import androidx.annotation.VisibleForTesting;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.BinaryBitmap;
-import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.ReaderException;
-import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 
 import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manage the camera for the QR scanner and help the decoder to get the image inside the scanning
@@ -72,20 +71,29 @@ public class QrCamera extends Handler {
 
     private static final long AUTOFOCUS_INTERVAL_MS = 1500L;
 
-    private static Map<DecodeHintType, List<BarcodeFormat>> HINTS = new ArrayMap<>();
-    private static List<BarcodeFormat> FORMATS = new ArrayList<>();
+    /** Number of preview buffers the camera fills in turn. */
+    @VisibleForTesting
+    static final int PREVIEW_BUFFER_COUNT = 3;
 
-    static {
-        FORMATS.add(BarcodeFormat.QR_CODE);
-        HINTS.put(DecodeHintType.POSSIBLE_FORMATS, FORMATS);
-    }
+    /** Number of frames decoded concurrently, one {@link QrFrameDecoder} each. */
+    @VisibleForTesting
+    static final int DECODER_COUNT =
+            Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 2));
+
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    // The scanning tasks block until a QR code is found, so they run apart from the AsyncTask
+    // pool. The threads are shared by all the scanners instead of being created per start().
+    private static final Executor TASK_EXECUTOR = Executors.newCachedThreadPool();
+
+    private static final Executor DECODE_EXECUTOR = createDecodeExecutor();
 
     @VisibleForTesting
     Camera mCamera;
     private Size mPreviewSize;
     private WeakReference<Context> mContext;
     private ScannerCallback mScannerCallback;
-    private MultiFormatReader mReader;
+    private QrFrameDecoder mDecoder;
     private DecodingTask mDecodeTask;
     private int mCameraOrientation;
     @VisibleForTesting
@@ -94,8 +102,19 @@ public class QrCamera extends Handler {
     public QrCamera(Context context, ScannerCallback callback) {
         mContext =  new WeakReference<Context>(context);
         mScannerCallback = callback;
-        mReader = new MultiFormatReader();
-        mReader.setHints(HINTS);
+        mDecoder = new QrFrameDecoder();
+    }
+
+    private static Executor createDecodeExecutor() {
+        final AtomicInteger count = new AtomicInteger(1);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(DECODER_COUNT, DECODER_COUNT,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "QrDecoder-" + count.getAndIncrement()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     /**
@@ -108,7 +127,7 @@ public class QrCamera extends Handler {
         if (mDecodeTask == null) {
             mDecodeTask = new DecodingTask(surface);
             // Execute in the separate thread pool to prevent block other AsyncTask.
-            mDecodeTask.executeOnExecutor(Executors.newSingleThreadExecutor());
+            mDecodeTask.executeOnExecutor(TASK_EXECUTOR);
         }
     }
 
@@ -119,6 +138,9 @@ public class QrCamera extends Handler {
     public void stop() {
         removeMessages(MSG_AUTO_FOCUS);
         if (mDecodeTask != null) {
+            // Detach the pipeline from the camera now, a next start() may release the camera
+            // before this task finishes.
+            mDecodeTask.stopPipeline();
             mDecodeTask.cancel(true);
             mDecodeTask = null;
         }
@@ -230,8 +252,10 @@ public class QrCamera extends Handler {
     }
 
     private class DecodingTask extends AsyncTask<Void, Void, String> {
-        private QrYuvLuminanceSource mImage;
         private SurfaceTexture mSurface;
+        // Guarded by this.
+        private FramePipeline mPipeline;
+        private boolean mIsPipelineStopped;
 
         private DecodingTask(SurfaceTexture surface) {
             mSurface = surface;
@@ -243,39 +267,33 @@ public class QrCamera extends Handler {
                 return null;
             }
 
-            final Semaphore imageGot = new Semaphore(0);
-            while (true) {
-                // This loop will try to capture preview image continuously until a valid QR Code
-                // decoded. The caller can also call {@link #stop()} to interrupts scanning loop.
-                mCamera.setOneShotPreviewCallback(
-                        (imageData, camera) -> {
-                            mImage = getFrameImage(imageData);
-                            imageGot.release();
-                        });
-                try {
-                    // Semaphore.acquire() blocking until permit is available, or the thread is
-                    // interrupted.
-                    imageGot.acquire();
-                    Result qrCode = null;
-                    try {
-                        qrCode =
-                                mReader.decodeWithState(
-                                        new BinaryBitmap(new HybridBinarizer(mImage)));
-                    } catch (ReaderException e) {
-                        // No logging since every time the reader cannot decode the
-                        // image, this ReaderException will be thrown.
-                    } finally {
-                        mReader.reset();
-                    }
-                    if (qrCode != null) {
-                        if (mScannerCallback.isValid(qrCode.getText())) {
-                            return qrCode.getText();
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+            // The pipeline decodes the preview frames continuously until a valid QR Code is
+            // decoded. The caller can also call {@link #stop()} to interrupt the scanning.
+            final FramePipeline pipeline;
+            synchronized (this) {
+                if (mIsPipelineStopped) {
                     return null;
                 }
+                pipeline = new FramePipeline(mCamera, mPreviewSize,
+                        mScannerCallback.getFramePosition(mPreviewSize, mCameraOrientation));
+                mPipeline = pipeline;
+            }
+            try {
+                return pipeline.awaitResult();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } finally {
+                stopPipeline();
+            }
+        }
+
+        /** Stop feeding the preview frames to the decoders, and don't start again. */
+        synchronized void stopPipeline() {
+            mIsPipelineStopped = true;
+            if (mPipeline != null) {
+                mPipeline.stop();
+                mPipeline = null;
             }
         }
 
@@ -364,12 +382,108 @@ public class QrCamera extends Handler {
         mScannerCallback.setTransform(matrix);
     }
 
-    private QrYuvLuminanceSource getFrameImage(byte[] imageData) {
-        final Rect frame = mScannerCallback.getFramePosition(mPreviewSize, mCameraOrientation);
-        final QrYuvLuminanceSource image = new QrYuvLuminanceSource(imageData,
-                mPreviewSize.getWidth(), mPreviewSize.getHeight());
-        return (QrYuvLuminanceSource)
-                image.crop(frame.left, frame.top, frame.width(), frame.height());
+    /**
+     * Feeds the preview frames to the decoders.
+     *
+     * The camera fills a small pool of preview buffers. A frame goes to an idle decoder as soon as
+     * it arrives, and while all of them are busy only the newest frame is kept pending: the buffer
+     * of the older one goes back to the camera, so the decoders never lag behind the preview.
+     */
+    private class FramePipeline implements Camera.PreviewCallback {
+        private final Object mLock = new Object();
+        private final Object mValidationLock = new Object();
+        private final ArrayDeque<QrFrameDecoder> mIdleDecoders = new ArrayDeque<>();
+        private final Camera mPipelineCamera;
+        private final Size mFrameSize;
+        private final Rect mCrop;
+        private byte[] mPendingFrame;
+        private String mResult;
+        private boolean mIsStopped;
+
+        FramePipeline(Camera camera, Size frameSize, Rect crop) {
+            mPipelineCamera = camera;
+            mFrameSize = frameSize;
+            mCrop = crop;
+            for (int i = 0; i < DECODER_COUNT; i++) {
+                mIdleDecoders.add(new QrFrameDecoder());
+            }
+            final int bufferSize = frameSize.getWidth() * frameSize.getHeight()
+                    * ImageFormat.getBitsPerPixel(ImageFormat.NV21) / 8;
+            for (int i = 0; i < PREVIEW_BUFFER_COUNT; i++) {
+                camera.addCallbackBuffer(new byte[bufferSize]);
+            }
+            camera.setPreviewCallbackWithBuffer(this);
+        }
+
+        @Override
+        public void onPreviewFrame(byte[] data, Camera camera) {
+            final QrFrameDecoder decoder;
+            synchronized (mLock) {
+                if (mIsStopped) {
+                    return;
+                }
+                decoder = mIdleDecoders.poll();
+                if (decoder == null) {
+                    if (mPendingFrame != null) {
+                        mPipelineCamera.addCallbackBuffer(mPendingFrame);
+                    }
+                    mPendingFrame = data;
+                    return;
+                }
+            }
+            DECODE_EXECUTOR.execute(() -> decodeFrames(decoder, data));
+        }
+
+        String awaitResult() throws InterruptedException {
+            synchronized (mLock) {
+                while (mResult == null) {
+                    mLock.wait();
+                }
+                return mResult;
+            }
+        }
+
+        void stop() {
+            synchronized (mLock) {
+                mIsStopped = true;
+                mPendingFrame = null;
+                mLock.notifyAll();
+            }
+            mPipelineCamera.setPreviewCallbackWithBuffer(null);
+        }
+
+        /** Decode {@code frame}, then the pending frames, until there are none left. */
+        private void decodeFrames(QrFrameDecoder decoder, byte[] frame) {
+            while (true) {
+                final String qrCode = decoder.decode(frame, mFrameSize.getWidth(),
+                        mFrameSize.getHeight(), mCrop);
+                boolean isValid = false;
+                if (qrCode != null) {
+                    // The scanners don't expect concurrent validations.
+                    synchronized (mValidationLock) {
+                        isValid = mScannerCallback.isValid(qrCode);
+                    }
+                }
+                synchronized (mLock) {
+                    if (mIsStopped) {
+                        return;
+                    }
+                    if (isValid) {
+                        mResult = qrCode;
+                        mIsStopped = true;
+                        mLock.notifyAll();
+                        return;
+                    }
+                    mPipelineCamera.addCallbackBuffer(frame);
+                    frame = mPendingFrame;
+                    mPendingFrame = null;
+                    if (frame == null) {
+                        mIdleDecoders.add(decoder);
+                        return;
+                    }
+                }
+            }
+        }
     }
 
     @Override
@@ -455,17 +569,9 @@ public class QrCamera extends Handler {
 
     @VisibleForTesting
     protected void decodeImage(BinaryBitmap image) {
-        Result qrCode = null;
-
-        try {
-            qrCode = mReader.decodeWithState(image);
-        } catch (ReaderException e) {
-        } finally {
-            mReader.reset();
-        }
-
+        final String qrCode = mDecoder.decode(image);
         if (qrCode != null) {
-            mScannerCallback.handleSuccessfulResult(qrCode.getText());
+            mScannerCallback.handleSuccessfulResult(qrCode);
         }
     }
 
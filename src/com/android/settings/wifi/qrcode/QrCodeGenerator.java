@@ -18,19 +18,60 @@ package com.android.settings.wifi.qrcode;
 
 import android.graphics.Bitmap;
 import android.graphics.Color;
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
-import com.google.zxing.MultiFormatWriter;
 import com.google.zxing.WriterException;
-import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
 
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public final class QrCodeGenerator {
+    /** Width of the white border around the code, in modules, as required by the spec. */
+    private static final int QUIET_ZONE_SIZE = 4;
+
+    @VisibleForTesting
+    static final int CACHE_SIZE = 4;
+
+    // Keyed by size and contents.
+    private static final LruCache<String, Bitmap> sCache = new LruCache<>(CACHE_SIZE);
+
+    /**
+     * Returns a barcode image with {@code contents}, shared with the other callers asking for the
+     * same code. The most recently used images are kept, so that a screen showing a code doesn't
+     * generate it again when it is recreated.
+     *
+     * @param contents The contents to encode in the barcode
+     * @param size     The preferred image size in pixels
+     * @return Barcode bitmap, which must not be modified or recycled
+     */
+    public static Bitmap getQrCode(String contents, int size)
+            throws WriterException, IllegalArgumentException {
+        final String key = size + ":" + contents;
+        Bitmap bitmap = sCache.get(key);
+        if (bitmap == null) {
+            bitmap = encodeQrCode(contents, size);
+            sCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Drops the images kept by {@link #getQrCode(String, int)}. The codes can hold credentials, so
+     * this is called when the screen showing them is left.
+     */
+    public static void clearCache() {
+        sCache.evictAll();
+    }
+
     /**
      * Generates a barcode image with {@code contents}.
      *
@@ -40,19 +81,49 @@ public final class QrCodeGenerator {
      */
     public static Bitmap encodeQrCode(String contents, int size)
             throws WriterException, IllegalArgumentException {
+        if (contents.isEmpty()) {
+            throw new IllegalArgumentException("Found empty contents");
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("Requested dimensions are too small: " + size);
+        }
         final Map<EncodeHintType, Object> hints = new HashMap<>();
         if (!isIso88591(contents)) {
             hints.put(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
         }
 
-        final BitMatrix qrBits = new MultiFormatWriter().encode(contents, BarcodeFormat.QR_CODE,
-                size, size, hints);
-        final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.RGB_565);
-        for (int x = 0; x < size; x++) {
-            for (int y = 0; y < size; y++) {
-                bitmap.setPixel(x, y, qrBits.get(x, y) ? Color.BLACK : Color.WHITE);
+        final ByteMatrix modules =
+                Encoder.encode(contents, ErrorCorrectionLevel.L, hints).getMatrix();
+        final int moduleCount = modules.getWidth();
+        // Each module is a square of a whole number of pixels, and the code is centered like
+        // com.google.zxing.qrcode.QRCodeWriter does.
+        final int scale = Math.max(1, size / (moduleCount + 2 * QUIET_ZONE_SIZE));
+        final int padding = (size - moduleCount * scale) / 2;
+
+        final int[] pixels = new int[size * size];
+        Arrays.fill(pixels, Color.WHITE);
+        final int[] row = new int[size];
+        for (int moduleY = 0; moduleY < moduleCount; moduleY++) {
+            final int top = padding + moduleY * scale;
+            final int bottom = Math.min(top + scale, size);
+            if (bottom <= 0 || top >= size) {
+                continue;
+            }
+            Arrays.fill(row, Color.WHITE);
+            for (int moduleX = 0; moduleX < moduleCount; moduleX++) {
+                if (modules.get(moduleX, moduleY) == 1) {
+                    final int left = padding + moduleX * scale;
+                    Arrays.fill(row, Math.max(left, 0), Math.min(left + scale, size),
+                            Color.BLACK);
+                }
+            }
+            for (int y = Math.max(top, 0); y < bottom; y++) {
+                System.arraycopy(row, 0, pixels, y * size, size);
             }
         }
+
+        final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.RGB_565);
+        bitmap.setPixels(pixels, 0, size, 0, 0, size, size);
         return bitmap;
     }
 
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi.qrcode;
+
+import android.graphics.Rect;
+import android.util.ArrayMap;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the QR code in a rectangle of the camera preview frames.
+ *
+ * Every instance keeps its own reader and crop buffer, reused across frames, so it must only be
+ * used by one thread at a time. Decoding frames concurrently takes one instance per thread.
+ */
+public class QrFrameDecoder {
+
+    private static final Map<DecodeHintType, List<BarcodeFormat>> HINTS = new ArrayMap<>();
+
+    static {
+        HINTS.put(DecodeHintType.POSSIBLE_FORMATS,
+                Collections.singletonList(BarcodeFormat.QR_CODE));
+    }
+
+    private final MultiFormatReader mReader;
+    private byte[] mMatrixBuffer;
+
+    public QrFrameDecoder() {
+        mReader = new MultiFormatReader();
+        mReader.setHints(HINTS);
+    }
+
+    /**
+     * @param frame the NV21 frame, of which only the luminance plane is read.
+     * @param crop the rectangle of the frame to look for a QR code in.
+     * @return the text of the QR code found in {@code crop}, or {@code null} if there is none.
+     */
+    public String decode(byte[] frame, int frameWidth, int frameHeight, Rect crop) {
+        final int size = crop.width() * crop.height();
+        if (mMatrixBuffer == null || mMatrixBuffer.length != size) {
+            mMatrixBuffer = new byte[size];
+        }
+        return decode(new BinaryBitmap(new HybridBinarizer(new QrYuvLuminanceSource(frame,
+                frameWidth, frameHeight, crop.left, crop.top, crop.width(), crop.height(),
+                mMatrixBuffer))));
+    }
+
+    /**
+     * @return the text of the QR code found in {@code image}, or {@code null} if there is none.
+     */
+    public String decode(BinaryBitmap image) {
+        try {
+            return mReader.decodeWithState(image).getText();
+        } catch (ReaderException e) {
+            // No logging since every time the reader cannot decode the
+            // image, this ReaderException will be thrown.
+            return null;
+        } finally {
+            mReader.reset();
+        }
+    }
+}
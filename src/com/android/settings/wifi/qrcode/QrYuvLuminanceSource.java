@@ -20,19 +20,47 @@ import com.google.zxing.LuminanceSource;
 
 /**
  * This helper class implements crop method to crop preview picture.
+ *
+ * Cropping doesn't copy the image: the cropped source is a view of the rectangle of the luminance
+ * plane of the original data. The rectangle is only copied when the whole matrix is requested,
+ * into a buffer which can be reused across frames.
  */
 public class QrYuvLuminanceSource extends LuminanceSource {
 
-    private byte[] mYuvData;
-    private int mWidth;
-    private int mHeight;
+    private final byte[] mYuvData;
+    // Width and height of the luminance plane of mYuvData.
+    private final int mDataWidth;
+    private final int mDataHeight;
+    // Rectangle of this source in the luminance plane.
+    private final int mLeft;
+    private final int mTop;
+    private final int mWidth;
+    private final int mHeight;
+    private byte[] mMatrix;
 
     public QrYuvLuminanceSource(byte[] yuvData, int width, int height) {
+        this(yuvData, width, height, 0, 0, width, height, null);
+    }
+
+    /**
+     * @param matrixBuffer the buffer used by {@link #getMatrix()} if it is of the size of the
+     *                     rectangle, or {@code null} to allocate one.
+     */
+    QrYuvLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight, int left, int top,
+            int width, int height, byte[] matrixBuffer) {
         super(width, height);
+        if (left + width > dataWidth || top + height > dataHeight) {
+            throw new IllegalArgumentException("cropped rectangle does not fit within image data.");
+        }
 
+        mYuvData = yuvData;
+        mDataWidth = dataWidth;
+        mDataHeight = dataHeight;
+        mLeft = left;
+        mTop = top;
         mWidth = width;
         mHeight = height;
-        mYuvData = yuvData;
+        mMatrix = matrixBuffer;
     }
 
     @Override
@@ -42,18 +70,11 @@ public class QrYuvLuminanceSource extends LuminanceSource {
 
     @Override
     public LuminanceSource crop(int left, int top, int crop_width, int crop_height) {
-        final byte[] newImage = new byte[crop_width * crop_height];
-        int inputOffset = top * mWidth + left;
-
         if (left + crop_width > mWidth || top + crop_height > mHeight) {
             throw new IllegalArgumentException("cropped rectangle does not fit within image data.");
         }
-
-        for (int y = 0; y < crop_height; y++) {
-            System.arraycopy(mYuvData, inputOffset, newImage, y * crop_width, crop_width);
-            inputOffset += mWidth;
-        }
-        return new QrYuvLuminanceSource(newImage, crop_width, crop_height);
+        return new QrYuvLuminanceSource(mYuvData, mDataWidth, mDataHeight, mLeft + left,
+                mTop + top, crop_width, crop_height, null /* matrixBuffer */);
     }
 
     @Override
@@ -64,12 +85,25 @@ public class QrYuvLuminanceSource extends LuminanceSource {
         if (row == null || row.length < mWidth) {
             row = new byte[mWidth];
         }
-        System.arraycopy(mYuvData, y * mWidth, row, 0, mWidth);
+        System.arraycopy(mYuvData, (mTop + y) * mDataWidth + mLeft, row, 0, mWidth);
         return row;
     }
 
     @Override
     public byte[] getMatrix() {
-        return mYuvData;
+        if (mLeft == 0 && mTop == 0 && mWidth == mDataWidth) {
+            // The rows are already contiguous at the start of the data.
+            return mYuvData;
+        }
+        final int size = mWidth * mHeight;
+        if (mMatrix == null || mMatrix.length != size) {
+            mMatrix = new byte[size];
+        }
+        int inputOffset = mTop * mDataWidth + mLeft;
+        for (int y = 0; y < mHeight; y++) {
+            System.arraycopy(mYuvData, inputOffset, mMatrix, y * mWidth, mWidth);
+            inputOffset += mDataWidth;
+        }
+        return mMatrix;
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.tests.perf;
+
+import android.app.Instrumentation;
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.settings.wifi.qrcode.QrCodeGenerator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures the generation of Wi-Fi QR code bitmaps by {@link QrCodeGenerator} for the sizes the
+ * code is shown at.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QrCodeGeneratorPerfTest {
+    private static final String QR_CODE = "WIFI:S:SettingsPerfTest;T:WPA;P:12345678;H:false;;";
+    private static final int[] SIZES = {256, 512, 768, 1024};
+    private static final int WARM_UP_TIME = 3;
+    private static final int TEST_TIME = 20;
+
+    private Bundle mBundle;
+    private Instrumentation mInstrumentation;
+
+    @Before
+    public void setUp() throws Exception {
+        mBundle = new Bundle();
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mInstrumentation.sendStatus(0, mBundle);
+    }
+
+    @Test
+    public void encodeQrCode() throws Exception {
+        for (int size : SIZES) {
+            for (int i = 0; i < WARM_UP_TIME; i++) {
+                QrCodeGenerator.encodeQrCode(QR_CODE, size).recycle();
+            }
+            final List<Long> results = new ArrayList<>(TEST_TIME);
+            for (int i = 0; i < TEST_TIME; i++) {
+                final long startTime = SystemClock.elapsedRealtimeNanos();
+                final Bitmap bitmap = QrCodeGenerator.encodeQrCode(QR_CODE, size);
+                results.add((SystemClock.elapsedRealtimeNanos() - startTime) / 1000);
+                bitmap.recycle();
+            }
+            putResultToBundle(String.valueOf(size), results);
+        }
+    }
+
+    private void putResultToBundle(String name, List<Long> results) {
+        mBundle.putString(String.format("QrCodeGeneratorPerfTest_%s_%s", name, "max"),
+                String.valueOf(Collections.max(results)));
+        mBundle.putString(String.format("QrCodeGeneratorPerfTest_%s_%s", name, "min"),
+                String.valueOf(Collections.min(results)));
+        mBundle.putString(String.format("QrCodeGeneratorPerfTest_%s_%s", name, "avg"),
+                String.valueOf((long) results.stream().mapToLong(i -> i).average().orElse(0)));
+    }
+}
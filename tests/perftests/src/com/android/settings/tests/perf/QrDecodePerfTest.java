@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.tests.perf;
+
+import static junit.framework.TestCase.assertEquals;
+
+import android.app.Instrumentation;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.settings.wifi.qrcode.QrCodeGenerator;
+import com.android.settings.wifi.qrcode.QrFrameDecoder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the decoding of preview frames by {@link QrFrameDecoder}, on NV21 frames of a common
+ * preview size with a Wi-Fi QR code in the middle.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QrDecodePerfTest {
+    private static final String QR_CODE = "WIFI:S:SettingsPerfTest;T:WPA;P:12345678;H:false;;";
+    private static final int FRAME_WIDTH = 1280;
+    private static final int FRAME_HEIGHT = 960;
+    private static final int CODE_SIZE = 480;
+    private static final int CROP_MARGIN = 60;
+    private static final int WARM_UP_TIME = 5;
+    private static final int TEST_TIME = 50;
+    private static final int THREAD_COUNT = 2;
+
+    private Bundle mBundle;
+    private Instrumentation mInstrumentation;
+    private byte[] mFrame;
+    private Rect mFullFrame;
+    private Rect mCrop;
+
+    @Before
+    public void setUp() throws Exception {
+        mBundle = new Bundle();
+        mInstrumentation = InstrumentationRegistry.getInstrumentation();
+        mFrame = createFrame();
+        mFullFrame = new Rect(0, 0, FRAME_WIDTH, FRAME_HEIGHT);
+        final int left = (FRAME_WIDTH - CODE_SIZE) / 2 - CROP_MARGIN;
+        final int top = (FRAME_HEIGHT - CODE_SIZE) / 2 - CROP_MARGIN;
+        mCrop = new Rect(left, top, left + CODE_SIZE + 2 * CROP_MARGIN,
+                top + CODE_SIZE + 2 * CROP_MARGIN);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mInstrumentation.sendStatus(0, mBundle);
+    }
+
+    @Test
+    public void decodeFullFrame() {
+        putResultToBundle("FullFrame", measure(new QrFrameDecoder(), mFullFrame));
+    }
+
+    @Test
+    public void decodeCroppedFrame() {
+        putResultToBundle("CroppedFrame", measure(new QrFrameDecoder(), mCrop));
+    }
+
+    @Test
+    public void decodeCroppedFrameConcurrently() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            final List<Future<List<Long>>> futures = new ArrayList<>();
+            final long startTime = SystemClock.elapsedRealtimeNanos();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                futures.add(executor.submit(() -> measure(new QrFrameDecoder(), mCrop)));
+            }
+            final List<Long> results = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                results.addAll(future.get());
+            }
+            final long elapsedUs = (SystemClock.elapsedRealtimeNanos() - startTime) / 1000;
+            putResultToBundle("CroppedFrameConcurrent", results);
+            mBundle.putString("QrDecodePerfTest_CroppedFrameConcurrent_throughput",
+                    String.valueOf(results.size() * 1000000L / elapsedUs));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** @return the decoding times of {@link #TEST_TIME} frames, in microseconds. */
+    private List<Long> measure(QrFrameDecoder decoder, Rect crop) {
+        for (int i = 0; i < WARM_UP_TIME; i++) {
+            assertEquals(QR_CODE, decoder.decode(mFrame, FRAME_WIDTH, FRAME_HEIGHT, crop));
+        }
+        final List<Long> results = new ArrayList<>(TEST_TIME);
+        for (int i = 0; i < TEST_TIME; i++) {
+            final long startTime = SystemClock.elapsedRealtimeNanos();
+            final String qrCode = decoder.decode(mFrame, FRAME_WIDTH, FRAME_HEIGHT, crop);
+            results.add((SystemClock.elapsedRealtimeNanos() - startTime) / 1000);
+            assertEquals(QR_CODE, qrCode);
+        }
+        return results;
+    }
+
+    private void putResultToBundle(String name, List<Long> results) {
+        mBundle.putString(String.format("QrDecodePerfTest_%s_%s", name, "max"),
+                String.valueOf(Collections.max(results)));
+        mBundle.putString(String.format("QrDecodePerfTest_%s_%s", name, "min"),
+                String.valueOf(Collections.min(results)));
+        mBundle.putString(String.format("QrDecodePerfTest_%s_%s", name, "avg"),
+                String.valueOf((long) results.stream().mapToLong(i -> i).average().orElse(0)));
+    }
+
+    /** @return a gray NV21 frame with the QR code drawn in the middle of its luminance plane. */
+    private static byte[] createFrame() throws Exception {
+        final Bitmap bitmap = QrCodeGenerator.encodeQrCode(QR_CODE, CODE_SIZE);
+        final byte[] frame = new byte[FRAME_WIDTH * FRAME_HEIGHT * 3 / 2];
+        Arrays.fill(frame, 0, FRAME_WIDTH * FRAME_HEIGHT, (byte) 0xc0);
+        Arrays.fill(frame, FRAME_WIDTH * FRAME_HEIGHT, frame.length, (byte) 0x80);
+        final int[] pixels = new int[CODE_SIZE * CODE_SIZE];
+        bitmap.getPixels(pixels, 0, CODE_SIZE, 0, 0, CODE_SIZE, CODE_SIZE);
+        bitmap.recycle();
+        final int left = (FRAME_WIDTH - CODE_SIZE) / 2;
+        final int top = (FRAME_HEIGHT - CODE_SIZE) / 2;
+        for (int y = 0; y < CODE_SIZE; y++) {
+            for (int x = 0; x < CODE_SIZE; x++) {
+                frame[(top + y) * FRAME_WIDTH + left + x] =
+                        (byte) Color.red(pixels[y * CODE_SIZE + x]);
+            }
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppLabelIconCacheTest {
+
+    private static final String PACKAGE_NAME = "com.example.app";
+    private static final int USER_ID = 0;
+
+    @Mock
+    private PackageManager mPackageManager;
+
+    private AppLabelIconCache mCache;
+    private PackageInfo mPackageInfo;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        mCache = new AppLabelIconCache();
+        mPackageInfo = new PackageInfo();
+        mPackageInfo.packageName = PACKAGE_NAME;
+        mPackageInfo.applicationInfo = new ApplicationInfo();
+        mPackageInfo.applicationInfo.packageName = PACKAGE_NAME;
+        mPackageInfo.lastUpdateTime = 1;
+        when(mPackageManager.getPackageInfoAsUser(eq(PACKAGE_NAME), anyInt(), eq(USER_ID)))
+                .thenReturn(mPackageInfo);
+        when(mPackageManager.getApplicationLabel(any())).thenReturn("label");
+        when(mPackageManager.getUserBadgedIcon(any(), any()))
+                .thenReturn(new ColorDrawable(Color.RED));
+    }
+
+    @Test
+    public void get_packageUnchanged_shouldReuseEntry() {
+        final AppLabelIconCache.Entry entry = mCache.get(mPackageManager, PACKAGE_NAME, USER_ID);
+
+        assertThat(mCache.get(mPackageManager, PACKAGE_NAME, USER_ID)).isSameAs(entry);
+        verify(mPackageManager, times(1)).getApplicationLabel(any());
+    }
+
+    @Test
+    public void get_packageUpdated_shouldReloadEntry() {
+        mCache.get(mPackageManager, PACKAGE_NAME, USER_ID);
+        mPackageInfo.lastUpdateTime = 2;
+        when(mPackageManager.getApplicationLabel(any())).thenReturn("new label");
+
+        assertThat(mCache.get(mPackageManager, PACKAGE_NAME, USER_ID).label.toString())
+                .isEqualTo("new label");
+    }
+
+    @Test
+    public void get_packageRemoved_shouldReturnNull() throws Exception {
+        mCache.get(mPackageManager, PACKAGE_NAME, USER_ID);
+        when(mPackageManager.getPackageInfoAsUser(eq(PACKAGE_NAME), anyInt(), eq(USER_ID)))
+                .thenThrow(new PackageManager.NameNotFoundException());
+
+        assertThat(mCache.get(mPackageManager, PACKAGE_NAME, USER_ID)).isNull();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Looper;
+import android.os.Process;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppStateBridgeSchedulerTest {
+
+    private static final String PKG_1 = "com.example.one";
+    private static final String PKG_2 = "com.example.two";
+
+    private Context mContext;
+    private AppStateBridgeScheduler mScheduler;
+    private List<AppEntry> mApps;
+    private TestBridge mBridge1;
+    private TestBridge mBridge2;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mScheduler = new AppStateBridgeScheduler(Looper.getMainLooper());
+        mApps = Arrays.asList(createAppEntry(PKG_1, 0), createAppEntry(PKG_2, 1));
+        mBridge1 = new TestBridge(mApps);
+        mBridge2 = new TestBridge(mApps);
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @Test
+    public void requestLoadAll_burst_shouldLoadOnce() {
+        mScheduler.requestLoadAll(mBridge1, false /* immediate */);
+        mScheduler.requestLoadAll(mBridge1, false /* immediate */);
+        mScheduler.requestLoadAll(mBridge1, false /* immediate */);
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertThat(mBridge1.mLoadCount).isEqualTo(1);
+    }
+
+    @Test
+    public void requestLoadAll_withinWindow_shouldDelayLoad() {
+        mScheduler.runPendingWork();
+
+        mScheduler.requestLoadAll(mBridge1, false /* immediate */);
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(mBridge1.mLoadCount).isEqualTo(0);
+        assertThat(mScheduler.hasPendingWork()).isTrue();
+
+        ShadowLooper.idleMainLooper(AppStateBridgeScheduler.COALESCE_WINDOW_MS);
+
+        assertThat(mBridge1.mLoadCount).isEqualTo(1);
+    }
+
+    @Test
+    public void requestLoadAll_immediate_shouldNotWaitForWindow() {
+        mScheduler.runPendingWork();
+        mScheduler.requestLoadAll(mBridge1, false /* immediate */);
+
+        mScheduler.requestLoadAll(mBridge1, true /* immediate */);
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(mBridge1.mLoadCount).isEqualTo(1);
+    }
+
+    @Test
+    public void requestUpdate_shouldOnlyUpdateMatchingEntries() {
+        mScheduler.requestUpdate(mBridge1, PKG_1, Process.FIRST_APPLICATION_UID);
+        mScheduler.requestUpdate(mBridge1, PKG_1, Process.FIRST_APPLICATION_UID);
+        mScheduler.requestUpdate(mBridge2, PKG_2, Process.FIRST_APPLICATION_UID + 1);
+        mScheduler.requestUpdate(mBridge2, PKG_2, Process.FIRST_APPLICATION_UID);
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertThat(mBridge1.mLoadCount).isEqualTo(0);
+        assertThat(mBridge1.mUpdatedPackages).containsExactly(PKG_1);
+        assertThat(mBridge2.mLoadCount).isEqualTo(0);
+        assertThat(mBridge2.mUpdatedPackages).containsExactly(PKG_2);
+    }
+
+    @Test
+    public void requestUpdate_loadAllPending_shouldSkipUpdate() {
+        mScheduler.requestLoadAll(mBridge1, false /* immediate */);
+        mScheduler.requestUpdate(mBridge1, PKG_1, Process.FIRST_APPLICATION_UID);
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertThat(mBridge1.mLoadCount).isEqualTo(1);
+        assertThat(mBridge1.mUpdatedPackages).isEmpty();
+    }
+
+    @Test
+    public void cancel_shouldDropPendingWork() {
+        mScheduler.requestLoadAll(mBridge1, false /* immediate */);
+        mScheduler.requestUpdate(mBridge2, PKG_1, Process.FIRST_APPLICATION_UID);
+
+        mScheduler.cancel(mBridge1);
+        mScheduler.cancel(mBridge2);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+        assertThat(mBridge1.mLoadCount).isEqualTo(0);
+        assertThat(mBridge2.mUpdatedPackages).isEmpty();
+    }
+
+    private AppEntry createAppEntry(String packageName, int index) {
+        final ApplicationInfo info = new ApplicationInfo();
+        info.packageName = packageName;
+        info.uid = Process.FIRST_APPLICATION_UID + index;
+        info.sourceDir = info.packageName;
+        return new AppEntry(mContext, info, index);
+    }
+
+    private static class TestBridge extends AppStateBaseBridge {
+        private final List<AppEntry> mApps;
+        private final List<String> mUpdatedPackages = new ArrayList<>();
+        private int mLoadCount;
+
+        TestBridge(List<AppEntry> apps) {
+            super(null /* appState */, mock(Callback.class));
+            mApps = apps;
+        }
+
+        @Override
+        List<AppEntry> getAllApps() {
+            return mApps;
+        }
+
+        @Override
+        protected void loadAllExtraInfo() {
+            mLoadCount++;
+        }
+
+        @Override
+        protected void updateExtraInfo(AppEntry app, String pkg, int uid) {
+            mUpdatedPackages.add(pkg);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class RunningItemInfoCacheTest {
+
+    private static final int UID = 10010;
+    private static final String PROCESS_NAME = "com.example.app";
+
+    @Mock
+    private PackageManager mPackageManager;
+
+    private RunningItemInfoCache mCache;
+    private ApplicationInfo mInfo;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mCache = new RunningItemInfoCache();
+        mInfo = new ApplicationInfo();
+        mInfo.packageName = PROCESS_NAME;
+        when(mPackageManager.getUserBadgedIcon(any(), any()))
+                .thenReturn(new ColorDrawable(Color.RED));
+    }
+
+    @Test
+    public void getLabel_notCached_shouldReturnNull() {
+        assertThat(mCache.getLabel(UID, PROCESS_NAME)).isNull();
+    }
+
+    @Test
+    public void putLabel_shouldBeReturnedForSameProcessOnly() {
+        mCache.putLabel(UID, PROCESS_NAME, "App", mInfo);
+
+        final RunningItemInfoCache.Label label = mCache.getLabel(UID, PROCESS_NAME);
+        assertThat(label.mDisplayLabel.toString()).isEqualTo("App");
+        assertThat(label.mPackageInfo).isSameAs(mInfo);
+        assertThat(mCache.getLabel(UID + 1, PROCESS_NAME)).isNull();
+        assertThat(mCache.getLabel(UID, PROCESS_NAME + ":remote")).isNull();
+    }
+
+    @Test
+    public void putLabel_overCapacity_shouldEvictLeastRecentlyUsed() {
+        for (int i = 0; i <= RunningItemInfoCache.MAX_LABELS; i++) {
+            mCache.putLabel(UID + i, PROCESS_NAME, "App", mInfo);
+        }
+
+        assertThat(mCache.getLabel(UID, PROCESS_NAME)).isNull();
+        assertThat(mCache.getLabel(UID + RunningItemInfoCache.MAX_LABELS, PROCESS_NAME))
+                .isNotNull();
+    }
+
+    @Test
+    public void getIcon_calledTwice_shouldOnlyLoadOnce() {
+        final Drawable first = mCache.getIcon(mPackageManager, mInfo, 0 /* userId */);
+        final Drawable second = mCache.getIcon(mPackageManager, mInfo, 0 /* userId */);
+
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(second).isNotSameAs(first);
+        verify(mPackageManager, times(1)).getUserBadgedIcon(any(), any());
+    }
+
+    @Test
+    public void getIcon_differentUser_shouldLoadAgain() {
+        mCache.getIcon(mPackageManager, mInfo, 0 /* userId */);
+        mCache.getIcon(mPackageManager, mInfo, 10 /* userId */);
+
+        verify(mPackageManager, times(2)).getUserBadgedIcon(any(), any());
+    }
+
+    @Test
+    public void clear_shouldDropLabelsAndIcons() {
+        mCache.putLabel(UID, PROCESS_NAME, "App", mInfo);
+        mCache.getIcon(mPackageManager, mInfo, 0 /* userId */);
+
+        mCache.clear();
+        mCache.getIcon(mPackageManager, mInfo, 0 /* userId */);
+
+        assertThat(mCache.getLabel(UID, PROCESS_NAME)).isNull();
+        verify(mPackageManager, times(2)).getUserBadgedIcon(any(), any());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppSearchIndexTest {
+
+    private static final String[] APP_NAMES =
+            {"Apricot", "Banana", "Cantaloupe", "Crème brûlée", "Fig", "Mango", null};
+
+    private List<AppEntry> mEntries;
+    private AppSearchIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mEntries = new ArrayList<>();
+        for (String name : APP_NAMES) {
+            final AppEntry appEntry = mock(AppEntry.class);
+            appEntry.label = name;
+            mEntries.add(appEntry);
+        }
+        mIndex = new AppSearchIndex(mEntries);
+    }
+
+    @Test
+    public void search_shortQuery_shouldMatchSubstringsInOrder() {
+        assertThat(mIndex.search("an")).containsExactly(mEntries.get(1), mEntries.get(2),
+                mEntries.get(5)).inOrder();
+    }
+
+    @Test
+    public void search_longQuery_shouldMatchSubstrings() {
+        assertThat(mIndex.search("ANAN")).containsExactly(mEntries.get(1));
+        assertThat(mIndex.search("talo")).containsExactly(mEntries.get(2));
+        assertThat(mIndex.search("orange")).isEmpty();
+    }
+
+    @Test
+    public void search_shouldIgnoreDiacritics() {
+        assertThat(mIndex.search("creme brulee")).containsExactly(mEntries.get(3));
+        assertThat(mIndex.search("crème")).containsExactly(mEntries.get(3));
+    }
+
+    @Test
+    public void search_typingAndDeleting_shouldMatchLikeFreshSearch() {
+        mIndex.search("a");
+        mIndex.search("an");
+        assertThat(mIndex.search("ang")).containsExactly(mEntries.get(5));
+        assertThat(mIndex.search("an")).containsExactly(mEntries.get(1), mEntries.get(2),
+                mEntries.get(5)).inOrder();
+    }
+
+    @Test
+    public void search_emptyQuery_shouldReturnAllEntries() {
+        assertThat(mIndex.search("")).containsExactlyElementsIn(mEntries).inOrder();
+    }
+
+    @Test
+    public void normalize_shouldLowerCaseAndStripMarks() {
+        assertThat(AppSearchIndex.normalize("Crème Brûlée")).isEqualTo("creme brulee");
+        assertThat(AppSearchIndex.normalize(null)).isEmpty();
+    }
+}
@@ -19,12 +19,15 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothProfile;
 import android.content.Context;
 import android.content.Intent;
 
@@ -34,9 +37,11 @@ import com.android.settings.SettingsActivity;
 import com.android.settings.connecteddevice.DevicePreferenceCallback;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.testutils.shadow.ShadowBluetoothAdapter;
+import com.android.settingslib.bluetooth.BluetoothEventManager;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
 import com.android.settingslib.bluetooth.CachedBluetoothDeviceManager;
 import com.android.settingslib.bluetooth.LocalBluetoothManager;
+import com.android.settingslib.bluetooth.LocalBluetoothProfileManager;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -44,6 +49,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
@@ -256,4 +262,37 @@ public class BluetoothDeviceUpdaterTest {
         verify(mDevicePreferenceCallback).onDeviceRemoved(mPreference);
         assertThat(mBluetoothDeviceUpdater.mPreferenceMap.containsKey(mBluetoothDevice)).isFalse();
     }
+
+    @Test
+    public void onConnectionStateChanged_sameFrame_updateDeviceOnce() {
+        final BluetoothDeviceUpdater updater = spy(mBluetoothDeviceUpdater);
+        Robolectric.getForegroundThreadScheduler().pause();
+
+        updater.onProfileConnectionStateChanged(mCachedBluetoothDevice,
+                BluetoothProfile.STATE_CONNECTED, BluetoothProfile.A2DP);
+        updater.onProfileConnectionStateChanged(mCachedBluetoothDevice,
+                BluetoothProfile.STATE_CONNECTED, BluetoothProfile.HEADSET);
+        updater.onAclConnectionStateChanged(mCachedBluetoothDevice,
+                BluetoothAdapter.STATE_CONNECTED);
+        verify(updater, never()).update(mCachedBluetoothDevice);
+
+        Robolectric.flushForegroundThreadScheduler();
+        verify(updater).update(mCachedBluetoothDevice);
+        verify(mDevicePreferenceCallback).onDeviceAdded(any(Preference.class));
+    }
+
+    @Test
+    public void unregisterCallback_pendingUpdate_dropUpdate() {
+        final BluetoothDeviceUpdater updater = spy(mBluetoothDeviceUpdater);
+        when(mLocalManager.getEventManager()).thenReturn(mock(BluetoothEventManager.class));
+        when(mLocalManager.getProfileManager())
+                .thenReturn(mock(LocalBluetoothProfileManager.class));
+        Robolectric.getForegroundThreadScheduler().pause();
+
+        updater.onDeviceAdded(mCachedBluetoothDevice);
+        updater.unregisterCallback();
+        Robolectric.flushForegroundThreadScheduler();
+
+        verify(updater, never()).update(mCachedBluetoothDevice);
+    }
 }
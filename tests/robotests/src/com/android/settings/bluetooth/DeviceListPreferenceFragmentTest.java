@@ -20,7 +20,10 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -39,11 +42,14 @@ import com.android.settingslib.core.AbstractPreferenceController;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadow.api.Shadow;
 
 import java.util.List;
 
@@ -57,6 +63,10 @@ public class DeviceListPreferenceFragmentTest {
     private Resources mResource;
     @Mock
     private Context mContext;
+    @Mock
+    private CachedBluetoothDevice mCachedDevice1;
+    @Mock
+    private CachedBluetoothDevice mCachedDevice2;
 
     private TestFragment mFragment;
     private Preference mMyDevicePreference;
@@ -169,6 +179,58 @@ public class DeviceListPreferenceFragmentTest {
         verify(mFragment, times(1)).startScanning();
     }
 
+    @Test
+    public void onDeviceAdded_sameFrame_addDevicesInOnePass() {
+        final ShadowBluetoothAdapter shadowBluetoothAdapter =
+                Shadow.extract(BluetoothAdapter.getDefaultAdapter());
+        shadowBluetoothAdapter.setState(BluetoothAdapter.STATE_ON);
+        doNothing().when(mFragment).createDevicePreference(any(CachedBluetoothDevice.class));
+        Robolectric.getForegroundThreadScheduler().pause();
+
+        mFragment.onDeviceAdded(mCachedDevice1);
+        mFragment.onDeviceAdded(mCachedDevice2);
+        mFragment.onDeviceAdded(mCachedDevice1);
+        verify(mFragment, never()).createDevicePreference(any(CachedBluetoothDevice.class));
+
+        Robolectric.flushForegroundThreadScheduler();
+        verify(mFragment).addPendingDevices();
+        verify(mFragment).createDevicePreference(mCachedDevice1);
+        verify(mFragment).createDevicePreference(mCachedDevice2);
+    }
+
+    @Test
+    public void onDeviceAdded_sameFrame_addDevicesInDiscoveryOrder() {
+        final ShadowBluetoothAdapter shadowBluetoothAdapter =
+                Shadow.extract(BluetoothAdapter.getDefaultAdapter());
+        shadowBluetoothAdapter.setState(BluetoothAdapter.STATE_ON);
+        doNothing().when(mFragment).createDevicePreference(any(CachedBluetoothDevice.class));
+        Robolectric.getForegroundThreadScheduler().pause();
+
+        mFragment.onDeviceAdded(mCachedDevice2);
+        mFragment.onDeviceAdded(mCachedDevice1);
+        mFragment.onDeviceAdded(mCachedDevice2);
+        Robolectric.flushForegroundThreadScheduler();
+
+        final InOrder inOrder = inOrder(mFragment);
+        inOrder.verify(mFragment).createDevicePreference(mCachedDevice2);
+        inOrder.verify(mFragment).createDevicePreference(mCachedDevice1);
+    }
+
+    @Test
+    public void onDeviceDeleted_pendingDevice_notAdded() {
+        final ShadowBluetoothAdapter shadowBluetoothAdapter =
+                Shadow.extract(BluetoothAdapter.getDefaultAdapter());
+        shadowBluetoothAdapter.setState(BluetoothAdapter.STATE_ON);
+        doNothing().when(mFragment).createDevicePreference(any(CachedBluetoothDevice.class));
+        Robolectric.getForegroundThreadScheduler().pause();
+
+        mFragment.onDeviceAdded(mCachedDevice1);
+        mFragment.onDeviceDeleted(mCachedDevice1);
+        Robolectric.flushForegroundThreadScheduler();
+
+        verify(mFragment, never()).createDevicePreference(any(CachedBluetoothDevice.class));
+    }
+
     /**
      * Fragment to test since {@code DeviceListPreferenceFragment} is abstract
      */
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.android.settingslib.core.lifecycle.Lifecycle;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class BackgroundSchedulerTest {
+
+    private List<Runnable> mPendingRunnables;
+    private BackgroundScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mPendingRunnables = new ArrayList<>();
+        final Executor executor = mPendingRunnables::add;
+        mScheduler = new BackgroundScheduler(new Executor[]{executor, executor, executor});
+    }
+
+    @Test
+    public void submit_shouldTrackQueueDepthUntilRun() {
+        final AtomicInteger runCount = new AtomicInteger();
+
+        mScheduler.submit(BackgroundScheduler.LANE_PREFETCH, runCount::incrementAndGet);
+        mScheduler.submit(BackgroundScheduler.LANE_PREFETCH, runCount::incrementAndGet);
+
+        assertThat(mScheduler.getQueueDepth(BackgroundScheduler.LANE_PREFETCH)).isEqualTo(2);
+        assertThat(mScheduler.getQueueDepth(BackgroundScheduler.LANE_UI_CRITICAL)).isEqualTo(0);
+
+        runPending();
+
+        assertThat(runCount.get()).isEqualTo(2);
+        assertThat(mScheduler.getQueueDepth(BackgroundScheduler.LANE_PREFETCH)).isEqualTo(0);
+        assertThat(mScheduler.getRunLatency(BackgroundScheduler.LANE_PREFETCH).getCount())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void scopeCancel_shouldDropPendingWork() {
+        final BackgroundScheduler.Scope scope = mScheduler.createScope();
+        final AtomicInteger runCount = new AtomicInteger();
+
+        final Future<?> future =
+                scope.submit(BackgroundScheduler.LANE_UI_CRITICAL, runCount::incrementAndGet);
+        scope.cancel();
+        runPending();
+
+        assertThat(future.isCancelled()).isTrue();
+        assertThat(runCount.get()).isEqualTo(0);
+        assertThat(mScheduler.getCancelledCount(BackgroundScheduler.LANE_UI_CRITICAL))
+                .isEqualTo(1);
+        assertThat(mScheduler.getRunLatency(BackgroundScheduler.LANE_UI_CRITICAL).getCount())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void scopeCancel_shouldKeepScopeUsable() {
+        final BackgroundScheduler.Scope scope = mScheduler.createScope();
+        final AtomicInteger runCount = new AtomicInteger();
+        scope.submit(BackgroundScheduler.LANE_UI_CRITICAL, runCount::incrementAndGet);
+        scope.cancel();
+
+        scope.submit(BackgroundScheduler.LANE_UI_CRITICAL, runCount::incrementAndGet);
+        runPending();
+
+        assertThat(runCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void scopeOnStop_shouldCancelPendingWork() {
+        final Lifecycle lifecycle = mock(Lifecycle.class);
+        final BackgroundScheduler.Scope scope = mScheduler.createScope(lifecycle);
+        verify(lifecycle).addObserver(scope);
+
+        final Future<?> future = scope.submit(BackgroundScheduler.LANE_MAINTENANCE, () -> {});
+        scope.onStop();
+
+        assertThat(future.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void getExecutor_shutdown_shouldKeepRunningWork() {
+        final ExecutorService executor =
+                mScheduler.getExecutor(BackgroundScheduler.LANE_UI_CRITICAL);
+        final AtomicInteger runCount = new AtomicInteger();
+
+        executor.shutdown();
+        assertThat(executor.shutdownNow()).isEmpty();
+        executor.execute(runCount::incrementAndGet);
+        runPending();
+
+        assertThat(executor.isShutdown()).isFalse();
+        assertThat(runCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void dump_shouldContainEveryLane() throws Exception {
+        mScheduler.submit(BackgroundScheduler.LANE_MAINTENANCE, () -> {});
+        runPending();
+
+        final JSONObject dump = mScheduler.dump();
+
+        assertThat(dump.has("ui_critical")).isTrue();
+        assertThat(dump.has("prefetch")).isTrue();
+        assertThat(dump.getJSONObject("maintenance").getLong("submitted")).isEqualTo(1);
+        assertThat(dump.getJSONObject("maintenance").getJSONObject("run_latency")
+                .getLong("count")).isEqualTo(1);
+    }
+
+    private void runPending() {
+        final List<Runnable> runnables = new ArrayList<>(mPendingRunnables);
+        mPendingRunnables.clear();
+        for (Runnable runnable : runnables) {
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceMetadataCacheTest {
+    private static final int XML_RES_ID = 0x7f010001;
+    private static final int FLAGS = PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_KEY;
+    private static final String VERSION_1 = "version1";
+    private static final String VERSION_2 = "version2";
+    private static final String CONFIG_1 = "config1";
+    private static final String CONFIG_2 = "config2";
+
+    private Context mContext;
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mFile = new File(mContext.getCacheDir(), PreferenceMetadataCache.FILE_NAME);
+        mFile.delete();
+    }
+
+    @Test
+    public void get_notCached_returnNull() {
+        final PreferenceMetadataCache cache = createCache(VERSION_1, CONFIG_1);
+
+        assertThat(cache.get(mContext, XML_RES_ID, FLAGS)).isNull();
+    }
+
+    @Test
+    public void get_cachedInMemory_returnCopy() {
+        final PreferenceMetadataCache cache = createCache(VERSION_1, CONFIG_1);
+        cache.put(mContext, XML_RES_ID, FLAGS, createMetadata());
+
+        final List<Bundle> metadata = cache.get(mContext, XML_RES_ID, FLAGS);
+        metadata.get(0).putString(PreferenceXmlParserUtils.METADATA_KEY, "changed");
+
+        assertMetadata(cache.get(mContext, XML_RES_ID, FLAGS));
+    }
+
+    @Test
+    public void get_persisted_readFromFile() {
+        final PreferenceMetadataCache cache = createCache(VERSION_1, CONFIG_1);
+        cache.put(mContext, XML_RES_ID, FLAGS, createMetadata());
+        cache.persist();
+
+        final PreferenceMetadataCache newCache = createCache(VERSION_1, CONFIG_1);
+        newCache.ensureLoaded();
+
+        assertMetadata(newCache.get(mContext, XML_RES_ID, FLAGS));
+        assertThat(newCache.get(mContext, XML_RES_ID, 0 /* flags */)).isNull();
+    }
+
+    @Test
+    public void get_persistedButNotLoaded_returnNull() {
+        final PreferenceMetadataCache cache = createCache(VERSION_1, CONFIG_1);
+        cache.put(mContext, XML_RES_ID, FLAGS, createMetadata());
+        cache.persist();
+
+        // Lookups on the main thread don't map the file.
+        final PreferenceMetadataCache newCache = createCache(VERSION_1, CONFIG_1);
+
+        assertThat(newCache.get(mContext, XML_RES_ID, FLAGS)).isNull();
+    }
+
+    @Test
+    public void get_versionChanged_returnNull() {
+        final PreferenceMetadataCache cache = createCache(VERSION_1, CONFIG_1);
+        cache.put(mContext, XML_RES_ID, FLAGS, createMetadata());
+        cache.persist();
+
+        final PreferenceMetadataCache newCache = createCache(VERSION_2, CONFIG_1);
+        newCache.ensureLoaded();
+
+        assertThat(newCache.get(mContext, XML_RES_ID, FLAGS)).isNull();
+        assertThat(mFile.exists()).isFalse();
+    }
+
+    @Test
+    public void get_otherConfig_keepEntriesOfBothConfigs() {
+        final PreferenceMetadataCache cache = createCache(VERSION_1, CONFIG_1);
+        cache.put(mContext, XML_RES_ID, FLAGS, createMetadata());
+        cache.persist();
+
+        doReturn(CONFIG_2).when(cache).getConfig(any(Context.class));
+        assertThat(cache.get(mContext, XML_RES_ID, FLAGS)).isNull();
+        cache.put(mContext, XML_RES_ID, FLAGS, createMetadata());
+        cache.persist();
+
+        final PreferenceMetadataCache newCache = createCache(VERSION_1, CONFIG_1);
+        newCache.ensureLoaded();
+        assertMetadata(newCache.get(mContext, XML_RES_ID, FLAGS));
+        doReturn(CONFIG_2).when(newCache).getConfig(any(Context.class));
+        assertMetadata(newCache.get(mContext, XML_RES_ID, FLAGS));
+    }
+
+    @Test
+    public void persist_tooManyConfigs_dropLeastRecentlyUsed() {
+        final PreferenceMetadataCache cache = createCache(VERSION_1, CONFIG_1);
+        for (int i = 0; i <= PreferenceMetadataCache.MAX_CONFIG_COUNT; i++) {
+            doReturn("config" + i).when(cache).getConfig(any(Context.class));
+            cache.put(mContext, XML_RES_ID, FLAGS, createMetadata());
+            cache.persist();
+        }
+
+        final PreferenceMetadataCache newCache = createCache(VERSION_1, "config0");
+        newCache.ensureLoaded();
+        assertThat(newCache.get(mContext, XML_RES_ID, FLAGS)).isNull();
+        doReturn("config1").when(newCache).getConfig(any(Context.class));
+        assertMetadata(newCache.get(mContext, XML_RES_ID, FLAGS));
+    }
+
+    private PreferenceMetadataCache createCache(String versionTag, String config) {
+        final PreferenceMetadataCache cache =
+                spy(new PreferenceMetadataCache(mFile, versionTag));
+        doReturn(config).when(cache).getConfig(any(Context.class));
+        return cache;
+    }
+
+    private static List<Bundle> createMetadata() {
+        final List<Bundle> metadata = new ArrayList<>();
+        final Bundle bundle = new Bundle();
+        bundle.putString(PreferenceXmlParserUtils.METADATA_KEY, "key");
+        bundle.putString(PreferenceXmlParserUtils.METADATA_TITLE, null);
+        bundle.putInt(PreferenceXmlParserUtils.METADATA_ICON, 42);
+        bundle.putBoolean(PreferenceXmlParserUtils.METADATA_SEARCHABLE, true);
+        metadata.add(bundle);
+        return metadata;
+    }
+
+    private static void assertMetadata(List<Bundle> metadata) {
+        assertThat(metadata).hasSize(1);
+        final Bundle bundle = metadata.get(0);
+        assertThat(bundle.getString(PreferenceXmlParserUtils.METADATA_KEY)).isEqualTo("key");
+        assertThat(bundle.containsKey(PreferenceXmlParserUtils.METADATA_TITLE)).isTrue();
+        assertThat(bundle.getString(PreferenceXmlParserUtils.METADATA_TITLE)).isNull();
+        assertThat(bundle.getInt(PreferenceXmlParserUtils.METADATA_ICON)).isEqualTo(42);
+        assertThat(bundle.getBoolean(PreferenceXmlParserUtils.METADATA_SEARCHABLE)).isTrue();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.app.settings.SettingsEnums;
+import android.os.SystemClock;
+
+import com.android.settingslib.core.instrumentation.LogWriter;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class ControllerLatencyTrackerTest {
+    private static final String CONTROLLER_NAME = Object.class.getName();
+    private static final int PAGE_ID = SettingsEnums.SETTINGS_HOMEPAGE;
+
+    private LogWriter mWriter;
+    private ControllerLatencyTracker mTracker;
+
+    @Before
+    public void setUp() {
+        mWriter = mock(LogWriter.class);
+        mTracker = new ControllerLatencyTracker(mWriter);
+    }
+
+    @Test
+    public void record_addSampleToHistogramOfOperation() {
+        mTracker.record(PAGE_ID, new Object(), ControllerLatencyTracker.OP_UPDATE_STATE,
+                SystemClock.elapsedRealtimeNanos());
+
+        assertThat(mTracker.getHistogram(CONTROLLER_NAME,
+                ControllerLatencyTracker.OP_UPDATE_STATE).getCount()).isEqualTo(1);
+        assertThat(mTracker.getHistogram(CONTROLLER_NAME,
+                ControllerLatencyTracker.OP_DISPLAY).getCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void dump_containRecordedOperationOnly() throws Exception {
+        mTracker.record(PAGE_ID, new Object(), ControllerLatencyTracker.OP_AVAILABILITY,
+                SystemClock.elapsedRealtimeNanos());
+
+        final JSONObject controllerObj = mTracker.dump().getJSONObject(CONTROLLER_NAME);
+
+        assertThat(controllerObj.has("getAvailabilityStatus")).isTrue();
+        assertThat(controllerObj.has("updateState")).isFalse();
+        assertThat(controllerObj.getJSONObject("getAvailabilityStatus").getLong("count"))
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void flush_writeOneEventPerOperationAndResetHistogram() {
+        mTracker.record(PAGE_ID, new Object(), ControllerLatencyTracker.OP_CLICK,
+                SystemClock.elapsedRealtimeNanos());
+
+        mTracker.flush();
+
+        verify(mWriter).action(eq(SettingsEnums.PAGE_UNKNOWN),
+                eq(ControllerLatencyTracker.FLUSH_ACTION), eq(PAGE_ID),
+                eq(CONTROLLER_NAME + "#handlePreferenceTreeClick"), anyInt());
+        verify(mWriter, never()).action(anyInt(), anyInt(), anyInt(),
+                eq(CONTROLLER_NAME + "#displayPreference"), anyInt());
+        assertThat(mTracker.getHistogram(CONTROLLER_NAME,
+                ControllerLatencyTracker.OP_CLICK).getCount()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class LatencyHistogramTest {
+
+    private LatencyHistogram mHistogram;
+
+    @Before
+    public void setUp() {
+        mHistogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void getPercentileMicros_noSample_returnZero() {
+        assertThat(mHistogram.getPercentileMicros(50)).isEqualTo(0);
+    }
+
+    @Test
+    public void getPercentileMicros_returnUpperBoundOfBucket() {
+        for (int i = 0; i < 90; i++) {
+            mHistogram.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            mHistogram.record(5000);
+        }
+
+        assertThat(mHistogram.getCount()).isEqualTo(100);
+        assertThat(mHistogram.getPercentileMicros(50)).isEqualTo(127);
+        assertThat(mHistogram.getPercentileMicros(95)).isEqualTo(5000);
+        assertThat(mHistogram.getMaxMicros()).isEqualTo(5000);
+    }
+
+    @Test
+    public void getBucket_largeSample_returnLastBucket() {
+        assertThat(LatencyHistogram.getBucket(Long.MAX_VALUE))
+                .isEqualTo(LatencyHistogram.BUCKET_COUNT - 1);
+        assertThat(LatencyHistogram.getBucket(0)).isEqualTo(0);
+        assertThat(LatencyHistogram.getBucket(1024)).isEqualTo(10);
+    }
+
+    @Test
+    public void reset_clearAllSamples() {
+        mHistogram.record(100);
+
+        mHistogram.reset();
+
+        assertThat(mHistogram.getCount()).isEqualTo(0);
+        assertThat(mHistogram.getMaxMicros()).isEqualTo(0);
+        assertThat(mHistogram.getPercentileMicros(99)).isEqualTo(0);
+    }
+}
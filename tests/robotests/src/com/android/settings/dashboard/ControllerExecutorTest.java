@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.core.instrumentation.Instrumentable.METRICS_CATEGORY_UNKNOWN;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.core.BasePreferenceController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class ControllerExecutorTest {
+    private static final String KEY_1 = "key_1";
+    private static final String KEY_2 = "key_2";
+
+    private Context mContext;
+    private PreferenceScreen mScreen;
+    private List<Runnable> mPendingRunnables;
+    private ControllerExecutor mControllerExecutor;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        final PreferenceManager preferenceManager = new PreferenceManager(mContext);
+        mScreen = preferenceManager.createPreferenceScreen(mContext);
+        mPendingRunnables = new ArrayList<>();
+        mControllerExecutor = new ControllerExecutor(mPendingRunnables::add);
+    }
+
+    @Test
+    public void execute_allTasksPrepared_updateStateInOrder() {
+        final TestPreferenceController controller1 = spy(addController(KEY_1));
+        final TestPreferenceController controller2 = spy(addController(KEY_2));
+
+        mControllerExecutor.execute(Arrays.asList(createTask(controller1),
+                createTask(controller2)));
+        runPendingRunnables();
+        Robolectric.flushForegroundThreadScheduler();
+
+        final InOrder inOrder = inOrder(controller1, controller2);
+        inOrder.verify(controller1).prepareInBackground();
+        inOrder.verify(controller2).prepareInBackground();
+        inOrder.verify(controller1).updateState(any(Preference.class));
+        inOrder.verify(controller2).updateState(any(Preference.class));
+    }
+
+    @Test
+    public void execute_notAllTasksPrepared_noUpdateState() {
+        final TestPreferenceController controller1 = spy(addController(KEY_1));
+        final TestPreferenceController controller2 = spy(addController(KEY_2));
+
+        mControllerExecutor.execute(Arrays.asList(createTask(controller1),
+                createTask(controller2)));
+        mPendingRunnables.remove(0).run();
+        Robolectric.flushForegroundThreadScheduler();
+
+        verify(controller1, never()).updateState(any(Preference.class));
+        verify(controller2, never()).updateState(any(Preference.class));
+    }
+
+    @Test
+    public void execute_batchCancelled_noPrepareAndNoUpdateState() {
+        final TestPreferenceController controller = spy(addController(KEY_1));
+
+        mControllerExecutor.execute(Arrays.asList(createTask(controller))).cancel();
+        runPendingRunnables();
+        Robolectric.flushForegroundThreadScheduler();
+
+        verify(controller, never()).prepareInBackground();
+        verify(controller, never()).updateState(any(Preference.class));
+    }
+
+    private TestPreferenceController addController(String key) {
+        final Preference preference = new Preference(mContext);
+        preference.setKey(key);
+        mScreen.addPreference(preference);
+        return new TestPreferenceController(mContext, key);
+    }
+
+    private ControllerTask createTask(BasePreferenceController controller) {
+        return new ControllerTask(controller, mScreen, null /* metricsFeature */,
+                METRICS_CATEGORY_UNKNOWN);
+    }
+
+    private void runPendingRunnables() {
+        for (Runnable runnable : mPendingRunnables) {
+            runnable.run();
+        }
+        mPendingRunnables.clear();
+    }
+
+    static class TestPreferenceController extends BasePreferenceController
+            implements BasePreferenceController.BackgroundPreparer {
+        TestPreferenceController(Context context, String preferenceKey) {
+            super(context, preferenceKey);
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return AVAILABLE;
+        }
+
+        @Override
+        public void prepareInBackground() {
+        }
+    }
+}
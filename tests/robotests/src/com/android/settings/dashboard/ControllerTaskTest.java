@@ -17,8 +17,8 @@ package com.android.settings.dashboard;
 
 import static com.android.settingslib.core.instrumentation.Instrumentable.METRICS_CATEGORY_UNKNOWN;
 
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.never;
+import static com.google.common.truth.Truth.assertThat;
+
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
@@ -56,42 +56,38 @@ public class ControllerTaskTest {
     }
 
     @Test
-    public void doRun_controlNotAvailable_noRunUpdateState() {
+    public void prepare_controlNotAvailable_shouldReturnNull() {
         mTestController.setAvailable(false);
 
-        mControllerTask.run();
-
-        verify(mTestController, never()).updateState(any(Preference.class));
+        assertThat(mControllerTask.prepare()).isNull();
     }
 
     @Test
-    public void doRun_emptyKey_noRunUpdateState() {
+    public void prepare_emptyKey_shouldReturnNull() {
         mTestController.setKey("");
 
-        mControllerTask.run();
-
-        verify(mTestController, never()).updateState(any(Preference.class));
+        assertThat(mControllerTask.prepare()).isNull();
     }
 
     @Test
-    public void doRun_preferenceNotExist_noRunUpdateState() {
+    public void prepare_preferenceNotExist_shouldReturnNull() {
         mTestController.setKey(KEY);
 
-        mControllerTask.run();
-
-        verify(mTestController, never()).updateState(any(Preference.class));
+        assertThat(mControllerTask.prepare()).isNull();
     }
 
     @Test
-    public void doRun_executeUpdateState() {
+    public void prepareAndUpdateState_executeUpdateState() {
         mTestController.setKey(KEY);
         final Preference preference = new Preference(mContext);
         preference.setKey(KEY);
         mScreen.addPreference(preference);
 
-        mControllerTask.run();
+        final Preference prepared = mControllerTask.prepare();
+        mControllerTask.updateState(prepared);
 
-        verify(mTestController).updateState(any(Preference.class));
+        assertThat(prepared).isSameAs(preference);
+        verify(mTestController).updateState(preference);
     }
 
     static class TestPreferenceController extends AbstractPreferenceController {
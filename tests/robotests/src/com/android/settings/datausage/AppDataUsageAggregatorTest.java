@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.net.TrafficStats.UID_REMOVED;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.pm.UserInfo;
+import android.os.Process;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppDataUsageAggregatorTest {
+
+    private static final int CURRENT_USER = 0;
+    private static final int PROFILE_USER = 10;
+    private static final int OTHER_USER = 11;
+    private static final int REMOVED_USER = 12;
+    private static final int APP_ID = Process.FIRST_APPLICATION_UID + 1;
+
+    @Mock
+    private UserManager mUserManager;
+
+    private AppDataUsageAggregator mAggregator;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mUserManager.getUserProfiles()).thenReturn(
+                Arrays.asList(UserHandle.of(CURRENT_USER), UserHandle.of(PROFILE_USER)));
+        when(mUserManager.getUserInfo(OTHER_USER))
+                .thenReturn(new UserInfo(OTHER_USER, "other", 0 /* flags */));
+        mAggregator = new AppDataUsageAggregator(CURRENT_USER, mUserManager);
+    }
+
+    @Test
+    public void addUsage_sameUid_shouldFoldIntoOneItem() {
+        final int uid = UserHandle.getUid(CURRENT_USER, APP_ID);
+
+        mAggregator.addUsage(uid, 100);
+        mAggregator.addUsage(uid, 50);
+
+        final List<AppItem> items = mAggregator.getItems();
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).key).isEqualTo(uid);
+        assertThat(items.get(0).total).isEqualTo(150);
+        assertThat(mAggregator.getLargest()).isEqualTo(150);
+    }
+
+    @Test
+    public void addUsage_profileUid_shouldAddToUserAndAppItems() {
+        final int uid = UserHandle.getUid(PROFILE_USER, APP_ID);
+
+        mAggregator.addUsage(uid, 100);
+
+        final List<AppItem> items = mAggregator.getItems();
+        assertThat(items).hasSize(2);
+        assertThat(findItem(items, uid).category).isEqualTo(AppItem.CATEGORY_APP);
+        final AppItem userItem =
+                findItem(items, UidDetailProvider.buildKeyForUser(PROFILE_USER));
+        assertThat(userItem.category).isEqualTo(AppItem.CATEGORY_USER);
+        assertThat(userItem.total).isEqualTo(100);
+    }
+
+    @Test
+    public void addUsage_otherAndRemovedUsers_shouldCollapseAndQueryUserOnce() {
+        for (int i = 0; i < 10; i++) {
+            mAggregator.addUsage(UserHandle.getUid(OTHER_USER, APP_ID + i), 10);
+            mAggregator.addUsage(UserHandle.getUid(REMOVED_USER, APP_ID + i), 20);
+        }
+
+        final List<AppItem> items = mAggregator.getItems();
+        assertThat(items).hasSize(2);
+        assertThat(findItem(items, UidDetailProvider.buildKeyForUser(OTHER_USER)).total)
+                .isEqualTo(100);
+        assertThat(findItem(items, UID_REMOVED).total).isEqualTo(200);
+        verify(mUserManager, times(1)).getUserInfo(OTHER_USER);
+        verify(mUserManager, times(1)).getUserInfo(REMOVED_USER);
+    }
+
+    @Test
+    public void addUsage_systemUids_shouldCollapseIntoSystem() {
+        mAggregator.addUsage(Process.SYSTEM_UID, 10);
+        mAggregator.addUsage(Process.PHONE_UID, 20);
+
+        final List<AppItem> items = mAggregator.getItems();
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).key).isEqualTo(Process.SYSTEM_UID);
+        assertThat(items.get(0).total).isEqualTo(30);
+    }
+
+    @Test
+    public void setRestrictedUids_shouldOnlySpliceInProfileUids() {
+        final int usedUid = UserHandle.getUid(CURRENT_USER, APP_ID);
+        final int unusedUid = UserHandle.getUid(CURRENT_USER, APP_ID + 1);
+        mAggregator.addUsage(usedUid, 100);
+
+        mAggregator.setRestrictedUids(new int[] {
+                usedUid, unusedUid, UserHandle.getUid(OTHER_USER, APP_ID)});
+
+        final List<AppItem> items = mAggregator.getItems();
+        assertThat(items).hasSize(2);
+        assertThat(findItem(items, usedUid).restricted).isTrue();
+        assertThat(findItem(items, usedUid).total).isEqualTo(100);
+        assertThat(findItem(items, unusedUid).restricted).isTrue();
+        assertThat(findItem(items, unusedUid).total).isEqualTo(-1);
+    }
+
+    @Test
+    public void getItems_shouldSortByDecreasingUsage() {
+        mAggregator.addUsage(UserHandle.getUid(CURRENT_USER, APP_ID), 10);
+        mAggregator.addUsage(UserHandle.getUid(CURRENT_USER, APP_ID + 1), 30);
+        mAggregator.addUsage(UserHandle.getUid(CURRENT_USER, APP_ID + 2), 20);
+
+        final List<AppItem> items = mAggregator.getItems();
+        assertThat(items.get(0).total).isEqualTo(30);
+        assertThat(items.get(1).total).isEqualTo(20);
+        assertThat(items.get(2).total).isEqualTo(10);
+    }
+
+    private static AppItem findItem(List<AppItem> items, int key) {
+        for (AppItem item : items) {
+            if (item.key == key) {
+                return item;
+            }
+        }
+        throw new AssertionError("No item for " + key);
+    }
+}
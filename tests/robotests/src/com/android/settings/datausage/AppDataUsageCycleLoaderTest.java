@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.NetworkTemplate;
+import android.text.format.DateUtils;
+import android.util.SparseLongArray;
+
+import com.android.settingslib.net.NetworkCycleDataForUid;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppDataUsageCycleLoaderTest {
+
+    @Test
+    public void loadInBackground_closedCycleStored_shouldSumStoredUsageOfUids() {
+        final Context context = RuntimeEnvironment.application;
+        final NetworkTemplate template = NetworkTemplate.buildTemplateWifiWildcard();
+        final long end = System.currentTimeMillis() - 10 * DateUtils.DAY_IN_MILLIS;
+        final long start = end - 30 * DateUtils.DAY_IN_MILLIS;
+        final SparseLongArray usage = new SparseLongArray();
+        usage.put(123, 100);
+        usage.put(456, 50);
+        usage.put(789, 1000);
+        final SparseLongArray foregroundUsage = new SparseLongArray();
+        foregroundUsage.put(123, 30);
+        foregroundUsage.put(456, 20);
+        DataUsageRollupStore.getInstance(context)
+                .put(template, start, end, usage, foregroundUsage, end + DateUtils.WEEK_IN_MILLIS);
+
+        final List<NetworkCycleDataForUid> data = new AppDataUsageCycleLoader(context, template,
+                Arrays.asList(123, 456), new ArrayList<>(Arrays.asList(end, start)))
+                .loadInBackground();
+
+        assertThat(data).hasSize(1);
+        assertThat(data.get(0).getStartTime()).isEqualTo(start);
+        assertThat(data.get(0).getEndTime()).isEqualTo(end);
+        assertThat(data.get(0).getTotalUsage()).isEqualTo(150);
+        assertThat(data.get(0).getForegroudUsage()).isEqualTo(50);
+        assertThat(data.get(0).getBackgroudUsage()).isEqualTo(100);
+    }
+}
@@ -367,9 +367,10 @@ public class AppDataUsageTest {
         ReflectionHelpers.setField(mFragment, "mTemplate",
                 NetworkTemplate.buildTemplateWifiWildcard());
 
-        final NetworkCycleDataForUidLoader loader = (NetworkCycleDataForUidLoader)
+        final AppDataUsageCycleLoader loader = (AppDataUsageCycleLoader)
                 mFragment.mUidDataCallbacks.onCreateLoader(0 /* id */, Bundle.EMPTY /* args */);
 
+        assertThat(loader.getUids()).containsExactly(uid);
         final ArrayList<Long> cycles = loader.getCycles();
         assertThat(cycles).hasSize(2);
         assertThat(cycles.get(0)).isEqualTo(endTime);
@@ -20,17 +20,18 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
-import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.content.pm.PackageManager.NameNotFoundException;
 import android.graphics.drawable.Drawable;
 import android.util.ArraySet;
 
 import androidx.preference.Preference;
 
+import com.android.settings.applications.AppLabelIconCache;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -38,12 +39,15 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
+import org.robolectric.util.ReflectionHelpers;
 
 @RunWith(RobolectricTestRunner.class)
 public class AppPrefLoaderTest {
 
     @Mock
     private PackageManager mPackageManager;
+    @Mock
+    private AppLabelIconCache mCache;
 
     private AppPrefLoader mLoader;
 
@@ -53,26 +57,25 @@ public class AppPrefLoaderTest {
         final ArraySet<String> pkgs = new ArraySet<>(2);
         pkgs.add("pkg0");
         pkgs.add("pkg1");
-        mLoader = new AppPrefLoader(RuntimeEnvironment.application, pkgs, mPackageManager);
+        mLoader = new AppPrefLoader(RuntimeEnvironment.application, pkgs, mPackageManager,
+                mCache);
     }
 
     @Test
-    public void loadInBackground_packageNotFound_shouldReturnEmptySet()
-            throws NameNotFoundException {
-        when(mPackageManager.getApplicationInfo(anyString(), anyInt()))
-            .thenThrow(new NameNotFoundException());
+    public void loadInBackground_packageNotFound_shouldReturnEmptySet() {
+        when(mCache.get(eq(mPackageManager), anyString(), anyInt())).thenReturn(null);
 
         assertThat(mLoader.loadInBackground()).isEmpty();
     }
 
     @Test
-    public void loadInBackground_shouldReturnPreference() throws NameNotFoundException {
-        ApplicationInfo info = mock(ApplicationInfo.class);
-        when(mPackageManager.getApplicationInfo(anyString(), anyInt())).thenReturn(info);
+    public void loadInBackground_shouldReturnPreference() {
+        final AppLabelIconCache.Entry entry = mock(AppLabelIconCache.Entry.class);
+        when(mCache.get(eq(mPackageManager), anyString(), anyInt())).thenReturn(entry);
         final Drawable drawable = mock(Drawable.class);
         final String label = "Label1";
-        when(info.loadIcon(mPackageManager)).thenReturn(drawable);
-        when(info.loadLabel(mPackageManager)).thenReturn(label);
+        when(entry.newIcon()).thenReturn(drawable);
+        ReflectionHelpers.setField(entry, "label", label);
 
         Preference preference = mLoader.loadInBackground().valueAt(0);
         assertThat(preference.getTitle()).isEqualTo(label);
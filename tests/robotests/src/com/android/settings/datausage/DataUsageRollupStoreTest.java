@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.NetworkTemplate;
+import android.text.format.DateUtils;
+import android.util.SparseLongArray;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+
+@RunWith(RobolectricTestRunner.class)
+public class DataUsageRollupStoreTest {
+
+    private static final long DAY = DateUtils.DAY_IN_MILLIS;
+    private static final long NOW = 1000 * DAY;
+
+    private File mDir;
+    private NetworkTemplate mTemplate;
+    private DataUsageRollupStore mStore;
+
+    @Before
+    public void setUp() {
+        mDir = new File(RuntimeEnvironment.application.getCacheDir(),
+                DataUsageRollupStore.DIR_NAME);
+        mTemplate = NetworkTemplate.buildTemplateWifiWildcard();
+        mStore = new DataUsageRollupStore(mDir);
+    }
+
+    @Test
+    public void put_openCycle_shouldNotStore() {
+        mStore.put(mTemplate, NOW - 10 * DAY, NOW, createUsage(10), createUsage(1), NOW);
+
+        assertThat(mStore.get(mTemplate, NOW - 10 * DAY, NOW)).isNull();
+    }
+
+    @Test
+    public void put_closedCycle_shouldBeReadBackFromDisk() {
+        mStore.put(mTemplate, NOW - 40 * DAY, NOW - 10 * DAY, createUsage(10), createUsage(1), NOW);
+
+        final SparseLongArray usage = new DataUsageRollupStore(mDir)
+                .get(mTemplate, NOW - 40 * DAY, NOW - 10 * DAY);
+
+        assertThat(usage.size()).isEqualTo(2);
+        assertThat(usage.get(1000)).isEqualTo(10);
+        assertThat(usage.get(10001)).isEqualTo(20);
+    }
+
+    @Test
+    public void put_closedCycle_shouldReadBackForegroundUsage() {
+        mStore.put(mTemplate, NOW - 40 * DAY, NOW - 10 * DAY, createUsage(10), createUsage(3),
+                NOW);
+
+        final SparseLongArray foregroundUsage = new DataUsageRollupStore(mDir)
+                .getForeground(mTemplate, NOW - 40 * DAY, NOW - 10 * DAY);
+
+        assertThat(foregroundUsage.get(1000)).isEqualTo(3);
+        assertThat(foregroundUsage.get(10001)).isEqualTo(6);
+    }
+
+    @Test
+    public void get_otherTemplateOrBounds_shouldReturnNull() {
+        mStore.put(mTemplate, NOW - 40 * DAY, NOW - 10 * DAY, createUsage(10), createUsage(1), NOW);
+
+        assertThat(mStore.get(NetworkTemplate.buildTemplateEthernet(),
+                NOW - 40 * DAY, NOW - 10 * DAY)).isNull();
+        assertThat(mStore.get(mTemplate, NOW - 39 * DAY, NOW - 9 * DAY)).isNull();
+    }
+
+    @Test
+    public void put_overlappingCycle_shouldReplaceOldCycle() {
+        mStore.put(mTemplate, NOW - 40 * DAY, NOW - 10 * DAY, createUsage(10), createUsage(1), NOW);
+
+        // The cycle day changed.
+        mStore.put(mTemplate, NOW - 35 * DAY, NOW - 5 * DAY, createUsage(30), createUsage(1), NOW);
+
+        assertThat(mStore.get(mTemplate, NOW - 40 * DAY, NOW - 10 * DAY)).isNull();
+        assertThat(mStore.get(mTemplate, NOW - 35 * DAY, NOW - 5 * DAY).get(1000))
+                .isEqualTo(30);
+    }
+
+    @Test
+    public void put_tooManyCycles_shouldDropOldestCycles() {
+        final int count = DataUsageRollupStore.MAX_CYCLES_PER_TEMPLATE + 1;
+        for (int i = 0; i < count; i++) {
+            final long end = NOW - (i + 1) * 30 * DAY;
+            mStore.put(mTemplate, end - 30 * DAY, end, createUsage(i), createUsage(1), NOW);
+        }
+
+        final long oldestEnd = NOW - count * 30 * DAY;
+        assertThat(mStore.get(mTemplate, oldestEnd - 30 * DAY, oldestEnd)).isNull();
+        assertThat(mStore.get(mTemplate, NOW - 60 * DAY, NOW - 30 * DAY)).isNotNull();
+    }
+
+    @Test
+    public void get_fileOfOtherTemplateWithSameName_shouldReturnNull() {
+        final NetworkTemplate otherTemplate = NetworkTemplate.buildTemplateEthernet();
+        mStore.put(otherTemplate, NOW - 40 * DAY, NOW - 10 * DAY, createUsage(10), createUsage(1),
+                NOW);
+
+        // As if both templates had the same hash code.
+        new File(mDir, DataUsageRollupStore.getFileName(otherTemplate)).renameTo(
+                new File(mDir, DataUsageRollupStore.getFileName(mTemplate)));
+
+        assertThat(new DataUsageRollupStore(mDir)
+                .get(mTemplate, NOW - 40 * DAY, NOW - 10 * DAY)).isNull();
+    }
+
+    private static SparseLongArray createUsage(long bytes) {
+        final SparseLongArray usage = new SparseLongArray();
+        usage.put(1000, bytes);
+        usage.put(10001, 2 * bytes);
+        return usage;
+    }
+}
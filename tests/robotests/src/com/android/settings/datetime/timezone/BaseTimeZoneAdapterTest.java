@@ -18,6 +18,8 @@ package com.android.settings.datetime.timezone;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import android.widget.Filter;
+
 import androidx.recyclerview.widget.RecyclerView.AdapterDataObserver;
 
 import org.junit.Test;
@@ -54,6 +56,24 @@ public class BaseTimeZoneAdapterTest {
         assertSearch(adapter, "sec", secretCountry);
     }
 
+    @Test
+    public void testSearch_staleResultsAreDropped() throws InterruptedException {
+        TestItem US = new TestItem("United States");
+        TestItem HK = new TestItem("Hong Kong");
+        List<TestItem> items = new ArrayList<>();
+        items.add(US);
+        items.add(HK);
+        TestTimeZoneAdapter adapter = new TestTimeZoneAdapter(items);
+
+        Observer observer = new Observer(adapter);
+        adapter.getFilter().search("Hong");
+        observer.await();
+        new FilterWrapper(adapter.getFilter()).publishResults("Unit", items);
+
+        assertThat(adapter.getItemCount()).isEqualTo(1);
+        assertThat(adapter.getDataItem(0)).isEqualTo(HK);
+    }
+
     private void assertSearch(TestTimeZoneAdapter adapter , String searchText, TestItem... items)
             throws InterruptedException {
         Observer observer = new Observer(adapter);
@@ -86,6 +106,33 @@ public class BaseTimeZoneAdapterTest {
         }
     }
 
+    // FilterResults is a protected inner class. Use FilterWrapper to create FilterResults.
+    private static class FilterWrapper extends Filter {
+
+        private final BaseTimeZoneAdapter.ArrayFilter mFilter;
+
+        private FilterWrapper(BaseTimeZoneAdapter.ArrayFilter filter) {
+            mFilter = filter;
+        }
+
+        @Override
+        protected FilterResults performFiltering(CharSequence charSequence) {
+            return null;
+        }
+
+        private void publishResults(CharSequence charSequence, List<TestItem> items) {
+            FilterResults filterResults = new FilterResults();
+            filterResults.count = items.size();
+            filterResults.values = items;
+            publishResults(charSequence, filterResults);
+        }
+
+        @Override
+        protected void publishResults(CharSequence charSequence, FilterResults filterResults) {
+            mFilter.publishResults(charSequence, filterResults);
+        }
+    }
+
     private static class TestTimeZoneAdapter extends BaseTimeZoneAdapter<TestItem> {
 
         private TestTimeZoneAdapter(List<TestItem> items) {
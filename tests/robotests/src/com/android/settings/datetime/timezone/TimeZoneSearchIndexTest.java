@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datetime.timezone;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+@RunWith(RobolectricTestRunner.class)
+public class TimeZoneSearchIndexTest {
+
+    private RegionSearchPicker.RegionItem mUnitedStates;
+    private RegionSearchPicker.RegionItem mSaoTome;
+    private RegionSearchPicker.RegionItem mSwitzerland;
+    private TimeZoneSearchIndex<RegionSearchPicker.RegionItem> mIndex;
+
+    @Before
+    public void setUp() {
+        mUnitedStates = new RegionSearchPicker.RegionItem(0, "US", "United States");
+        mSaoTome = new RegionSearchPicker.RegionItem(1, "ST", "São Tomé & Príncipe");
+        mSwitzerland = new RegionSearchPicker.RegionItem(2, "CH", "Zürich");
+        final List<RegionSearchPicker.RegionItem> items =
+                Arrays.asList(mUnitedStates, mSaoTome, mSwitzerland);
+        mIndex = new TimeZoneSearchIndex<>(items, Locale.US);
+    }
+
+    @Test
+    public void search_prefixOfKey_returnMatches() {
+        assertThat(mIndex.search("Uni")).containsExactly(mUnitedStates);
+        assertThat(mIndex.search("united st")).containsExactly(mUnitedStates);
+        assertThat(mIndex.search("us")).containsExactly(mUnitedStates);
+    }
+
+    @Test
+    public void search_prefixOfWord_returnMatches() {
+        assertThat(mIndex.search("sta")).containsExactly(mUnitedStates);
+        assertThat(mIndex.search("prin")).containsExactly(mSaoTome);
+    }
+
+    @Test
+    public void search_withoutAccents_returnMatches() {
+        assertThat(mIndex.search("sao")).containsExactly(mSaoTome);
+        assertThat(mIndex.search("zur")).containsExactly(mSwitzerland);
+        assertThat(mIndex.search("São")).containsExactly(mSaoTome);
+    }
+
+    @Test
+    public void search_severalMatches_keepItemOrder() {
+        assertThat(mIndex.search("s")).containsExactly(mUnitedStates, mSaoTome).inOrder();
+    }
+
+    @Test
+    public void search_noMatch_returnEmpty() {
+        assertThat(mIndex.search("ited")).isEmpty();
+        assertThat(mIndex.search("xyz")).isEmpty();
+    }
+}
@@ -19,6 +19,8 @@ package com.android.settings.datetime.timezone.model;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import libcore.timezone.CountryTimeZones;
@@ -68,6 +70,7 @@ public class TimeZoneDataTest {
 
     @Test
     public void testLookupCountryCodesForZoneId() {
+        when(mCountryZonesFinder.lookupAllCountryIsoCodes()).thenReturn(Arrays.asList("us", "gb"));
         TimeZoneData timeZoneData = new TimeZoneData(mCountryZonesFinder);
         assertThat(timeZoneData.lookupCountryCodesForZoneId(null)).isEmpty();
         CountryTimeZones US = mock(CountryTimeZones.class);
@@ -81,10 +84,22 @@ public class TimeZoneDataTest {
         when(GB.getTimeZoneMappings()).thenReturn(Collections.singletonList(
             TimeZoneMapping.createForTests("Unknown/Secret_City", true, null /* notUsedAfter */)
         ));
-        when(mCountryZonesFinder.lookupCountryTimeZonesForZoneId("Unknown/Secret_City"))
-                .thenReturn(Arrays.asList(US, GB));
+        when(mCountryZonesFinder.lookupCountryTimeZones("US")).thenReturn(US);
+        when(mCountryZonesFinder.lookupCountryTimeZones("GB")).thenReturn(GB);
         assertThat(timeZoneData.lookupCountryCodesForZoneId("Unknown/Secret_City"))
                 .containsExactly("US", "GB");
         assertThat(timeZoneData.lookupCountryCodesForZoneId("Unknown/Secret_City2")).isEmpty();
     }
+
+    @Test
+    public void testLookupCountryTimeZones_isCached() {
+        TimeZoneData timeZoneData = new TimeZoneData(mCountryZonesFinder);
+        CountryTimeZones countryTimeZones = mock(CountryTimeZones.class);
+        when(countryTimeZones.getTimeZoneMappings()).thenReturn(Collections.emptyList());
+        when(mCountryZonesFinder.lookupCountryTimeZones("US")).thenReturn(countryTimeZones);
+
+        assertThat(timeZoneData.lookupCountryTimeZones("US"))
+                .isSameAs(timeZoneData.lookupCountryTimeZones("US"));
+        verify(mCountryZonesFinder, times(1)).lookupCountryTimeZones("US");
+    }
 }
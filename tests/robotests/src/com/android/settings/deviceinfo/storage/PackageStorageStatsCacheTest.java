@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.deviceinfo.storage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+
+@RunWith(RobolectricTestRunner.class)
+public class PackageStorageStatsCacheTest {
+    private static final String UUID = "uuid";
+    private static final int USER_ID = 0;
+    private static final String PACKAGE_NAME = "com.android.test";
+    private static final long MAX_AGE_MS = 1000;
+    private static final long NOW = 10000;
+
+    private File mFile;
+    private ApplicationInfo mApp;
+
+    @Before
+    public void setUp() {
+        final Context context = RuntimeEnvironment.application;
+        mFile = new File(context.getCacheDir(), PackageStorageStatsCache.FILE_NAME);
+        mFile.delete();
+        mApp = new ApplicationInfo();
+        mApp.packageName = PACKAGE_NAME;
+        mApp.sourceDir = "/data/app/" + PACKAGE_NAME + "-1/base.apk";
+        mApp.longVersionCode = 1;
+    }
+
+    @Test
+    public void get_notCached_returnNull() {
+        final PackageStorageStatsCache cache = new PackageStorageStatsCache(mFile, MAX_AGE_MS);
+
+        assertThat(cache.get(UUID, USER_ID, mApp, NOW)).isNull();
+    }
+
+    @Test
+    public void get_cached_returnStats() {
+        final PackageStorageStatsCache cache = new PackageStorageStatsCache(mFile, MAX_AGE_MS);
+        cache.put(UUID, USER_ID, mApp, createStats(), NOW);
+
+        assertStats(cache.get(UUID, USER_ID, mApp, NOW + MAX_AGE_MS - 1));
+        assertThat(cache.get(UUID, USER_ID + 1, mApp, NOW)).isNull();
+    }
+
+    @Test
+    public void get_packageUpdated_returnNull() {
+        final PackageStorageStatsCache cache = new PackageStorageStatsCache(mFile, MAX_AGE_MS);
+        cache.put(UUID, USER_ID, mApp, createStats(), NOW);
+
+        mApp.sourceDir = "/data/app/" + PACKAGE_NAME + "-2/base.apk";
+
+        assertThat(cache.get(UUID, USER_ID, mApp, NOW)).isNull();
+    }
+
+    @Test
+    public void get_stale_returnNull() {
+        final PackageStorageStatsCache cache = new PackageStorageStatsCache(mFile, MAX_AGE_MS);
+        cache.put(UUID, USER_ID, mApp, createStats(), NOW);
+
+        assertThat(cache.get(UUID, USER_ID, mApp, NOW + MAX_AGE_MS)).isNull();
+        assertThat(cache.get(UUID, USER_ID, mApp, NOW - 1)).isNull();
+    }
+
+    @Test
+    public void get_persisted_readFromFile() {
+        final PackageStorageStatsCache cache = new PackageStorageStatsCache(mFile, MAX_AGE_MS);
+        cache.put(UUID, USER_ID, mApp, createStats(), NOW);
+        cache.persist(NOW);
+
+        final PackageStorageStatsCache newCache =
+                new PackageStorageStatsCache(mFile, MAX_AGE_MS);
+
+        assertStats(newCache.get(UUID, USER_ID, mApp, NOW));
+    }
+
+    @Test
+    public void persist_staleEntries_notWritten() {
+        final PackageStorageStatsCache cache = new PackageStorageStatsCache(mFile, MAX_AGE_MS);
+        cache.put(UUID, USER_ID, mApp, createStats(), NOW);
+        cache.persist(NOW + MAX_AGE_MS);
+
+        final PackageStorageStatsCache newCache =
+                new PackageStorageStatsCache(mFile, Long.MAX_VALUE);
+
+        assertThat(newCache.get(UUID, USER_ID, mApp, NOW)).isNull();
+    }
+
+    @Test
+    public void get_invalidated_returnNull() {
+        // Never stale, so that only the invalidation drops stats.
+        final PackageStorageStatsCache cache =
+                new PackageStorageStatsCache(mFile, Long.MAX_VALUE);
+        final ApplicationInfo otherApp = createOtherApp();
+        cache.put(UUID, USER_ID, mApp, createStats(), NOW);
+        cache.put(UUID, USER_ID + 1, mApp, createStats(), NOW);
+        cache.put(UUID, USER_ID, otherApp, createStats(), NOW);
+
+        cache.invalidate(PACKAGE_NAME);
+
+        assertThat(cache.get(UUID, USER_ID, mApp, NOW)).isNull();
+        assertThat(cache.get(UUID, USER_ID + 1, mApp, NOW)).isNull();
+        assertStats(cache.get(UUID, USER_ID, otherApp, NOW));
+    }
+
+    @Test
+    public void get_invalidatedBeforeRead_dropPersistedStats() {
+        final PackageStorageStatsCache cache =
+                new PackageStorageStatsCache(mFile, Long.MAX_VALUE);
+        final ApplicationInfo otherApp = createOtherApp();
+        cache.put(UUID, USER_ID, mApp, createStats(), NOW);
+        cache.put(UUID, USER_ID, otherApp, createStats(), NOW);
+        cache.persist(NOW);
+
+        final PackageStorageStatsCache newCache =
+                new PackageStorageStatsCache(mFile, Long.MAX_VALUE);
+        newCache.invalidate(PACKAGE_NAME);
+
+        assertThat(newCache.get(UUID, USER_ID, mApp, NOW)).isNull();
+        assertStats(newCache.get(UUID, USER_ID, otherApp, NOW));
+    }
+
+    private ApplicationInfo createOtherApp() {
+        final ApplicationInfo app = new ApplicationInfo(mApp);
+        app.packageName = PACKAGE_NAME + ".other";
+        return app;
+    }
+
+    private static PackageStorageStatsCache.Stats createStats() {
+        return new PackageStorageStatsCache.Stats(1, 2, 3, 4);
+    }
+
+    private static void assertStats(PackageStorageStatsCache.Stats stats) {
+        assertThat(stats.codeBytes).isEqualTo(1);
+        assertThat(stats.dataBytes).isEqualTo(2);
+        assertThat(stats.cacheBytes).isEqualTo(3);
+        assertThat(stats.cacheQuotaBytes).isEqualTo(4);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.os.BatteryStats;
+import android.os.BatteryStats.HistoryItem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatteryHistoryColumnsTest {
+
+    private static final long START_CLOCK_TIME = 1000000L;
+    private static final long[] TIMES = {1000, 1500, 2000};
+    private static final byte[] LEVELS = {99, 98, 97};
+
+    @Mock
+    private BatteryStats mBatteryStats;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        BatteryHistoryColumns.clearCache();
+        doReturn(START_CLOCK_TIME).when(mBatteryStats).getStartClockTime();
+        doReturn(100).when(mBatteryStats).getHistoryUsedSize();
+        doAnswer(invocation -> {
+            final int[] count = {0};
+            doAnswer(next -> {
+                if (count[0] == TIMES.length) {
+                    return false;
+                }
+                final HistoryItem record = next.getArgument(0);
+                record.cmd = HistoryItem.CMD_UPDATE;
+                record.time = TIMES[count[0]];
+                record.batteryLevel = LEVELS[count[0]];
+                record.states = count[0] == 1 ? HistoryItem.STATE_SCREEN_ON_FLAG : 0;
+                count[0]++;
+                return true;
+            }).when(mBatteryStats).getNextHistoryLocked(any(HistoryItem.class));
+            return true;
+        }).when(mBatteryStats).startIteratingHistoryLocked();
+    }
+
+    @After
+    public void tearDown() {
+        BatteryHistoryColumns.clearCache();
+    }
+
+    @Test
+    public void get_shouldDecodeAllRecords() {
+        final BatteryHistoryColumns columns = BatteryHistoryColumns.get(mBatteryStats);
+
+        assertThat(columns.mSize).isEqualTo(TIMES.length);
+    }
+
+    @Test
+    public void parse_calledTwice_shouldWalkHistoryOnce() {
+        final RecordingParser first = new RecordingParser();
+        final RecordingParser second = new RecordingParser();
+
+        BatteryInfo.parse(mBatteryStats, first);
+        BatteryInfo.parse(mBatteryStats, second);
+
+        verify(mBatteryStats, times(1)).startIteratingHistoryLocked();
+        assertThat(second.mLevels).containsExactlyElementsIn(first.mLevels).inOrder();
+        assertThat(second.mStates).containsExactlyElementsIn(first.mStates).inOrder();
+    }
+
+    @Test
+    public void parse_historyGrew_shouldWalkHistoryAgain() {
+        BatteryInfo.parse(mBatteryStats, new RecordingParser());
+
+        doReturn(200).when(mBatteryStats).getHistoryUsedSize();
+        BatteryInfo.parse(mBatteryStats, new RecordingParser());
+
+        verify(mBatteryStats, times(2)).startIteratingHistoryLocked();
+    }
+
+    @Test
+    public void parse_noStartClockTime_shouldNotCache() {
+        doReturn(0L).when(mBatteryStats).getStartClockTime();
+
+        BatteryInfo.parse(mBatteryStats, new RecordingParser());
+        BatteryInfo.parse(mBatteryStats, new RecordingParser());
+
+        verify(mBatteryStats, times(2)).startIteratingHistoryLocked();
+    }
+
+    @Test
+    public void parse_shouldReplayRecordFields() {
+        final RecordingParser parser = new RecordingParser();
+
+        BatteryInfo.parse(mBatteryStats, parser);
+
+        assertThat(parser.mStarted).isTrue();
+        assertThat(parser.mDone).isTrue();
+        assertThat(parser.mLevels).containsExactly(99, 98, 97).inOrder();
+        assertThat(parser.mStates).containsExactly(0, HistoryItem.STATE_SCREEN_ON_FLAG, 0)
+                .inOrder();
+    }
+
+    private static class RecordingParser implements BatteryInfo.BatteryDataParser {
+        private final List<Integer> mLevels = new ArrayList<>();
+        private final List<Integer> mStates = new ArrayList<>();
+        private boolean mStarted;
+        private boolean mDone;
+
+        @Override
+        public void onParsingStarted(long startTime, long endTime) {
+            mStarted = true;
+        }
+
+        @Override
+        public void onDataPoint(long time, HistoryItem record) {
+            mLevels.add((int) record.batteryLevel);
+            mStates.add(record.states);
+        }
+
+        @Override
+        public void onDataGap() {
+        }
+
+        @Override
+        public void onParsingDone() {
+            mDone = true;
+        }
+    }
+}
@@ -69,4 +69,28 @@ public class CardDatabaseHelperTest {
         assertThat(columnNames).isEqualTo(expectedNames);
         cursor.close();
     }
+
+    @Test
+    public void testSnapshotSchema() {
+        final Cursor cursor = mDatabase.rawQuery(
+                "SELECT * FROM " + CardDatabaseHelper.CARD_SNAPSHOT_TABLE, null);
+        final String[] columnNames = cursor.getColumnNames();
+
+        final String[] expectedNames = {
+                CardDatabaseHelper.CardSnapshotColumns.POSITION,
+                CardDatabaseHelper.CardSnapshotColumns.NAME,
+                CardDatabaseHelper.CardSnapshotColumns.TYPE,
+                CardDatabaseHelper.CardSnapshotColumns.SCORE,
+                CardDatabaseHelper.CardSnapshotColumns.SLICE_URI,
+                CardDatabaseHelper.CardSnapshotColumns.CATEGORY,
+                CardDatabaseHelper.CardSnapshotColumns.PACKAGE_NAME,
+                CardDatabaseHelper.CardSnapshotColumns.APP_VERSION,
+                CardDatabaseHelper.CardSnapshotColumns.IS_LARGE_CARD,
+                CardDatabaseHelper.CardSnapshotColumns.HAS_INLINE_ACTION,
+                CardDatabaseHelper.CardSnapshotColumns.SLICE,
+        };
+
+        assertThat(columnNames).isEqualTo(expectedNames);
+        cursor.close();
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+
+import androidx.slice.Slice;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@RunWith(RobolectricTestRunner.class)
+public class CardEligibilityEngineTest {
+
+    private static final Uri TEST_SLICE_URI = Uri.parse("content://test/test");
+
+    private ExecutorService mExecutor;
+    private CardEligibilityEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newSingleThreadExecutor();
+        mEngine = new CardEligibilityEngine(mExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void hasCachedSlice_notCached_returnFalse() {
+        assertThat(mEngine.hasCachedSlice(TEST_SLICE_URI)).isFalse();
+    }
+
+    @Test
+    public void hasCachedSlice_cachedWithinTtl_returnTrue() {
+        final Slice slice = new Slice.Builder(TEST_SLICE_URI).build();
+        mEngine.putCachedSlice(TEST_SLICE_URI, slice);
+
+        assertThat(mEngine.hasCachedSlice(TEST_SLICE_URI)).isTrue();
+        assertThat(mEngine.getCachedSlice(TEST_SLICE_URI)).isSameAs(slice);
+    }
+
+    @Test
+    public void hasCachedSlice_failedBindCached_returnTrueWithNullSlice() {
+        mEngine.putCachedSlice(TEST_SLICE_URI, null);
+
+        assertThat(mEngine.hasCachedSlice(TEST_SLICE_URI)).isTrue();
+        assertThat(mEngine.getCachedSlice(TEST_SLICE_URI)).isNull();
+    }
+
+    @Test
+    public void hasCachedSlice_ttlExpired_returnFalse() {
+        mEngine.putCachedSlice(TEST_SLICE_URI, new Slice.Builder(TEST_SLICE_URI).build());
+
+        SystemClock.setCurrentTimeMillis(
+                SystemClock.elapsedRealtime() + CardEligibilityEngine.CACHE_TTL_MS + 1);
+
+        assertThat(mEngine.hasCachedSlice(TEST_SLICE_URI)).isFalse();
+    }
+
+    @Test
+    public void filterEligibleCards_checksQueuedOnOneThread_noCardTimedOut() {
+        final CardEligibilityEngine engine = new CardEligibilityEngine(mExecutor) {
+            @Override
+            Callable<ContextualCard> createChecker(Context context, ContextualCard card) {
+                return () -> {
+                    Thread.sleep(100);
+                    return card;
+                };
+            }
+        };
+        final List<ContextualCard> candidates = getCards(5);
+
+        // The checks take longer than the timeout altogether, but not one by one.
+        final List<ContextualCard> cards = engine.filterEligibleCards(
+                RuntimeEnvironment.application, candidates, 300 /* timeoutMs */,
+                new CancellationSignal());
+
+        assertThat(cards).containsExactlyElementsIn(candidates).inOrder();
+    }
+
+    @Test
+    public void filterEligibleCards_checksNeverStarted_timedOutFromSubmission() {
+        final ExecutorService executor = mock(ExecutorService.class);
+        when(executor.submit(any(Callable.class))).thenAnswer(invocation ->
+                new FutureTask<ContextualCard>(invocation.getArgument(0)) {
+                    @Override
+                    public ContextualCard get(long timeout, TimeUnit unit)
+                            throws TimeoutException {
+                        // The check stays queued, waiting for it only moves the clock.
+                        SystemClock.setCurrentTimeMillis(
+                                SystemClock.elapsedRealtime() + unit.toMillis(timeout));
+                        throw new TimeoutException();
+                    }
+                });
+        final CardEligibilityEngine engine = new CardEligibilityEngine(executor);
+        final List<ContextualCard> candidates = getCards(2);
+
+        final List<ContextualCard> cards = engine.filterEligibleCards(
+                RuntimeEnvironment.application, candidates, 50 /* timeoutMs */,
+                new CancellationSignal());
+
+        assertThat(cards).isEmpty();
+        assertThat(engine.getCheckTimeouts(candidates.get(0).getName())).isEqualTo(1);
+        assertThat(engine.getCheckTimeouts(candidates.get(1).getName())).isEqualTo(1);
+    }
+
+    @Test
+    public void filterEligibleCards_shouldRecordCheckLatencyPerCard() {
+        final CardEligibilityEngine engine = new CardEligibilityEngine(mExecutor) {
+            @Override
+            Callable<ContextualCard> createChecker(Context context, ContextualCard card) {
+                return () -> card;
+            }
+        };
+        final List<ContextualCard> candidates = getCards(2);
+
+        engine.filterEligibleCards(RuntimeEnvironment.application, candidates,
+                300 /* timeoutMs */, new CancellationSignal());
+
+        assertThat(engine.getCheckLatency(candidates.get(0).getName()).getCount()).isEqualTo(1);
+        assertThat(engine.getCheckLatency(candidates.get(1).getName()).getCount()).isEqualTo(1);
+        assertThat(engine.getCheckTimeouts(candidates.get(0).getName())).isEqualTo(0);
+    }
+
+    @Test
+    public void filterEligibleCards_cancelled_returnNoCard() {
+        final CardEligibilityEngine engine = new CardEligibilityEngine(mExecutor) {
+            @Override
+            Callable<ContextualCard> createChecker(Context context, ContextualCard card) {
+                return () -> card;
+            }
+        };
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        cancellationSignal.cancel();
+
+        final List<ContextualCard> cards = engine.filterEligibleCards(
+                RuntimeEnvironment.application, getCards(2), 300 /* timeoutMs */,
+                cancellationSignal);
+
+        assertThat(cards).isEmpty();
+    }
+
+    private static List<ContextualCard> getCards(int count) {
+        final List<ContextualCard> cards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cards.add(new ContextualCard.Builder()
+                    .setName("test_card_" + i)
+                    .setCardType(ContextualCard.CardType.SLICE)
+                    .setSliceUri(Uri.parse("content://test/test" + i))
+                    .build());
+        }
+        return cards;
+    }
+}
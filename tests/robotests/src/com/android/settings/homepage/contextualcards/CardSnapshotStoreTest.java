@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.android.settings.intelligence.ContextualCardProto.ContextualCard.Category;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class CardSnapshotStoreTest {
+
+    private Context mContext;
+    private CardSnapshotStore mStore;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mStore = new CardSnapshotStore(mContext);
+    }
+
+    @After
+    public void cleanUp() {
+        CardDatabaseHelper.getInstance(mContext).close();
+        CardDatabaseHelper.sCardDatabaseHelper = null;
+    }
+
+    @Test
+    public void load_noSnapshot_shouldReturnEmptyList() {
+        assertThat(mStore.load()).isEmpty();
+    }
+
+    @Test
+    public void save_shouldRestoreCardsInOrder() {
+        final List<ContextualCard> cards = Arrays.asList(
+                buildCard("card1", ContextualCard.CardType.SLICE, 0.5),
+                buildCard("card2", ContextualCard.CardType.SLICE, 0.9));
+
+        mStore.save(cards);
+        final List<ContextualCard> restored = mStore.load();
+
+        assertThat(restored).containsExactlyElementsIn(cards).inOrder();
+        final ContextualCard card = restored.get(1);
+        assertThat(card.getCardType()).isEqualTo(ContextualCard.CardType.SLICE);
+        assertThat(card.getRankingScore()).isEqualTo(0.9);
+        assertThat(card.getSliceUri()).isEqualTo(Uri.parse("content://test/card2"));
+        assertThat(card.getCategory()).isEqualTo(Category.SUGGESTION_VALUE);
+        assertThat(card.getPackageName()).isEqualTo("com.android.settings");
+        assertThat(card.getAppVersion()).isEqualTo(10L);
+        assertThat(card.hasInlineAction()).isTrue();
+    }
+
+    @Test
+    public void save_shouldSkipNonSliceCards() {
+        mStore.save(Arrays.asList(
+                buildCard("card1", ContextualCard.CardType.CONDITIONAL, 0.5),
+                buildCard("card2", ContextualCard.CardType.SLICE, 0.9)));
+
+        final List<ContextualCard> restored = mStore.load();
+
+        assertThat(restored).hasSize(1);
+        assertThat(restored.get(0).getName()).isEqualTo("card2");
+    }
+
+    @Test
+    public void save_twice_shouldReplacePreviousSnapshot() {
+        mStore.save(Arrays.asList(buildCard("card1", ContextualCard.CardType.SLICE, 0.5)));
+
+        mStore.save(new ArrayList<>());
+
+        assertThat(mStore.load()).isEmpty();
+    }
+
+    @Test
+    public void parseSlice_corruptedData_shouldReturnNull() {
+        assertThat(mStore.parseSlice(new byte[] {1, 2, 3})).isNull();
+    }
+
+    private ContextualCard buildCard(String name, int type, double score) {
+        return new ContextualCard.Builder()
+                .setName(name)
+                .setCardType(type)
+                .setRankingScore(score)
+                .setSliceUri(Uri.parse("content://test/" + name))
+                .setCategory(Category.SUGGESTION_VALUE)
+                .setPackageName("com.android.settings")
+                .setAppVersion(10L)
+                .setHasInlineAction(true)
+                .build();
+    }
+}
@@ -90,6 +90,8 @@ public class ContextualCardManagerTest {
     Lifecycle mLifecycle;
     @Mock
     LoaderManager mLoaderManager;
+    @Mock
+    CardSnapshotStore mSnapshotStore;
 
     private Context mContext;
     private ShadowSubscriptionManager mShadowSubscriptionManager;
@@ -112,6 +114,7 @@ public class ContextualCardManagerTest {
         mShadowTelephonyManager.setTelephonyManagerForSubscriptionId(SUB_ID, telephonyManager);
 
         mManager = new ContextualCardManager(mContext, mLifecycle, null /* bundle */);
+        mManager.mSnapshotStore = mSnapshotStore;
     }
 
     @Test
@@ -375,6 +378,52 @@ public class ContextualCardManagerTest {
         assertThat(mManager.mIsFirstLaunch).isFalse();
     }
 
+    @Test
+    public void onFinishCardLoading_slowLoadAndShowingSnapshot_shouldReplaceSnapshot() {
+        mManager.mStartTime = 0;
+        mManager.mIsShowingSnapshot = true;
+        Settings.Global.putInt(mContext.getContentResolver(), CONTEXTUAL_CARD_COUNT, 3);
+        final ContextualCardManager manager = spy(mManager);
+        doNothing().when(manager).onContextualCardUpdated(anyMap());
+
+        manager.onFinishCardLoading(Arrays.asList(buildContextualCard(TEST_SLICE_URI)));
+
+        verify(manager).onContextualCardUpdated(anyMap());
+        assertThat(manager.mIsShowingSnapshot).isFalse();
+    }
+
+    @Test
+    public void onSnapshotLoaded_snapshotPending_shouldShowSnapshotCards() {
+        mManager.mIsSnapshotPending = true;
+
+        mManager.onSnapshotLoaded(getContextualCardList());
+
+        assertThat(mManager.mIsShowingSnapshot).isTrue();
+        assertThat(mManager.mContextualCards).hasSize(getContextualCardList().size());
+    }
+
+    @Test
+    public void onSnapshotLoaded_freshCardsLoaded_shouldNotShowSnapshotCards() {
+        mManager.mIsSnapshotPending = true;
+        mManager.mStartTime = System.currentTimeMillis();
+        mManager.onFinishCardLoading(new ArrayList<>());
+
+        mManager.onSnapshotLoaded(getContextualCardList());
+
+        assertThat(mManager.mIsShowingSnapshot).isFalse();
+        assertThat(mManager.mContextualCards).isEmpty();
+    }
+
+    @Test
+    public void onFinishCardLoading_newLaunch_shouldSaveSnapshot() {
+        mManager.mStartTime = System.currentTimeMillis();
+        final List<ContextualCard> cards = Arrays.asList(buildContextualCard(TEST_SLICE_URI));
+
+        mManager.onFinishCardLoading(cards);
+
+        verify(mSnapshotStore).save(cards);
+    }
+
     @Test
     public void onFinishCardLoading_hasSavedCard_shouldOnlyShowSavedCard() {
         // test screen rotation
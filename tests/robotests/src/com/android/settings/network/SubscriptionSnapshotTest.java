@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.network;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.os.ParcelUuid;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class SubscriptionSnapshotTest {
+
+    private static final ParcelUuid GROUP_UUID =
+            ParcelUuid.fromString("11111111-2222-3333-4444-555555555555");
+    private static final int CARRIER_ID = 1989;
+
+    private SubscriptionInfo mPhysicalSub;
+    private SubscriptionInfo mEmbeddedSub;
+    private SubscriptionInfo mInactiveSub;
+
+    @Before
+    public void setUp() {
+        mPhysicalSub = mockSubscription(1, 0 /* slot */, CARRIER_ID, null /* group */);
+        mEmbeddedSub = mockSubscription(2, 1 /* slot */, CARRIER_ID, GROUP_UUID);
+        when(mEmbeddedSub.isEmbedded()).thenReturn(true);
+        mInactiveSub = mockSubscription(3, SubscriptionManager.INVALID_SIM_SLOT_INDEX,
+                CARRIER_ID + 1, GROUP_UUID);
+        when(mInactiveSub.isEmbedded()).thenReturn(true);
+        when(mInactiveSub.isOpportunistic()).thenReturn(true);
+    }
+
+    @Test
+    public void nullLists_returnsEmptyLists() {
+        final SubscriptionSnapshot snapshot = new SubscriptionSnapshot(1, null, null);
+
+        assertThat(snapshot.getActiveSubscriptions()).isEmpty();
+        assertThat(snapshot.getAccessibleSubscriptions()).isEmpty();
+        assertThat(snapshot.getActiveSubscription(1)).isNull();
+    }
+
+    @Test
+    public void getSubscription_indexesBySubId() {
+        final SubscriptionSnapshot snapshot = createSnapshot();
+
+        assertThat(snapshot.getActiveSubscription(1)).isSameAs(mPhysicalSub);
+        assertThat(snapshot.getActiveSubscription(3)).isNull();
+        assertThat(snapshot.getAccessibleSubscription(3)).isSameAs(mInactiveSub);
+        assertThat(snapshot.getAccessibleSubscription(4)).isNull();
+    }
+
+    @Test
+    public void getSlotIndex_indexesBySlot() {
+        final SubscriptionSnapshot snapshot = createSnapshot();
+
+        assertThat(snapshot.getActiveSubscriptionForSlot(1)).isSameAs(mEmbeddedSub);
+        assertThat(snapshot.getSlotIndex(2)).isEqualTo(1);
+        assertThat(snapshot.getSlotIndex(3))
+                .isEqualTo(SubscriptionManager.INVALID_SIM_SLOT_INDEX);
+    }
+
+    @Test
+    public void getSubscriptions_indexesByCarrierAndGroup() {
+        final SubscriptionSnapshot snapshot = createSnapshot();
+
+        assertThat(snapshot.getSubscriptionsForCarrier(CARRIER_ID))
+                .containsExactly(mPhysicalSub, mEmbeddedSub).inOrder();
+        assertThat(snapshot.getSubscriptionsInGroup(GROUP_UUID))
+                .containsExactly(mEmbeddedSub, mInactiveSub).inOrder();
+        assertThat(snapshot.getSubscriptionsInGroup(new ParcelUuid(GROUP_UUID.getUuid())))
+                .hasSize(2);
+    }
+
+    @Test
+    public void isEmbeddedAndOpportunistic_returnsFlagsOfSubscription() {
+        final SubscriptionSnapshot snapshot = createSnapshot();
+
+        assertThat(snapshot.isEmbedded(1)).isFalse();
+        assertThat(snapshot.isEmbedded(2)).isTrue();
+        assertThat(snapshot.isOpportunistic(2)).isFalse();
+        assertThat(snapshot.isOpportunistic(3)).isTrue();
+        assertThat(snapshot.isOpportunistic(4)).isFalse();
+    }
+
+    @Test
+    public void modifySourceList_snapshotUnchanged() {
+        final List<SubscriptionInfo> active = new ArrayList<>(Arrays.asList(mPhysicalSub));
+        final SubscriptionSnapshot snapshot = new SubscriptionSnapshot(1, active, active);
+
+        active.add(mEmbeddedSub);
+
+        assertThat(snapshot.getActiveSubscriptions()).containsExactly(mPhysicalSub);
+    }
+
+    @Test
+    public void hasSameSubscriptions_comparesContent() {
+        final SubscriptionSnapshot snapshot = createSnapshot();
+
+        assertThat(snapshot.hasSameSubscriptions(Arrays.asList(mPhysicalSub, mEmbeddedSub),
+                Arrays.asList(mPhysicalSub, mEmbeddedSub, mInactiveSub))).isTrue();
+        assertThat(snapshot.hasSameSubscriptions(Arrays.asList(mPhysicalSub),
+                Arrays.asList(mPhysicalSub, mEmbeddedSub, mInactiveSub))).isFalse();
+        assertThat(new SubscriptionSnapshot(1, null, null).hasSameSubscriptions(
+                null, new ArrayList<>())).isTrue();
+    }
+
+    private SubscriptionSnapshot createSnapshot() {
+        return new SubscriptionSnapshot(1, Arrays.asList(mPhysicalSub, mEmbeddedSub),
+                Arrays.asList(mPhysicalSub, mEmbeddedSub, mInactiveSub));
+    }
+
+    private static SubscriptionInfo mockSubscription(int subId, int slotIndex, int carrierId,
+            ParcelUuid groupUuid) {
+        final SubscriptionInfo info = mock(SubscriptionInfo.class);
+        when(info.getSubscriptionId()).thenReturn(subId);
+        when(info.getSimSlotIndex()).thenReturn(slotIndex);
+        when(info.getCarrierId()).thenReturn(carrierId);
+        when(info.getGroupUuid()).thenReturn(groupUuid);
+        return info;
+    }
+}
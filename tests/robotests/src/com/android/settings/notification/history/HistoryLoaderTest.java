@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.app.NotificationHistory;
+import android.app.NotificationHistory.HistoricalNotification;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+import com.android.settings.applications.AppLabelIconCache;
+import com.android.settings.notification.NotificationBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class HistoryLoaderTest {
+
+    @Mock
+    private NotificationBackend mBackend;
+    @Mock
+    private PackageManager mPm;
+    @Mock
+    private AppLabelIconCache mCache;
+
+    private Context mContext;
+    private HistoryLoader mLoader;
+    private List<List<NotificationHistoryPackage>> mPages;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        mLoader = new HistoryLoader(mContext, mBackend, mPm, mCache);
+        mPages = new ArrayList<>();
+    }
+
+    @Test
+    public void groupByPackage_shouldGroupByPackageAndUidMostRecentFirst() {
+        final NotificationHistory history = new NotificationHistory();
+        history.addNotificationToWrite(createNotification("a", 10001, 1));
+        history.addNotificationToWrite(createNotification("b", 10002, 2));
+        history.addNotificationToWrite(createNotification("a", 10001, 3));
+        history.addNotificationToWrite(createNotification("a", 1010001, 4));
+
+        final List<NotificationHistoryPackage> packages = HistoryLoader.groupByPackage(history);
+
+        assertThat(packages).hasSize(3);
+        assertThat(packages.get(0).uid).isEqualTo(1010001);
+        assertThat(packages.get(1).pkgName).isEqualTo("a");
+        assertThat(packages.get(1).uid).isEqualTo(10001);
+        assertThat(packages.get(1).notifications).hasSize(2);
+        assertThat(packages.get(2).pkgName).isEqualTo("b");
+    }
+
+    @Test
+    public void load_shouldPublishPagesOnDemand() {
+        final int count = HistoryLoader.PAGE_SIZE * 2 + 5;
+        setHistory(count);
+
+        mLoader.load(mPages::add);
+
+        assertThat(mPages).hasSize(1);
+        assertThat(mPages.get(0)).hasSize(HistoryLoader.PAGE_SIZE);
+        assertThat(mLoader.hasNextPage()).isTrue();
+
+        mLoader.loadNextPage();
+        mLoader.loadNextPage();
+
+        assertThat(mPages).hasSize(3);
+        assertThat(mPages.get(2)).hasSize(5);
+        assertThat(mLoader.hasNextPage()).isFalse();
+    }
+
+    @Test
+    public void load_shouldResolveLabelsAndIcons() {
+        setHistory(2);
+        final Drawable icon = new ColorDrawable();
+        final Drawable defaultIcon = new ColorDrawable();
+        final AppLabelIconCache.Entry entry = mock(AppLabelIconCache.Entry.class);
+        when(entry.newIcon()).thenReturn(icon);
+        when(mCache.get(mPm, "pkg0", 0)).thenReturn(entry);
+        when(mPm.getDefaultActivityIcon()).thenReturn(defaultIcon);
+
+        mLoader.load(mPages::add);
+
+        final List<NotificationHistoryPackage> page = mPages.get(0);
+        final NotificationHistoryPackage found =
+                page.get(0).pkgName.equals("pkg0") ? page.get(0) : page.get(1);
+        final NotificationHistoryPackage gone = found == page.get(0) ? page.get(1) : page.get(0);
+        assertThat(found.icon).isSameAs(icon);
+        assertThat(gone.label).isNull();
+        assertThat(gone.icon).isSameAs(defaultIcon);
+    }
+
+    @Test
+    public void cancel_shouldStopPublishing() {
+        setHistory(HistoryLoader.PAGE_SIZE + 1);
+        mLoader.load(mPages::add);
+
+        mLoader.cancel();
+        mLoader.loadNextPage();
+
+        assertThat(mPages).hasSize(1);
+        assertThat(mLoader.hasNextPage()).isFalse();
+    }
+
+    private void setHistory(int packageCount) {
+        final NotificationHistory history = new NotificationHistory();
+        for (int i = 0; i < packageCount; i++) {
+            history.addNotificationToWrite(createNotification("pkg" + i, 10000 + i, i));
+        }
+        when(mBackend.getNotificationHistory(anyString(), any())).thenReturn(history);
+    }
+
+    private static HistoricalNotification createNotification(String pkg, int uid,
+            long postedTimeMs) {
+        return new HistoricalNotification.Builder()
+                .setPackage(pkg)
+                .setUid(uid)
+                .setUserId(uid / 100000)
+                .setChannelId("channel")
+                .setChannelName("channel")
+                .setTitle("title")
+                .setText("text")
+                .setPostedTimeMs(postedTimeMs)
+                .build();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.app.INotificationManager;
+import android.app.Notification;
+import android.os.Bundle;
+import android.service.notification.StatusBarNotification;
+import android.util.ArrayMap;
+
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.notification.history.NotificationStation.HistoricalNotificationInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.androidx.fragment.FragmentController;
+import org.robolectric.util.ReflectionHelpers;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationStationTest {
+
+    @Mock
+    private INotificationManager mNoMan;
+
+    private TestNotificationStation mFragment;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(mNoMan.getActiveNotificationsWithAttribution(any(), any()))
+                .thenReturn(new StatusBarNotification[0]);
+        when(mNoMan.getHistoricalNotificationsWithAttribution(any(), any(), anyInt(),
+                anyBoolean())).thenReturn(new StatusBarNotification[0]);
+        mFragment = FragmentController.of(new TestNotificationStation(), new Bundle())
+                .create()
+                .get();
+        ReflectionHelpers.setField(mFragment, "mNoMan", mNoMan);
+        mFragment.mListener.onListenerConnected();
+        // Hold the frames, so the events are only applied on runFrame().
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @Test
+    public void onNotificationPosted_sameKeyNotAlerting_shouldUpdateRowInPlace() {
+        final HistoricalNotificationInfo info = post("key", "title", false /* alerted */);
+        runFrame();
+
+        post("key", "new title", false /* alerted */);
+        runFrame();
+
+        assertThat(getScreen().getPreferenceCount()).isEqualTo(1);
+        assertThat(info.title.toString()).isEqualTo("new title");
+    }
+
+    @Test
+    public void onNotificationPosted_sameKeyAlerting_shouldAddRow() {
+        final HistoricalNotificationInfo info = post("key", "title", false /* alerted */);
+        runFrame();
+
+        post("key", "new title", true /* alerted */);
+        runFrame();
+
+        assertThat(getScreen().getPreferenceCount()).isEqualTo(2);
+        assertThat(info.title.toString()).isEqualTo("title");
+    }
+
+    @Test
+    public void onNotificationPosted_aboveMaxNotifications_shouldDropOldestRow() {
+        for (int i = 0; i <= NotificationStation.MAX_NOTIFICATIONS; i++) {
+            post("key" + i, "title", false /* alerted */);
+        }
+        runFrame();
+
+        assertThat(getScreen().getPreferenceCount())
+                .isEqualTo(NotificationStation.MAX_NOTIFICATIONS);
+        assertThat(getScreen().findPreference("key0")).isNull();
+        assertThat(getScreen().findPreference("key1")).isNotNull();
+    }
+
+    @Test
+    public void onNotificationPostedAndRemoved_sameFrame_shouldApplyAllEventsInFrame() {
+        final HistoricalNotificationInfo first = post("key1", "title", false /* alerted */);
+        final HistoricalNotificationInfo second = post("key2", "title", false /* alerted */);
+        mFragment.mListener.onNotificationRemoved(createSbn("key1"), null /* ranking */);
+
+        assertThat(getScreen().getPreferenceCount()).isEqualTo(0);
+
+        runFrame();
+
+        assertThat(getScreen().getPreferenceCount()).isEqualTo(2);
+        assertThat(first.active).isFalse();
+        assertThat(second.active).isTrue();
+    }
+
+    private HistoricalNotificationInfo post(String key, String title, boolean alerted) {
+        final StatusBarNotification sbn = createSbn(key);
+        final HistoricalNotificationInfo info = new HistoricalNotificationInfo();
+        info.key = key;
+        info.title = title;
+        info.active = true;
+        info.alerted = alerted;
+        mFragment.mInfos.put(sbn, info);
+        mFragment.mListener.onNotificationPosted(sbn, null /* ranking */);
+        return info;
+    }
+
+    private static StatusBarNotification createSbn(String key) {
+        final StatusBarNotification sbn = mock(StatusBarNotification.class);
+        when(sbn.getKey()).thenReturn(key);
+        when(sbn.getNotification()).thenReturn(new Notification());
+        return sbn;
+    }
+
+    private PreferenceScreen getScreen() {
+        return mFragment.getPreferenceScreen();
+    }
+
+    private static void runFrame() {
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    public static class TestNotificationStation extends NotificationStation {
+        private final ArrayMap<StatusBarNotification, HistoricalNotificationInfo> mInfos =
+                new ArrayMap<>();
+
+        @Override
+        HistoricalNotificationInfo createFromSbn(StatusBarNotification sbn, boolean active) {
+            return mInfos.get(sbn);
+        }
+    }
+}
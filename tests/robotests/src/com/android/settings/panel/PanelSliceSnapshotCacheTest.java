@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.panel;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.net.Uri;
+
+import androidx.slice.Slice;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class PanelSliceSnapshotCacheTest {
+
+    private static final Uri URI = Uri.parse("content://test/slice");
+
+    private PanelSliceSnapshotCache mCache;
+    private PanelContent mPanel;
+
+    @Before
+    public void setUp() {
+        mCache = new PanelSliceSnapshotCache();
+        mPanel = new FakePanelContent();
+    }
+
+    @Test
+    public void get_nothingCached_returnsEmpty() {
+        assertThat(mCache.get(mPanel)).isEmpty();
+    }
+
+    @Test
+    public void put_returnsSliceForSamePanelOnly() {
+        final Slice slice = new Slice();
+
+        mCache.put(mPanel, URI, slice);
+
+        assertThat(mCache.get(new FakePanelContent())).containsExactly(URI, slice);
+        assertThat(mCache.get(mock(PanelContent.class))).isEmpty();
+    }
+
+    @Test
+    public void put_nullSlice_forgetsSlice() {
+        mCache.put(mPanel, URI, new Slice());
+
+        mCache.put(mPanel, URI, null /* slice */);
+
+        assertThat(mCache.get(mPanel)).isEmpty();
+    }
+
+    @Test
+    public void get_modifyResult_cacheUnchanged() {
+        mCache.put(mPanel, URI, new Slice());
+
+        mCache.get(mPanel).clear();
+
+        assertThat(mCache.get(mPanel)).hasSize(1);
+    }
+}
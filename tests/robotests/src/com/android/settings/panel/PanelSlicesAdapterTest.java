@@ -61,6 +61,8 @@ import org.robolectric.annotation.Config;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -312,6 +314,62 @@ public class PanelSlicesAdapterTest {
         assertThat(intArgumentCaptor.getValue()).isEqualTo(R.layout.panel_slice_row);
     }
 
+    @Test
+    public void showSlice_keepsOrderOfPanel() {
+        final Uri uri0 = Uri.parse("uri0");
+        final Uri uri1 = Uri.parse("uri1");
+        final Uri uri2 = Uri.parse("uri2");
+        addTestLiveData(uri0);
+        addTestLiveData(uri1);
+        addTestLiveData(uri2);
+        final PanelSlicesAdapter adapter = new PanelSlicesAdapter(mPanelFragment, mData,
+                0 /* metrics category */, Collections.emptySet());
+
+        adapter.showSlice(uri2);
+        adapter.showSlice(uri0);
+        adapter.showSlice(uri2);
+
+        assertThat(adapter.getData()).containsExactly(mData.get(uri0), mData.get(uri2))
+                .inOrder();
+
+        adapter.showSlice(uri1);
+
+        assertThat(adapter.getData())
+                .containsExactly(mData.get(uri0), mData.get(uri1), mData.get(uri2)).inOrder();
+    }
+
+    @Test
+    public void hideSlice_removesShownSlice() {
+        final Uri uri0 = Uri.parse("uri0");
+        final Uri uri1 = Uri.parse("uri1");
+        addTestLiveData(uri0);
+        addTestLiveData(uri1);
+        final PanelSlicesAdapter adapter = new PanelSlicesAdapter(mPanelFragment, mData,
+                0 /* metrics category */, Arrays.asList(uri0, uri1));
+
+        adapter.hideSlice(uri0);
+
+        assertThat(adapter.getData()).containsExactly(mData.get(uri1));
+    }
+
+    @Test
+    public void showSlice_overMaxNum_shouldNotExceedMaxNum() {
+        for (int i = 0; i < MAX_NUM_OF_SLICES + 1; i++) {
+            addTestLiveData(Uri.parse("uri" + i));
+        }
+        final PanelSlicesAdapter adapter = new PanelSlicesAdapter(mPanelFragment, mData,
+                0 /* metrics category */, Collections.emptySet());
+
+        for (Uri uri : mData.keySet()) {
+            adapter.showSlice(uri);
+        }
+        adapter.hideSlice(Uri.parse("uri0"));
+
+        assertThat(adapter.getItemCount()).isEqualTo(MAX_NUM_OF_SLICES);
+        assertThat(adapter.getData().get(MAX_NUM_OF_SLICES - 1))
+                .isEqualTo(mData.get(Uri.parse("uri" + MAX_NUM_OF_SLICES)));
+    }
+
     @Implements(LayoutInflater.class)
     public static class ShadowLayoutInflater {
 
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.SystemClock;
+
+import com.android.settingslib.search.SearchIndexableData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(RobolectricTestRunner.class)
+public class SearchIndexableQueryEngineTest {
+    private static final long TIMEOUT_MS = 200;
+
+    private ExecutorService mExecutor;
+    private SearchIndexableQueryEngine mEngine;
+    private List<SearchIndexableData> mBundles;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newFixedThreadPool(2);
+        mEngine = new SearchIndexableQueryEngine(mExecutor, TIMEOUT_MS);
+        mBundles = new ArrayList<>();
+        mBundles.add(new SearchIndexableData(FakeSettingsFragment.class,
+                FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER));
+        mBundles.add(new SearchIndexableData(String.class,
+                FakeSettingsFragment.SEARCH_INDEX_DATA_PROVIDER));
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void query_mergeResultsInBundleOrder() {
+        final CountDownLatch firstBundleLatch = new CountDownLatch(1);
+
+        final List<String> results = mEngine.query(mBundles, "test", bundle -> {
+            if (bundle.getTargetClass() == FakeSettingsFragment.class) {
+                // Make the first bundle finish last.
+                firstBundleLatch.await();
+                return Collections.singletonList("first");
+            }
+            firstBundleLatch.countDown();
+            return Arrays.asList("second", "third");
+        });
+
+        assertThat(results).containsExactly("first", "second", "third").inOrder();
+    }
+
+    @Test
+    public void query_providerThrows_skipProvider() {
+        final List<String> results = mEngine.query(mBundles, "test", bundle -> {
+            if (bundle.getTargetClass() == FakeSettingsFragment.class) {
+                throw new IllegalStateException();
+            }
+            return Collections.singletonList("second");
+        });
+
+        assertThat(results).containsExactly("second");
+    }
+
+    @Test
+    public void query_providerTimesOut_skipProvider() {
+        final List<String> results = mEngine.query(mBundles, "test", bundle -> {
+            if (bundle.getTargetClass() == FakeSettingsFragment.class) {
+                Thread.sleep(TIMEOUT_MS * 10);
+                return Collections.singletonList("first");
+            }
+            return Collections.singletonList("second");
+        });
+
+        assertThat(results).containsExactly("second");
+    }
+
+    @Test
+    public void query_firstProviderTimesOut_laterProvidersShareDeadline() {
+        final List<String> results = mEngine.query(mBundles, "test", bundle -> {
+            if (bundle.getTargetClass() == FakeSettingsFragment.class) {
+                // The whole timeout is used up by the first provider.
+                SystemClock.setCurrentTimeMillis(SystemClock.elapsedRealtime() + TIMEOUT_MS);
+                Thread.sleep(TIMEOUT_MS * 10);
+                return Collections.singletonList("first");
+            }
+            // Answers within the timeout of the query, but after its deadline.
+            Thread.sleep(TIMEOUT_MS * 3 / 2);
+            return Collections.singletonList("second");
+        });
+
+        assertThat(results).isEmpty();
+    }
+
+    @Test
+    public void query_nullResults_ignored() {
+        final List<String> results = mEngine.query(mBundles, "test", bundle -> null);
+
+        assertThat(results).isEmpty();
+    }
+}
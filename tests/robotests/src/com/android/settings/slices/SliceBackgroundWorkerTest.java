@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceBackgroundWorkerTest {
+
+    private Context mContext;
+    private Sliceable mSliceable;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mSliceable = mock(Sliceable.class);
+        doReturn(TestWorker.class).when(mSliceable).getBackgroundWorkerClass();
+    }
+
+    @After
+    public void tearDown() {
+        SliceBackgroundWorker.shutdown();
+    }
+
+    @Test
+    public void getInstance_sameUri_shouldReturnSameWorker() {
+        final Uri uri = getUri(0);
+
+        final SliceBackgroundWorker worker =
+                SliceBackgroundWorker.getInstance(mContext, mSliceable, uri);
+
+        assertThat(SliceBackgroundWorker.getInstance(mContext, mSliceable, uri))
+                .isSameAs(worker);
+        assertThat((SliceBackgroundWorker) SliceBackgroundWorker.getInstance(uri))
+                .isSameAs(worker);
+    }
+
+    @Test
+    public void unpin_tooManyIdleWorkers_shouldCloseLeastRecentlyUsed() {
+        final long evictions = SliceBackgroundWorker.getEvictionCount();
+        final List<TestWorker> workers = new ArrayList<>();
+        for (int i = 0; i <= SliceBackgroundWorker.MAX_IDLE_WORKERS; i++) {
+            final TestWorker worker = (TestWorker) SliceBackgroundWorker.getInstance(mContext,
+                    mSliceable, getUri(i));
+            worker.pin();
+            workers.add(worker);
+        }
+
+        for (TestWorker worker : workers) {
+            worker.unpin();
+        }
+
+        assertThat(workers.get(0).mClosed).isTrue();
+        assertThat((TestWorker) SliceBackgroundWorker.getInstance(getUri(0))).isNull();
+        for (int i = 1; i < workers.size(); i++) {
+            assertThat(workers.get(i).mClosed).isFalse();
+        }
+        assertThat(SliceBackgroundWorker.getEvictionCount()).isEqualTo(evictions + 1);
+    }
+
+    @Test
+    public void unpin_shouldNotEvictPinnedWorkers() {
+        final TestWorker pinned = (TestWorker) SliceBackgroundWorker.getInstance(mContext,
+                mSliceable, getUri(0));
+        pinned.pin();
+        for (int i = 1; i <= SliceBackgroundWorker.MAX_IDLE_WORKERS + 1; i++) {
+            final SliceBackgroundWorker worker =
+                    SliceBackgroundWorker.getInstance(mContext, mSliceable, getUri(i));
+            worker.pin();
+            worker.unpin();
+        }
+
+        assertThat(pinned.mClosed).isFalse();
+        assertThat((TestWorker) SliceBackgroundWorker.getInstance(getUri(0))).isSameAs(pinned);
+    }
+
+    @Test
+    public void pin_shouldCountPins() {
+        final long pins = SliceBackgroundWorker.getPinCount();
+        final SliceBackgroundWorker worker =
+                SliceBackgroundWorker.getInstance(mContext, mSliceable, getUri(0));
+
+        worker.pin();
+        worker.unpin();
+        worker.pin();
+
+        assertThat(SliceBackgroundWorker.getPinCount()).isEqualTo(pins + 2);
+    }
+
+    @Test
+    public void dump_shouldIncludeCountsAndLiveWorkers() throws JSONException {
+        final SliceBackgroundWorker worker =
+                SliceBackgroundWorker.getInstance(mContext, mSliceable, getUri(0));
+        worker.pin();
+
+        final JSONObject dump = SliceBackgroundWorker.dump();
+
+        assertThat(dump.getLong("pins")).isEqualTo(SliceBackgroundWorker.getPinCount());
+        assertThat(dump.getLong("evictions")).isEqualTo(SliceBackgroundWorker.getEvictionCount());
+        assertThat(dump.getLong("suppressed_notifications"))
+                .isEqualTo(SliceBackgroundWorker.getSuppressedNotificationCount());
+        assertThat(dump.getInt("live_workers")).isEqualTo(1);
+    }
+
+    @Test
+    public void shutdown_shouldCloseAllWorkers() {
+        final TestWorker worker = (TestWorker) SliceBackgroundWorker.getInstance(mContext,
+                mSliceable, getUri(0));
+
+        SliceBackgroundWorker.shutdown();
+
+        assertThat(worker.mClosed).isTrue();
+        assertThat((TestWorker) SliceBackgroundWorker.getInstance(getUri(0))).isNull();
+    }
+
+    private static Uri getUri(int index) {
+        return Uri.parse("content://com.android.settings.slices/test/" + index);
+    }
+
+    public static class TestWorker extends SliceBackgroundWorker<Void> {
+        private boolean mClosed;
+
+        public TestWorker(Context context, Uri uri) {
+            super(context, uri);
+        }
+
+        @Override
+        protected void onSlicePinned() {
+        }
+
+        @Override
+        protected void onSliceUnpinned() {
+        }
+
+        @Override
+        public void close() {
+            mClosed = true;
+        }
+    }
+}
@@ -49,6 +49,7 @@ import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @RunWith(RobolectricTestRunner.class)
 public class SliceDataConverterTest {
@@ -114,6 +115,45 @@ public class SliceDataConverterTest {
         }
     }
 
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void getSliceSources_resourcesUnchanged_shouldKeepFingerprint() {
+        addFakeProvider();
+
+        final String fingerprint = getFakeSource().getFingerprint();
+
+        assertThat(getFakeSource().getFingerprint()).isEqualTo(fingerprint);
+    }
+
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void getSliceSources_localeChanged_shouldChangeFingerprint() {
+        addFakeProvider();
+        final Locale locale = Locale.getDefault();
+        final String fingerprint = getFakeSource().getFingerprint();
+
+        try {
+            Locale.setDefault(Locale.FRANCE.equals(locale) ? Locale.GERMANY : Locale.FRANCE);
+
+            assertThat(getFakeSource().getFingerprint()).isNotEqualTo(fingerprint);
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private void addFakeProvider() {
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues().clear();
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .add(new SearchIndexableData(FakeIndexProvider.class,
+                        FakeIndexProvider.SEARCH_INDEX_DATA_PROVIDER));
+    }
+
+    private SliceDataConverter.SliceSource getFakeSource() {
+        final List<SliceDataConverter.SliceSource> sources = mSliceDataConverter.getSliceSources();
+        assertThat(sources).hasSize(1);
+        return sources.get(0);
+    }
+
     private void assertFakeSlice(SliceData fakeSlice) {
         assertThat(fakeSlice.getKey()).isEqualTo(FAKE_KEY);
         assertThat(fakeSlice.getTitle()).isEqualTo(FAKE_TITLE);
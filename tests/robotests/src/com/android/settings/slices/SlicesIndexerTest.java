@@ -18,8 +18,11 @@ package com.android.settings.slices;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import android.content.ContentValues;
 import android.content.Context;
@@ -38,7 +41,9 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 
 @RunWith(RobolectricTestRunner.class)
 public class SlicesIndexerTest {
@@ -54,20 +59,23 @@ public class SlicesIndexerTest {
     private final String PREF_CONTROLLER = "com.android.settings.slices.tester";
     private final int SLICE_TYPE = SliceData.SliceType.SLIDER;
     private final String UNAVAILABLE_SLICE_SUBTITLE = "subtitleOfUnavailableSlice";
+    private final String FINGERPRINT = "fingerprint";
 
     private Context mContext;
 
     private SlicesIndexer mManager;
-
+    private Locale mDefaultLocale;
 
     @Before
     public void setUp() {
         mContext = RuntimeEnvironment.application;
         mManager = spy(new SlicesIndexer(mContext));
+        mDefaultLocale = Locale.getDefault();
     }
 
     @After
     public void cleanUp() {
+        Locale.setDefault(mDefaultLocale);
         DatabaseTestUtils.clearDb(mContext);
     }
 
@@ -97,7 +105,7 @@ public class SlicesIndexerTest {
     public void testInsertSliceData_indexedStateSet() {
         final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
         helper.setIndexedState();
-        doReturn(new ArrayList<SliceData>()).when(mManager).getSliceData();
+        setUpSliceData(FINGERPRINT, new ArrayList<>());
 
         mManager.run();
 
@@ -107,7 +115,7 @@ public class SlicesIndexerTest {
     @Test
     public void testInsertSliceData_nonPublicSlice_mockDataInserted() {
         final List<SliceData> sliceData = getDummyIndexableData(false);
-        doReturn(sliceData).when(mManager).getSliceData();
+        setUpSliceData(FINGERPRINT, sliceData);
 
         mManager.run();
 
@@ -152,7 +160,7 @@ public class SlicesIndexerTest {
     @Test
     public void insertSliceData_publicSlice_mockDataInserted() {
         final List<SliceData> sliceData = getDummyIndexableData(true);
-        doReturn(sliceData).when(mManager).getSliceData();
+        setUpSliceData(FINGERPRINT, sliceData);
 
         mManager.run();
 
@@ -194,6 +202,118 @@ public class SlicesIndexerTest {
         }
     }
 
+    @Test
+    public void indexSliceData_sameFingerprint_notConvertAgain() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        setUpSliceData(FINGERPRINT, getDummyIndexableData(false));
+        mManager.run();
+        resetIndexedState(helper);
+
+        mManager.run();
+
+        verify(mManager, times(1)).getSliceData(any(SliceDataConverter.SliceSource.class));
+        assertThat(getIndexedRowCount()).isEqualTo(KEYS.length);
+    }
+
+    @Test
+    public void indexSliceData_fingerprintChanged_replaceRowsOfSource() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        setUpSliceData(FINGERPRINT, getDummyIndexableData(false));
+        mManager.run();
+        resetIndexedState(helper);
+        final List<SliceData> newSliceData = getDummyIndexableData(false).subList(0, 1);
+        setUpSliceData("newFingerprint", newSliceData);
+
+        mManager.run();
+
+        verify(mManager, times(2)).getSliceData(any(SliceDataConverter.SliceSource.class));
+        assertThat(getIndexedRowCount()).isEqualTo(newSliceData.size());
+    }
+
+    @Test
+    public void indexSliceData_sourceRemoved_deleteRowsOfSource() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        setUpSliceData(FINGERPRINT, getDummyIndexableData(false));
+        mManager.run();
+        resetIndexedState(helper);
+        doReturn(new ArrayList<>()).when(mManager).getSliceSources();
+
+        mManager.run();
+
+        assertThat(getIndexedRowCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void indexSliceData_localeChangedAndBack_indexTitlesOfCurrentLocale() {
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        Locale.setDefault(Locale.US);
+        setUpSliceData("fingerprintUs", getDummyIndexableData(false));
+        mManager.run();
+
+        Locale.setDefault(Locale.FRANCE);
+        assertThat(helper.isSliceDataIndexed()).isFalse();
+        setUpSliceData("fingerprintFr", getTitledIndexableData("titre"));
+        mManager.run();
+
+        Locale.setDefault(Locale.US);
+        assertThat(helper.isSliceDataIndexed()).isFalse();
+        setUpSliceData("fingerprintUs", getDummyIndexableData(false));
+        mManager.run();
+
+        assertThat(helper.isSliceDataIndexed()).isTrue();
+        assertThat(getIndexedTitles()).containsExactlyElementsIn(TITLES);
+    }
+
+    private void setUpSliceData(String fingerprint, List<SliceData> sliceData) {
+        final SliceDataConverter.SliceSource source = new SliceDataConverter.SliceSource(
+                FRAGMENT_NAME, null /* resources */, fingerprint);
+        doReturn(Collections.singletonList(source)).when(mManager).getSliceSources();
+        doReturn(sliceData).when(mManager).getSliceData(any(SliceDataConverter.SliceSource.class));
+        doReturn(new ArrayList<>()).when(mManager).getAccessibilitySliceData();
+    }
+
+    private void resetIndexedState(SlicesDatabaseHelper helper) {
+        mContext.getSharedPreferences("slices_shared_prefs", Context.MODE_PRIVATE)
+                .edit()
+                .clear()
+                .commit();
+        assertThat(helper.isSliceDataIndexed()).isFalse();
+    }
+
+    private List<String> getIndexedTitles() {
+        final List<String> titles = new ArrayList<>();
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getWritableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT * FROM slices_index", null)) {
+            while (cursor.moveToNext()) {
+                titles.add(cursor.getString(cursor.getColumnIndex(IndexColumns.TITLE)));
+            }
+        }
+        return titles;
+    }
+
+    private List<SliceData> getTitledIndexableData(String titlePrefix) {
+        final List<SliceData> sliceData = getDummyIndexableData(false);
+        final List<SliceData> titledData = new ArrayList<>();
+        for (int i = 0; i < sliceData.size(); i++) {
+            final SliceData data = sliceData.get(i);
+            titledData.add(new SliceData.Builder()
+                    .setKey(data.getKey())
+                    .setTitle(titlePrefix + i)
+                    .setFragmentName(data.getFragmentClassName())
+                    .setUri(data.getUri())
+                    .setPreferenceControllerClassName(data.getPreferenceController())
+                    .build());
+        }
+        return titledData;
+    }
+
+    private int getIndexedRowCount() {
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getWritableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT * FROM slices_index", null)) {
+            return cursor.getCount();
+        }
+    }
+
     private void insertSpecialCase(String key, String title) {
         final ContentValues values = new ContentValues();
         values.put(IndexColumns.KEY, key);
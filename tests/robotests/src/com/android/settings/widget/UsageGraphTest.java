@@ -24,8 +24,7 @@ import static org.mockito.Mockito.when;
 
 import android.content.Context;
 import android.content.res.Resources;
-import android.graphics.Canvas;
-import android.graphics.Paint;
+import android.graphics.Path;
 import android.util.SparseIntArray;
 
 import com.android.settingslib.R;
@@ -67,16 +66,16 @@ public class UsageGraphTest {
         paths.append(500, 50);
         paths.append(501, -1);
 
-        SparseIntArray localPaths = new SparseIntArray();
+        UsageGraph.PointBuffer localPaths = new UsageGraph.PointBuffer();
         mGraph.calculateLocalPaths(paths, localPaths);
 
         assertThat(localPaths.size()).isEqualTo(3);
-        assertThat(localPaths.keyAt(0)).isEqualTo(0);
-        assertThat(localPaths.valueAt(0)).isEqualTo(0);
-        assertThat(localPaths.keyAt(1)).isEqualTo(1000);
-        assertThat(localPaths.valueAt(1)).isEqualTo(100);
-        assertThat(localPaths.keyAt(2)).isEqualTo(1001);
-        assertThat(localPaths.valueAt(2)).isEqualTo(-1);
+        assertThat(localPaths.getX(0)).isEqualTo(0);
+        assertThat(localPaths.getY(0)).isEqualTo(0);
+        assertThat(localPaths.getX(1)).isEqualTo(1000);
+        assertThat(localPaths.getY(1)).isEqualTo(100);
+        assertThat(localPaths.getX(2)).isEqualTo(1001);
+        assertThat(localPaths.getY(2)).isEqualTo(-1);
     }
 
     @Test
@@ -90,24 +89,24 @@ public class UsageGraphTest {
         paths.append(500, 25);
         paths.append(501, -1);
 
-        SparseIntArray localPaths = new SparseIntArray();
+        UsageGraph.PointBuffer localPaths = new UsageGraph.PointBuffer();
         mGraph.calculateLocalPaths(paths, localPaths);
 
         assertThat(localPaths.size()).isEqualTo(6);
 
-        assertThat(localPaths.keyAt(0)).isEqualTo(0);
-        assertThat(localPaths.valueAt(0)).isEqualTo(0);
-        assertThat(localPaths.keyAt(1)).isEqualTo(400);
-        assertThat(localPaths.valueAt(1)).isEqualTo(50);
-        assertThat(localPaths.keyAt(2)).isEqualTo(401);
-        assertThat(localPaths.valueAt(2)).isEqualTo(-1);
-
-        assertThat(localPaths.keyAt(3)).isEqualTo(600);
-        assertThat(localPaths.valueAt(3)).isEqualTo(100);
-        assertThat(localPaths.keyAt(4)).isEqualTo(1000);
-        assertThat(localPaths.valueAt(4)).isEqualTo(150);
-        assertThat(localPaths.keyAt(5)).isEqualTo(1001);
-        assertThat(localPaths.valueAt(5)).isEqualTo(-1);
+        assertThat(localPaths.getX(0)).isEqualTo(0);
+        assertThat(localPaths.getY(0)).isEqualTo(0);
+        assertThat(localPaths.getX(1)).isEqualTo(400);
+        assertThat(localPaths.getY(1)).isEqualTo(50);
+        assertThat(localPaths.getX(2)).isEqualTo(401);
+        assertThat(localPaths.getY(2)).isEqualTo(-1);
+
+        assertThat(localPaths.getX(3)).isEqualTo(600);
+        assertThat(localPaths.getY(3)).isEqualTo(100);
+        assertThat(localPaths.getX(4)).isEqualTo(1000);
+        assertThat(localPaths.getY(4)).isEqualTo(150);
+        assertThat(localPaths.getX(5)).isEqualTo(1001);
+        assertThat(localPaths.getY(5)).isEqualTo(-1);
     }
 
     @Test
@@ -118,16 +117,16 @@ public class UsageGraphTest {
         paths.append(500, 50);
         paths.append(501, -1);
 
-        SparseIntArray localPaths = new SparseIntArray();
+        UsageGraph.PointBuffer localPaths = new UsageGraph.PointBuffer();
         mGraph.calculateLocalPaths(paths, localPaths);
 
         assertThat(localPaths.size()).isEqualTo(3);
-        assertThat(localPaths.keyAt(0)).isEqualTo(0);
-        assertThat(localPaths.valueAt(0)).isEqualTo(0);
-        assertThat(localPaths.keyAt(1)).isEqualTo(1000);
-        assertThat(localPaths.valueAt(1)).isEqualTo(100);
-        assertThat(localPaths.keyAt(2)).isEqualTo(1001);
-        assertThat(localPaths.valueAt(2)).isEqualTo(-1);
+        assertThat(localPaths.getX(0)).isEqualTo(0);
+        assertThat(localPaths.getY(0)).isEqualTo(0);
+        assertThat(localPaths.getX(1)).isEqualTo(1000);
+        assertThat(localPaths.getY(1)).isEqualTo(100);
+        assertThat(localPaths.getX(2)).isEqualTo(1001);
+        assertThat(localPaths.getY(2)).isEqualTo(-1);
     }
 
     @Test
@@ -138,18 +137,18 @@ public class UsageGraphTest {
         paths.append(500, 50); // This point should be kept: it's the last one.
         paths.append(501, -1);
 
-        SparseIntArray localPaths = new SparseIntArray();
+        UsageGraph.PointBuffer localPaths = new UsageGraph.PointBuffer();
         mGraph.calculateLocalPaths(paths, localPaths);
 
         assertThat(localPaths.size()).isEqualTo(4);
-        assertThat(localPaths.keyAt(0)).isEqualTo(0);
-        assertThat(localPaths.valueAt(0)).isEqualTo(0);
-        assertThat(localPaths.keyAt(1)).isEqualTo(998);
-        assertThat(localPaths.valueAt(1)).isEqualTo(98);
-        assertThat(localPaths.keyAt(2)).isEqualTo(1000);
-        assertThat(localPaths.valueAt(2)).isEqualTo(100);
-        assertThat(localPaths.keyAt(3)).isEqualTo(1001);
-        assertThat(localPaths.valueAt(3)).isEqualTo(-1);
+        assertThat(localPaths.getX(0)).isEqualTo(0);
+        assertThat(localPaths.getY(0)).isEqualTo(0);
+        assertThat(localPaths.getX(1)).isEqualTo(998);
+        assertThat(localPaths.getY(1)).isEqualTo(98);
+        assertThat(localPaths.getX(2)).isEqualTo(1000);
+        assertThat(localPaths.getY(2)).isEqualTo(100);
+        assertThat(localPaths.getX(3)).isEqualTo(1001);
+        assertThat(localPaths.getY(3)).isEqualTo(-1);
     }
 
     @Test
@@ -162,31 +161,107 @@ public class UsageGraphTest {
         paths.append(500, 75);
         paths.append(501, -1);
 
-        SparseIntArray localPaths = new SparseIntArray();
+        UsageGraph.PointBuffer localPaths = new UsageGraph.PointBuffer();
         mGraph.calculateLocalPaths(paths, localPaths);
 
         assertThat(localPaths.size()).isEqualTo(6);
-        assertThat(localPaths.keyAt(0)).isEqualTo(0);
-        assertThat(localPaths.valueAt(0)).isEqualTo(200);
-        assertThat(localPaths.keyAt(1)).isEqualTo(399);
-        assertThat(localPaths.valueAt(1)).isEqualTo(200);
-        assertThat(localPaths.keyAt(2)).isEqualTo(400);
-        assertThat(localPaths.valueAt(2)).isEqualTo(150);
-        assertThat(localPaths.keyAt(3)).isEqualTo(600);
-        assertThat(localPaths.valueAt(3)).isEqualTo(100);
-        assertThat(localPaths.keyAt(4)).isEqualTo(1000);
-        assertThat(localPaths.valueAt(4)).isEqualTo(50);
-        assertThat(localPaths.keyAt(5)).isEqualTo(1001);
-        assertThat(localPaths.valueAt(5)).isEqualTo(-1);
+        assertThat(localPaths.getX(0)).isEqualTo(0);
+        assertThat(localPaths.getY(0)).isEqualTo(200);
+        assertThat(localPaths.getX(1)).isEqualTo(399);
+        assertThat(localPaths.getY(1)).isEqualTo(200);
+        assertThat(localPaths.getX(2)).isEqualTo(400);
+        assertThat(localPaths.getY(2)).isEqualTo(150);
+        assertThat(localPaths.getX(3)).isEqualTo(600);
+        assertThat(localPaths.getY(3)).isEqualTo(100);
+        assertThat(localPaths.getX(4)).isEqualTo(1000);
+        assertThat(localPaths.getY(4)).isEqualTo(50);
+        assertThat(localPaths.getX(5)).isEqualTo(1001);
+        assertThat(localPaths.getY(5)).isEqualTo(-1);
     }
 
     @Test
-    public void drawFilledPath_emptyPath_shouldNotCrash() {
-        final Canvas canvas = new Canvas();
-        final SparseIntArray localPaths = new SparseIntArray();
-        final Paint paint = new Paint();
+    public void appendFilledPath_emptyPath_shouldNotCrash() {
+        final UsageGraph.PointBuffer localPaths = new UsageGraph.PointBuffer();
 
         // Should not crash
-        mGraph.drawFilledPath(canvas, localPaths, paint);
+        mGraph.appendFilledPath(localPaths, 0, new Path());
+    }
+
+    @Test
+    public void calculateLocalPaths_pointsInSameColumn_shouldKeepExtremes() {
+        // Each pixel column now covers 100ms.
+        mGraph.setMax(100000, 100);
+        SparseIntArray paths = new SparseIntArray();
+        for (int x = 0; x < 100; x++) {
+            paths.append(x, 50);
+        }
+        paths.put(30, 100);
+        paths.put(60, 0);
+        paths.append(100000, 50);
+        paths.append(100001, -1);
+
+        UsageGraph.PointBuffer localPaths = new UsageGraph.PointBuffer();
+        mGraph.calculateLocalPaths(paths, localPaths);
+
+        assertThat(localPaths.size()).isEqualTo(6);
+        assertThat(localPaths.getX(0)).isEqualTo(0);
+        assertThat(localPaths.getY(0)).isEqualTo(100);
+        assertThat(localPaths.getX(1)).isEqualTo(0);
+        assertThat(localPaths.getY(1)).isEqualTo(0);
+        assertThat(localPaths.getX(2)).isEqualTo(0);
+        assertThat(localPaths.getY(2)).isEqualTo(200);
+        assertThat(localPaths.getX(3)).isEqualTo(0);
+        assertThat(localPaths.getY(3)).isEqualTo(100);
+        assertThat(localPaths.getX(4)).isEqualTo(1000);
+        assertThat(localPaths.getY(4)).isEqualTo(100);
+        assertThat(localPaths.getX(5)).isEqualTo(1001);
+        assertThat(localPaths.getY(5)).isEqualTo(-1);
+    }
+
+    @Test
+    public void calculateLocalPaths_manyPoints_shouldBeBoundedByWidth() {
+        mGraph.setMax(100000, 100);
+        SparseIntArray paths = new SparseIntArray();
+        for (int x = 0; x < 100000; x++) {
+            paths.append(x, x % 2 == 0 ? 0 : 100);
+        }
+        paths.append(100000, -1);
+
+        UsageGraph.PointBuffer localPaths = new UsageGraph.PointBuffer();
+        mGraph.calculateLocalPaths(paths, localPaths);
+
+        assertThat(localPaths.size()).isAtMost(4 * 1000 + 1);
+        assertThat(localPaths.getY(localPaths.size() - 1)).isEqualTo(-1);
+    }
+
+    @Test
+    public void addPath_appendedPath_shouldMatchFullCalculation() {
+        SparseIntArray first = new SparseIntArray();
+        first.append(0, 100);
+        first.append(200, 75);
+        SparseIntArray second = new SparseIntArray();
+        second.append(300, 50);
+        second.append(499, 51);
+        second.append(500, 50);
+
+        mGraph.addPath(first);
+        mGraph.addPath(second);
+
+        SparseIntArray paths = new SparseIntArray();
+        paths.append(0, 100);
+        paths.append(200, 75);
+        paths.append(201, -1);
+        paths.append(300, 50);
+        paths.append(499, 51);
+        paths.append(500, 50);
+        paths.append(501, -1);
+        UsageGraph.PointBuffer expected = new UsageGraph.PointBuffer();
+        mGraph.calculateLocalPaths(paths, expected);
+
+        assertThat(mGraph.mLocalPaths.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(mGraph.mLocalPaths.getX(i)).isEqualTo(expected.getX(i));
+            assertThat(mGraph.mLocalPaths.getY(i)).isEqualTo(expected.getY(i));
+        }
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi.qrcode;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class QrCodeGeneratorTest {
+
+    private static final String QR_CODE = "WIFI:S:test;T:WPA;P:password;;";
+
+    @After
+    public void tearDown() {
+        QrCodeGenerator.clearCache();
+    }
+
+    @Test
+    public void encodeQrCode_shouldMatchWriterMatrix() throws Exception {
+        final int size = 300;
+        final BitMatrix expected =
+                new QRCodeWriter().encode(QR_CODE, BarcodeFormat.QR_CODE, size, size);
+
+        final Bitmap bitmap = QrCodeGenerator.encodeQrCode(QR_CODE, size);
+
+        assertThat(bitmap.getWidth()).isEqualTo(size);
+        assertThat(bitmap.getHeight()).isEqualTo(size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                assertThat(bitmap.getPixel(x, y))
+                        .isEqualTo(expected.get(x, y) ? Color.BLACK : Color.WHITE);
+            }
+        }
+    }
+
+    @Test
+    public void getQrCode_sameContentsAndSize_shouldReturnCachedBitmap() throws Exception {
+        final Bitmap bitmap = QrCodeGenerator.getQrCode(QR_CODE, 200);
+
+        assertThat(QrCodeGenerator.getQrCode(QR_CODE, 200)).isSameAs(bitmap);
+        assertThat(QrCodeGenerator.getQrCode(QR_CODE, 201)).isNotSameAs(bitmap);
+    }
+
+    @Test
+    public void clearCache_shouldGenerateAgain() throws Exception {
+        final Bitmap bitmap = QrCodeGenerator.getQrCode(QR_CODE, 200);
+
+        QrCodeGenerator.clearCache();
+
+        assertThat(QrCodeGenerator.getQrCode(QR_CODE, 200)).isNotSameAs(bitmap);
+    }
+
+    @Test
+    public void getQrCode_moreCodesThanCacheSize_shouldEvictOldest() throws Exception {
+        final Bitmap bitmap = QrCodeGenerator.getQrCode(QR_CODE, 100);
+        for (int i = 0; i < QrCodeGenerator.CACHE_SIZE; i++) {
+            QrCodeGenerator.getQrCode(QR_CODE + i, 100);
+        }
+
+        assertThat(QrCodeGenerator.getQrCode(QR_CODE, 100)).isNotSameAs(bitmap);
+    }
+}
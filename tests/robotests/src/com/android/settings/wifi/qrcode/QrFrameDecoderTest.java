@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.wifi.qrcode;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class QrFrameDecoderTest {
+
+    private static final String QR_CODE = "WIFI:S:test;T:WPA;P:password;;";
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    private static final int CODE_SIZE = 240;
+    private static final int CODE_LEFT = 300;
+    private static final int CODE_TOP = 120;
+
+    @Test
+    public void crop_shouldShareFrameData() {
+        final byte[] frame = new byte[FRAME_WIDTH * FRAME_HEIGHT * 3 / 2];
+        frame[FRAME_WIDTH * 2 + 3] = 42;
+
+        final QrYuvLuminanceSource cropped = (QrYuvLuminanceSource)
+                new QrYuvLuminanceSource(frame, FRAME_WIDTH, FRAME_HEIGHT).crop(3, 2, 10, 10);
+        frame[FRAME_WIDTH * 3 + 4] = 7;
+
+        assertThat(cropped.getRow(0, null)[0]).isEqualTo(42);
+        assertThat(cropped.getMatrix()[10 + 1]).isEqualTo(7);
+    }
+
+    @Test
+    public void getMatrix_fullWidth_shouldNotCopy() {
+        final byte[] frame = new byte[FRAME_WIDTH * FRAME_HEIGHT * 3 / 2];
+
+        assertThat(new QrYuvLuminanceSource(frame, FRAME_WIDTH, FRAME_HEIGHT).getMatrix())
+                .isSameAs(frame);
+    }
+
+    @Test
+    public void decode_cropAroundCode_shouldReturnText() throws Exception {
+        final QrFrameDecoder decoder = new QrFrameDecoder();
+
+        assertThat(decoder.decode(createFrame(), FRAME_WIDTH, FRAME_HEIGHT,
+                new Rect(CODE_LEFT - 20, CODE_TOP - 20, CODE_LEFT + CODE_SIZE + 20,
+                        CODE_TOP + CODE_SIZE + 20))).isEqualTo(QR_CODE);
+    }
+
+    @Test
+    public void decode_cropWithoutCode_shouldReturnNull() throws Exception {
+        final QrFrameDecoder decoder = new QrFrameDecoder();
+
+        assertThat(decoder.decode(createFrame(), FRAME_WIDTH, FRAME_HEIGHT,
+                new Rect(0, 0, 200, 200))).isNull();
+    }
+
+    private static byte[] createFrame() throws Exception {
+        final Bitmap bitmap = QrCodeGenerator.encodeQrCode(QR_CODE, CODE_SIZE);
+        final byte[] frame = new byte[FRAME_WIDTH * FRAME_HEIGHT * 3 / 2];
+        // A white frame with neutral chroma, and the code in the luminance plane.
+        Arrays.fill(frame, 0, FRAME_WIDTH * FRAME_HEIGHT, (byte) 0xff);
+        Arrays.fill(frame, FRAME_WIDTH * FRAME_HEIGHT, frame.length, (byte) 0x80);
+        for (int y = 0; y < CODE_SIZE; y++) {
+            for (int x = 0; x < CODE_SIZE; x++) {
+                frame[(CODE_TOP + y) * FRAME_WIDTH + CODE_LEFT + x] =
+                        (byte) Color.red(bitmap.getPixel(x, y));
+            }
+        }
+        bitmap.recycle();
+        return frame;
+    }
+}
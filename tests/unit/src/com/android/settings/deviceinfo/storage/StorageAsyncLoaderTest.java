@@ -23,6 +23,8 @@ import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.content.Context;
@@ -40,6 +42,7 @@ import androidx.test.runner.AndroidJUnit4;
 
 import com.android.settingslib.applications.StorageStatsSource;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -47,8 +50,11 @@ import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RunWith(AndroidJUnit4.class)
 @SmallTest
@@ -70,6 +76,7 @@ public class StorageAsyncLoaderTest {
     private List<ApplicationInfo> mInfo = new ArrayList<>();
     private List<UserInfo> mUsers;
 
+    private ExecutorService mExecutor;
     private StorageAsyncLoader mLoader;
 
 
@@ -77,7 +84,9 @@ public class StorageAsyncLoaderTest {
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
         mInfo = new ArrayList<>();
-        mLoader = new StorageAsyncLoader(mContext, mUserManager, "id", mSource, mPackageManager);
+        mExecutor = Executors.newFixedThreadPool(2);
+        mLoader = new StorageAsyncLoader(mContext, mUserManager, "id", mSource, mPackageManager,
+                mExecutor, null /* cache */);
         when(mPackageManager.getInstalledApplicationsAsUser(eq(PRIMARY_USER_ID), anyInt()))
                 .thenReturn(mInfo);
         UserInfo info = new UserInfo();
@@ -87,6 +96,11 @@ public class StorageAsyncLoaderTest {
         when(mSource.getCacheQuotaBytes(anyString(), anyInt())).thenReturn(DEFAULT_QUOTA);
     }
 
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
     @Test
     public void testLoadingApps() throws Exception {
         addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
@@ -221,6 +235,36 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).otherAppsSize).isEqualTo(DEFAULT_QUOTA + 11);
     }
 
+    @Test
+    public void testManyPackagesAreAllCounted() throws Exception {
+        for (int i = 0; i < StorageAsyncLoader.BATCH_SIZE * 2 + 1; i++) {
+            addPackage(PACKAGE_NAME_1 + i, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+        }
+
+        SparseArray<StorageAsyncLoader.AppsStorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).otherAppsSize)
+                .isEqualTo(11L * (StorageAsyncLoader.BATCH_SIZE * 2 + 1));
+    }
+
+    @Test
+    public void testCachedStatsAreReused() throws Exception {
+        File file = File.createTempFile("package_storage_stats", ".bin");
+        file.delete();
+        PackageStorageStatsCache cache = new PackageStorageStatsCache(file, Long.MAX_VALUE);
+        mLoader = new StorageAsyncLoader(mContext, mUserManager, "id", mSource, mPackageManager,
+                mExecutor, cache);
+        addPackage(PACKAGE_NAME_1, 0, 1, 10, ApplicationInfo.CATEGORY_UNDEFINED);
+
+        mLoader.loadInBackground();
+        SparseArray<StorageAsyncLoader.AppsStorageResult> result = mLoader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).otherAppsSize).isEqualTo(11L);
+        verify(mSource, times(1))
+                .getStatsForPackage(anyString(), eq(PACKAGE_NAME_1), any(UserHandle.class));
+        file.delete();
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStatsSource.AppStorageStats storageStats =